@@ -0,0 +1,41 @@
+package top.panson.benchmark;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ *
+ * @方法描述：基准测试的启动入口，会依次使用1、4、16、64个生产者线程运行匹配到的基准测试，
+ * 同时输出吞吐量、延迟分布和gc分析器统计的分配速率，每一轮的结果都会写到单独的json文件中，方便和后续的优化做对比
+ * 使用方式：java -jar moirai-benchmarks.jar [基准测试类名的正则表达式]
+ */
+public class BenchmarkRunner {
+
+    //生产者线程数量
+    private static final int[] PRODUCER_THREADS = {1, 4, 16, 64};
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "top.panson.benchmark.*Benchmark";
+        for (int threads : PRODUCER_THREADS) {
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .mode(Mode.Throughput)
+                    .mode(Mode.SampleTime)
+                    .timeUnit(TimeUnit.MICROSECONDS)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("moirai-benchmark-" + threads + "-threads.json")
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
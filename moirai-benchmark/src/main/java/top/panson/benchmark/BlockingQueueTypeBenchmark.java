@@ -0,0 +1,85 @@
+package top.panson.benchmark;
+
+import top.panson.benchmark.support.BenchmarkExecutors;
+import top.panson.benchmark.support.BenchmarkTask;
+import top.panson.common.executor.support.BlockingQueueTypeEnum;
+import top.panson.common.executor.support.QueueDiscardAware;
+import top.panson.common.executor.support.QueueDiscardListener;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ *
+ * @方法描述：使用没有注册插件的扩展线程池，依次替换BlockingQueueTypeEnum中的每一种任务队列，比较队列本身对提交任务的影响
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlockingQueueTypeBenchmark {
+
+    @Param({
+            "ARRAY_BLOCKING_QUEUE",
+            "LINKED_BLOCKING_QUEUE",
+            "LINKED_BLOCKING_DEQUE",
+            "SYNCHRONOUS_QUEUE",
+            "LINKED_TRANSFER_QUEUE",
+            "PRIORITY_BLOCKING_QUEUE",
+            "RESIZABLE_LINKED_BLOCKING_QUEUE",
+            "CODEL_BLOCKING_QUEUE",
+            "RESIZABLE_ARRAY_BLOCKING_QUEUE",
+            "WEIGHT_BOUNDED_BLOCKING_QUEUE",
+            "BOUNDED_PRIORITY_BLOCKING_QUEUE",
+            "WORK_STEALING_BLOCKING_QUEUE"
+    })
+    public BlockingQueueTypeEnum queueType;
+
+    @Param({"0"})
+    public long taskTokens;
+
+    private ThreadPoolExecutor executor;
+
+    private Semaphore inFlight;
+
+    private BenchmarkTask task;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        inFlight = new Semaphore(BenchmarkExecutors.QUEUE_CAPACITY);
+        task = new BenchmarkTask(inFlight, taskTokens);
+        BlockingQueue<Runnable> workQueue = BlockingQueueTypeEnum.createBlockingQueue(queueType.getType(), BenchmarkExecutors.QUEUE_CAPACITY);
+        executor = BenchmarkExecutors.newExtensibleExecutor(0, workQueue);
+        //CoDel队列会在出队时丢弃排队时间过长的任务，被丢弃的任务不会执行，也就不会归还在途许可，生产者最终会一直阻塞，
+        //所以在线程池设置的监听器之前先归还许可
+        if (workQueue instanceof QueueDiscardAware) {
+            QueueDiscardAware discardAware = (QueueDiscardAware) workQueue;
+            QueueDiscardListener executorListener = discardAware.getQueueDiscardListener();
+            discardAware.setQueueDiscardListener(element -> {
+                inFlight.release();
+                if (executorListener != null) {
+                    executorListener.onDiscard(element);
+                }
+            });
+        }
+        executor.prestartAllCoreThreads();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        BenchmarkExecutors.shutdown(executor);
+    }
+
+    @Benchmark
+    public void execute() throws InterruptedException {
+        inFlight.acquire();
+        executor.execute(task);
+    }
+}
@@ -0,0 +1,55 @@
+package top.panson.benchmark;
+
+import top.panson.benchmark.support.BenchmarkExecutors;
+import top.panson.benchmark.support.BenchmarkExecutors.ExecutorType;
+import top.panson.benchmark.support.BenchmarkTask;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ *
+ * @方法描述：在相同的线程数和队列容量下，比较jdk原生线程池、快速线程池、扩展线程池、动态线程池和批量获取任务的动态线程池提交任务的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutorComparisonBenchmark {
+
+    @Param({"THREAD_POOL_EXECUTOR", "FAST_THREAD_POOL_EXECUTOR", "EXTENSIBLE_THREAD_POOL_EXECUTOR", "DYNAMIC_THREAD_POOL_EXECUTOR", "BATCHING_DYNAMIC_THREAD_POOL_EXECUTOR"})
+    public ExecutorType executorType;
+
+    @Param({"0", "100"})
+    public long taskTokens;
+
+    private ThreadPoolExecutor executor;
+
+    private Semaphore inFlight;
+
+    private BenchmarkTask task;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        inFlight = new Semaphore(BenchmarkExecutors.QUEUE_CAPACITY);
+        task = new BenchmarkTask(inFlight, taskTokens);
+        executor = BenchmarkExecutors.newExecutor(executorType);
+        executor.prestartAllCoreThreads();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        BenchmarkExecutors.shutdown(executor);
+    }
+
+    @Benchmark
+    public void execute() throws InterruptedException {
+        inFlight.acquire();
+        executor.execute(task);
+    }
+}
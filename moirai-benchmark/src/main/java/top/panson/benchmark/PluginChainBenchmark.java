@@ -0,0 +1,65 @@
+package top.panson.benchmark;
+
+import top.panson.benchmark.support.BenchmarkExecutors;
+import top.panson.benchmark.support.BenchmarkTask;
+import top.panson.benchmark.support.HookExposedThreadPoolExecutor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ *
+ * @方法描述：测量扩展线程池插件链的开销，插件数量从0到4依次增加，分别测量execute的端到端开销和beforeExecute/afterExecute钩子本身的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PluginChainBenchmark {
+
+    //注册的插件数量，依次为TaskDecoratorPlugin、TaskTimeRecordPlugin、TaskTimeoutNotifyAlarmPlugin、TaskRejectCountRecordPlugin
+    @Param({"0", "1", "2", "3", "4"})
+    public int pluginCount;
+
+    //每个任务消耗的CPU令牌数量
+    @Param({"0"})
+    public long taskTokens;
+
+    private HookExposedThreadPoolExecutor executor;
+
+    private Semaphore inFlight;
+
+    private BenchmarkTask task;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        inFlight = new Semaphore(BenchmarkExecutors.QUEUE_CAPACITY);
+        task = new BenchmarkTask(inFlight, taskTokens);
+        executor = BenchmarkExecutors.newExtensibleExecutor(pluginCount, new LinkedBlockingQueue<>(BenchmarkExecutors.QUEUE_CAPACITY));
+        executor.prestartAllCoreThreads();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        BenchmarkExecutors.shutdown(executor);
+    }
+
+    //提交任务的完整路径：TaskAwarePlugin、ctl、任务队列、工作线程中的ExecuteAwarePlugin
+    @Benchmark
+    public void execute() throws InterruptedException {
+        inFlight.acquire();
+        executor.execute(task);
+    }
+
+    //只测量工作线程执行任务前后的插件回调开销，invokeBeforeExecute会先把提交的任务数量加一，和afterExecute中的减一配对
+    @Benchmark
+    public void beforeAndAfterExecute() {
+        executor.invokeBeforeExecute(Thread.currentThread(), task);
+        executor.invokeAfterExecute(task, null);
+    }
+}
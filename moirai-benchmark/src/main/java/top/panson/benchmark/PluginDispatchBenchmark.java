@@ -0,0 +1,61 @@
+package top.panson.benchmark;
+
+import top.panson.benchmark.support.CountingExecuteAwarePlugin;
+import top.panson.benchmark.support.ReadLockPluginDispatcher;
+import top.panson.core.plugin.manager.DefaultThreadPoolPluginManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ *
+ * @方法描述：比较插件分发的两种实现，一种是读锁加CopyOnWriteArrayList的旧实现，另一种是插件管理器发布的不可变快照，
+ * 每次调用都模拟了一个任务在线程池中经历的三次回调：execute、beforeExecute和afterExecute，
+ * 使用BenchmarkRunner在1、4、16、64个线程下运行，就可以看到读锁上的CAS竞争随着线程数增加带来的影响
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PluginDispatchBenchmark {
+
+    @Param({"1", "4"})
+    public int pluginCount;
+
+    private ReadLockPluginDispatcher readLockDispatcher;
+
+    private DefaultThreadPoolPluginManager pluginManager;
+
+    private final Runnable task = () -> {
+    };
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        readLockDispatcher = new ReadLockPluginDispatcher();
+        pluginManager = new DefaultThreadPoolPluginManager();
+        for (int i = 0; i < pluginCount; i++) {
+            readLockDispatcher.register(new CountingExecuteAwarePlugin("read-lock-" + i));
+            pluginManager.register(new CountingExecuteAwarePlugin("snapshot-" + i));
+        }
+    }
+
+    @Benchmark
+    public void readLock(Blackhole blackhole) {
+        Runnable runnable = readLockDispatcher.beforeTaskExecute(task);
+        readLockDispatcher.beforeExecute(Thread.currentThread(), runnable);
+        readLockDispatcher.afterExecute(runnable, null);
+        blackhole.consume(runnable);
+    }
+
+    @Benchmark
+    public void snapshot(Blackhole blackhole) {
+        Runnable runnable = pluginManager.getPluginSnapshot().beforeTaskExecute(task);
+        pluginManager.getPluginSnapshot().beforeExecute(Thread.currentThread(), runnable);
+        pluginManager.getPluginSnapshot().afterExecute(runnable, null);
+        blackhole.consume(runnable);
+    }
+}
@@ -0,0 +1,85 @@
+package top.panson.benchmark;
+
+import top.panson.common.executor.support.BlockingQueueTypeEnum;
+import top.panson.common.executor.support.ResizableCapacityQueue;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ *
+ * @方法描述：直接比较两种可以动态调整容量的队列，不经过线程池，生产者和消费者线程各自不停地入队和出队，
+ * offerPoll组只有生产者和消费者，resize组额外有一个线程在两个容量之间来回调整队列容量，
+ * 可以看到链表队列每个元素创建节点对象以及两把锁的开销，和环形数组队列在调整容量时对生产者和消费者的影响
+ */
+@State(Scope.Group)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResizableQueueBenchmark {
+
+    @Param({
+            "RESIZABLE_LINKED_BLOCKING_QUEUE",
+            "RESIZABLE_ARRAY_BLOCKING_QUEUE"
+    })
+    public BlockingQueueTypeEnum queueType;
+
+    @Param({"1024"})
+    public int capacity;
+
+    private BlockingQueue<Integer> queue;
+
+    private final Integer element = 1;
+
+    private int resizeTimes;
+
+    @Setup(Level.Iteration)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        queue = BlockingQueueTypeEnum.createBlockingQueue(queueType.getType(), capacity);
+    }
+
+    @Benchmark
+    @Group("offerPoll")
+    @GroupThreads(2)
+    public boolean offer() {
+        return queue.offer(element);
+    }
+
+    @Benchmark
+    @Group("offerPoll")
+    @GroupThreads(2)
+    public Integer poll() {
+        return queue.poll();
+    }
+
+    @Benchmark
+    @Group("resize")
+    @GroupThreads(2)
+    public boolean resizeOffer() {
+        return queue.offer(element);
+    }
+
+    @Benchmark
+    @Group("resize")
+    @GroupThreads(2)
+    public Integer resizePoll() {
+        return queue.poll();
+    }
+
+    @Benchmark
+    @Group("resize")
+    @GroupThreads(1)
+    public void resizeCapacity(Blackhole blackhole) {
+        //容量在原值和四分之一之间来回调整，环形数组队列会因此链接新的数组
+        int newCapacity = (resizeTimes++ & 1) == 0 ? Math.max(1, capacity >> 2) : capacity;
+        ((ResizableCapacityQueue) queue).setCapacity(newCapacity);
+        Blackhole.consumeCPU(1000);
+        blackhole.consume(newCapacity);
+    }
+}
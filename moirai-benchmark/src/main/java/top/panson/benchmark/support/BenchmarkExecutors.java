@@ -0,0 +1,139 @@
+package top.panson.benchmark.support;
+
+import top.panson.common.design.builder.ThreadFactoryBuilder;
+import top.panson.core.executor.BatchingDynamicThreadPoolExecutor;
+import top.panson.core.executor.DynamicThreadPoolExecutor;
+import top.panson.core.executor.ExtensibleThreadPoolExecutor;
+import top.panson.core.executor.support.FastThreadPoolExecutor;
+import top.panson.core.executor.support.TaskQueue;
+import top.panson.core.plugin.impl.TaskDecoratorPlugin;
+import top.panson.core.plugin.impl.TaskRejectCountRecordPlugin;
+import top.panson.core.plugin.impl.TaskTimeRecordPlugin;
+import top.panson.core.plugin.impl.TaskTimeoutNotifyAlarmPlugin;
+import top.panson.core.plugin.manager.DefaultThreadPoolPluginManager;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ *
+ * @方法描述：基准测试中用到的线程池都由这个类创建，保证不同的线程池在相同的参数下进行比较
+ */
+public final class BenchmarkExecutors {
+
+    //基准测试线程池的线程数量，默认和CPU核数一致
+    public static final int POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+    //基准测试任务队列的容量，同时也是生产者的最大在途任务数量
+    public static final int QUEUE_CAPACITY = 1024;
+
+    //基准测试使用的线程池Id
+    public static final String THREAD_POOL_ID = "moirai-benchmark";
+
+    //任务执行超时时间设置成最大值，保证超时告警插件永远不会真正发送告警
+    private static final long NEVER_TIMEOUT = Long.MAX_VALUE;
+
+    private BenchmarkExecutors() {
+    }
+
+
+    /**
+     * @方法描述：参与比较的线程池类型
+     */
+    public enum ExecutorType {
+
+        //jdk原生线程池
+        THREAD_POOL_EXECUTOR,
+
+        //快速线程池和它专属的TaskQueue
+        FAST_THREAD_POOL_EXECUTOR,
+
+        //没有注册任何插件的扩展线程池
+        EXTENSIBLE_THREAD_POOL_EXECUTOR,
+
+        //注册了默认插件的动态线程池
+        DYNAMIC_THREAD_POOL_EXECUTOR,
+
+        //注册了默认插件、批量获取任务的动态线程池
+        BATCHING_DYNAMIC_THREAD_POOL_EXECUTOR
+    }
+
+
+    //创建指定类型的线程池，任务队列统一使用LinkedBlockingQueue，快速线程池使用TaskQueue
+    public static ThreadPoolExecutor newExecutor(ExecutorType executorType) {
+        switch (executorType) {
+            case THREAD_POOL_EXECUTOR:
+                return new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 60L, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<>(QUEUE_CAPACITY), newThreadFactory(), new ThreadPoolExecutor.CallerRunsPolicy());
+            case FAST_THREAD_POOL_EXECUTOR:
+                TaskQueue<Runnable> taskQueue = new TaskQueue<>(QUEUE_CAPACITY);
+                FastThreadPoolExecutor fastThreadPoolExecutor = new FastThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 60L, TimeUnit.SECONDS,
+                        taskQueue, newThreadFactory(), new ThreadPoolExecutor.CallerRunsPolicy());
+                taskQueue.setExecutor(fastThreadPoolExecutor);
+                return fastThreadPoolExecutor;
+            case EXTENSIBLE_THREAD_POOL_EXECUTOR:
+                return newExtensibleExecutor(0, new LinkedBlockingQueue<>(QUEUE_CAPACITY));
+            case DYNAMIC_THREAD_POOL_EXECUTOR:
+                return new DynamicThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 60L, TimeUnit.SECONDS,
+                        NEVER_TIMEOUT, false, 0L, new LinkedBlockingQueue<>(QUEUE_CAPACITY),
+                        THREAD_POOL_ID, newThreadFactory(), new ThreadPoolExecutor.CallerRunsPolicy());
+            case BATCHING_DYNAMIC_THREAD_POOL_EXECUTOR:
+                return new BatchingDynamicThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 60L, TimeUnit.SECONDS,
+                        NEVER_TIMEOUT, false, 0L, new LinkedBlockingQueue<>(QUEUE_CAPACITY),
+                        THREAD_POOL_ID, newThreadFactory(), new ThreadPoolExecutor.CallerRunsPolicy(),
+                        BatchingDynamicThreadPoolExecutor.DEFAULT_DEQUEUE_BATCH_SIZE);
+            default:
+                throw new IllegalArgumentException("Unknown executor type: " + executorType);
+        }
+    }
+
+
+    //创建一个扩展线程池，并且按照装饰器、耗时统计、超时告警、拒绝计数的顺序注册前pluginCount个插件
+    public static HookExposedThreadPoolExecutor newExtensibleExecutor(int pluginCount, BlockingQueue<Runnable> workQueue) {
+        HookExposedThreadPoolExecutor executor = new HookExposedThreadPoolExecutor(
+                THREAD_POOL_ID, new DefaultThreadPoolPluginManager(),
+                POOL_SIZE, POOL_SIZE, 60L, TimeUnit.SECONDS,
+                workQueue, newThreadFactory(), new ThreadPoolExecutor.CallerRunsPolicy());
+        registerPlugins(executor, pluginCount);
+        return executor;
+    }
+
+
+    //按照固定顺序注册插件
+    public static void registerPlugins(ExtensibleThreadPoolExecutor executor, int pluginCount) {
+        if (pluginCount > 0) {
+            executor.register(new TaskDecoratorPlugin());
+        }
+        if (pluginCount > 1) {
+            executor.register(new TaskTimeRecordPlugin());
+        }
+        if (pluginCount > 2) {
+            executor.register(new TaskTimeoutNotifyAlarmPlugin(executor.getThreadPoolId(), NEVER_TIMEOUT, executor));
+        }
+        if (pluginCount > 3) {
+            executor.register(new TaskRejectCountRecordPlugin());
+        }
+    }
+
+
+    //关闭线程池并等待工作线程退出
+    public static void shutdown(ThreadPoolExecutor executor) throws InterruptedException {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdownNow();
+        executor.awaitTermination(10L, TimeUnit.SECONDS);
+    }
+
+
+    private static ThreadFactory newThreadFactory() {
+        return ThreadFactoryBuilder.builder()
+                .prefix(THREAD_POOL_ID)
+                .daemon(true)
+                .build();
+    }
+}
@@ -0,0 +1,42 @@
+package top.panson.benchmark.support;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.Semaphore;
+
+
+/**
+ *
+ * @方法描述：基准测试中提交给线程池的任务，任务执行完毕之后会归还一个在途许可，这样生产者就不会把无界队列撑爆
+ * 任务本身没有状态，所以同一个对象可以被重复提交，这样测出来的分配速率就全部是线程池自身产生的
+ * 实现Comparable接口是为了能够放进PriorityBlockingQueue中
+ */
+public final class BenchmarkTask implements Runnable, Comparable<BenchmarkTask> {
+
+    //在途任务许可
+    private final Semaphore inFlight;
+
+    //每个任务消耗的CPU令牌数量，为0时表示空任务
+    private final long tokens;
+
+    public BenchmarkTask(Semaphore inFlight, long tokens) {
+        this.inFlight = inFlight;
+        this.tokens = tokens;
+    }
+
+    @Override
+    public void run() {
+        try {
+            if (tokens > 0) {
+                Blackhole.consumeCPU(tokens);
+            }
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    @Override
+    public int compareTo(BenchmarkTask other) {
+        return 0;
+    }
+}
@@ -0,0 +1,42 @@
+package top.panson.benchmark.support;
+
+import top.panson.core.plugin.ExecuteAwarePlugin;
+import top.panson.core.plugin.TaskAwarePlugin;
+
+
+/**
+ *
+ * @方法描述：基准测试专用的插件，回调方法中只做一次普通的自增操作，这样测出来的就是插件分发本身的开销
+ */
+public class CountingExecuteAwarePlugin implements ExecuteAwarePlugin, TaskAwarePlugin {
+
+    private final String id;
+
+    //这里故意不用原子类，避免插件内部的竞争掩盖了分发逻辑的差异
+    private long invocations;
+
+    public CountingExecuteAwarePlugin(String id) {
+        this.id = id;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public Runnable beforeTaskExecute(Runnable runnable) {
+        invocations++;
+        return runnable;
+    }
+
+    @Override
+    public void beforeExecute(Thread thread, Runnable runnable) {
+        invocations++;
+    }
+
+    @Override
+    public void afterExecute(Runnable runnable, Throwable throwable) {
+        invocations++;
+    }
+}
@@ -0,0 +1,43 @@
+package top.panson.benchmark.support;
+
+import top.panson.common.toolkit.ReflectUtil;
+import top.panson.core.executor.ExtensibleThreadPoolExecutor;
+import top.panson.core.plugin.manager.ThreadPoolPluginManager;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ *
+ * @方法描述：把ExtensibleThreadPoolExecutor中受保护的beforeExecute和afterExecute方法暴露出来，这样就可以脱离工作线程单独测量插件链的开销，
+ * afterExecute会把提交的任务数量减一，所以调用beforeExecute之前和execute方法一样先把提交的任务数量加一，保证计数不会变成负数
+ */
+public class HookExposedThreadPoolExecutor extends ExtensibleThreadPoolExecutor {
+
+    //父类中记录已经提交但是还没有执行完的任务数量的计数器
+    private final LongAdder submittedTasks;
+
+    public HookExposedThreadPoolExecutor(String threadPoolId,
+                                         ThreadPoolPluginManager threadPoolPluginManager,
+                                         int corePoolSize, int maximumPoolSize,
+                                         long keepAliveTime, TimeUnit unit,
+                                         BlockingQueue<Runnable> workQueue,
+                                         ThreadFactory threadFactory,
+                                         RejectedExecutionHandler handler) {
+        super(threadPoolId, threadPoolPluginManager, corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler);
+        this.submittedTasks = (LongAdder) ReflectUtil.getFieldValue(this, "submittedTaskCount");
+    }
+
+    public void invokeBeforeExecute(Thread thread, Runnable runnable) {
+        submittedTasks.increment();
+        beforeExecute(thread, runnable);
+    }
+
+    public void invokeAfterExecute(Runnable runnable, Throwable throwable) {
+        afterExecute(runnable, throwable);
+    }
+}
@@ -0,0 +1,72 @@
+package top.panson.benchmark.support;
+
+import top.panson.core.plugin.ExecuteAwarePlugin;
+import top.panson.core.plugin.TaskAwarePlugin;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+
+/**
+ *
+ * @方法描述：还原了插件管理器改成快照之前的分发方式，每次获取插件集合都要加读锁，然后通过lambda遍历CopyOnWriteArrayList，
+ * 作为PluginDispatchBenchmark中的对照组
+ */
+public class ReadLockPluginDispatcher {
+
+    private final ReadWriteLock instanceLock = new ReentrantReadWriteLock();
+
+    private final List<TaskAwarePlugin> taskAwarePluginList = new CopyOnWriteArrayList<>();
+
+    private final List<ExecuteAwarePlugin> executeAwarePluginList = new CopyOnWriteArrayList<>();
+
+    public void register(CountingExecuteAwarePlugin plugin) {
+        Lock writeLock = instanceLock.writeLock();
+        writeLock.lock();
+        try {
+            taskAwarePluginList.add(plugin);
+            executeAwarePluginList.add(plugin);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public Collection<TaskAwarePlugin> getTaskAwarePluginList() {
+        Lock readLock = instanceLock.readLock();
+        readLock.lock();
+        try {
+            return taskAwarePluginList;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    public Collection<ExecuteAwarePlugin> getExecuteAwarePluginList() {
+        Lock readLock = instanceLock.readLock();
+        readLock.lock();
+        try {
+            return executeAwarePluginList;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    public Runnable beforeTaskExecute(Runnable runnable) {
+        for (TaskAwarePlugin taskAwarePlugin : getTaskAwarePluginList()) {
+            runnable = taskAwarePlugin.beforeTaskExecute(runnable);
+        }
+        return runnable;
+    }
+
+    public void beforeExecute(Thread thread, Runnable runnable) {
+        getExecuteAwarePluginList().forEach(aware -> aware.beforeExecute(thread, runnable));
+    }
+
+    public void afterExecute(Runnable runnable, Throwable throwable) {
+        getExecuteAwarePluginList().forEach(aware -> aware.afterExecute(runnable, throwable));
+    }
+}
@@ -17,6 +17,12 @@ public class ChangeThreadPoolConstants {
             + "\n    rejectedType: {}"
             + "\n    allowCoreThreadTimeOut: {}";
 
+    /**
+     * Dynamic fork/join pool parameter change text
+     */
+    public static final String CHANGE_FORK_JOIN_POOL_TEXT = "[{}] Dynamic fork/join pool change parameter."
+            + "\n    parallelism: {}";
+
     /**
      * Dynamic thread pool parameter change separator
      */
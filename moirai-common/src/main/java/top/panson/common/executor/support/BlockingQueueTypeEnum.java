@@ -51,7 +51,32 @@ public enum BlockingQueueTypeEnum {
     /**
      * {@link ResizableCapacityLinkedBlockingQueue}
      */
-    RESIZABLE_LINKED_BLOCKING_QUEUE(9, "ResizableCapacityLinkedBlockingQueue");
+    RESIZABLE_LINKED_BLOCKING_QUEUE(9, "ResizableCapacityLinkedBlockingQueue"),
+
+    /**
+     * {@link CoDelBlockingQueue}
+     */
+    CODEL_BLOCKING_QUEUE(10, "CoDelBlockingQueue"),
+
+    /**
+     * {@link ResizableCapacityArrayBlockingQueue}
+     */
+    RESIZABLE_ARRAY_BLOCKING_QUEUE(11, "ResizableCapacityArrayBlockingQueue"),
+
+    /**
+     * {@link WeightBoundedBlockingQueue}
+     */
+    WEIGHT_BOUNDED_BLOCKING_QUEUE(12, "WeightBoundedBlockingQueue"),
+
+    /**
+     * {@link BoundedPriorityBlockingQueue}
+     */
+    BOUNDED_PRIORITY_BLOCKING_QUEUE(13, "BoundedPriorityBlockingQueue"),
+
+    /**
+     * {@link WorkStealingBlockingQueue}
+     */
+    WORK_STEALING_BLOCKING_QUEUE(14, "WorkStealingBlockingQueue");
 
     @Getter
     private Integer type;
@@ -116,6 +141,16 @@ public enum BlockingQueueTypeEnum {
             blockingQueue = new PriorityBlockingQueue(capacity);
         } else if (Objects.equals(type, RESIZABLE_LINKED_BLOCKING_QUEUE.type)) {
             blockingQueue = new ResizableCapacityLinkedBlockingQueue(capacity);
+        } else if (Objects.equals(type, CODEL_BLOCKING_QUEUE.type)) {
+            blockingQueue = new CoDelBlockingQueue(capacity);
+        } else if (Objects.equals(type, RESIZABLE_ARRAY_BLOCKING_QUEUE.type)) {
+            blockingQueue = new ResizableCapacityArrayBlockingQueue(capacity);
+        } else if (Objects.equals(type, WEIGHT_BOUNDED_BLOCKING_QUEUE.type)) {
+            blockingQueue = new WeightBoundedBlockingQueue(capacity);
+        } else if (Objects.equals(type, BOUNDED_PRIORITY_BLOCKING_QUEUE.type)) {
+            blockingQueue = new BoundedPriorityBlockingQueue(capacity);
+        } else if (Objects.equals(type, WORK_STEALING_BLOCKING_QUEUE.type)) {
+            blockingQueue = new WorkStealingBlockingQueue(capacity);
         }
         Collection<CustomBlockingQueue> customBlockingQueues = DynamicThreadPoolServiceLoader
                 .getSingletonServiceInstances(CustomBlockingQueue.class);
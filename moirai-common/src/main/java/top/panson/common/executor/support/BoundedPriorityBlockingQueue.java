@@ -0,0 +1,672 @@
+package top.panson.common.executor.support;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @方法描述：有界并且容量可以动态调整的优先级阻塞队列，内部使用一把锁和一个最小最大堆实现，堆顶是优先级最高的元素，
+ * 堆顶的两个子节点中较大的那个就是优先级最低的元素，所以出队和淘汰最低优先级元素都只需要O(log n)，不需要在锁内扫描叶子节点。
+ * 元素的优先级和{@link java.util.concurrent.PriorityBlockingQueue}一样由元素的自然顺序或者比较器决定，越小的元素优先级越高。
+ * 队列满了之后，如果开启了淘汰最低优先级元素的策略，新元素的优先级比队列中优先级最低的元素更高时，会把优先级最低的元素从队列中淘汰，
+ * 被淘汰的元素会通知给{@link QueueDiscardListener}，线程池会把这些任务交给拒绝策略插件处理；否则新元素入队失败，走线程池的拒绝策略。
+ * 开启了淘汰策略的队列在容量被调小时，会立即淘汰超出容量的最低优先级元素
+ */
+public class BoundedPriorityBlockingQueue<E> extends AbstractQueue<E>
+        implements
+            BlockingQueue<E>,
+            ResizableCapacityQueue,
+            QueueWaitTimeAware,
+            QueueDiscardAware,
+            java.io.Serializable {
+
+    private static final long serialVersionUID = -3810451243652714235L;
+
+    private static final int INITIAL_ARRAY_SIZE = 16;
+
+    /**
+     * The capacity bound
+     */
+    private volatile int capacity;
+
+    /**
+     * Whether to evict the lowest priority element when full
+     */
+    private volatile boolean evictLowestPriority;
+
+    private final Comparator<? super E> comparator;
+
+    //下面这些字段都被lock保护，元素和入队时间存放在两个数组中，一起构成一个最小最大堆，数组按需扩容，
+    //偶数层是最小层，节点不大于它的所有子孙，奇数层是最大层，节点不小于它的所有子孙
+    private transient Object[] queue;
+
+    private transient long[] enqueueNanos;
+
+    private transient int count;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    //被淘汰的元素总数
+    private transient volatile long evictCount;
+
+    private transient volatile QueueWaitTimeListener queueWaitTimeListener;
+
+    private transient volatile QueueDiscardListener queueDiscardListener;
+
+    public BoundedPriorityBlockingQueue(int capacity) {
+        this(capacity, null, false);
+    }
+
+    public BoundedPriorityBlockingQueue(int capacity, Comparator<? super E> comparator, boolean evictLowestPriority) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.capacity = capacity;
+        this.comparator = comparator;
+        this.evictLowestPriority = evictLowestPriority;
+        this.queue = new Object[Math.min(capacity, INITIAL_ARRAY_SIZE)];
+        this.enqueueNanos = new long[queue.length];
+    }
+
+    public void setEvictLowestPriority(boolean evictLowestPriority) {
+        this.evictLowestPriority = evictLowestPriority;
+    }
+
+    public boolean isEvictLowestPriority() {
+        return evictLowestPriority;
+    }
+
+    public long getEvictCount() {
+        return evictCount;
+    }
+
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public void setCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        List<Object> evicted = null;
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            int oldCapacity = this.capacity;
+            this.capacity = capacity;
+            if (capacity > oldCapacity) {
+                notFull.signalAll();
+            }
+            if (evictLowestPriority && count > capacity) {
+                //容量被调小了，直接淘汰超出容量的最低优先级元素，否则队列会一直超过容量，之后每次入队都只能淘汰一个元素
+                evicted = evictLowest(count - capacity);
+            }
+        } finally {
+            lock.unlock();
+        }
+        notifyDiscard(evicted);
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void setQueueWaitTimeListener(QueueWaitTimeListener listener) {
+        this.queueWaitTimeListener = listener;
+    }
+
+    @Override
+    public QueueWaitTimeListener getQueueWaitTimeListener() {
+        return queueWaitTimeListener;
+    }
+
+    @Override
+    public void setQueueDiscardListener(QueueDiscardListener listener) {
+        this.queueDiscardListener = listener;
+    }
+
+    @Override
+    public QueueDiscardListener getQueueDiscardListener() {
+        return queueDiscardListener;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(Object a, Object b) {
+        return comparator == null ? ((Comparable<? super E>) a).compareTo((E) b) : comparator.compare((E) a, (E) b);
+    }
+
+    /**
+     * Inserts element, call only while holding lock and count < capacity.
+     */
+    private void enqueue(E e) {
+        if (count >= queue.length) {
+            int newLength = (int) Math.min((long) queue.length << 1, Integer.MAX_VALUE - 8);
+            queue = Arrays.copyOf(queue, newLength);
+            enqueueNanos = Arrays.copyOf(enqueueNanos, newLength);
+        }
+        pushUp(count++, e, queueWaitTimeListener == null ? 0L : System.nanoTime());
+        notEmpty.signal();
+    }
+
+    /**
+     * Try to evict the lowest priority elements for the offered element, call only while holding lock and count >= capacity.
+     *
+     * @return evicted elements, null if the offered element is not prior to any queued element
+     */
+    private List<Object> evictFor(E e) {
+        if (!evictLowestPriority || count == 0) {
+            return null;
+        }
+        if (compare(e, queue[lowestIndex()]) >= 0) {
+            return null;
+        }
+        //容量被调小之后才开启淘汰策略的话，队列中的元素可能还超过容量，这里一起淘汰掉，让队列回到容量以内
+        return evictLowest(count - capacity + 1);
+    }
+
+    /**
+     * Evicts the lowest priority elements, call only while holding lock and n <= count.
+     */
+    private List<Object> evictLowest(int n) {
+        List<Object> evicted = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int lowest = lowestIndex();
+            evicted.add(queue[lowest]);
+            removeAt(lowest);
+        }
+        evictCount += n;
+        return evicted;
+    }
+
+    //优先级最低的元素在最大层的第一层，也就是堆顶的两个子节点中较大的那个
+    private int lowestIndex() {
+        if (count <= 2) {
+            return count - 1;
+        }
+        return compare(queue[1], queue[2]) >= 0 ? 1 : 2;
+    }
+
+    private void notifyDiscard(List<Object> evicted) {
+        QueueDiscardListener listener = queueDiscardListener;
+        if (evicted == null || listener == null) {
+            return;
+        }
+        for (Object each : evicted) {
+            listener.onDiscard(each);
+        }
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        List<Object> evicted = null;
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (count >= capacity && (evicted = evictFor(e)) == null) {
+                return false;
+            }
+            enqueue(e);
+        } finally {
+            lock.unlock();
+        }
+        notifyDiscard(evicted);
+        return true;
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        offer(e, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        long nanos = unit.toNanos(timeout);
+        List<Object> evicted = null;
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            while (count >= capacity && (evicted = evictFor(e)) == null) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            enqueue(e);
+        } finally {
+            lock.unlock();
+        }
+        notifyDiscard(evicted);
+        return true;
+    }
+
+    /**
+     * Removes the head of heap, call only while holding lock and count > 0.
+     */
+    @SuppressWarnings("unchecked")
+    private E dequeue() {
+        E result = (E) queue[0];
+        long nanos = enqueueNanos[0];
+        int n = --count;
+        Object last = queue[n];
+        long lastNanos = enqueueNanos[n];
+        queue[n] = null;
+        if (n > 0) {
+            trickleDown(0, last, lastNanos);
+        }
+        notFull.signal();
+        QueueWaitTimeListener listener = queueWaitTimeListener;
+        if (listener != null && nanos != 0L) {
+            listener.onDequeue(System.nanoTime() - nanos);
+        }
+        return result;
+    }
+
+    private static boolean isMinLevel(int k) {
+        return ((31 - Integer.numberOfLeadingZeros(k + 1)) & 1) == 0;
+    }
+
+    //在最小层上a比b更小，或者在最大层上a比b更大，也就是a应该放在b的上面
+    private boolean above(Object a, Object b, boolean minLevel) {
+        int c = compare(a, b);
+        return minLevel ? c < 0 : c > 0;
+    }
+
+    private void move(int from, int to) {
+        queue[to] = queue[from];
+        enqueueNanos[to] = enqueueNanos[from];
+    }
+
+    private void set(int k, Object x, long nanos) {
+        queue[k] = x;
+        enqueueNanos[k] = nanos;
+    }
+
+    //把x放到叶子节点k，先和父节点比较决定沿着最小层还是最大层往上移动
+    private void pushUp(int k, Object x, long nanos) {
+        if (k == 0) {
+            set(k, x, nanos);
+            return;
+        }
+        int parent = (k - 1) >>> 1;
+        boolean minLevel = isMinLevel(k);
+        if (above(x, queue[parent], !minLevel)) {
+            //x应该放在父节点所在的层，父节点移动到k
+            move(parent, k);
+            pushUpAlternating(parent, x, nanos, !minLevel);
+        } else {
+            pushUpAlternating(k, x, nanos, minLevel);
+        }
+    }
+
+    //只和祖父节点比较，沿着同一种层往上移动
+    private void pushUpAlternating(int k, Object x, long nanos, boolean minLevel) {
+        while (k > 2) {
+            int grandparent = (((k - 1) >>> 1) - 1) >>> 1;
+            if (!above(x, queue[grandparent], minLevel)) {
+                break;
+            }
+            move(grandparent, k);
+            k = grandparent;
+        }
+        set(k, x, nanos);
+    }
+
+    //把x放到节点k，k的子树除了k本身都满足最小最大堆的性质，x沿着和k同一种层往下移动
+    private void trickleDown(int k, Object x, long nanos) {
+        boolean minLevel = isMinLevel(k);
+        int half = count >>> 1;
+        while (k < half) {
+            //在子节点和孙子节点中找到最应该放在上面的节点
+            int child = (k << 1) + 1;
+            int m = child;
+            if (child + 1 < count && above(queue[child + 1], queue[m], minLevel)) {
+                m = child + 1;
+            }
+            if (child < half) {
+                int grandchild = (child << 1) + 1;
+                int end = Math.min(grandchild + 4, count);
+                for (int i = grandchild; i < end; i++) {
+                    if (above(queue[i], queue[m], minLevel)) {
+                        m = i;
+                    }
+                }
+            }
+            if (!above(queue[m], x, minLevel)) {
+                break;
+            }
+            move(m, k);
+            k = m;
+            if (m <= child + 1) {
+                //m是子节点的话，m所在的层和k相反，x放到m之后仍然满足和m的子孙之间的顺序，移动就结束了
+                break;
+            }
+            //m是孙子节点，x移动到m之后可能和m的父节点顺序相反，这时候交换x和父节点，继续往下移动父节点原来的元素
+            int parent = (m - 1) >>> 1;
+            if (above(x, queue[parent], !minLevel)) {
+                Object displaced = queue[parent];
+                long displacedNanos = enqueueNanos[parent];
+                set(parent, x, nanos);
+                x = displaced;
+                nanos = displacedNanos;
+            }
+        }
+        set(k, x, nanos);
+    }
+
+    /**
+     * Removes the element at index, call only while holding lock.
+     */
+    private void removeAt(int i) {
+        int s = --count;
+        if (s == i) {
+            queue[i] = null;
+        } else {
+            Object moved = queue[s];
+            long movedNanos = enqueueNanos[s];
+            queue[s] = null;
+            fill(i, moved, movedNanos);
+        }
+        notFull.signal();
+    }
+
+    //把最后一个元素x填到被移除元素的位置k，x可能需要往上移动，也可能需要往下移动
+    private void fill(int k, Object x, long nanos) {
+        if (k == 0) {
+            trickleDown(k, x, nanos);
+            return;
+        }
+        int parent = (k - 1) >>> 1;
+        boolean minLevel = isMinLevel(k);
+        if (above(x, queue[parent], !minLevel)) {
+            //x越过了父节点所在的层，父节点的元素放到k再往下移动，x沿着父节点所在的层往上移动
+            trickleDown(k, queue[parent], enqueueNanos[parent]);
+            pushUpAlternating(parent, x, nanos, !minLevel);
+        } else if (k > 2 && above(x, queue[(parent - 1) >>> 1], minLevel)) {
+            pushUpAlternating(k, x, nanos, minLevel);
+        } else {
+            trickleDown(k, x, nanos);
+        }
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E poll() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return count == 0 ? null : dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return count == 0 ? null : (E) queue[0];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return Math.max(0, capacity - count);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                if (o.equals(queue[i])) {
+                    removeAt(i);
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Object[] toArray() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return Arrays.copyOf(queue, count);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (a.length < count) {
+                return (T[]) Arrays.copyOf(queue, count, a.getClass());
+            }
+            System.arraycopy(queue, 0, a, 0, count);
+            if (a.length > count) {
+                a[count] = null;
+            }
+            return a;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Arrays.fill(queue, 0, count, null);
+            count = 0;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null) {
+            throw new NullPointerException();
+        }
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            int n = Math.min(maxElements, count);
+            for (int i = 0; i < n; i++) {
+                c.add(dequeue());
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a snapshot iterator in no particular order, {@link Iterator#remove()} removes the element from the queue.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr(toArray());
+    }
+
+    @Override
+    public String toString() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return super.toString();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private class Itr implements Iterator<E> {
+
+        private final Object[] snapshot;
+
+        private int cursor;
+
+        private int lastRet = -1;
+
+        Itr(Object[] snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor < snapshot.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (cursor >= snapshot.length) {
+                throw new NoSuchElementException();
+            }
+            lastRet = cursor++;
+            return (E) snapshot[lastRet];
+        }
+
+        @Override
+        public void remove() {
+            if (lastRet < 0) {
+                throw new IllegalStateException();
+            }
+            removeIdentity(snapshot[lastRet]);
+            lastRet = -1;
+        }
+    }
+
+    private void removeIdentity(Object o) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                if (queue[i] == o) {
+                    removeAt(i);
+                    return;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeObject(java.io.ObjectOutputStream s) throws java.io.IOException {
+        List<Object> elements = new ArrayList<>(Arrays.asList(toArray()));
+        s.defaultWriteObject();
+        for (Object each : elements) {
+            s.writeObject(each);
+        }
+        s.writeObject(null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(java.io.ObjectInputStream s) throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        queue = new Object[Math.min(capacity, INITIAL_ARRAY_SIZE)];
+        enqueueNanos = new long[queue.length];
+        for (;;) {
+            E item = (E) s.readObject();
+            if (item == null) {
+                break;
+            }
+            add(item);
+        }
+    }
+}
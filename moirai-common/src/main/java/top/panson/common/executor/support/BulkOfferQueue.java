@@ -0,0 +1,19 @@
+package top.panson.common.executor.support;
+
+import java.util.List;
+
+/**
+ * @方法描述：支持批量入队的阻塞队列，线程池批量提交任务时，只要工作队列实现了这个接口，
+ * 就可以只获取一次锁把一批任务都放到队列中，并且最多只唤醒一次等待的消费者，而不是每个任务都加锁、唤醒一次
+ */
+public interface BulkOfferQueue<E> {
+
+    /**
+     * Inserts elements in list order without waiting, until the queue is full.
+     * The inserted elements are always a prefix of the list.
+     *
+     * @param elements elements to insert
+     * @return number of inserted elements
+     */
+    int offerAll(List<? extends E> elements);
+}
@@ -0,0 +1,713 @@
+package top.panson.common.executor.support;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @方法描述：基于CoDel(Controlled Delay)算法的自适应阻塞队列，队列会记录每个元素的入队时间，在出队的时候计算元素的排队时长，
+ * 如果在一个观察周期内每次出队时队头元素的排队时长都超过了目标延迟，说明队列中已经形成了积压，这时候队列会进入过载状态：
+ * 过载状态下排队时长超过目标延迟的元素会被直接丢弃，并且出队顺序切换为LIFO，优先执行刚刚提交的任务，
+ * 因为等待时间过长的任务即使执行了，调用方大概率也已经超时了；没有过载时按照FIFO出队，只丢弃排队时长超过一个观察周期的元素。
+ * 被丢弃的元素会通知给{@link QueueDiscardListener}，线程池会把这些任务交给拒绝策略插件处理
+ */
+public class CoDelBlockingQueue<E> extends AbstractQueue<E>
+        implements
+            BlockingQueue<E>,
+            ResizableCapacityQueue,
+            QueueWaitTimeAware,
+            QueueDiscardAware,
+            java.io.Serializable {
+
+    private static final long serialVersionUID = 2658162478391722574L;
+
+    /**
+     * Default target delay, milliseconds
+     */
+    public static final long DEFAULT_TARGET_DELAY = 5L;
+
+    /**
+     * Default interval, milliseconds
+     */
+    public static final long DEFAULT_INTERVAL = 100L;
+
+    private static final int INITIAL_ARRAY_SIZE = 16;
+
+    /**
+     * The capacity bound
+     */
+    private volatile int capacity;
+
+    /**
+     * Target delay, nanoseconds
+     */
+    private volatile long targetDelayNanos;
+
+    /**
+     * Interval, nanoseconds
+     */
+    private volatile long intervalNanos;
+
+    //下面这些字段都被lock保护，元素和入队时间分别存放在两个环形数组中，数组长度总是2的幂次方，按需扩容，不会超过容量太多
+    private transient Object[] items;
+
+    private transient long[] enqueueNanos;
+
+    private transient int head;
+
+    private transient int count;
+
+    //当前观察周期结束的时间
+    private transient long intervalEnd;
+
+    //当前观察周期内出队时队头元素的最小排队时长
+    private transient long minSojournNanos;
+
+    //等待通知给监听器的被丢弃元素，总是在释放锁之后再通知
+    private transient List<Object> pendingDiscards;
+
+    //是否处于过载状态，过载状态下按照LIFO出队
+    private transient volatile boolean overloaded;
+
+    //被队列丢弃的元素总数
+    private transient volatile long discardCount;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    private transient volatile QueueWaitTimeListener queueWaitTimeListener;
+
+    private transient volatile QueueDiscardListener queueDiscardListener;
+
+    public CoDelBlockingQueue(int capacity) {
+        this(capacity, DEFAULT_TARGET_DELAY, DEFAULT_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    public CoDelBlockingQueue(int capacity, long targetDelay, long interval, TimeUnit unit) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.capacity = capacity;
+        this.targetDelayNanos = checkPositive(unit.toNanos(targetDelay));
+        this.intervalNanos = checkPositive(unit.toNanos(interval));
+        this.items = new Object[INITIAL_ARRAY_SIZE];
+        this.enqueueNanos = new long[INITIAL_ARRAY_SIZE];
+        this.minSojournNanos = Long.MAX_VALUE;
+        this.intervalEnd = System.nanoTime() + intervalNanos;
+    }
+
+    private static long checkPositive(long nanos) {
+        if (nanos <= 0) {
+            throw new IllegalArgumentException();
+        }
+        return nanos;
+    }
+
+    /**
+     * Set target delay, tasks queued longer than it will be discarded when the queue is overloaded.
+     *
+     * @param targetDelay target delay
+     * @param unit        time unit
+     */
+    public void setTargetDelay(long targetDelay, TimeUnit unit) {
+        this.targetDelayNanos = checkPositive(unit.toNanos(targetDelay));
+    }
+
+    public long getTargetDelay(TimeUnit unit) {
+        return unit.convert(targetDelayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Set interval, the queue is considered overloaded when no element was dequeued within
+     * target delay during a whole interval.
+     *
+     * @param interval interval
+     * @param unit     time unit
+     */
+    public void setInterval(long interval, TimeUnit unit) {
+        this.intervalNanos = checkPositive(unit.toNanos(interval));
+    }
+
+    public long getInterval(TimeUnit unit) {
+        return unit.convert(intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isOverloaded() {
+        return overloaded;
+    }
+
+    public long getDiscardCount() {
+        return discardCount;
+    }
+
+    @Override
+    public void setCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            int oldCapacity = this.capacity;
+            this.capacity = capacity;
+            if (capacity > oldCapacity) {
+                notFull.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void setQueueWaitTimeListener(QueueWaitTimeListener listener) {
+        this.queueWaitTimeListener = listener;
+    }
+
+    @Override
+    public QueueWaitTimeListener getQueueWaitTimeListener() {
+        return queueWaitTimeListener;
+    }
+
+    @Override
+    public void setQueueDiscardListener(QueueDiscardListener listener) {
+        this.queueDiscardListener = listener;
+    }
+
+    @Override
+    public QueueDiscardListener getQueueDiscardListener() {
+        return queueDiscardListener;
+    }
+
+    @Override
+    public int size() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return Math.max(0, capacity - count);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Inserts element at tail, call only while holding lock and count < capacity.
+     */
+    private void enqueue(E e) {
+        if (count == items.length) {
+            grow();
+        }
+        long now = System.nanoTime();
+        if (count == 0) {
+            //队列被清空过，说明没有形成积压
+            minSojournNanos = 0L;
+        }
+        int index = (head + count) & (items.length - 1);
+        items[index] = e;
+        enqueueNanos[index] = now;
+        count++;
+        notEmpty.signal();
+    }
+
+    private void grow() {
+        int oldLength = items.length;
+        Object[] newItems = new Object[oldLength << 1];
+        long[] newEnqueueNanos = new long[oldLength << 1];
+        for (int i = 0; i < count; i++) {
+            int index = (head + i) & (oldLength - 1);
+            newItems[i] = items[index];
+            newEnqueueNanos[i] = enqueueNanos[index];
+        }
+        items = newItems;
+        enqueueNanos = newEnqueueNanos;
+        head = 0;
+    }
+
+    /**
+     * Dequeue an element according to the CoDel state, call only while holding lock and count > 0.
+     *
+     * @return element, null if every queued element was discarded
+     */
+    @SuppressWarnings("unchecked")
+    private E dequeue() {
+        long now = System.nanoTime();
+        //观察周期结束后，根据这个周期内的最小排队时长判断队列是否过载
+        if (now - intervalEnd >= 0) {
+            overloaded = minSojournNanos > targetDelayNanos;
+            minSojournNanos = Long.MAX_VALUE;
+            intervalEnd = now + intervalNanos;
+        }
+        boolean currentOverloaded = overloaded;
+        long sojournLimit = currentOverloaded ? targetDelayNanos : intervalNanos;
+        int mask = items.length - 1;
+        //用队头元素的排队时长衡量积压，LIFO出队的元素排队时间很短，不能反映队列中是否存在积压
+        long headSojourn = now - enqueueNanos[head];
+        if (headSojourn < minSojournNanos) {
+            minSojournNanos = headSojourn;
+        }
+        //从队头开始丢弃排队时长超过限制的元素，队头的元素总是最早入队的
+        while (count > 0 && now - enqueueNanos[head] > sojournLimit) {
+            Object discarded = items[head];
+            items[head] = null;
+            head = (head + 1) & mask;
+            count--;
+            if (pendingDiscards == null) {
+                pendingDiscards = new ArrayList<>();
+            }
+            pendingDiscards.add(discarded);
+        }
+        if (count == 0) {
+            return null;
+        }
+        int index = currentOverloaded ? (head + count - 1) & mask : head;
+        E e = (E) items[index];
+        long sojourn = now - enqueueNanos[index];
+        items[index] = null;
+        if (index == head) {
+            head = (head + 1) & mask;
+        }
+        count--;
+        QueueWaitTimeListener listener = queueWaitTimeListener;
+        if (listener != null) {
+            listener.onDequeue(sojourn);
+        }
+        return e;
+    }
+
+    /**
+     * Take discarded elements collected by {@link #dequeue()}, call only while holding lock.
+     */
+    private List<Object> takePendingDiscards() {
+        List<Object> discards = pendingDiscards;
+        if (discards != null) {
+            pendingDiscards = null;
+            discardCount += discards.size();
+            notFull.signalAll();
+        }
+        return discards;
+    }
+
+    private void notifyDiscards(List<Object> discards) {
+        if (discards == null) {
+            return;
+        }
+        QueueDiscardListener listener = queueDiscardListener;
+        if (listener == null) {
+            return;
+        }
+        for (Object each : discards) {
+            listener.onDiscard(each);
+        }
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (count >= capacity) {
+                return false;
+            }
+            enqueue(e);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            while (count >= capacity) {
+                notFull.await();
+            }
+            enqueue(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            while (count >= capacity) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            enqueue(e);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        final ReentrantLock lock = this.lock;
+        //队列中的元素可能全部因为排队超时被丢弃，这时候要先释放锁，通知丢弃监听器之后再重新等待，
+        //不能持有被丢弃的元素一直等待下去，否则线程池的计数不会减少，等待入队的生产者也不会被唤醒
+        for (;;) {
+            E e;
+            List<Object> discards;
+            lock.lockInterruptibly();
+            try {
+                while (count == 0) {
+                    notEmpty.await();
+                }
+                e = dequeue();
+                if (e != null) {
+                    notFull.signal();
+                }
+            } finally {
+                discards = takePendingDiscards();
+                lock.unlock();
+            }
+            notifyDiscards(discards);
+            if (e != null) {
+                return e;
+            }
+        }
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        final ReentrantLock lock = this.lock;
+        //和take方法一样，元素全部被丢弃的话先把被丢弃的元素交给监听器，再在剩余的时间内重新等待
+        for (;;) {
+            E e;
+            List<Object> discards;
+            lock.lockInterruptibly();
+            try {
+                long nanos = deadline - System.nanoTime();
+                while (count == 0) {
+                    if (nanos <= 0) {
+                        return null;
+                    }
+                    nanos = notEmpty.awaitNanos(nanos);
+                }
+                e = dequeue();
+                if (e != null) {
+                    notFull.signal();
+                }
+            } finally {
+                discards = takePendingDiscards();
+                lock.unlock();
+            }
+            notifyDiscards(discards);
+            if (e != null) {
+                return e;
+            }
+        }
+    }
+
+    @Override
+    public E poll() {
+        E e = null;
+        List<Object> discards = null;
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (count > 0) {
+                e = dequeue();
+                if (e != null) {
+                    notFull.signal();
+                }
+            }
+        } finally {
+            discards = takePendingDiscards();
+            lock.unlock();
+        }
+        notifyDiscards(discards);
+        return e;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (count == 0) {
+                return null;
+            }
+            int index = overloaded ? (head + count - 1) & (items.length - 1) : head;
+            return (E) items[index];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            int mask = items.length - 1;
+            for (int i = 0; i < count; i++) {
+                int index = (head + i) & mask;
+                if (o.equals(items[index])) {
+                    removeAt(i);
+                    notFull.signal();
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove the element at logical position, call only while holding lock.
+     */
+    private void removeAt(int position) {
+        int mask = items.length - 1;
+        for (int i = position; i < count - 1; i++) {
+            int to = (head + i) & mask;
+            int from = (head + i + 1) & mask;
+            items[to] = items[from];
+            enqueueNanos[to] = enqueueNanos[from];
+        }
+        items[(head + count - 1) & mask] = null;
+        count--;
+    }
+
+    @Override
+    public Object[] toArray() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Object[] result = new Object[count];
+            int mask = items.length - 1;
+            for (int i = 0; i < count; i++) {
+                result[i] = items[(head + i) & mask];
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (a.length < count) {
+                a = (T[]) java.lang.reflect.Array.newInstance(a.getClass().getComponentType(), count);
+            }
+            int mask = items.length - 1;
+            for (int i = 0; i < count; i++) {
+                a[i] = (T) items[(head + i) & mask];
+            }
+            if (a.length > count) {
+                a[count] = null;
+            }
+            return a;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            int mask = items.length - 1;
+            for (int i = 0; i < count; i++) {
+                items[(head + i) & mask] = null;
+            }
+            head = 0;
+            count = 0;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null) {
+            throw new NullPointerException();
+        }
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            //drainTo在线程池立即关闭时使用，这里不再做排队时长判断，按照入队顺序把元素全部转移出去
+            int n = Math.min(maxElements, count);
+            int mask = items.length - 1;
+            for (int i = 0; i < n; i++) {
+                c.add((E) items[head]);
+                items[head] = null;
+                head = (head + 1) & mask;
+                count--;
+            }
+            if (n > 0) {
+                notFull.signalAll();
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a snapshot iterator in insertion order, {@link Iterator#remove()} removes the element from the queue.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr(toArray());
+    }
+
+    @Override
+    public String toString() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return super.toString();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private class Itr implements Iterator<E> {
+
+        private final Object[] snapshot;
+
+        private int cursor;
+
+        private int lastRet = -1;
+
+        Itr(Object[] snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor < snapshot.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (cursor >= snapshot.length) {
+                throw new NoSuchElementException();
+            }
+            lastRet = cursor++;
+            return (E) snapshot[lastRet];
+        }
+
+        @Override
+        public void remove() {
+            if (lastRet < 0) {
+                throw new IllegalStateException();
+            }
+            removeIdentity(snapshot[lastRet]);
+            lastRet = -1;
+        }
+    }
+
+    private void removeIdentity(Object o) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            int mask = items.length - 1;
+            for (int i = 0; i < count; i++) {
+                if (items[(head + i) & mask] == o) {
+                    removeAt(i);
+                    notFull.signal();
+                    return;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeObject(java.io.ObjectOutputStream s) throws java.io.IOException {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            s.defaultWriteObject();
+            int mask = items.length - 1;
+            for (int i = 0; i < count; i++) {
+                s.writeObject(items[(head + i) & mask]);
+            }
+            s.writeObject(null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(java.io.ObjectInputStream s) throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        items = new Object[INITIAL_ARRAY_SIZE];
+        enqueueNanos = new long[INITIAL_ARRAY_SIZE];
+        minSojournNanos = Long.MAX_VALUE;
+        intervalEnd = System.nanoTime() + intervalNanos;
+        for (;;) {
+            E item = (E) s.readObject();
+            if (item == null) {
+                break;
+            }
+            add(item);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package top.panson.common.executor.support;
+
+/**
+ * @方法描述：包装了另一个任务的任务，比如插件在任务提交时把任务包装成带有时间戳的任务，工作队列中存放的就是包装之后的任务，
+ * 线程池需要找到调用方提交的原始任务时，比如按照原始任务从队列中移除、判断任务是否有截止时间，可以通过这个接口拿到被包装的任务
+ */
+public interface DelegatingTask {
+
+    /**
+     * Get the wrapped task.
+     *
+     * @return wrapped task
+     */
+    Runnable getDelegate();
+
+    /**
+     * Get the task submitted by the caller, unwrapping all delegating tasks.
+     *
+     * @param task task, may be wrapped
+     * @return original task
+     */
+    static Runnable unwrap(Runnable task) {
+        Runnable current = task;
+        while (current instanceof DelegatingTask) {
+            current = ((DelegatingTask) current).getDelegate();
+        }
+        return current;
+    }
+}
@@ -0,0 +1,22 @@
+package top.panson.common.executor.support;
+
+/**
+ * @方法描述：会主动丢弃元素的阻塞队列，比如元素排队时间过长的时候，队列会在出队时直接把元素丢弃，
+ * 丢弃的元素会通知给监听器
+ */
+public interface QueueDiscardAware {
+
+    /**
+     * Set listener, null to discard elements silently.
+     *
+     * @param listener listener
+     */
+    void setQueueDiscardListener(QueueDiscardListener listener);
+
+    /**
+     * Get listener.
+     *
+     * @return listener, null if not set
+     */
+    QueueDiscardListener getQueueDiscardListener();
+}
@@ -0,0 +1,16 @@
+package top.panson.common.executor.support;
+
+/**
+ * @方法描述：队列丢弃元素的监听器，队列在出队时主动丢弃了某个元素，就会回调这个监听器，
+ * 线程池会把被丢弃的任务交给拒绝策略插件处理，这样被丢弃的任务也会计入拒绝次数
+ */
+@FunctionalInterface
+public interface QueueDiscardListener {
+
+    /**
+     * Callback when an element is discarded by the queue, never invoked while holding the queue lock.
+     *
+     * @param element discarded element
+     */
+    void onDiscard(Object element);
+}
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package top.panson.common.executor.support;
+
+/**
+ * @方法描述：能够记录元素入队时间的阻塞队列，队列会在元素入队时记录时间戳，在元素被消费者取走时把等待时间通知给监听器，
+ * 这样线程池统计任务排队时间的时候就不需要为每个任务额外创建一个包装对象了
+ */
+public interface QueueWaitTimeAware {
+
+    /**
+     * Set listener, null to stop stamping elements.
+     *
+     * @param listener listener
+     */
+    void setQueueWaitTimeListener(QueueWaitTimeListener listener);
+
+    /**
+     * Get listener.
+     *
+     * @return listener, null if not set
+     */
+    QueueWaitTimeListener getQueueWaitTimeListener();
+}
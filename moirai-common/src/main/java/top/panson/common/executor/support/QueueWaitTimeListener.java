@@ -0,0 +1,33 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package top.panson.common.executor.support;
+
+/**
+ * Queue wait time listener, called by {@link QueueWaitTimeAware} queue when an element is taken by consumer.
+ */
+@FunctionalInterface
+public interface QueueWaitTimeListener {
+
+    /**
+     * Callback after an element is taken from queue.
+     *
+     * @param waitNanos nanoseconds between the element being offered and being taken
+     */
+    void onDequeue(long waitNanos);
+}
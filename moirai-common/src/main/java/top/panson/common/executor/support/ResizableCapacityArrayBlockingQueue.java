@@ -0,0 +1,694 @@
+package top.panson.common.executor.support;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @方法描述：基于环形数组的无锁有界阻塞队列，队列容量可以在线程池运行过程中动态调整。队列内部由一个或多个环形数组组成，
+ * 每个环形数组都是一个多生产者多消费者的无锁环形队列，每个槽位都有一个序号，生产者和消费者通过CAS竞争队尾和队头下标，
+ * 通过槽位序号判断槽位是否可以写入或读取，入队和出队都不会创建额外的对象，队头和队尾下标做了缓存行填充，避免伪共享。
+ * 当环形数组装满但是还没有达到队列容量，或者队列容量被大幅缩小时，会创建一个新的环形数组链接在当前数组后面，
+ * 生产者切换到新的数组写入，消费者把旧数组中的元素取完之后再切换到新的数组，整个过程不需要暂停生产者和消费者。
+ * 只有在队列为空或者已满需要阻塞等待的时候，才会使用锁和条件队列
+ */
+public class ResizableCapacityArrayBlockingQueue<E> extends AbstractQueue<E>
+        implements
+            BlockingQueue<E>,
+            ResizableCapacityQueue,
+            QueueWaitTimeAware,
+            java.io.Serializable {
+
+    private static final long serialVersionUID = -2436198713645281730L;
+
+    /**
+     * Initial length of ring, the ring grows on demand until the capacity is reached
+     */
+    private static final int INITIAL_RING_LENGTH = 1024;
+
+    private static final int MAXIMUM_RING_LENGTH = 1 << 30;
+
+    /**
+     * Spin times before a blocking take or put parks
+     */
+    private static final int SPIN_TIMES = 64;
+
+    /**
+     * Mark an element removed by {@link #remove(Object)}, skipped by consumers
+     */
+    private static final Object REMOVED = new Object();
+
+    /**
+     * Returned by {@link Ring#poll(QueueWaitTimeListener)} when the ring is closed and has been drained
+     */
+    private static final Object DRAINED = new Object();
+
+    private static final AtomicReferenceFieldUpdater<ResizableCapacityArrayBlockingQueue, Ring> CONSUMER_RING_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(ResizableCapacityArrayBlockingQueue.class, Ring.class, "consumerRing");
+
+    /**
+     * The capacity bound
+     */
+    private volatile int capacity;
+
+    /**
+     * Ring written by producers, always the newest ring
+     */
+    private transient volatile Ring<E> producerRing;
+
+    /**
+     * Ring read by consumers, always the oldest ring
+     */
+    private transient volatile Ring<E> consumerRing;
+
+    /**
+     * Lock held when linking a new ring
+     */
+    private final ReentrantLock resizeLock = new ReentrantLock();
+
+    /**
+     * Lock held only by blocked takes and puts
+     */
+    private final ReentrantLock waitLock = new ReentrantLock();
+
+    private final Condition notEmpty = waitLock.newCondition();
+
+    private final Condition notFull = waitLock.newCondition();
+
+    private final AtomicInteger waitingConsumers = new AtomicInteger();
+
+    private final AtomicInteger waitingProducers = new AtomicInteger();
+
+    private transient volatile QueueWaitTimeListener queueWaitTimeListener;
+
+    public ResizableCapacityArrayBlockingQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.capacity = capacity;
+        Ring<E> ring = new Ring<>(ringLengthFor(capacity));
+        this.producerRing = ring;
+        this.consumerRing = ring;
+    }
+
+    private static int ringLengthFor(int capacity) {
+        int length = Math.min(capacity, INITIAL_RING_LENGTH);
+        return length >= MAXIMUM_RING_LENGTH ? MAXIMUM_RING_LENGTH : Integer.highestOneBit(Math.max(length, 2) - 1) << 1;
+    }
+
+    /**
+     * Set a new capacity for the queue. Increasing the capacity can
+     * cause any waiting {@link #put(Object)} invocations to succeed,
+     * decreasing the capacity never drops queued elements.
+     *
+     * @param capacity the new capacity for the queue
+     */
+    @Override
+    public void setCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        int oldCapacity = this.capacity;
+        this.capacity = capacity;
+        //容量被大幅缩小之后，换一个更小的环形数组，让旧数组在被取空之后可以被回收
+        Ring<E> ring = producerRing;
+        int length = ringLengthFor(capacity);
+        if (ring.length >= length << 2) {
+            linkRing(ring, length);
+        }
+        if (capacity > oldCapacity) {
+            signalNotFull();
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void setQueueWaitTimeListener(QueueWaitTimeListener listener) {
+        this.queueWaitTimeListener = listener;
+    }
+
+    @Override
+    public QueueWaitTimeListener getQueueWaitTimeListener() {
+        return queueWaitTimeListener;
+    }
+
+    /**
+     * Link a new ring after the current producer ring, producers switch to the new ring immediately
+     * and consumers switch after the old ring is drained.
+     *
+     * @return true if a new ring is linked or the producer ring has been changed by others
+     */
+    private boolean linkRing(Ring<E> current, int length) {
+        final ReentrantLock resizeLock = this.resizeLock;
+        resizeLock.lock();
+        try {
+            if (producerRing != current) {
+                return true;
+            }
+            if (length == current.length && current.length >= MAXIMUM_RING_LENGTH) {
+                return false;
+            }
+            Ring<E> next = new Ring<>(length);
+            //先设置next再关闭旧数组，这样看到旧数组被关闭的生产者和消费者一定能找到新数组
+            current.next = next;
+            producerRing = next;
+            current.close();
+            return true;
+        } finally {
+            resizeLock.unlock();
+        }
+    }
+
+    /**
+     * Size of rings older than the given ring, these rings are closed and only drained by consumers.
+     */
+    private long olderRingsSize(Ring<E> ring) {
+        long size = 0;
+        for (Ring<E> each = consumerRing; each != null && each != ring; each = each.next) {
+            size += each.size();
+        }
+        return size;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        QueueWaitTimeListener listener = queueWaitTimeListener;
+        long enqueueNanos = listener == null ? 0L : System.nanoTime();
+        for (;;) {
+            Ring<E> ring = producerRing;
+            long limit = capacity;
+            if (consumerRing != ring) {
+                limit -= olderRingsSize(ring);
+            }
+            int result = ring.offer(e, enqueueNanos, limit);
+            if (result == Ring.SUCCESS) {
+                if (waitingConsumers.get() > 0) {
+                    signalNotEmpty();
+                }
+                return true;
+            } else if (result == Ring.FULL) {
+                return false;
+            } else if (result == Ring.RING_FULL) {
+                //环形数组已经装满，但是还没有达到队列容量，创建一个两倍长度的新数组
+                int length = ring.length >= MAXIMUM_RING_LENGTH ? MAXIMUM_RING_LENGTH : ring.length << 1;
+                if (!linkRing(ring, length)) {
+                    return false;
+                }
+            }
+            //数组已经被关闭，重新读取生产者数组
+        }
+    }
+
+    @Override
+    public E poll() {
+        E e = pollElement();
+        if (e != null && waitingProducers.get() > 0) {
+            signalNotFull();
+        }
+        return e;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E pollElement() {
+        for (;;) {
+            Ring<E> ring = consumerRing;
+            Object e = ring.poll(queueWaitTimeListener);
+            if (e != DRAINED) {
+                return (E) e;
+            }
+            //旧数组已经被取空，切换到下一个数组
+            CONSUMER_RING_UPDATER.compareAndSet(this, ring, ring.next);
+        }
+    }
+
+    private void signalNotEmpty() {
+        final ReentrantLock waitLock = this.waitLock;
+        waitLock.lock();
+        try {
+            notEmpty.signal();
+        } finally {
+            waitLock.unlock();
+        }
+    }
+
+    private void signalNotFull() {
+        final ReentrantLock waitLock = this.waitLock;
+        waitLock.lock();
+        try {
+            notFull.signalAll();
+        } finally {
+            waitLock.unlock();
+        }
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        offer(e, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        for (int i = 0; i < SPIN_TIMES; i++) {
+            if (offer(e)) {
+                return true;
+            }
+            Thread.yield();
+        }
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock waitLock = this.waitLock;
+        waitLock.lockInterruptibly();
+        try {
+            //先登记等待的生产者再检查队列，保证消费者一定能看到这个生产者，不会漏掉唤醒
+            waitingProducers.incrementAndGet();
+            try {
+                while (!offer(e)) {
+                    if (nanos <= 0) {
+                        return false;
+                    }
+                    nanos = notFull.awaitNanos(nanos);
+                }
+                return true;
+            } finally {
+                waitingProducers.decrementAndGet();
+            }
+        } finally {
+            waitLock.unlock();
+        }
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        E e = poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        if (e == null) {
+            throw new IllegalStateException();
+        }
+        return e;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E e;
+        for (int i = 0; i < SPIN_TIMES; i++) {
+            if ((e = poll()) != null) {
+                return e;
+            }
+            Thread.yield();
+        }
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock waitLock = this.waitLock;
+        waitLock.lockInterruptibly();
+        try {
+            //先登记等待的消费者再检查队列，保证生产者一定能看到这个消费者，不会漏掉唤醒
+            waitingConsumers.incrementAndGet();
+            try {
+                while ((e = pollElement()) == null) {
+                    if (nanos <= 0) {
+                        return null;
+                    }
+                    try {
+                        nanos = notEmpty.awaitNanos(nanos);
+                    } catch (InterruptedException ex) {
+                        //被唤醒的消费者如果被中断了，要把唤醒传递给其他消费者
+                        notEmpty.signal();
+                        throw ex;
+                    }
+                }
+            } finally {
+                waitingConsumers.decrementAndGet();
+            }
+            if (waitingProducers.get() > 0) {
+                notFull.signalAll();
+            }
+            return e;
+        } finally {
+            waitLock.unlock();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        for (Ring<E> ring = consumerRing; ring != null; ring = ring.next) {
+            Object e = ring.peek();
+            if (e != null) {
+                return (E) e;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of elements, elements removed by {@link #remove(Object)} are
+     * still counted until consumers skip them.
+     */
+    @Override
+    public int size() {
+        long size = 0;
+        for (Ring<E> ring = consumerRing; ring != null; ring = ring.next) {
+            size += ring.size();
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, capacity - size());
+    }
+
+    /**
+     * Removes a single instance of the specified element, the slot is marked
+     * removed and skipped by consumers.
+     */
+    @Override
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        for (Ring<E> ring = consumerRing; ring != null; ring = ring.next) {
+            if (ring.remove(o)) {
+                if (waitingProducers.get() > 0) {
+                    signalNotFull();
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Object[] toArray() {
+        List<Object> elements = new ArrayList<>();
+        for (Ring<E> ring = consumerRing; ring != null; ring = ring.next) {
+            ring.collect(elements);
+        }
+        return elements.toArray();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        List<Object> elements = new ArrayList<>();
+        for (Ring<E> ring = consumerRing; ring != null; ring = ring.next) {
+            ring.collect(elements);
+        }
+        return elements.toArray(a);
+    }
+
+    @Override
+    public void clear() {
+        while (poll() != null) {
+            // 一直取到队列为空
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null) {
+            throw new NullPointerException();
+        }
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int n = 0;
+        E e;
+        while (n < maxElements && (e = pollElement()) != null) {
+            c.add(e);
+            n++;
+        }
+        if (n > 0 && waitingProducers.get() > 0) {
+            signalNotFull();
+        }
+        return n;
+    }
+
+    /**
+     * Returns a weakly consistent iterator over a snapshot of the queue, {@link Iterator#remove()}
+     * removes the element from the queue.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr(toArray());
+    }
+
+    private class Itr implements Iterator<E> {
+
+        private final Object[] snapshot;
+
+        private int cursor;
+
+        private int lastRet = -1;
+
+        Itr(Object[] snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor < snapshot.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (cursor >= snapshot.length) {
+                throw new NoSuchElementException();
+            }
+            lastRet = cursor++;
+            return (E) snapshot[lastRet];
+        }
+
+        @Override
+        public void remove() {
+            if (lastRet < 0) {
+                throw new IllegalStateException();
+            }
+            ResizableCapacityArrayBlockingQueue.this.remove(snapshot[lastRet]);
+            lastRet = -1;
+        }
+    }
+
+    private void writeObject(java.io.ObjectOutputStream s) throws java.io.IOException {
+        s.defaultWriteObject();
+        for (Object each : toArray()) {
+            s.writeObject(each);
+        }
+        s.writeObject(null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(java.io.ObjectInputStream s) throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        Ring<E> ring = new Ring<>(ringLengthFor(capacity));
+        producerRing = ring;
+        consumerRing = ring;
+        for (;;) {
+            E item = (E) s.readObject();
+            if (item == null) {
+                break;
+            }
+            add(item);
+        }
+    }
+
+    /**
+     * Index padded to its own cache line.
+     */
+    @SuppressWarnings("unused")
+    static final class PaddedAtomicLong extends AtomicLong {
+
+        private static final long serialVersionUID = 4719302475690811163L;
+
+        long p1, p2, p3, p4, p5, p6, p7;
+
+        PaddedAtomicLong(long initialValue) {
+            super(initialValue);
+        }
+    }
+
+    /**
+     * @方法描述：多生产者多消费者的无锁环形数组，每个槽位的序号表示槽位当前的状态：
+     * 序号等于队尾下标时，槽位可以写入；序号等于队头下标加一时，槽位中的元素可以被取走，
+     * 元素被取走之后序号会加上数组长度，留给下一轮的生产者使用。队尾下标的最高有效位用来标记数组已经被关闭
+     */
+    static final class Ring<E> {
+
+        static final int SUCCESS = 0;
+
+        static final int FULL = 1;
+
+        static final int RING_FULL = 2;
+
+        static final int CLOSED = 3;
+
+        private static final long CLOSED_BIT = 1L << 62;
+
+        final int length;
+
+        private final int mask;
+
+        private final AtomicReferenceArray<Object> buffer;
+
+        private final AtomicLongArray sequences;
+
+        //入队时间，只有在设置了排队时间监听器的时候才会写入，写入和读取都由槽位序号保证可见性
+        private final long[] enqueueNanos;
+
+        private final PaddedAtomicLong tail = new PaddedAtomicLong(0L);
+
+        private final PaddedAtomicLong head = new PaddedAtomicLong(0L);
+
+        volatile Ring<E> next;
+
+        Ring(int length) {
+            this.length = length;
+            this.mask = length - 1;
+            this.buffer = new AtomicReferenceArray<>(length);
+            this.sequences = new AtomicLongArray(length);
+            this.enqueueNanos = new long[length];
+            for (int i = 0; i < length; i++) {
+                sequences.lazySet(i, i);
+            }
+        }
+
+        int offer(Object e, long nanos, long limit) {
+            for (;;) {
+                long t = tail.get();
+                if ((t & CLOSED_BIT) != 0) {
+                    return CLOSED;
+                }
+                long h = head.get();
+                if (t - h >= limit) {
+                    return FULL;
+                }
+                if (t - h >= length) {
+                    return RING_FULL;
+                }
+                int index = (int) t & mask;
+                long sequence = sequences.get(index);
+                if (sequence == t && tail.compareAndSet(t, t + 1)) {
+                    enqueueNanos[index] = nanos;
+                    buffer.lazySet(index, e);
+                    sequences.set(index, t + 1);
+                    return SUCCESS;
+                }
+                //队尾被其他生产者抢走了，或者消费者已经抢到了队头但是还没有释放槽位，重试即可
+            }
+        }
+
+        /**
+         * @return element, null if empty, {@link #DRAINED} if closed and empty
+         */
+        Object poll(QueueWaitTimeListener listener) {
+            for (;;) {
+                long h = head.get();
+                int index = (int) h & mask;
+                long sequence = sequences.get(index);
+                if (sequence == h + 1) {
+                    if (head.compareAndSet(h, h + 1)) {
+                        long nanos = enqueueNanos[index];
+                        Object e = buffer.getAndSet(index, null);
+                        sequences.set(index, h + length);
+                        if (e == REMOVED) {
+                            continue;
+                        }
+                        if (listener != null && nanos != 0L) {
+                            listener.onDequeue(System.nanoTime() - nanos);
+                        }
+                        return e;
+                    }
+                } else if (sequence <= h) {
+                    long t = tail.get();
+                    if ((t & ~CLOSED_BIT) == h) {
+                        return (t & CLOSED_BIT) != 0 ? DRAINED : null;
+                    }
+                    //生产者已经抢到了槽位但是还没有写入元素，稍等一下
+                    Thread.yield();
+                }
+            }
+        }
+
+        Object peek() {
+            long h = head.get();
+            long t = tail.get() & ~CLOSED_BIT;
+            for (long i = h; i < t; i++) {
+                int index = (int) i & mask;
+                if (sequences.get(index) == i + 1) {
+                    Object e = buffer.get(index);
+                    if (e != null && e != REMOVED) {
+                        return e;
+                    }
+                }
+            }
+            return null;
+        }
+
+        boolean remove(Object o) {
+            long h = head.get();
+            long t = tail.get() & ~CLOSED_BIT;
+            for (long i = h; i < t; i++) {
+                int index = (int) i & mask;
+                if (sequences.get(index) == i + 1) {
+                    Object e = buffer.get(index);
+                    if (e != null && e != REMOVED && o.equals(e) && buffer.compareAndSet(index, e, REMOVED)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        void collect(List<Object> elements) {
+            long h = head.get();
+            long t = tail.get() & ~CLOSED_BIT;
+            for (long i = h; i < t; i++) {
+                int index = (int) i & mask;
+                if (sequences.get(index) == i + 1) {
+                    Object e = buffer.get(index);
+                    if (e != null && e != REMOVED) {
+                        elements.add(e);
+                    }
+                }
+            }
+        }
+
+        long size() {
+            //先读队头再读队尾，保证结果不会是负数
+            long h = head.get();
+            long t = tail.get() & ~CLOSED_BIT;
+            return Math.max(0L, t - h);
+        }
+
+        void close() {
+            for (;;) {
+                long t = tail.get();
+                if ((t & CLOSED_BIT) != 0 || tail.compareAndSet(t, t | CLOSED_BIT)) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -20,6 +20,7 @@ package top.panson.common.executor.support;
 import java.util.AbstractQueue;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -33,6 +34,9 @@ import java.util.concurrent.locks.ReentrantLock;
 public class ResizableCapacityLinkedBlockingQueue<E> extends AbstractQueue<E>
         implements
             BlockingQueue<E>,
+            ResizableCapacityQueue,
+            BulkOfferQueue<E>,
+            QueueWaitTimeAware,
             java.io.Serializable {
 
     private static final long serialVersionUID = -6903933977591709194L;
@@ -55,6 +59,11 @@ public class ResizableCapacityLinkedBlockingQueue<E> extends AbstractQueue<E>
         volatile E item;
         Node<E> next;
 
+        /**
+         * Time of element being offered, 0 if not stamped
+         */
+        long enqueueNanos;
+
         Node(E x) {
             item = x;
         }
@@ -100,6 +109,11 @@ public class ResizableCapacityLinkedBlockingQueue<E> extends AbstractQueue<E>
      */
     private final Condition notFull = putLock.newCondition();
 
+    /**
+     * Listener notified with wait time of taken element
+     */
+    private transient volatile QueueWaitTimeListener queueWaitTimeListener;
+
     /**
      * Signal a waiting take. Called only from put/offer (which do not
      * otherwise ordinarily lock takeLock.)
@@ -133,7 +147,12 @@ public class ResizableCapacityLinkedBlockingQueue<E> extends AbstractQueue<E>
      * @param x the item
      */
     private void insert(E x) {
-        last = last.next = new Node<E>(x);
+        Node<E> node = new Node<E>(x);
+        //只有设置了监听器才记录入队时间，避免没有统计需求的时候多调用一次System.nanoTime()
+        if (queueWaitTimeListener != null) {
+            node.enqueueNanos = System.nanoTime();
+        }
+        last = last.next = node;
     }
 
     /**
@@ -146,6 +165,10 @@ public class ResizableCapacityLinkedBlockingQueue<E> extends AbstractQueue<E>
         head = first;
         E x = first.item;
         first.item = null;
+        QueueWaitTimeListener listener = queueWaitTimeListener;
+        if (listener != null && first.enqueueNanos != 0L) {
+            listener.onDequeue(System.nanoTime() - first.enqueueNanos);
+        }
         return x;
     }
 
@@ -225,6 +248,7 @@ public class ResizableCapacityLinkedBlockingQueue<E> extends AbstractQueue<E>
      *
      * @param capacity the new capacity for the queue
      */
+    @Override
     public void setCapacity(int capacity) {
         final int oldCapacity = this.capacity;
         this.capacity = capacity;
@@ -234,6 +258,11 @@ public class ResizableCapacityLinkedBlockingQueue<E> extends AbstractQueue<E>
         }
     }
 
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
     // this doc comment is a modified copy of the inherited doc comment,
     // without the reference to unlimited queues.
 
@@ -390,6 +419,67 @@ public class ResizableCapacityLinkedBlockingQueue<E> extends AbstractQueue<E>
         return c >= 0;
     }
 
+    /**
+     * Inserts elements in list order at the tail of this queue until it is full.
+     * All elements are linked under one acquisition of put lock, and at most one
+     * waiting take is signalled, which signals others in cascade.
+     *
+     * @param elements elements to insert
+     * @return number of inserted elements
+     * @throws NullPointerException if any element is <tt>null</tt>
+     */
+    @Override
+    public int offerAll(List<? extends E> elements) {
+        for (E element : elements) {
+            if (element == null) {
+                throw new NullPointerException();
+            }
+        }
+        final AtomicInteger count = this.count;
+        if (elements.isEmpty() || count.get() >= capacity) {
+            return 0;
+        }
+        int n = 0;
+        int c = -1;
+        final ReentrantLock putLock = this.putLock;
+        putLock.lock();
+        try {
+            //持有putLock的时候只有出队操作会让count变小，所以这里算出来的剩余容量只会偏少，不会超过容量
+            int available = capacity - count.get();
+            if (available > 0) {
+                n = Math.min(available, elements.size());
+                //同一批任务使用同一个入队时间
+                long enqueueNanos = queueWaitTimeListener != null ? System.nanoTime() : 0L;
+                Iterator<? extends E> it = elements.iterator();
+                for (int i = 0; i < n; i++) {
+                    Node<E> node = new Node<E>(it.next());
+                    node.enqueueNanos = enqueueNanos;
+                    last = last.next = node;
+                }
+                c = count.getAndAdd(n);
+                if (c + n < capacity) {
+                    notFull.signal();
+                }
+            }
+        } finally {
+            putLock.unlock();
+        }
+        if (c == 0) {
+            signalNotEmpty();
+        }
+        return n;
+    }
+
+    @Override
+    public void setQueueWaitTimeListener(QueueWaitTimeListener listener) {
+        this.queueWaitTimeListener = listener;
+    }
+
+    @Override
+    public QueueWaitTimeListener getQueueWaitTimeListener() {
+        return queueWaitTimeListener;
+    }
+
     @Override
     public E take() throws InterruptedException {
         E x;
@@ -633,25 +723,34 @@ public class ResizableCapacityLinkedBlockingQueue<E> extends AbstractQueue<E>
         if (maxElements <= 0) {
             return 0;
         }
-        fullyLock();
+        //和poll方法一样只获取取锁，工作线程批量获取任务的时候不会阻塞提交任务的线程，
+        //取出的每个元素也会和poll方法一样记录排队时间
+        int before = -1;
+        final ReentrantLock takeLock = this.takeLock;
+        takeLock.lock();
         try {
-            int n = 0;
-            Node<E> p = head.next;
-            while (p != null && n < maxElements) {
-                c.add(p.item);
-                p.item = null;
-                p = p.next;
-                ++n;
-            }
-            if (n != 0) {
-                head.next = p;
-                if (count.getAndAdd(-n) >= capacity) {
-                    notFull.signalAll();
+            int n = Math.min(maxElements, count.get());
+            int i = 0;
+            try {
+                while (i < n) {
+                    c.add(head.next.item);
+                    extract();
+                    ++i;
+                }
+            } finally {
+                if (i > 0) {
+                    before = count.getAndAdd(-i);
+                    if (before > i) {
+                        notEmpty.signal();
+                    }
                 }
             }
             return n;
         } finally {
-            fullyUnlock();
+            takeLock.unlock();
+            if (before >= capacity) {
+                signalNotFull();
+            }
         }
     }
 
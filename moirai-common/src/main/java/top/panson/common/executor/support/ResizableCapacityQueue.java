@@ -0,0 +1,22 @@
+package top.panson.common.executor.support;
+
+/**
+ * @方法描述：容量可以在运行过程中动态调整的阻塞队列，服务端下发新的队列容量时，只要线程池使用的队列实现了这个接口，
+ * 客户端就可以直接调整队列容量，不需要关心具体是哪一种队列
+ */
+public interface ResizableCapacityQueue {
+
+    /**
+     * Set a new capacity for the queue.
+     *
+     * @param capacity the new capacity
+     */
+    void setCapacity(int capacity);
+
+    /**
+     * Get capacity.
+     *
+     * @return capacity
+     */
+    int getCapacity();
+}
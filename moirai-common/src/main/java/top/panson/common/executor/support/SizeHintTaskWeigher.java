@@ -0,0 +1,30 @@
+package top.panson.common.executor.support;
+
+/**
+ * @方法描述：默认的任务权重计算器，任务实现了{@link TaskSizeHint}接口就使用任务提供的大小，否则使用一个固定的默认权重
+ */
+public class SizeHintTaskWeigher implements TaskWeigher {
+
+    /**
+     * Default weight of tasks without size hint, roughly the size of a small task object in bytes
+     */
+    public static final long DEFAULT_TASK_WEIGHT = 64L;
+
+    private final long defaultWeight;
+
+    public SizeHintTaskWeigher() {
+        this(DEFAULT_TASK_WEIGHT);
+    }
+
+    public SizeHintTaskWeigher(long defaultWeight) {
+        this.defaultWeight = defaultWeight;
+    }
+
+    @Override
+    public long weigh(Object task) {
+        if (task instanceof TaskSizeHint) {
+            return ((TaskSizeHint) task).getSizeHint();
+        }
+        return defaultWeight;
+    }
+}
@@ -0,0 +1,15 @@
+package top.panson.common.executor.support;
+
+/**
+ * @方法描述：任务实现这个接口之后，可以告诉线程池是哪个调用方提交的任务，比如租户Id、上游服务名称，
+ * 准入控制插件会按照这个标签给每个调用方单独限流，防止一个调用方占满共享线程池的队列
+ */
+public interface TaskCallerTag {
+
+    /**
+     * Get tag of the caller submitting the task.
+     *
+     * @return caller tag, null if the task should not be limited
+     */
+    String getCallerTag();
+}
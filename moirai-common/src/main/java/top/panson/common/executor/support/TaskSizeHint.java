@@ -0,0 +1,15 @@
+package top.panson.common.executor.support;
+
+/**
+ * @方法描述：任务实现这个接口之后，可以告诉线程池自己大概会占用多少内存，
+ * 按照权重限制容量的队列会用这个值作为任务的权重，比如任务中携带了很大的消息体，就可以返回消息体的字节数
+ */
+public interface TaskSizeHint {
+
+    /**
+     * Get estimated size of the task in bytes.
+     *
+     * @return estimated size
+     */
+    long getSizeHint();
+}
@@ -0,0 +1,16 @@
+package top.panson.common.executor.support;
+
+/**
+ * @方法描述：任务权重计算器，按照权重限制容量的队列在任务入队时会用它计算任务的权重，权重一般就是任务占用的字节数，
+ * 用户可以通过SPI机制提供自己的实现，没有提供的时候使用{@link SizeHintTaskWeigher}
+ */
+public interface TaskWeigher {
+
+    /**
+     * Weigh the task, negative weight is treated as zero.
+     *
+     * @param task task offered to queue
+     * @return weight of the task
+     */
+    long weigh(Object task);
+}
@@ -0,0 +1,617 @@
+package top.panson.common.executor.support;
+
+import top.panson.common.spi.DynamicThreadPoolServiceLoader;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @方法描述：按照任务权重限制容量的阻塞队列，任务入队时会通过{@link TaskWeigher}计算任务的权重，一般就是任务占用的字节数，
+ * 队列中所有任务的权重之和不能超过最大权重，这样就可以直接限制任务队列占用的内存，同时队列也有一个任务数量的容量限制。
+ * 为了保证任何任务都能被执行，队列为空的时候即使单个任务的权重超过了最大权重，也允许入队。
+ * 最大权重和容量都可以在线程池运行过程中动态调整
+ */
+public class WeightBoundedBlockingQueue<E> extends AbstractQueue<E>
+        implements
+            BlockingQueue<E>,
+            ResizableCapacityQueue,
+            QueueWaitTimeAware,
+            java.io.Serializable {
+
+    private static final long serialVersionUID = 5416254329517938104L;
+
+    /**
+     * Default maximum weight, 64MB
+     */
+    public static final long DEFAULT_MAX_WEIGHT = 64L * 1024 * 1024;
+
+    private static final int INITIAL_ARRAY_SIZE = 16;
+
+    static {
+        DynamicThreadPoolServiceLoader.register(TaskWeigher.class);
+    }
+
+    /**
+     * The capacity bound
+     */
+    private volatile int capacity;
+
+    /**
+     * The weight bound
+     */
+    private volatile long maxWeight;
+
+    private transient TaskWeigher taskWeigher;
+
+    //下面这些字段都被lock保护，元素、元素权重和入队时间分别存放在三个环形数组中，数组长度总是2的幂次方，按需扩容
+    private transient Object[] items;
+
+    private transient long[] weights;
+
+    private transient long[] enqueueNanos;
+
+    private transient int head;
+
+    private transient int count;
+
+    //队列中所有元素的权重之和，在锁内修改，读取的时候不需要加锁
+    private transient volatile long weight;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    private transient volatile QueueWaitTimeListener queueWaitTimeListener;
+
+    public WeightBoundedBlockingQueue(int capacity) {
+        this(capacity, DEFAULT_MAX_WEIGHT);
+    }
+
+    public WeightBoundedBlockingQueue(int capacity, long maxWeight) {
+        this(capacity, maxWeight, loadTaskWeigher());
+    }
+
+    public WeightBoundedBlockingQueue(int capacity, long maxWeight, TaskWeigher taskWeigher) {
+        if (capacity <= 0 || maxWeight <= 0) {
+            throw new IllegalArgumentException();
+        }
+        if (taskWeigher == null) {
+            throw new NullPointerException();
+        }
+        this.capacity = capacity;
+        this.maxWeight = maxWeight;
+        this.taskWeigher = taskWeigher;
+        this.items = new Object[INITIAL_ARRAY_SIZE];
+        this.weights = new long[INITIAL_ARRAY_SIZE];
+        this.enqueueNanos = new long[INITIAL_ARRAY_SIZE];
+    }
+
+    /**
+     * Load task weigher by SPI, use {@link SizeHintTaskWeigher} if none.
+     */
+    private static TaskWeigher loadTaskWeigher() {
+        Collection<TaskWeigher> taskWeighers = DynamicThreadPoolServiceLoader.getSingletonServiceInstances(TaskWeigher.class);
+        return taskWeighers.stream().findFirst().orElseGet(SizeHintTaskWeigher::new);
+    }
+
+    /**
+     * Set a new maximum weight for the queue, decreasing the maximum weight never drops queued elements.
+     *
+     * @param maxWeight the new maximum weight
+     */
+    public void setMaxWeight(long maxWeight) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException();
+        }
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            long oldMaxWeight = this.maxWeight;
+            this.maxWeight = maxWeight;
+            if (maxWeight > oldMaxWeight) {
+                notFull.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Get total weight of queued elements.
+     *
+     * @return weight
+     */
+    public long getWeight() {
+        return weight;
+    }
+
+    public TaskWeigher getTaskWeigher() {
+        return taskWeigher;
+    }
+
+    @Override
+    public void setCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            int oldCapacity = this.capacity;
+            this.capacity = capacity;
+            if (capacity > oldCapacity) {
+                notFull.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void setQueueWaitTimeListener(QueueWaitTimeListener listener) {
+        this.queueWaitTimeListener = listener;
+    }
+
+    @Override
+    public QueueWaitTimeListener getQueueWaitTimeListener() {
+        return queueWaitTimeListener;
+    }
+
+    private long weigh(E e) {
+        return Math.max(0L, taskWeigher.weigh(e));
+    }
+
+    /**
+     * Whether an element of the given weight can be inserted, call only while holding lock.
+     */
+    private boolean hasRoom(long elementWeight) {
+        if (count == 0) {
+            return true;
+        }
+        return count < capacity && weight + elementWeight <= maxWeight;
+    }
+
+    /**
+     * Inserts element at tail, call only while holding lock.
+     */
+    private void enqueue(E e, long elementWeight) {
+        if (count == items.length) {
+            grow();
+        }
+        int index = (head + count) & (items.length - 1);
+        items[index] = e;
+        weights[index] = elementWeight;
+        enqueueNanos[index] = queueWaitTimeListener == null ? 0L : System.nanoTime();
+        count++;
+        weight += elementWeight;
+        notEmpty.signal();
+    }
+
+    private void grow() {
+        int oldLength = items.length;
+        Object[] newItems = new Object[oldLength << 1];
+        long[] newWeights = new long[oldLength << 1];
+        long[] newEnqueueNanos = new long[oldLength << 1];
+        for (int i = 0; i < count; i++) {
+            int index = (head + i) & (oldLength - 1);
+            newItems[i] = items[index];
+            newWeights[i] = weights[index];
+            newEnqueueNanos[i] = enqueueNanos[index];
+        }
+        items = newItems;
+        weights = newWeights;
+        enqueueNanos = newEnqueueNanos;
+        head = 0;
+    }
+
+    /**
+     * Removes element at head, call only while holding lock and count > 0.
+     */
+    @SuppressWarnings("unchecked")
+    private E dequeue() {
+        E e = (E) items[head];
+        long nanos = enqueueNanos[head];
+        weight -= weights[head];
+        items[head] = null;
+        head = (head + 1) & (items.length - 1);
+        count--;
+        //出队的元素权重可能不同，唤醒所有等待的生产者重新判断
+        notFull.signalAll();
+        QueueWaitTimeListener listener = queueWaitTimeListener;
+        if (listener != null && nanos != 0L) {
+            listener.onDequeue(System.nanoTime() - nanos);
+        }
+        return e;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        long elementWeight = weigh(e);
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (!hasRoom(elementWeight)) {
+                return false;
+            }
+            enqueue(e, elementWeight);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        long elementWeight = weigh(e);
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            while (!hasRoom(elementWeight)) {
+                notFull.await();
+            }
+            enqueue(e, elementWeight);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        long elementWeight = weigh(e);
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            while (!hasRoom(elementWeight)) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            enqueue(e, elementWeight);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E poll() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return count == 0 ? null : dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return (E) items[head];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of additional elements this queue can accept by count,
+     * an element may still be refused when the weight bound is reached.
+     */
+    @Override
+    public int remainingCapacity() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return Math.max(0, capacity - count);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            int mask = items.length - 1;
+            for (int i = 0; i < count; i++) {
+                if (o.equals(items[(head + i) & mask])) {
+                    removeAt(i);
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove the element at logical position, call only while holding lock.
+     */
+    private void removeAt(int position) {
+        int mask = items.length - 1;
+        weight -= weights[(head + position) & mask];
+        for (int i = position; i < count - 1; i++) {
+            int to = (head + i) & mask;
+            int from = (head + i + 1) & mask;
+            items[to] = items[from];
+            weights[to] = weights[from];
+            enqueueNanos[to] = enqueueNanos[from];
+        }
+        items[(head + count - 1) & mask] = null;
+        count--;
+        notFull.signalAll();
+    }
+
+    @Override
+    public Object[] toArray() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Object[] result = new Object[count];
+            int mask = items.length - 1;
+            for (int i = 0; i < count; i++) {
+                result[i] = items[(head + i) & mask];
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (a.length < count) {
+                a = (T[]) java.lang.reflect.Array.newInstance(a.getClass().getComponentType(), count);
+            }
+            int mask = items.length - 1;
+            for (int i = 0; i < count; i++) {
+                a[i] = (T) items[(head + i) & mask];
+            }
+            if (a.length > count) {
+                a[count] = null;
+            }
+            return a;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            int mask = items.length - 1;
+            for (int i = 0; i < count; i++) {
+                items[(head + i) & mask] = null;
+            }
+            head = 0;
+            count = 0;
+            weight = 0L;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null) {
+            throw new NullPointerException();
+        }
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            int n = Math.min(maxElements, count);
+            int mask = items.length - 1;
+            for (int i = 0; i < n; i++) {
+                c.add((E) items[head]);
+                weight -= weights[head];
+                items[head] = null;
+                head = (head + 1) & mask;
+                count--;
+            }
+            if (n > 0) {
+                notFull.signalAll();
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a snapshot iterator in insertion order, {@link Iterator#remove()} removes the element from the queue.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr(toArray());
+    }
+
+    @Override
+    public String toString() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return super.toString();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private class Itr implements Iterator<E> {
+
+        private final Object[] snapshot;
+
+        private int cursor;
+
+        private int lastRet = -1;
+
+        Itr(Object[] snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor < snapshot.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (cursor >= snapshot.length) {
+                throw new NoSuchElementException();
+            }
+            lastRet = cursor++;
+            return (E) snapshot[lastRet];
+        }
+
+        @Override
+        public void remove() {
+            if (lastRet < 0) {
+                throw new IllegalStateException();
+            }
+            removeIdentity(snapshot[lastRet]);
+            lastRet = -1;
+        }
+    }
+
+    private void removeIdentity(Object o) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            int mask = items.length - 1;
+            for (int i = 0; i < count; i++) {
+                if (items[(head + i) & mask] == o) {
+                    removeAt(i);
+                    return;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeObject(java.io.ObjectOutputStream s) throws java.io.IOException {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            s.defaultWriteObject();
+            int mask = items.length - 1;
+            for (int i = 0; i < count; i++) {
+                s.writeObject(items[(head + i) & mask]);
+            }
+            s.writeObject(null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(java.io.ObjectInputStream s) throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        taskWeigher = loadTaskWeigher();
+        items = new Object[INITIAL_ARRAY_SIZE];
+        weights = new long[INITIAL_ARRAY_SIZE];
+        enqueueNanos = new long[INITIAL_ARRAY_SIZE];
+        for (;;) {
+            E item = (E) s.readObject();
+            if (item == null) {
+                break;
+            }
+            add(item);
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package top.panson.common.executor.support;
+
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @方法描述：分片并且支持工作窃取的有界阻塞队列，适合任务很多、执行很快的CPU密集型线程池。队列内部由多个无锁的分片组成，
+ * 每个线程第一次访问队列时会被分配一个固定的分片：提交任务的线程总是把任务放到自己的分片中，工作线程在执行任务的过程中提交的子任务也会留在自己的分片中，
+ * 工作线程优先从自己的分片中获取任务，自己的分片空了就去其他分片窃取任务，这样提交任务和获取任务的线程就不会都竞争同一把锁了。
+ * 队列的总容量由一个原子计数器限制，和普通的有界队列一样，队列满了之后入队失败，走线程池的拒绝策略；只有队列为空或者已满，
+ * 并且确实有线程需要阻塞等待的时候，才会使用锁来挂起和唤醒线程。分片数量和队列容量都可以在运行过程中动态调整
+ */
+public class WorkStealingBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E>, ResizableCapacityQueue {
+
+    //分片数量的上限
+    public static final int MAX_SHARD_COUNT = 1024;
+
+    /**
+     * The capacity bound
+     */
+    private volatile int capacity;
+
+    //当前接收新元素的分片数量
+    private volatile int shardCount;
+
+    //所有分片，数组只会变长不会变短，分片数量减少之后多出来的分片不再接收新元素，但是其中剩下的元素仍然会被窃取走
+    private volatile ConcurrentLinkedDeque<E>[] shards;
+
+    //队列中的元素数量，元素入队之前先在这里占一个位置，所以这个数量可能比分片中实际的元素多一点点
+    private final AtomicInteger count = new AtomicInteger();
+
+    //分配给下一个线程的分片编号
+    private final AtomicInteger nextHome = new AtomicInteger();
+
+    //每个线程被分配的分片编号
+    private final ThreadLocal<Integer> home = ThreadLocal.withInitial(() -> nextHome.getAndIncrement() & Integer.MAX_VALUE);
+
+    //从其他分片窃取元素的次数
+    private final LongAdder stealCount = new LongAdder();
+
+    //下面这些只在有线程需要阻塞等待的时候使用
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    private final AtomicInteger takeWaiters = new AtomicInteger();
+
+    private final AtomicInteger putWaiters = new AtomicInteger();
+
+    public WorkStealingBlockingQueue(int capacity) {
+        this(capacity, Runtime.getRuntime().availableProcessors());
+    }
+
+    @SuppressWarnings("unchecked")
+    public WorkStealingBlockingQueue(int capacity, int shardCount) {
+        if (capacity <= 0 || shardCount <= 0 || shardCount > MAX_SHARD_COUNT) {
+            throw new IllegalArgumentException();
+        }
+        this.capacity = capacity;
+        ConcurrentLinkedDeque<E>[] initialShards = new ConcurrentLinkedDeque[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            initialShards[i] = new ConcurrentLinkedDeque<>();
+        }
+        this.shards = initialShards;
+        this.shardCount = shardCount;
+    }
+
+    /**
+     * @方法描述：调整分片数量，分片数量增加时创建新的分片，减少时多出来的分片只是不再接收新元素，其中的元素仍然会被工作线程取走
+     */
+    public void setShardCount(int shardCount) {
+        if (shardCount <= 0 || shardCount > MAX_SHARD_COUNT) {
+            throw new IllegalArgumentException();
+        }
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            ConcurrentLinkedDeque<E>[] current = shards;
+            if (shardCount > current.length) {
+                ConcurrentLinkedDeque<E>[] expanded = Arrays.copyOf(current, shardCount);
+                for (int i = current.length; i < shardCount; i++) {
+                    expanded[i] = new ConcurrentLinkedDeque<>();
+                }
+                //先发布新的分片数组，再发布分片数量，读到新分片数量的线程一定能读到新的分片数组
+                shards = expanded;
+            }
+            this.shardCount = shardCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public long getStealCount() {
+        return stealCount.sum();
+    }
+
+    @Override
+    public void setCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        int oldCapacity = this.capacity;
+        this.capacity = capacity;
+        if (capacity > oldCapacity && putWaiters.get() > 0) {
+            signalAll(notFull);
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    //得到当前线程的分片
+    private ConcurrentLinkedDeque<E> homeShard() {
+        int active = shardCount;
+        ConcurrentLinkedDeque<E>[] shards = this.shards;
+        return shards[home.get() % Math.min(active, shards.length)];
+    }
+
+    //在队列中占一个位置，队列已满的话返回false
+    private boolean reserve() {
+        for (;;) {
+            int c = count.get();
+            if (c >= capacity) {
+                return false;
+            }
+            if (count.compareAndSet(c, c + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void enqueue(E e) {
+        homeShard().offerLast(e);
+        if (takeWaiters.get() > 0) {
+            signal(notEmpty);
+        }
+    }
+
+    //先从自己的分片获取元素，没有的话再依次从其他分片窃取
+    private E dequeue() {
+        if (count.get() == 0) {
+            return null;
+        }
+        int active = shardCount;
+        ConcurrentLinkedDeque<E>[] shards = this.shards;
+        int length = shards.length;
+        int own = home.get() % Math.min(active, length);
+        E e = shards[own].pollFirst();
+        if (e == null) {
+            for (int i = 1; i < length && e == null; i++) {
+                e = shards[(own + i) % length].pollFirst();
+            }
+            if (e == null) {
+                return null;
+            }
+            stealCount.increment();
+        }
+        count.getAndDecrement();
+        if (putWaiters.get() > 0) {
+            signal(notFull);
+        }
+        return e;
+    }
+
+    private void signal(Condition condition) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            condition.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void signalAll(Condition condition) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        if (!reserve()) {
+            return false;
+        }
+        enqueue(e);
+        return true;
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        while (!reserve()) {
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                //先登记等待的线程再检查条件，取走元素的线程先修改数量再检查有没有等待的线程，所以不会错过唤醒
+                putWaiters.incrementAndGet();
+                try {
+                    while (count.get() >= capacity) {
+                        notFull.await();
+                    }
+                } finally {
+                    putWaiters.decrementAndGet();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        enqueue(e);
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        long nanos = unit.toNanos(timeout);
+        while (!reserve()) {
+            if (nanos <= 0L) {
+                return false;
+            }
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                putWaiters.incrementAndGet();
+                try {
+                    while (count.get() >= capacity && nanos > 0L) {
+                        nanos = notFull.awaitNanos(nanos);
+                    }
+                } finally {
+                    putWaiters.decrementAndGet();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        enqueue(e);
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        return dequeue();
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        for (;;) {
+            E e = dequeue();
+            if (e != null) {
+                return e;
+            }
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                //占了位置但是还没有放入分片的元素也会让数量大于0，这时候不阻塞，重新获取一次
+                takeWaiters.incrementAndGet();
+                try {
+                    while (count.get() == 0) {
+                        notEmpty.await();
+                    }
+                } finally {
+                    takeWaiters.decrementAndGet();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        for (;;) {
+            E e = dequeue();
+            if (e != null) {
+                return e;
+            }
+            if (nanos <= 0L) {
+                return null;
+            }
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                takeWaiters.incrementAndGet();
+                try {
+                    while (count.get() == 0 && nanos > 0L) {
+                        nanos = notEmpty.awaitNanos(nanos);
+                    }
+                } finally {
+                    takeWaiters.decrementAndGet();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public E peek() {
+        for (ConcurrentLinkedDeque<E> shard : shards) {
+            E e = shard.peekFirst();
+            if (e != null) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        return count.get();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, capacity - count.get());
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        for (ConcurrentLinkedDeque<E> shard : shards) {
+            if (shard.remove(o)) {
+                count.getAndDecrement();
+                if (putWaiters.get() > 0) {
+                    signal(notFull);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (o == null) {
+            return false;
+        }
+        for (ConcurrentLinkedDeque<E> shard : shards) {
+            if (shard.contains(o)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null) {
+            throw new NullPointerException();
+        }
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int n = 0;
+        E e;
+        while (n < maxElements && (e = dequeue()) != null) {
+            c.add(e);
+            n++;
+        }
+        return n;
+    }
+
+    @Override
+    public void clear() {
+        while (dequeue() != null) {
+        }
+    }
+
+    /**
+     * 弱一致性的迭代器，依次遍历所有分片，删除元素时调用队列的remove方法，保证元素数量正确
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    private class Itr implements Iterator<E> {
+
+        private final ConcurrentLinkedDeque<E>[] snapshot = shards;
+
+        private int shardIndex;
+
+        private Iterator<E> current = snapshot[0].iterator();
+
+        private E lastRet;
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                if (++shardIndex >= snapshot.length) {
+                    return false;
+                }
+                current = snapshot[shardIndex].iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastRet = current.next();
+            return lastRet;
+        }
+
+        @Override
+        public void remove() {
+            if (lastRet == null) {
+                throw new IllegalStateException();
+            }
+            WorkStealingBlockingQueue.this.remove(lastRet);
+            lastRet = null;
+        }
+    }
+}
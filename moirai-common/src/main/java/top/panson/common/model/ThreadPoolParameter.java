@@ -119,4 +119,74 @@ public interface ThreadPoolParameter {
      * @return
      */
     Integer getAllowCoreThreadTimeOut();
+
+    /**
+     * Get queue target delay, milliseconds
+     *
+     * @return
+     */
+    Long getQueueTargetDelay();
+
+    /**
+     * Get queue delay interval, milliseconds
+     *
+     * @return
+     */
+    Long getQueueDelayInterval();
+
+    /**
+     * Get queue max weight, bytes
+     *
+     * @return
+     */
+    Long getQueueMaxWeight();
+
+    /**
+     * Get whether priority queue evicts the lowest priority task when full
+     *
+     * @return
+     */
+    Integer getQueueEvictLowestPriority();
+
+    /**
+     * Get shard count of work-stealing queue
+     *
+     * @return
+     */
+    Integer getQueueShardCount();
+
+    /**
+     * Get tasks each caller can submit per second
+     *
+     * @return
+     */
+    Integer getAdmissionRate();
+
+    /**
+     * Get tasks each caller can submit at once
+     *
+     * @return
+     */
+    Integer getAdmissionBurst();
+
+    /**
+     * Get max items of each batch in micro-batching pool
+     *
+     * @return
+     */
+    Integer getMicroBatchSize();
+
+    /**
+     * Get max milliseconds the first item of a batch waits in micro-batching pool
+     *
+     * @return
+     */
+    Integer getMicroBatchLinger();
+
+    /**
+     * Get whether threads grow to maximum pool size before tasks are queued
+     *
+     * @return
+     */
+    Integer getEagerGrowth();
 }
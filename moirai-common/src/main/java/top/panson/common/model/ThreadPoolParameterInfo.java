@@ -112,6 +112,56 @@ public class ThreadPoolParameterInfo implements ThreadPoolParameter, Serializabl
      */
     private Integer allowCoreThreadTimeOut;
 
+    /**
+     * Queue target delay, milliseconds
+     */
+    private Long queueTargetDelay;
+
+    /**
+     * Queue delay interval, milliseconds
+     */
+    private Long queueDelayInterval;
+
+    /**
+     * Queue max weight, bytes
+     */
+    private Long queueMaxWeight;
+
+    /**
+     * Queue evict lowest priority
+     */
+    private Integer queueEvictLowestPriority;
+
+    /**
+     * Queue shard count
+     */
+    private Integer queueShardCount;
+
+    /**
+     * Admission rate per caller
+     */
+    private Integer admissionRate;
+
+    /**
+     * Admission burst per caller
+     */
+    private Integer admissionBurst;
+
+    /**
+     * Micro batch size
+     */
+    private Integer microBatchSize;
+
+    /**
+     * Micro batch linger, milliseconds
+     */
+    private Integer microBatchLinger;
+
+    /**
+     * Eager growth
+     */
+    private Integer eagerGrowth;
+
     public Integer corePoolSizeAdapt() {
         return this.corePoolSize == null ? this.coreSize : this.corePoolSize;
     }
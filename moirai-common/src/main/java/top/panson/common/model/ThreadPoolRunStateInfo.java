@@ -69,6 +69,151 @@ public class ThreadPoolRunStateInfo extends ThreadPoolBaseInfo implements Serial
      */
     private Long rejectCount;
 
+    /**
+     * expiredTaskCount, tasks discarded because their deadline passed while queued
+     */
+    private Long expiredTaskCount;
+
+    /**
+     * predictedRejectCount, tasks rejected because their predicted queue wait exceeded their deadline
+     */
+    private Long predictedRejectCount;
+
+    /**
+     * executeTimeP50, milliseconds in recent time window
+     */
+    private Double executeTimeP50;
+
+    /**
+     * executeTimeP90, milliseconds in recent time window
+     */
+    private Double executeTimeP90;
+
+    /**
+     * executeTimeP99, milliseconds in recent time window
+     */
+    private Double executeTimeP99;
+
+    /**
+     * executeTimeP999, milliseconds in recent time window
+     */
+    private Double executeTimeP999;
+
+    /**
+     * queueWaitTimeP50, milliseconds in recent time window
+     */
+    private Double queueWaitTimeP50;
+
+    /**
+     * queueWaitTimeP90, milliseconds in recent time window
+     */
+    private Double queueWaitTimeP90;
+
+    /**
+     * queueWaitTimeP99, milliseconds in recent time window
+     */
+    private Double queueWaitTimeP99;
+
+    /**
+     * queueWaitTimeP999, milliseconds in recent time window
+     */
+    private Double queueWaitTimeP999;
+
+    /**
+     * queueWeight, total weight of queued tasks, null if queue is not weight bounded
+     */
+    private Long queueWeight;
+
+    /**
+     * queueMaxWeight, null if queue is not weight bounded
+     */
+    private Long queueMaxWeight;
+
+    /**
+     * queueShardCount, null if queue is not work-stealing
+     */
+    private Integer queueShardCount;
+
+    /**
+     * queueStealCount, null if queue is not work-stealing
+     */
+    private Long queueStealCount;
+
+    /**
+     * spillDepth, number of tasks spilled to disk waiting to be replayed, null if no task has been spilled
+     */
+    private Long spillDepth;
+
+    /**
+     * spillRate, tasks spilled to disk per second
+     */
+    private Double spillRate;
+
+    /**
+     * spillReplayLag, milliseconds the oldest spilled task has been waiting
+     */
+    private Long spillReplayLag;
+
+    /**
+     * activeKeyCount, keys with pending tasks in keyed serial executor, null if the pool never executed keyed tasks
+     */
+    private Integer activeKeyCount;
+
+    /**
+     * maxKeyBacklog, pending tasks of the most backlogged key in keyed serial executor
+     */
+    private Integer maxKeyBacklog;
+
+    /**
+     * microBatchFillRatio, items per batch divided by batch size in recent time window, null if not a micro-batching pool
+     */
+    private Double microBatchFillRatio;
+
+    /**
+     * microBatchLinger, milliseconds the first item of a batch waited before dispatch in recent time window
+     */
+    private Double microBatchLinger;
+
+    /**
+     * pendingTimerCount, scheduled tasks not yet due, null if not a scheduled pool
+     */
+    private Integer pendingTimerCount;
+
+    /**
+     * timerTickLag, milliseconds the timer was behind schedule when it last fired due tasks
+     */
+    private Long timerTickLag;
+
+    /**
+     * timerFireRate, scheduled tasks became due per second
+     */
+    private Double timerFireRate;
+
+    /**
+     * parallelism, null if not fork/join pool
+     */
+    private Integer parallelism;
+
+    /**
+     * runningThreadCount, fork/join worker threads not blocked waiting to join tasks
+     */
+    private Integer runningThreadCount;
+
+    /**
+     * queuedSubmissionCount, tasks submitted from outside the fork/join pool not yet started
+     */
+    private Integer queuedSubmissionCount;
+
+    /**
+     * queuedTaskCount, tasks forked by fork/join worker threads not yet started
+     */
+    private Long queuedTaskCount;
+
+    /**
+     * forkJoinStealCount, tasks stolen between fork/join worker threads
+     */
+    private Long forkJoinStealCount;
+
     /**
      * host
      */
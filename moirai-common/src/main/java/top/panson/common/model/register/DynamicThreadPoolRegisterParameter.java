@@ -91,6 +91,11 @@ public class DynamicThreadPoolRegisterParameter {
      */
     private Long executeTimeOut;
 
+    /**
+     * Eager growth
+     */
+    private Boolean eagerGrowth;
+
     public Integer getIsAlarm() {
         return this.isAlarm ? 1 : 0;
     }
@@ -98,4 +103,8 @@ public class DynamicThreadPoolRegisterParameter {
     public Integer getAllowCoreThreadTimeOut() {
         return this.allowCoreThreadTimeOut ? 1 : 0;
     }
+
+    public Integer getEagerGrowth() {
+        return this.eagerGrowth != null && this.eagerGrowth ? 1 : 0;
+    }
 }
@@ -77,6 +77,36 @@ public class RuntimeMessage extends AbstractMessage {
      */
     private Integer rejectCount;
 
+    /**
+     * queueWaitTimeP50, milliseconds
+     */
+    private Double queueWaitTimeP50;
+
+    /**
+     * queueWaitTimeP90, milliseconds
+     */
+    private Double queueWaitTimeP90;
+
+    /**
+     * queueWaitTimeP99, milliseconds
+     */
+    private Double queueWaitTimeP99;
+
+    /**
+     * queueWaitTimeP999, milliseconds
+     */
+    private Double queueWaitTimeP999;
+
+    /**
+     * queueWeight
+     */
+    private Long queueWeight;
+
+    /**
+     * queueMaxWeight
+     */
+    private Long queueMaxWeight;
+
     /**
      * timestamp
      */
@@ -30,7 +30,17 @@ public class ContentUtil {
                 .setCapacityAlarm(parameter.getCapacityAlarm())
                 .setLivenessAlarm(parameter.getLivenessAlarm())
                 .setAllowCoreThreadTimeOut(parameter.getAllowCoreThreadTimeOut())
-                .setRejectedType(parameter.getRejectedType());
+                .setRejectedType(parameter.getRejectedType())
+                .setQueueTargetDelay(parameter.getQueueTargetDelay())
+                .setQueueDelayInterval(parameter.getQueueDelayInterval())
+                .setQueueMaxWeight(parameter.getQueueMaxWeight())
+                .setQueueEvictLowestPriority(parameter.getQueueEvictLowestPriority())
+                .setQueueShardCount(parameter.getQueueShardCount())
+                .setAdmissionRate(parameter.getAdmissionRate())
+                .setAdmissionBurst(parameter.getAdmissionBurst())
+                .setMicroBatchSize(parameter.getMicroBatchSize())
+                .setMicroBatchLinger(parameter.getMicroBatchLinger())
+                .setEagerGrowth(parameter.getEagerGrowth());
         return JSONUtil.toJSONString(threadPoolParameterInfo);
     }
 
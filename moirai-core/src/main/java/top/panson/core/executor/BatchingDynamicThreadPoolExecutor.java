@@ -0,0 +1,354 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package top.panson.core.executor;
+
+import top.panson.common.executor.support.QueueDiscardAware;
+import top.panson.core.plugin.impl.ThreadPoolRunStateRecordPlugin;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @方法描述：批量获取任务的动态线程池，和DynamicThreadPoolExecutor的用法完全一样，插件、动态刷新、监控都不受影响，只是在两个地方做了优化：
+ * 第一，工作队列中积压的任务比线程数量多的时候，工作线程每次从队列中获取一小批任务依次执行，获取一批任务只需要获取一次队列的锁，
+ * 每个任务执行前后仍然会单独回调ExecuteAwarePlugin插件；第二，jdk线程池的getActiveCount、getCompletedTaskCount、getLargestPoolSize、
+ * getPoolSize和getTaskCount方法都要获取线程池的全局锁并遍历所有的工作线程，每次采集运行状态时都会和提交任务的线程竞争这把锁，
+ * 这里重写了这些方法，统计信息都存放在无锁的计数器中，采集运行状态时不会再阻塞提交任务的线程。
+ * 调整核心线程数和最大线程数仍然使用jdk线程池的方法，只有缩容时中断空闲线程才会短暂地获取全局锁，调整队列容量则完全由工作队列自己负责
+ */
+@Slf4j
+public class BatchingDynamicThreadPoolExecutor extends DynamicThreadPoolExecutor {
+
+    //默认每次从工作队列中获取的最大任务数量
+    public static final int DEFAULT_DEQUEUE_BATCH_SIZE = 4;
+
+    //每次从工作队列中获取的最大任务数量，小于等于1的时候相当于不批量获取
+    @Getter
+    private volatile int dequeueBatchSize;
+
+    //存活的工作线程数量
+    private final AtomicInteger liveWorkerCount = new AtomicInteger();
+
+    //工作线程数量曾经达到的最大值
+    private final AtomicInteger largestWorkerCount = new AtomicInteger();
+
+    //正在执行的任务数量，每个工作线程都会修改这个数量，所以使用分段累加的LongAdder
+    private final LongAdder activeTaskCount = new LongAdder();
+
+    //已经执行完的任务数量
+    private final LongAdder completedTaskCount = new LongAdder();
+
+    //是否调用了shutdownNow方法，调用之后工作线程不再执行已经获取到但是还没有执行的任务
+    private volatile boolean stopping;
+
+
+    public BatchingDynamicThreadPoolExecutor(
+                                             int corePoolSize, int maximumPoolSize,
+                                             long keepAliveTime, TimeUnit unit,
+                                             long executeTimeOut, boolean waitForTasksToCompleteOnShutdown, long awaitTerminationMillis,
+                                             @NonNull BlockingQueue<Runnable> blockingQueue,
+                                             @NonNull String threadPoolId,
+                                             @NonNull ThreadFactory threadFactory,
+                                             @NonNull RejectedExecutionHandler rejectedExecutionHandler,
+                                             int dequeueBatchSize) {
+        this(
+                corePoolSize, maximumPoolSize, keepAliveTime, unit,
+                executeTimeOut, waitForTasksToCompleteOnShutdown, awaitTerminationMillis,
+                new BatchingTaskQueue(blockingQueue), threadPoolId,
+                new WorkerCountingThreadFactory(threadFactory), rejectedExecutionHandler, dequeueBatchSize);
+    }
+
+
+    //工作队列和线程工厂的包装对象都要持有当前线程池，但是调用父类构造方法之前还不能使用this，所以先创建好包装对象，再在这里绑定线程池
+    private BatchingDynamicThreadPoolExecutor(
+                                              int corePoolSize, int maximumPoolSize,
+                                              long keepAliveTime, TimeUnit unit,
+                                              long executeTimeOut, boolean waitForTasksToCompleteOnShutdown, long awaitTerminationMillis,
+                                              BatchingTaskQueue batchingTaskQueue,
+                                              String threadPoolId,
+                                              WorkerCountingThreadFactory threadFactory,
+                                              RejectedExecutionHandler rejectedExecutionHandler,
+                                              int dequeueBatchSize) {
+        super(
+                corePoolSize, maximumPoolSize, keepAliveTime, unit,
+                executeTimeOut, waitForTasksToCompleteOnShutdown, awaitTerminationMillis,
+                batchingTaskQueue, threadPoolId, threadFactory, rejectedExecutionHandler);
+        batchingTaskQueue.executor = this;
+        threadFactory.executor = this;
+        this.dequeueBatchSize = dequeueBatchSize;
+        //这个线程池的统计信息本身就是无锁的，不需要再使用插件记录运行状态
+        unregister(ThreadPoolRunStateRecordPlugin.PLUGIN_NAME);
+    }
+
+
+    //设置每次从工作队列中获取的最大任务数量，线程池运行过程中也可以调用
+    public void setDequeueBatchSize(int dequeueBatchSize) {
+        this.dequeueBatchSize = dequeueBatchSize;
+    }
+
+
+    //工作队列被替换之后，给新的工作队列也包装上批量获取任务的队列
+    @Override
+    BlockingQueue<Runnable> decorateWorkQueue(BlockingQueue<Runnable> workQueue) {
+        BatchingTaskQueue batchingTaskQueue = new BatchingTaskQueue(workQueue);
+        batchingTaskQueue.executor = this;
+        return batchingTaskQueue;
+    }
+
+
+    //批量获取的任务是一个整体交给jdk线程池执行的，它本身不回调插件，插件由其中的每一个任务单独回调
+    @Override
+    protected void beforeExecute(Thread thread, Runnable runnable) {
+        if (runnable instanceof TaskBatch) {
+            return;
+        }
+        super.beforeExecute(thread, runnable);
+        activeTaskCount.increment();
+    }
+
+
+    @Override
+    protected void afterExecute(Runnable runnable, Throwable throwable) {
+        if (runnable instanceof TaskBatch) {
+            return;
+        }
+        activeTaskCount.decrement();
+        completedTaskCount.increment();
+        super.afterExecute(runnable, throwable);
+    }
+
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        stopping = true;
+        return super.shutdownNow();
+    }
+
+
+    //下面这几个方法在jdk线程池中都要获取全局锁，这里直接读取无锁的计数器
+    //线程池终止的时候工作线程可能还没有退出，这时候和jdk线程池一样返回0
+    @Override
+    public int getPoolSize() {
+        return isTerminated() ? 0 : liveWorkerCount.get();
+    }
+
+
+    @Override
+    public int getLargestPoolSize() {
+        return largestWorkerCount.get();
+    }
+
+
+    @Override
+    public int getActiveCount() {
+        return (int) Math.max(0L, activeTaskCount.sum());
+    }
+
+
+    @Override
+    public long getCompletedTaskCount() {
+        return completedTaskCount.sum();
+    }
+
+
+    @Override
+    public long getTaskCount() {
+        return getCompletedTaskCount() + getActiveCount() + getQueue().size();
+    }
+
+
+    //jdk线程池创建工作线程时调用的是getThreadFactory方法，所以这里不能重写getThreadFactory方法去掉包装，只能在设置线程工厂时重新包装
+    @Override
+    public void setThreadFactory(@NonNull ThreadFactory threadFactory) {
+        if (!(threadFactory instanceof WorkerCountingThreadFactory)) {
+            WorkerCountingThreadFactory countingThreadFactory = new WorkerCountingThreadFactory(threadFactory);
+            countingThreadFactory.executor = this;
+            threadFactory = countingThreadFactory;
+        }
+        super.setThreadFactory(threadFactory);
+    }
+
+
+    //工作线程开始运行时调用
+    private void onWorkerStart() {
+        int workerCount = liveWorkerCount.incrementAndGet();
+        int largest;
+        while (workerCount > (largest = largestWorkerCount.get())) {
+            if (largestWorkerCount.compareAndSet(largest, workerCount)) {
+                break;
+            }
+        }
+    }
+
+
+    //工作线程退出时调用
+    private void onWorkerExit() {
+        liveWorkerCount.decrementAndGet();
+    }
+
+
+    //判断工作线程这次是否应该批量获取任务，只有队列中积压的任务比工作线程多的时候才批量获取，否则空闲的线程可能拿不到任务，
+    //会主动丢弃任务的队列也不批量获取，因为drainTo方法会绕过队列的丢弃逻辑
+    private int batchSizeFor(BlockingQueue<Runnable> workQueue) {
+        int batchSize = dequeueBatchSize;
+        if (batchSize <= 1 || stopping || workQueue instanceof QueueDiscardAware) {
+            return 1;
+        }
+        return workQueue.size() >= liveWorkerCount.get() ? batchSize : 1;
+    }
+
+
+    /**
+     * @方法描述：包装工作队列的队列，工作线程从这个队列中获取任务时，如果队列中积压的任务足够多，就在一次加锁中多取出几个任务，
+     * 和第一个任务一起封装成TaskBatch返回给工作线程
+     */
+    private static class BatchingTaskQueue extends DelegatingTaskQueue {
+
+        private volatile BatchingDynamicThreadPoolExecutor executor;
+
+        BatchingTaskQueue(BlockingQueue<Runnable> delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Runnable take() throws InterruptedException {
+            return batch(super.take());
+        }
+
+        @Override
+        public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+            Runnable first = super.poll(timeout, unit);
+            return first == null ? null : batch(first);
+        }
+
+        private Runnable batch(Runnable first) {
+            BatchingDynamicThreadPoolExecutor executor = this.executor;
+            if (executor == null) {
+                return first;
+            }
+            BlockingQueue<Runnable> workQueue = getDelegate();
+            int batchSize = executor.batchSizeFor(workQueue);
+            if (batchSize <= 1) {
+                return first;
+            }
+            List<Runnable> tasks = new ArrayList<>(batchSize);
+            tasks.add(first);
+            workQueue.drainTo(tasks, batchSize - 1);
+            return tasks.size() == 1 ? first : executor.new TaskBatch(tasks);
+        }
+    }
+
+
+    /**
+     * @方法描述：工作线程一次获取到的一批任务，依次执行其中的每一个任务，每个任务执行前后都会调用线程池的beforeExecute和afterExecute方法，
+     * 和jdk线程池执行单个任务时一样。某个任务抛出异常不会影响后面的任务，等这一批任务都执行完了，再把第一个异常抛给jdk线程池，
+     * 让jdk线程池像单个任务抛出异常时那样替换掉这个工作线程。调用了shutdownNow之后，剩下还没有执行的任务直接取消
+     */
+    private class TaskBatch implements Runnable {
+
+        private final List<Runnable> tasks;
+
+        TaskBatch(List<Runnable> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        public void run() {
+            Thread thread = Thread.currentThread();
+            Throwable failure = null;
+            for (int i = 0; i < tasks.size(); i++) {
+                Runnable task = tasks.get(i);
+                if (stopping) {
+                    discardSubmittedTask(task);
+                    continue;
+                }
+                //和jdk线程池一样，执行下一个任务之前清除上一个任务留下的中断标志
+                Thread.interrupted();
+                try {
+                    beforeExecute(thread, task);
+                    Throwable thrown = null;
+                    try {
+                        task.run();
+                    } catch (Throwable ex) {
+                        thrown = ex;
+                    } finally {
+                        afterExecute(task, thrown);
+                    }
+                    if (thrown != null) {
+                        throw thrown;
+                    }
+                } catch (Throwable ex) {
+                    if (failure == null) {
+                        failure = ex;
+                    } else {
+                        failure.addSuppressed(ex);
+                    }
+                }
+            }
+            if (stopping) {
+                thread.interrupt();
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            if (failure != null) {
+                throw new Error(failure);
+            }
+        }
+    }
+
+
+    /**
+     * @方法描述：包装用户设置的线程工厂，在工作线程开始和结束运行的时候修改存活的线程数量，这样获取线程数量时就不需要获取全局锁了
+     */
+    private static class WorkerCountingThreadFactory implements ThreadFactory {
+
+        private final ThreadFactory delegate;
+
+        private volatile BatchingDynamicThreadPoolExecutor executor;
+
+        WorkerCountingThreadFactory(ThreadFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Thread newThread(Runnable worker) {
+            BatchingDynamicThreadPoolExecutor executor = this.executor;
+            return delegate.newThread(() -> {
+                executor.onWorkerStart();
+                try {
+                    worker.run();
+                } finally {
+                    executor.onWorkerExit();
+                }
+            });
+        }
+    }
+}
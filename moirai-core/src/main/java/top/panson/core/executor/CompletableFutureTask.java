@@ -0,0 +1,145 @@
+package top.panson.core.executor;
+
+import top.panson.common.executor.support.TaskCallerTag;
+import top.panson.common.executor.support.TaskSizeHint;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Supplier;
+
+
+/**
+ * @方法描述：既是任务又是CompletableFuture的对象，由{@link ExtensibleThreadPoolExecutor#supplyAsync(Supplier)}和
+ * {@link ExtensibleThreadPoolExecutor#runAsync(Runnable)}创建。以前要得到CompletableFuture只能把任务提交之后得到的FutureTask再包装一层，
+ * 或者使用CompletableFuture.supplyAsync把线程池当作Executor，前者要多创建一个对象，还要阻塞一个线程在FutureTask的get方法上等待结果，
+ * 后者不会经过创建任务的插件。这个对象直接交给线程池执行，任务执行完毕之后直接完成自己，所以只有一个任务对象，插件也只会经过一次。
+ * jdk9及以上版本中，不指定Executor的异步回调方法，比如thenApplyAsync，也会在这个线程池中执行。
+ * 取消任务只会让CompletableFuture以CancellationException结束，已经开始执行的任务不会被中断，还没有开始执行的任务不会再执行
+ */
+public class CompletableFutureTask<V> extends CompletableFuture<V> implements RunnableFuture<V>, TaskCallerTag {
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<CompletableFutureTask> STARTED =
+            AtomicIntegerFieldUpdater.newUpdater(CompletableFutureTask.class, "started");
+
+    //有返回值的任务和没有返回值的任务，只有一个不为null，任务开始执行之后都会被置为null，方便垃圾回收
+    private Callable<? extends V> callable;
+
+    private Runnable runnable;
+
+    //原始任务的调用方标签，准入控制插件会用到
+    private final String callerTag;
+
+    //执行任务的线程池，异步回调方法默认也交给它执行
+    private final Executor executor;
+
+    //任务是否已经开始执行，保证任务最多执行一次
+    private volatile int started;
+
+    CompletableFutureTask(Callable<? extends V> callable, Runnable runnable, String callerTag, Executor executor) {
+        this.callable = callable;
+        this.runnable = runnable;
+        this.callerTag = callerTag;
+        this.executor = executor;
+    }
+
+    /**
+     * 创建任务对象，原始任务提供了大小提示的话，创建的任务对象要保留大小提示，按照权重限制容量的队列会用到
+     */
+    static <V> CompletableFutureTask<V> of(Object original, Callable<? extends V> callable, Runnable runnable, String callerTag, Executor executor) {
+        if (original instanceof TaskSizeHint) {
+            return new SizeHintCompletableFutureTask<>(callable, runnable, callerTag, executor, ((TaskSizeHint) original).getSizeHint());
+        }
+        return new CompletableFutureTask<>(callable, runnable, callerTag, executor);
+    }
+
+    @Override
+    public String getCallerTag() {
+        return callerTag;
+    }
+
+    @Override
+    public void run() {
+        //已经结束的任务，比如被取消了，或者已经被其他线程执行过了，就不再执行
+        if (isDone() || !STARTED.compareAndSet(this, 0, 1)) {
+            return;
+        }
+        Callable<? extends V> callable = this.callable;
+        Runnable runnable = this.runnable;
+        this.callable = null;
+        this.runnable = null;
+        try {
+            if (callable != null) {
+                complete(callable.call());
+            } else {
+                runnable.run();
+                complete(null);
+            }
+        } catch (Throwable ex) {
+            //和FutureTask一样，任务抛出的异常由返回的CompletableFuture传递给调用方
+            completeExceptionally(ex);
+        }
+    }
+
+    /**
+     * jdk9及以上版本中，不指定Executor的异步回调方法使用这个Executor，这里没有添加@Override注解，是为了兼容jdk8
+     */
+    public Executor defaultExecutor() {
+        return executor;
+    }
+
+    /**
+     * jdk9及以上版本中，回调方法返回的CompletableFuture由这个方法创建，让后面的异步回调方法也默认在这个线程池中执行
+     */
+    public <U> CompletableFuture<U> newIncompleteFuture() {
+        return new DependentFuture<>(executor);
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "[" + (callable != null ? callable : runnable) + "]";
+    }
+
+
+    /**
+     * @方法描述：保留了原始任务大小提示的任务对象
+     */
+    private static class SizeHintCompletableFutureTask<V> extends CompletableFutureTask<V> implements TaskSizeHint {
+
+        private final long sizeHint;
+
+        SizeHintCompletableFutureTask(Callable<? extends V> callable, Runnable runnable, String callerTag, Executor executor, long sizeHint) {
+            super(callable, runnable, callerTag, executor);
+            this.sizeHint = sizeHint;
+        }
+
+        @Override
+        public long getSizeHint() {
+            return sizeHint;
+        }
+    }
+
+
+    /**
+     * @方法描述：回调方法返回的CompletableFuture，异步回调方法默认在创建任务的线程池中执行
+     */
+    private static class DependentFuture<V> extends CompletableFuture<V> {
+
+        private final Executor executor;
+
+        DependentFuture(Executor executor) {
+            this.executor = executor;
+        }
+
+        public Executor defaultExecutor() {
+            return executor;
+        }
+
+        public <U> CompletableFuture<U> newIncompleteFuture() {
+            return new DependentFuture<>(executor);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package top.panson.core.executor;
+
+import top.panson.common.executor.support.TaskCallerTag;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * @方法描述：有截止时间的任务，由{@link ExtensibleThreadPoolExecutor#submit(Callable, long, TimeUnit)}创建。
+ * 工作线程执行任务之前会检查截止时间，已经过期的任务不会再执行，而是以{@link TaskDeadlineExceededException}结束，
+ * 这样调用方已经放弃等待的任务就不会继续占用线程池。实现了{@link top.panson.common.executor.support.DelegatingTask}的包装任务，
+ * 比如排队时间插件创建的任务，线程池会先拿到原始任务再检查截止时间；任务如果被TaskDecoratorPlugin插件包装过，线程池看到的是包装之后的任务，
+ * 所以任务自己在开始执行的时候也会再检查一次截止时间
+ */
+public class DeadlineFutureTask<V> extends FutureTask<V> implements TaskCallerTag {
+
+    //截止时间，和System.nanoTime()的返回值比较
+    private final long deadlineNanos;
+
+    //原始任务的调用方标签，准入控制插件会用到
+    private final String callerTag;
+
+    private final ExtensibleThreadPoolExecutor executor;
+
+    DeadlineFutureTask(Callable<V> callable, long deadlineNanos, String callerTag, ExtensibleThreadPoolExecutor executor) {
+        super(callable);
+        this.deadlineNanos = deadlineNanos;
+        this.callerTag = callerTag;
+        this.executor = executor;
+    }
+
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    //距离截止时间还有多久，已经过期的话返回值小于等于0
+    public long getRemainingNanos() {
+        return deadlineNanos - System.nanoTime();
+    }
+
+    @Override
+    public String getCallerTag() {
+        return callerTag;
+    }
+
+    @Override
+    public void run() {
+        if (!expireIfOverdue()) {
+            super.run();
+        }
+    }
+
+    /**
+     * @方法描述：任务已经过期并且还没有结束的话，让任务以TaskDeadlineExceededException结束，并且计入线程池的过期任务数量
+     *
+     * @return 任务是否在这次调用中因为过期而结束
+     */
+    boolean expireIfOverdue() {
+        long overdueNanos = -getRemainingNanos();
+        if (overdueNanos < 0L || isDone()) {
+            return false;
+        }
+        setException(new TaskDeadlineExceededException("Task deadline exceeded by " + TimeUnit.NANOSECONDS.toMillis(overdueNanos)
+                + " ms before execution. threadPoolId: " + executor.getThreadPoolId()));
+        executor.onTaskExpired();
+        return true;
+    }
+}
@@ -0,0 +1,120 @@
+package top.panson.core.executor;
+
+import lombok.Getter;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * @方法描述：对线程池真正的工作队列做一层包装的队列，所有操作都交给真正的工作队列执行，子类只需要重写自己关心的方法。
+ * 线程池的getQueue方法会把这一层包装去掉，返回的仍然是真正的工作队列
+ */
+abstract class DelegatingTaskQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    //真正的工作队列
+    @Getter
+    private final BlockingQueue<Runnable> delegate;
+
+    DelegatingTaskQueue(BlockingQueue<Runnable> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean offer(Runnable runnable) {
+        return delegate.offer(runnable);
+    }
+
+    @Override
+    public void put(Runnable runnable) throws InterruptedException {
+        delegate.put(runnable);
+    }
+
+    @Override
+    public boolean offer(Runnable runnable, long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.offer(runnable, timeout, unit);
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        return delegate.take();
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.poll(timeout, unit);
+    }
+
+    @Override
+    public Runnable poll() {
+        return delegate.poll();
+    }
+
+    @Override
+    public Runnable peek() {
+        return delegate.peek();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return delegate.remainingCapacity();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return delegate.remove(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return delegate.contains(o);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return delegate.drainTo(c);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        return delegate.drainTo(c, maxElements);
+    }
+
+    @Override
+    public Iterator<Runnable> iterator() {
+        return delegate.iterator();
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return delegate.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    @Override
+    public Object[] toArray() {
+        return delegate.toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        return delegate.toArray(a);
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
@@ -8,6 +8,7 @@ import lombok.NoArgsConstructor;
 import org.springframework.beans.factory.DisposableBean;
 
 import java.util.concurrent.*;
+import java.util.function.Supplier;
 
 
 /**
@@ -56,6 +57,22 @@ public class DynamicThreadPoolWrapper implements DisposableBean {
     }
 
 
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+        if (executor instanceof ExtensibleThreadPoolExecutor) {
+            return ((ExtensibleThreadPoolExecutor) executor).supplyAsync(supplier);
+        }
+        return CompletableFuture.supplyAsync(supplier, executor);
+    }
+
+
+    public CompletableFuture<Void> runAsync(Runnable task) {
+        if (executor instanceof ExtensibleThreadPoolExecutor) {
+            return ((ExtensibleThreadPoolExecutor) executor).runAsync(task);
+        }
+        return CompletableFuture.runAsync(task, executor);
+    }
+
+
 
     @Override
     public void destroy() throws Exception {
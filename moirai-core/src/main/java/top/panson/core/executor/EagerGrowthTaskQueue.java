@@ -0,0 +1,29 @@
+package top.panson.core.executor;
+
+import java.util.concurrent.BlockingQueue;
+
+
+/**
+ * @方法描述：线程池开启快速扩容模式之后使用的任务队列，这个队列只是对线程池真正的工作队列做了一层包装，所有操作都交给真正的工作队列执行，
+ * 只有线程池提交任务时调用的offer方法不一样：如果已经提交但是还没有执行完的任务数量超过了当前的线程数量，说明没有空闲的线程了，
+ * 这时候只要线程数量还没有达到最大线程数，就返回false，让线程池先创建非核心线程执行任务，线程数量达到最大之后才让任务排队，
+ * 这和FastThreadPoolExecutor使用的TaskQueue是同一个思路，只不过这里可以包装任意类型的工作队列，线程池的getQueue方法返回的仍然是真正的工作队列
+ */
+class EagerGrowthTaskQueue extends DelegatingTaskQueue {
+
+    private final ExtensibleThreadPoolExecutor executor;
+
+    EagerGrowthTaskQueue(BlockingQueue<Runnable> delegate, ExtensibleThreadPoolExecutor executor) {
+        super(delegate);
+        this.executor = executor;
+    }
+
+    //线程池提交任务的时候会调用这个方法，只有这个方法需要判断是否要先创建线程
+    @Override
+    public boolean offer(Runnable runnable) {
+        if (executor.isEagerGrowth() && executor.shouldAddWorker()) {
+            return false;
+        }
+        return super.offer(runnable);
+    }
+}
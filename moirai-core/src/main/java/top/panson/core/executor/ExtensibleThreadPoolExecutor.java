@@ -1,26 +1,40 @@
 package top.panson.core.executor;
 
 
-import top.panson.core.plugin.ExecuteAwarePlugin;
-import top.panson.core.plugin.RejectedAwarePlugin;
-import top.panson.core.plugin.ShutdownAwarePlugin;
-import top.panson.core.plugin.TaskAwarePlugin;
+import top.panson.common.executor.support.BulkOfferQueue;
+import top.panson.common.executor.support.DelegatingTask;
+import top.panson.common.executor.support.QueueDiscardAware;
+import top.panson.common.executor.support.TaskCallerTag;
+import top.panson.common.executor.support.TaskSizeHint;
+import top.panson.common.toolkit.ReflectUtil;
+import top.panson.core.plugin.TaskAdmissionRejectedException;
+import top.panson.core.plugin.impl.TaskQueueWaitTimeRecordPlugin;
 import top.panson.core.plugin.manager.ThreadPoolPluginManager;
+import top.panson.core.plugin.manager.ThreadPoolPluginSnapshot;
 import top.panson.core.plugin.manager.ThreadPoolPluginSupport;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 
 /**
  * @方法描述：扩展线程池类，这个类为jdk的原生线程池提供了非常多的扩展点，基本上每一个重要操作都提供了拓展点
  */
+@Slf4j
 public class ExtensibleThreadPoolExecutor extends ThreadPoolExecutor implements ThreadPoolPluginSupport {
 
 
@@ -36,6 +50,26 @@ public class ExtensibleThreadPoolExecutor extends ThreadPoolExecutor implements
     //拒绝策略处理器的包装对象，其实就是把拒绝策略的插件对象的方法加上了
     private final RejectedAwareHandlerWrapper handlerWrapper;
 
+    //已经提交但是还没有执行完的任务数量，快速扩容模式根据这个数量判断是否还有空闲的线程，
+    //每个提交任务的线程都会修改这个数量，所以使用分段累加的LongAdder，避免提交任务的线程之间互相竞争
+    private final LongAdder submittedTaskCount = new LongAdder();
+
+    //是否开启了快速扩容模式，开启之后线程池会先把线程数量扩充到最大线程数，然后才让任务排队
+    @Getter
+    private volatile boolean eagerGrowth;
+
+    //在队列中等到了截止时间还没有开始执行，因此被丢弃的任务数量
+    private final LongAdder expiredTaskCount = new LongAdder();
+
+    //提交时预测的排队时间超过了截止时间，因此被直接拒绝的任务数量
+    private final LongAdder predictedRejectCount = new LongAdder();
+
+    //估算线程池处理任务的速度，只有提交有截止时间的任务时才会用到
+    private final ServiceRateEstimator serviceRateEstimator = new ServiceRateEstimator(this);
+
+    //当前线程是否正在通过tryExecute方法提交任务，这时候任务被拒绝的话不执行拒绝策略插件和拒绝策略，直接抛出异常
+    private static final ThreadLocal<Boolean> TRY_EXECUTE = new ThreadLocal<>();
+
 
     public ExtensibleThreadPoolExecutor(
             @NonNull String threadPoolId,
@@ -55,16 +89,183 @@ public class ExtensibleThreadPoolExecutor extends ThreadPoolExecutor implements
         }
         this.handlerWrapper = new RejectedAwareHandlerWrapper(threadPoolPluginManager, handler);
         super.setRejectedExecutionHandler(handlerWrapper);
+        bindWorkQueue();
+    }
+
+
+    /**
+     * @方法描述：把线程池和工作队列的回调绑定起来，如果工作队列会主动丢弃排队过久的任务，被丢弃的任务会交给拒绝策略插件处理，
+     * 这样这些任务也会被计入拒绝次数并触发告警。工作队列被替换之后，需要再调用一次这个方法
+     */
+    public void bindWorkQueue() {
+        //子类对工作队列的包装在队列被替换之后要重新安装，快速扩容模式的包装始终在最外层
+        BlockingQueue<Runnable> rawQueue = super.getQueue();
+        if (!(rawQueue instanceof DelegatingTaskQueue)) {
+            BlockingQueue<Runnable> decoratedQueue = decorateWorkQueue(rawQueue);
+            if (decoratedQueue != rawQueue) {
+                replaceWorkQueue(decoratedQueue);
+            }
+        }
+        //快速扩容模式要包装新的工作队列
+        if (eagerGrowth) {
+            eagerGrowth = installEagerGrowthQueue();
+        }
+        BlockingQueue<Runnable> workQueue = getQueue();
+        if (workQueue instanceof QueueDiscardAware) {
+            ((QueueDiscardAware) workQueue).setQueueDiscardListener(this::onQueueDiscard);
+        }
+        //队列排队时间统计插件是在启动时给队列设置监听器的，队列被替换之后要重新设置
+        this.<TaskQueueWaitTimeRecordPlugin>getPlugin(TaskQueueWaitTimeRecordPlugin.PLUGIN_NAME)
+                .ifPresent(plugin -> {
+                    plugin.stop();
+                    plugin.start();
+                });
+    }
+
+
+    /**
+     * @方法描述：开启或者关闭快速扩容模式，这个方法可以在线程池运行的过程中调用。第一次开启时会给工作队列包装一层EagerGrowthTaskQueue，
+     * 之后再开启或者关闭都只是修改一个标志，包装的队列和真正的工作队列操作的是同一份数据，所以替换的时候不会影响正在排队的任务
+     */
+    public synchronized void setEagerGrowth(boolean eagerGrowth) {
+        this.eagerGrowth = eagerGrowth && installEagerGrowthQueue();
+    }
+
+
+    //获得已经提交但是还没有执行完的任务数量
+    public long getSubmittedTaskCount() {
+        return Math.max(0L, submittedTaskCount.sum());
+    }
+
+
+    //获得因为超过截止时间而被丢弃的任务数量
+    public long getExpiredTaskCount() {
+        return expiredTaskCount.sum();
+    }
+
+
+    //获得因为预测的排队时间超过截止时间而被直接拒绝的任务数量
+    public long getPredictedRejectCount() {
+        return predictedRejectCount.sum();
+    }
+
+
+    //获得估算出的线程池每秒执行完的任务数量，还没有提交过有截止时间的任务或者还没有估算出来的话返回-1
+    public double getEstimatedServiceRate() {
+        return serviceRateEstimator.getTasksPerSecond();
+    }
+
+
+    //返回真正的工作队列，而不是快速扩容模式或者子类包装的队列，这样外部判断队列类型、调整队列容量时都不受影响
+    @Override
+    public BlockingQueue<Runnable> getQueue() {
+        BlockingQueue<Runnable> workQueue = super.getQueue();
+        while (workQueue instanceof DelegatingTaskQueue) {
+            workQueue = ((DelegatingTaskQueue) workQueue).getDelegate();
+        }
+        return workQueue;
+    }
+
+
+    //子类可以重写这个方法，给真正的工作队列包装一层DelegatingTaskQueue来改变工作线程获取任务的方式，默认不包装
+    BlockingQueue<Runnable> decorateWorkQueue(BlockingQueue<Runnable> workQueue) {
+        return workQueue;
+    }
+
+
+    //判断提交任务时是否应该先创建线程，已经提交的任务数量超过了线程数量就说明没有空闲的线程了
+    boolean shouldAddWorker() {
+        int poolSize = getPoolSize();
+        return poolSize < getMaximumPoolSize() && submittedTaskCount.sum() > poolSize;
+    }
+
+
+    //给工作队列包装一层快速扩容模式的队列，jdk的线程池没有提供替换队列的方法，所以这里和替换队列时一样使用反射，
+    //反射失败的话快速扩容模式就不生效，线程池仍然按照原来的方式工作
+    private boolean installEagerGrowthQueue() {
+        BlockingQueue<Runnable> workQueue = super.getQueue();
+        if (workQueue instanceof EagerGrowthTaskQueue) {
+            return true;
+        }
+        return replaceWorkQueue(new EagerGrowthTaskQueue(workQueue, this));
+    }
+
+
+    //替换线程池的工作队列，jdk的线程池没有提供替换队列的方法，所以只能使用反射
+    private boolean replaceWorkQueue(BlockingQueue<Runnable> workQueue) {
+        try {
+            ReflectUtil.setFieldValue(this, "workQueue", workQueue);
+            return true;
+        } catch (RuntimeException ex) {
+            log.warn("Failed to wrap the work queue with {}. threadPoolId: {}", workQueue.getClass().getSimpleName(), threadPoolId, ex);
+            return false;
+        }
+    }
+
+
+    //丢弃一个已经提交但是不会再执行的任务，取消这个任务，防止有调用方一直阻塞在任务的Future上
+    void discardSubmittedTask(Runnable runnable) {
+        submittedTaskCount.decrement();
+        if (runnable instanceof Future) {
+            ((Future<?>) runnable).cancel(false);
+        }
+    }
+
+
+    //快速扩容模式下，线程池返回false之后会去创建线程，如果这时候线程数量已经被其他线程扩充到最大了，线程池就会执行拒绝策略，
+    //所以在真正执行拒绝策略之前，要再尝试把任务放到工作队列中，线程池已经关闭的话就不再尝试了
+    private boolean retryOffer(Runnable runnable) {
+        if (!eagerGrowth || isShutdown()) {
+            return false;
+        }
+        BlockingQueue<Runnable> workQueue = getQueue();
+        if (!workQueue.offer(runnable)) {
+            return false;
+        }
+        return !isShutdown() || !workQueue.remove(runnable);
+    }
+
+
+    //工作队列丢弃任务时的回调方法，这里不会执行真正的拒绝策略，因为当前线程是从队列中获取任务的工作线程，
+    //只执行拒绝策略插件，然后取消被丢弃的任务，防止有调用方一直阻塞在任务的Future上
+    private void onQueueDiscard(Object element) {
+        if (!(element instanceof Runnable)) {
+            return;
+        }
+        Runnable runnable = (Runnable) element;
+        ThreadPoolPluginSnapshot snapshot = threadPoolPluginManager.getPluginSnapshot();
+        if (snapshot.hasRejectedAwarePlugins()) {
+            snapshot.beforeRejectedExecution(runnable, this);
+        }
+        discardSubmittedTask(runnable);
     }
 
 
     //该方法会在线程执行任务之前被调用
     @Override
     protected void beforeExecute(Thread thread, Runnable runnable) {
-        //这里从插件处理器中得到了ExecuteAwarePlugin类型的所有插件，这个插件的对象是用来计算任务耗时和任务是否超时了
-        Collection<ExecuteAwarePlugin> executeAwarePluginList = threadPoolPluginManager.getExecuteAwarePluginList();
-        //执行了插件对象中的beforeExecute方法
-        executeAwarePluginList.forEach(aware -> aware.beforeExecute(thread, runnable));
+        boolean completed = false;
+        try {
+            //有截止时间的任务在队列中等到过期的话就不再执行了，任务会以TaskDeadlineExceededException结束，
+            //之后工作线程调用任务的run方法什么也不会做，任务执行前后的插件仍然会成对地被调用。
+            //默认注册的排队时间插件在普通队列上会把任务包装一层，所以要先拿到原始任务再判断
+            Runnable task = DelegatingTask.unwrap(runnable);
+            if (task instanceof DeadlineFutureTask) {
+                ((DeadlineFutureTask<?>) task).expireIfOverdue();
+            }
+            //这里从插件管理器中得到了插件快照，然后执行快照中所有ExecuteAwarePlugin类型插件的beforeExecute方法
+            //这个插件的对象是用来计算任务耗时和任务是否超时了，快照是不可变的，所以这里不需要加锁，没有这类插件时直接跳过
+            ThreadPoolPluginSnapshot snapshot = threadPoolPluginManager.getPluginSnapshot();
+            if (snapshot.hasExecuteAwarePlugins()) {
+                snapshot.beforeExecute(thread, runnable);
+            }
+            completed = true;
+        } finally {
+            //这里抛出异常的话jdk的线程池不会执行任务，也不会调用afterExecute方法，所以要在这里把提交的任务数量减一
+            if (!completed) {
+                submittedTaskCount.decrement();
+            }
+        }
     }
 
 
@@ -73,48 +274,364 @@ public class ExtensibleThreadPoolExecutor extends ThreadPoolExecutor implements
     public void execute(@NonNull Runnable runnable) {
         //在这里得到了TaskDecoratorPlugin装饰器插件对象，这个装饰器插件对象中存放了装饰器对象
         //装饰器对象可以对要执行的任务做一层额外的包装，可以做一些扩展逻辑
-        Collection<TaskAwarePlugin> taskAwarePluginList = threadPoolPluginManager.getTaskAwarePluginList();
-        for (TaskAwarePlugin taskAwarePlugin : taskAwarePluginList) {
-            //执行了装饰器对象的beforeTaskExecute方法，该方法会返回一个新的runnable，这个runnable不仅包含了原生任务的逻辑
-            //还有装饰器对象新添加的逻辑
-            runnable = taskAwarePlugin.beforeTaskExecute(runnable);
-        }//然后再开始执行任务
+        //执行了装饰器对象的beforeTaskExecute方法，该方法会返回一个新的runnable，这个runnable不仅包含了原生任务的逻辑
+        //还有装饰器对象新添加的逻辑
+        ThreadPoolPluginSnapshot snapshot = threadPoolPluginManager.getPluginSnapshot();
+        Runnable original = runnable;
+        if (snapshot.hasTaskAwarePlugins()) {
+            try {
+                runnable = snapshot.beforeTaskExecute(runnable);
+            } catch (TaskAdmissionRejectedException ex) {
+                //插件拒绝了这个任务，任务不会进入工作队列，也不会被计数，直接执行拒绝策略插件和拒绝策略
+                handlerWrapper.reject(original, this);
+                return;
+            }
+        }
+        //然后再开始执行任务，任务被拒绝的话会在拒绝策略包装器中把提交的任务数量减一
+        submittedTaskCount.increment();
         super.execute(runnable);
     }
 
 
+    /**
+     * @方法描述：尝试执行任务，和execute方法的区别是任务被拒绝的时候不会执行拒绝策略插件和拒绝策略，只是返回false，
+     * 用于把暂存在别处的任务重新交给线程池，比如回放溢出到磁盘的任务，这些任务被拒绝的时候需要继续留在原来的位置，而不是再次执行拒绝策略
+     */
+    public boolean tryExecute(@NonNull Runnable runnable) {
+        Boolean previous = TRY_EXECUTE.get();
+        TRY_EXECUTE.set(Boolean.TRUE);
+        try {
+            execute(runnable);
+            return true;
+        } catch (RejectedExecutionException ex) {
+            return false;
+        } finally {
+            if (previous == null) {
+                TRY_EXECUTE.remove();
+            } else {
+                TRY_EXECUTE.set(previous);
+            }
+        }
+    }
+
+
+    /**
+     * @方法描述：提交一个有截止时间的任务，任务在队列中等到了截止时间还没有开始执行的话就不会再执行，返回的Future会以TaskDeadlineExceededException结束。
+     * 提交时会根据线程池最近处理任务的速度和队列中排队的任务数量预测这个任务要等待多久，预测的等待时间超过了截止时间，
+     * 说明任务开始执行的时候调用方已经不再等待结果了，这时候直接执行拒绝策略插件和拒绝策略，不让任务进入队列
+     */
+    public <T> Future<T> submit(@NonNull Callable<T> task, long timeout, @NonNull TimeUnit unit) {
+        long deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+        Callable<T> callable = task;
+        ThreadPoolPluginSnapshot snapshot = threadPoolPluginManager.getPluginSnapshot();
+        if (snapshot.hasTaskAwarePlugins()) {
+            callable = snapshot.beforeTaskCreate(this, callable);
+        }
+        DeadlineFutureTask<T> future = new DeadlineFutureTask<>(callable, deadlineNanos, callerTagOf(task), this);
+        executeBeforeDeadline(future);
+        return future;
+    }
+
+
+    //同上，只不过这里提交的是没有返回值的任务
+    public Future<?> submit(@NonNull Runnable task, long timeout, @NonNull TimeUnit unit) {
+        long deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+        Runnable runnable = task;
+        ThreadPoolPluginSnapshot snapshot = threadPoolPluginManager.getPluginSnapshot();
+        if (snapshot.hasTaskAwarePlugins()) {
+            runnable = snapshot.beforeTaskCreate(this, runnable, null);
+        }
+        DeadlineFutureTask<Object> future = new DeadlineFutureTask<>(Executors.callable(runnable), deadlineNanos, callerTagOf(task), this);
+        executeBeforeDeadline(future);
+        return future;
+    }
+
+
+    //预测任务的排队时间，来得及在截止时间之前开始执行的任务才会提交给线程池
+    private void executeBeforeDeadline(DeadlineFutureTask<?> task) {
+        long predictedWaitNanos = serviceRateEstimator.predictQueueWaitNanos(getQueue().size());
+        if (predictedWaitNanos > task.getRemainingNanos()) {
+            predictedRejectCount.increment();
+            handlerWrapper.reject(task, this);
+            return;
+        }
+        execute(task);
+    }
+
+
+    //有截止时间的任务过期之后的回调方法
+    void onTaskExpired() {
+        expiredTaskCount.increment();
+    }
+
+
+    private static String callerTagOf(Object task) {
+        return task instanceof TaskCallerTag ? ((TaskCallerTag) task).getCallerTag() : null;
+    }
+
+
+    /**
+     * @方法描述：异步执行有返回值的任务，直接返回CompletableFuture，不需要再把FutureTask包装一层。创建任务的插件、执行任务的插件、
+     * 拒绝策略插件和拒绝策略都和execute方法一样只会经过一次，任务执行超时同样会告警。拒绝策略抛出异常的话异常会直接抛给调用方，
+     * 和CompletableFuture.supplyAsync使用线程池作为Executor时的行为一致
+     */
+    public <T> CompletableFuture<T> supplyAsync(@NonNull Supplier<T> supplier) {
+        Callable<T> callable = supplier::get;
+        ThreadPoolPluginSnapshot snapshot = threadPoolPluginManager.getPluginSnapshot();
+        if (snapshot.hasTaskAwarePlugins()) {
+            callable = snapshot.beforeTaskCreate(this, callable);
+        }
+        return executeAsync(CompletableFutureTask.of(supplier, callable, null, callerTagOf(supplier), this));
+    }
+
+
+    //同上，只不过这里执行的是没有返回值的任务
+    public CompletableFuture<Void> runAsync(@NonNull Runnable task) {
+        Runnable runnable = task;
+        ThreadPoolPluginSnapshot snapshot = threadPoolPluginManager.getPluginSnapshot();
+        if (snapshot.hasTaskAwarePlugins()) {
+            runnable = snapshot.beforeTaskCreate(this, runnable, null);
+        }
+        return executeAsync(CompletableFutureTask.<Void>of(task, null, runnable, callerTagOf(task), this));
+    }
+
+
+    //任务被拒绝并且拒绝策略抛出了异常的话，任务对象也以这个异常结束，防止有插件或者回调一直等待它
+    private <T> CompletableFuture<T> executeAsync(CompletableFutureTask<T> task) {
+        try {
+            execute(task);
+        } catch (RejectedExecutionException ex) {
+            task.completeExceptionally(ex);
+            throw ex;
+        }
+        return task;
+    }
+
+
+    /**
+     * @方法描述：批量提交任务的方法，和逐个调用execute方法的效果一样，但是开销要小很多：
+     * 所有任务在一次遍历中经过TaskAwarePlugin插件的包装，先逐个提交任务直到核心线程都创建好了，快速扩容模式下会一直扩充到没有必要再创建线程为止，
+     * 这样只会创建需要的线程，剩下的任务如果工作队列支持批量入队，就只获取一次锁全部放到队列中，队列满了放不下的任务再逐个提交，
+     * 让线程池创建非核心线程或者执行拒绝策略。每一个被拒绝的任务都会单独经过拒绝策略插件和拒绝策略，所以拒绝次数和告警都是准确的，
+     * 拒绝策略抛出异常的任务不会中断后面任务的提交，而是收集起来返回给用户
+     *
+     * @return 因为拒绝策略抛出异常而没有被执行的任务，按照提交的顺序排列，没有这样的任务就返回空集合
+     */
+    public List<Runnable> executeAll(@NonNull Collection<? extends Runnable> tasks) {
+        Map<Runnable, RejectedExecutionException> rejected = new IdentityHashMap<>();
+        Runnable[] originals = tasks.toArray(new Runnable[0]);
+        doExecuteAll(originals, rejected);
+        if (rejected.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Runnable> rejectedTasks = new ArrayList<>(rejected.size());
+        for (Runnable original : originals) {
+            if (rejected.containsKey(original)) {
+                rejectedTasks.add(original);
+            }
+        }
+        return rejectedTasks;
+    }
+
+
+    /**
+     * @方法描述：批量提交有返回值的任务，不等待任务执行完毕，直接返回每个任务对应的Future，返回的顺序和提交的顺序一致，
+     * 如果某个任务被拒绝并且拒绝策略抛出了异常，这个任务对应的Future会以这个异常结束
+     */
+    public <T> List<Future<T>> invokeAllAsync(@NonNull Collection<? extends Callable<T>> tasks) {
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        Runnable[] originals = new Runnable[tasks.size()];
+        int i = 0;
+        for (Callable<T> task : tasks) {
+            RunnableFuture<T> future = newTaskFor(Objects.requireNonNull(task));
+            futures.add(future);
+            originals[i++] = future;
+        }
+        Map<Runnable, RejectedExecutionException> rejected = new IdentityHashMap<>();
+        doExecuteAll(originals, rejected);
+        if (!rejected.isEmpty()) {
+            for (int j = 0; j < originals.length; j++) {
+                RejectedExecutionException ex = rejected.get(originals[j]);
+                if (ex != null) {
+                    CompletableFuture<T> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(ex);
+                    futures.set(j, failed);
+                }
+            }
+        }
+        return futures;
+    }
+
+
+    //批量提交任务的具体逻辑，拒绝策略抛出的异常会放到rejected中
+    @SuppressWarnings("unchecked")
+    private void doExecuteAll(Runnable[] originals, Map<Runnable, RejectedExecutionException> rejected) {
+        int size = originals.length;
+        Runnable[] commands = new Runnable[size];
+        //只获取一次插件快照，所有任务都用这个快照包装
+        ThreadPoolPluginSnapshot snapshot = threadPoolPluginManager.getPluginSnapshot();
+        boolean decorate = snapshot.hasTaskAwarePlugins();
+        //被插件拒绝的任务直接执行拒绝策略，剩下的任务按照原来的顺序往前挪
+        Runnable[] admitted = originals;
+        int admittedCount = 0;
+        for (int i = 0; i < size; i++) {
+            Runnable original = Objects.requireNonNull(originals[i]);
+            try {
+                commands[admittedCount] = decorate ? snapshot.beforeTaskExecute(original) : original;
+            } catch (TaskAdmissionRejectedException ex) {
+                if (admitted == originals) {
+                    admitted = Arrays.copyOf(originals, size);
+                }
+                rejectAdmissionOrCollect(original, rejected);
+                continue;
+            }
+            admitted[admittedCount++] = original;
+        }
+        originals = admitted;
+        size = admittedCount;
+        int i = 0;
+        //先逐个提交，直到不需要再创建线程了
+        while (i < size && needsWorker()) {
+            executeOrCollect(commands[i], originals[i], rejected);
+            i++;
+        }
+        BlockingQueue<Runnable> workQueue = getQueue();
+        if (i < size && workQueue instanceof BulkOfferQueue && getCorePoolSize() > 0 && !isShutdown()) {
+            List<Runnable> remaining = Arrays.asList(commands).subList(i, size);
+            //先把计数加上，防止任务入队之后很快执行完，计数暂时变成负数
+            submittedTaskCount.add(remaining.size());
+            int offered = ((BulkOfferQueue<Runnable>) workQueue).offerAll(remaining);
+            submittedTaskCount.add(offered - remaining.size());
+            //和jdk线程池提交单个任务一样，任务入队之后再检查一次线程池的状态
+            if (isShutdown()) {
+                for (int j = i; j < i + offered; j++) {
+                    if (workQueue.remove(commands[j])) {
+                        rejectOrCollect(commands[j], originals[j], rejected);
+                    }
+                }
+            } else if (offered > 0 && getPoolSize() == 0) {
+                prestartCoreThread();
+            }
+            i += offered;
+        }
+        //剩下的任务说明工作队列已经满了，或者不支持批量入队，逐个提交
+        while (i < size) {
+            executeOrCollect(commands[i], originals[i], rejected);
+            i++;
+        }
+    }
+
+
+    //判断批量提交任务时下一个任务是否需要创建新的线程来执行
+    private boolean needsWorker() {
+        int poolSize = getPoolSize();
+        if (poolSize < getCorePoolSize()) {
+            return true;
+        }
+        return eagerGrowth && poolSize < getMaximumPoolSize() && submittedTaskCount.sum() >= poolSize;
+    }
+
+
+    private void executeOrCollect(Runnable command, Runnable original, Map<Runnable, RejectedExecutionException> rejected) {
+        submittedTaskCount.increment();
+        try {
+            super.execute(command);
+        } catch (RejectedExecutionException ex) {
+            rejected.put(original, ex);
+        }
+    }
+
+
+    private void rejectAdmissionOrCollect(Runnable original, Map<Runnable, RejectedExecutionException> rejected) {
+        try {
+            handlerWrapper.reject(original, this);
+        } catch (RejectedExecutionException ex) {
+            rejected.put(original, ex);
+        }
+    }
+
+
+    private void rejectOrCollect(Runnable command, Runnable original, Map<Runnable, RejectedExecutionException> rejected) {
+        try {
+            handlerWrapper.rejectedExecution(command, this);
+        } catch (RejectedExecutionException ex) {
+            rejected.put(original, ex);
+        }
+    }
+
+
     //该方法会在任务执行完毕之后被调用
     @Override
     protected void afterExecute(Runnable runnable, Throwable throwable) {
-        //这里从插件处理器中再次得到了ExecuteAwarePlugin类型的所有插件
-        Collection<ExecuteAwarePlugin> executeAwarePluginList = threadPoolPluginManager.getExecuteAwarePluginList();
+        submittedTaskCount.decrement();
+        //这里从插件快照中再次得到了ExecuteAwarePlugin类型的所有插件
         //执行插件对象中的afterExecute方法，计算任务耗时和任务是否超时
-        executeAwarePluginList.forEach(aware -> aware.afterExecute(runnable, throwable));
+        ThreadPoolPluginSnapshot snapshot = threadPoolPluginManager.getPluginSnapshot();
+        if (snapshot.hasExecuteAwarePlugins()) {
+            snapshot.afterExecute(runnable, throwable);
+        }
+    }
+
+
+    //从工作队列中移除一个还没有开始执行的任务，移除成功的话提交的任务数量要减一。线程池关闭之后，jdk的线程池提交任务时也会调用这个方法
+    //把刚刚入队的任务移除，然后执行拒绝策略，拒绝策略包装器会把数量减一，所以关闭之后这里不再减一。
+    //任务被插件包装过的话，队列中存放的是包装之后的任务，调用方传进来的是原始任务，直接移除找不到的时候再按照原始任务查找一次
+    @Override
+    public boolean remove(Runnable task) {
+        boolean removed = super.remove(task) || removeDelegatingTask(task);
+        if (removed && !isShutdown()) {
+            submittedTaskCount.decrement();
+        }
+        return removed;
+    }
+
+
+    //从工作队列中移除包装了指定原始任务的任务
+    private boolean removeDelegatingTask(Runnable task) {
+        for (Runnable each : getQueue()) {
+            if (each instanceof DelegatingTask && DelegatingTask.unwrap(each) == task) {
+                return super.remove(each);
+            }
+        }
+        return false;
+    }
+
+
+    //移除工作队列中所有已经被取消的任务，和jdk的实现一样，只是每移除一个任务都要把提交的任务数量减一，
+    //这里调用的是父类的remove方法，它和jdk的purge方法一样会在移除任务之后尝试终止已经关闭的线程池
+    @Override
+    public void purge() {
+        for (Runnable each : getQueue().toArray(new Runnable[0])) {
+            if (each instanceof Future && ((Future<?>) each).isCancelled() && super.remove(each)) {
+                submittedTaskCount.decrement();
+            }
+        }
     }
 
 
     //该方法会在线程池被关闭的时候调用
     @Override
     public void shutdown() {
-        //得到ShutdownAwarePlugin类型的插件
-        Collection<ShutdownAwarePlugin> shutdownAwarePluginList = threadPoolPluginManager.getShutdownAwarePluginList();
+        //得到插件快照，ShutdownAwarePlugin类型的插件都在快照中
+        ThreadPoolPluginSnapshot snapshot = threadPoolPluginManager.getPluginSnapshot();
         //执行插件中的扩展方法
-        shutdownAwarePluginList.forEach(aware -> aware.beforeShutdown(this));
+        snapshot.beforeShutdown(this);
         super.shutdown();
-        shutdownAwarePluginList.forEach(aware -> aware.afterShutdown(this, Collections.emptyList()));
+        snapshot.afterShutdown(this, Collections.emptyList());
     }
 
 
     //同上，只不过这个方法是立即关闭线程池
     @Override
     public List<Runnable> shutdownNow() {
-        Collection<ShutdownAwarePlugin> shutdownAwarePluginList = threadPoolPluginManager.getShutdownAwarePluginList();
+        ThreadPoolPluginSnapshot snapshot = threadPoolPluginManager.getPluginSnapshot();
         //执行插件中的方法
-        shutdownAwarePluginList.forEach(aware -> aware.beforeShutdown(this));
+        snapshot.beforeShutdown(this);
         //这里执行的就是立即停止线程池工作的方法，该方法会把还未执行的任务封装到list中返回给用户
         //这里是看看剩下的任务是不是FutureTask，如果是那么就可以在插件中把这些任务都取消了
         List<Runnable> tasks = super.shutdownNow();
-        shutdownAwarePluginList.forEach(aware -> aware.afterShutdown(this, tasks));
+        submittedTaskCount.add(-tasks.size());
+        snapshot.afterShutdown(this, tasks);
         return tasks;
     }
 
@@ -124,18 +641,22 @@ public class ExtensibleThreadPoolExecutor extends ThreadPoolExecutor implements
     @Override
     protected void terminated() {
         super.terminated();
-        Collection<ShutdownAwarePlugin> shutdownAwarePluginList = threadPoolPluginManager.getShutdownAwarePluginList();
-        shutdownAwarePluginList.forEach(aware -> aware.afterTerminated(this));
+        threadPoolPluginManager.getPluginSnapshot().afterTerminated(this);
     }
 
 
     //这里就是AbstractExecutorService执行器中的方法了，创建FutureTask任务交给线程池执行
     @Override
     protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        //任务提供了大小提示或者调用方标签的话，创建的FutureTask要保留这些信息，按照权重限制容量的队列和准入控制插件会用到
+        Runnable original = runnable;
         //照样是得到任务的装饰器对象插件，然后先执行装饰器对象的逻辑，对任务做包装
-        Collection<TaskAwarePlugin> taskAwarePluginList = threadPoolPluginManager.getTaskAwarePluginList();
-        for (TaskAwarePlugin taskAwarePlugin : taskAwarePluginList) {
-            runnable = taskAwarePlugin.beforeTaskCreate(this, runnable, value);
+        ThreadPoolPluginSnapshot snapshot = threadPoolPluginManager.getPluginSnapshot();
+        if (snapshot.hasTaskAwarePlugins()) {
+            runnable = snapshot.beforeTaskCreate(this, runnable, value);
+        }
+        if (original instanceof TaskSizeHint || original instanceof TaskCallerTag) {
+            return attributedTaskFor(original, Executors.callable(runnable, value));
         }
         return super.newTaskFor(runnable, value);
     }
@@ -144,14 +665,29 @@ public class ExtensibleThreadPoolExecutor extends ThreadPoolExecutor implements
     //同上，只不过这里执行的是有返回值的任务
     @Override
     protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
-        Collection<TaskAwarePlugin> taskAwarePluginList = threadPoolPluginManager.getTaskAwarePluginList();
-        for (TaskAwarePlugin taskAwarePlugin : taskAwarePluginList) {
-            callable = taskAwarePlugin.beforeTaskCreate(this, callable);
+        Callable<T> original = callable;
+        ThreadPoolPluginSnapshot snapshot = threadPoolPluginManager.getPluginSnapshot();
+        if (snapshot.hasTaskAwarePlugins()) {
+            callable = snapshot.beforeTaskCreate(this, callable);
+        }
+        if (original instanceof TaskSizeHint || original instanceof TaskCallerTag) {
+            return attributedTaskFor(original, callable);
         }
         return super.newTaskFor(callable);
     }
 
 
+    //创建保留了原始任务的大小提示和调用方标签的FutureTask
+    private static <T> RunnableFuture<T> attributedTaskFor(Object original, Callable<T> callable) {
+        String callerTag = callerTagOf(original);
+        if (!(original instanceof TaskSizeHint)) {
+            return new CallerTagFutureTask<>(callable, callerTag);
+        }
+        long sizeHint = ((TaskSizeHint) original).getSizeHint();
+        return callerTag == null ? new SizeHintFutureTask<>(callable, sizeHint) : new SizeHintCallerTagFutureTask<>(callable, sizeHint, callerTag);
+    }
+
+
     //设置拒绝策略处理器到拒绝策略包装器中
     @Override
     public void setRejectedExecutionHandler(@NonNull RejectedExecutionHandler handler) {
@@ -177,6 +713,63 @@ public class ExtensibleThreadPoolExecutor extends ThreadPoolExecutor implements
 
 
 
+    /**
+     * @方法描述：保留了原始任务大小提示的FutureTask
+     */
+    private static class SizeHintFutureTask<V> extends FutureTask<V> implements TaskSizeHint {
+
+        private final long sizeHint;
+
+        SizeHintFutureTask(Callable<V> callable, long sizeHint) {
+            super(callable);
+            this.sizeHint = sizeHint;
+        }
+
+        @Override
+        public long getSizeHint() {
+            return sizeHint;
+        }
+    }
+
+
+    /**
+     * @方法描述：保留了原始任务调用方标签的FutureTask
+     */
+    private static class CallerTagFutureTask<V> extends FutureTask<V> implements TaskCallerTag {
+
+        private final String callerTag;
+
+        CallerTagFutureTask(Callable<V> callable, String callerTag) {
+            super(callable);
+            this.callerTag = callerTag;
+        }
+
+        @Override
+        public String getCallerTag() {
+            return callerTag;
+        }
+    }
+
+
+    /**
+     * @方法描述：同时保留了原始任务大小提示和调用方标签的FutureTask
+     */
+    private static class SizeHintCallerTagFutureTask<V> extends SizeHintFutureTask<V> implements TaskCallerTag {
+
+        private final String callerTag;
+
+        SizeHintCallerTagFutureTask(Callable<V> callable, long sizeHint, String callerTag) {
+            super(callable, sizeHint);
+            this.callerTag = callerTag;
+        }
+
+        @Override
+        public String getCallerTag() {
+            return callerTag;
+        }
+    }
+
+
     /**
      * @方法描述：这个内部类就是一个拒绝策略包装器
      */
@@ -195,8 +788,27 @@ public class ExtensibleThreadPoolExecutor extends ThreadPoolExecutor implements
         //在执行拒绝策略之前，会先执行拒绝策略插件对象中的方法，就是执行通知告警功能
         @Override
         public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
-            Collection<RejectedAwarePlugin> rejectedAwarePluginList = registry.getRejectedAwarePluginList();
-            rejectedAwarePluginList.forEach(aware -> aware.beforeRejectedExecution(r, executor));
+            if (executor instanceof ExtensibleThreadPoolExecutor) {
+                ExtensibleThreadPoolExecutor extensibleExecutor = (ExtensibleThreadPoolExecutor) executor;
+                if (extensibleExecutor.retryOffer(r)) {
+                    return;
+                }
+                extensibleExecutor.submittedTaskCount.decrement();
+            }
+            reject(r, executor);
+        }
+
+
+        //执行拒绝策略插件和真正的拒绝策略，被准入控制拒绝的任务还没有计数，也不需要重新尝试入队，直接调用这个方法
+        void reject(Runnable r, ThreadPoolExecutor executor) {
+            //通过tryExecute方法提交的任务由调用方自己处理，不执行拒绝策略插件，也不触发拒绝告警
+            if (TRY_EXECUTE.get() != null) {
+                throw new RejectedExecutionException("Task " + r + " rejected from " + executor);
+            }
+            ThreadPoolPluginSnapshot snapshot = registry.getPluginSnapshot();
+            if (snapshot.hasRejectedAwarePlugins()) {
+                snapshot.beforeRejectedExecution(r, executor);
+            }
             handler.rejectedExecution(r, executor);
         }
     }
@@ -0,0 +1,272 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package top.panson.core.executor;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @方法描述：按照key串行执行任务的门面，同一个key的任务按照提交的顺序一个接一个地执行，不同key的任务在线程池中并行执行，
+ * 比如同一个订单的所有事件必须按顺序处理，不同订单之间互不影响，这样就不需要为每个分片单独创建一个单线程的线程池了。
+ * 每个有待执行任务的key都有一个轻量的先进先出队列，只有key有待执行的任务时，它的队列才会作为一个任务提交给共享的动态线程池，
+ * 每次只执行队列中的一个任务，执行完之后如果还有任务，就把队列重新提交给线程池，这样任务很多的key也不会一直占着工作线程。
+ * 这里没有为key创建任何线程或者锁，key的任务都执行完之后它的队列会被立即移除，空闲的key不占用内存。
+ * 注意线程池的拒绝策略应该抛出异常或者由提交任务的线程执行，如果拒绝策略直接丢弃了key的队列，这个key之后的任务就不会再执行了，
+ * 所以使用DiscardPolicy或者DiscardOldestPolicy的线程池不能创建门面，线程池的拒绝策略在运行时被修改成这两种的话，提交任务时直接抛出RejectedExecutionException。
+ * 工作线程执行完一个任务之后重新提交队列时不会经过拒绝策略，线程池没有空间的话就在当前线程继续执行下一个任务，
+ * 否则由调用方执行的拒绝策略会在同一个线程栈上不断地嵌套执行队列，积压很多的key最终会导致栈溢出
+ */
+@Slf4j
+public class KeyedSerialExecutor {
+
+    private static final Map<ThreadPoolExecutor, KeyedSerialExecutor> EXECUTORS = new ConcurrentHashMap<>();
+
+    private final ThreadPoolExecutor executor;
+
+    //有待执行任务的key和它的任务队列，队列的修改都在ConcurrentHashMap的compute方法中完成，同一个key的修改是互斥的
+    private final Map<Object, KeyQueue> queues = new ConcurrentHashMap<>();
+
+    //每个key最多可以积压的任务数量，包括正在执行的任务，小于等于0表示不限制
+    private volatile int maxKeyQueueDepth;
+
+    //因为key积压的任务太多而被拒绝的任务数量
+    private final LongAdder keyRejectCount = new LongAdder();
+
+    private KeyedSerialExecutor(ThreadPoolExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @方法描述：得到线程池的按key串行执行的门面，同一个线程池的门面只有一个，所以同一个key的任务无论从哪里提交都是串行执行的
+     */
+    public static KeyedSerialExecutor of(@NonNull ThreadPoolExecutor executor) {
+        if (isDiscarding(executor.getRejectedExecutionHandler())) {
+            throw new IllegalArgumentException("Keyed serial executor does not support discard rejection policies, the discarded key would never run again.");
+        }
+        KeyedSerialExecutor keyedExecutor = EXECUTORS.get(executor);
+        if (keyedExecutor != null) {
+            return keyedExecutor;
+        }
+        //服务端刷新配置时线程池可能会被重新创建，顺便移除已经终止的线程池的门面
+        EXECUTORS.keySet().removeIf(ThreadPoolExecutor::isTerminated);
+        return EXECUTORS.computeIfAbsent(executor, KeyedSerialExecutor::new);
+    }
+
+    /**
+     * Find the keyed serial executor of the thread-pool.
+     *
+     * @param executor thread-pool
+     * @return keyed serial executor, empty if the thread-pool has never been used to execute keyed tasks
+     */
+    public static Optional<KeyedSerialExecutor> find(Executor executor) {
+        return Optional.ofNullable(executor instanceof ThreadPoolExecutor ? EXECUTORS.get(executor) : null);
+    }
+
+    /**
+     * @方法描述：提交一个任务，这个任务会在同一个key之前提交的任务都执行完之后才开始执行。key积压的任务达到上限时直接抛出RejectedExecutionException，
+     * 而不是执行线程池的拒绝策略，因为由提交任务的线程执行这个任务会打乱这个key的任务顺序
+     */
+    public void execute(@NonNull Object key, @NonNull Runnable task) {
+        KeyQueue[] toSchedule = new KeyQueue[1];
+        queues.compute(key, (k, queue) -> {
+            if (queue == null) {
+                queue = new KeyQueue(k);
+            }
+            int limit = maxKeyQueueDepth;
+            if (limit > 0 && queue.backlog >= limit) {
+                keyRejectCount.increment();
+                throw new RejectedExecutionException("Too many tasks queued for key: " + k + ", limit: " + limit);
+            }
+            queue.tasks.offer(task);
+            queue.backlog++;
+            if (!queue.scheduled) {
+                queue.scheduled = true;
+                toSchedule[0] = queue;
+            }
+            return queue;
+        });
+        if (toSchedule[0] == null) {
+            return;
+        }
+        try {
+            //拒绝策略在运行时被修改成了丢弃任务的策略，队列被丢弃的话这个key就再也不会执行了，所以直接按照拒绝处理
+            if (isDiscarding(executor.getRejectedExecutionHandler())) {
+                throw new RejectedExecutionException("Keyed serial executor does not support discard rejection policies, key: " + key);
+            }
+            executor.execute(toSchedule[0]);
+        } catch (RejectedExecutionException ex) {
+            //线程池拒绝了这个key的队列，撤回刚刚提交的任务。其他线程在这期间提交的任务看到队列已经被标记为提交了，不会再提交队列，
+            //所以这些任务还在队列中的话，队列保持提交的状态，由当前线程负责重新提交，否则它们要等到这个key下一次提交任务时才会执行
+            KeyQueue remaining = queues.computeIfPresent(key, (k, queue) -> {
+                if (queue.tasks.remove(task)) {
+                    queue.backlog--;
+                }
+                return queue.backlog == 0 ? null : queue;
+            });
+            if (remaining != null) {
+                reschedule(remaining);
+            }
+            throw ex;
+        }
+    }
+
+    //重新提交一个已经被标记为提交的队列，线程池没有空间的话就在当前线程执行队列中的任务，
+    //队列被标记为提交之后其他线程不会再执行它，所以在当前线程执行不会打乱这个key的任务顺序
+    private void reschedule(KeyQueue queue) {
+        if (tryExecute(queue)) {
+            return;
+        }
+        try {
+            queue.run();
+        } catch (RuntimeException | Error thrown) {
+            log.error("Keyed task threw an exception. key: {}", queue.key, thrown);
+        }
+    }
+
+    //不经过拒绝策略把队列提交给线程池，线程池没有接收的话返回false。动态线程池直接使用它的tryExecute方法，
+    //普通的线程池没有这样的方法，只能直接把队列放到工作队列中
+    private boolean tryExecute(KeyQueue queue) {
+        if (executor instanceof ExtensibleThreadPoolExecutor) {
+            return ((ExtensibleThreadPoolExecutor) executor).tryExecute(queue);
+        }
+        if (executor.isShutdown() || !executor.getQueue().offer(queue)) {
+            return false;
+        }
+        if (executor.getPoolSize() == 0) {
+            executor.prestartCoreThread();
+        }
+        return true;
+    }
+
+    private static boolean isDiscarding(RejectedExecutionHandler handler) {
+        return handler instanceof ThreadPoolExecutor.DiscardPolicy || handler instanceof ThreadPoolExecutor.DiscardOldestPolicy;
+    }
+
+    //同上，只不过这里提交的是有返回值的任务
+    public <T> Future<T> submit(@NonNull Object key, @NonNull Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        execute(key, future);
+        return future;
+    }
+
+    public int getMaxKeyQueueDepth() {
+        return maxKeyQueueDepth;
+    }
+
+    //设置每个key最多可以积压的任务数量，只影响之后提交的任务，小于等于0表示不限制
+    public void setMaxKeyQueueDepth(int maxKeyQueueDepth) {
+        this.maxKeyQueueDepth = maxKeyQueueDepth;
+    }
+
+    //得到有待执行任务的key的数量
+    public int getActiveKeyCount() {
+        return queues.size();
+    }
+
+    //得到积压任务最多的key积压的任务数量
+    public int getMaxKeyBacklog() {
+        int maxBacklog = 0;
+        for (KeyQueue queue : queues.values()) {
+            maxBacklog = Math.max(maxBacklog, queue.backlog);
+        }
+        return maxBacklog;
+    }
+
+    public long getKeyRejectCount() {
+        return keyRejectCount.sum();
+    }
+
+    public ThreadPoolExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @方法描述：一个key的任务队列，同一时间最多只有一个工作线程在执行这个队列，所以取出任务不需要和其他工作线程互斥
+     */
+    private final class KeyQueue implements Runnable {
+
+        private final Object key;
+
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        //还没有执行完的任务数量，只在compute方法中修改
+        private volatile int backlog;
+
+        //队列是否已经提交给了线程池，只在compute方法中修改
+        private boolean scheduled;
+
+        KeyQueue(Object key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            boolean runNext = true;
+            while (runNext) {
+                Runnable task = tasks.poll();
+                Throwable thrown = null;
+                try {
+                    task.run();
+                } catch (RuntimeException | Error ex) {
+                    thrown = ex;
+                }
+                runNext = afterTask();
+                if (thrown == null) {
+                    continue;
+                }
+                //任务抛出的异常交给工作线程处理，和直接提交给线程池的任务一样，还要继续在当前线程执行这个key的任务时只能记录日志
+                if (!runNext) {
+                    throwUnchecked(thrown);
+                }
+                log.error("Keyed task threw an exception. key: {}", key, thrown);
+            }
+        }
+
+        //一个任务执行完之后，没有任务了就移除这个key的队列，否则把队列重新提交给线程池，线程池没有空间的话就在当前线程继续执行下一个任务，
+        //这里不经过拒绝策略，否则由调用方执行的拒绝策略会在当前线程栈上再调用一次run方法，每次拒绝都会多嵌套一层
+        private boolean afterTask() {
+            KeyQueue queue = queues.compute(key, (k, current) -> --current.backlog == 0 ? null : current);
+            if (queue == null) {
+                return false;
+            }
+            return !tryExecute(this);
+        }
+
+        private void throwUnchecked(Throwable thrown) {
+            if (thrown instanceof Error) {
+                throw (Error) thrown;
+            }
+            throw (RuntimeException) thrown;
+        }
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package top.panson.core.executor;
+
+import top.panson.common.design.builder.ThreadFactoryBuilder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @方法描述：微批处理的动态线程池，适合大量很小的任务，比如每个任务只写一行数据或者只发送一条消息，而一次处理一批的开销和处理一条差不多的场景。
+ * 调用方按照批次key提交数据，同一个批次key的数据先在内存中攒起来，攒够了一批的数量，或者这一批的第一条数据已经等待了最长等待时间，
+ * 就把这一批数据作为一个任务交给线程池，由批处理器一次处理。这个线程池仍然是一个DynamicThreadPoolExecutor，
+ * 所以会像普通的动态线程池一样注册到GlobalThreadPoolManage中，插件、拒绝策略、运行状态采集都不受影响，
+ * 批次大小和最长等待时间也可以通过服务端动态刷新。线程池关闭时，还没有攒够的数据会先作为最后一批提交给线程池
+ */
+@Slf4j
+public class MicroBatchingThreadPoolExecutor<T> extends DynamicThreadPoolExecutor {
+
+    //统计批次填充率和等待时间的周期
+    private static final long STATISTICS_WINDOW_MILLIS = 1000L;
+
+    //所有微批处理线程池共用的定时器，只负责把等待时间到了的批次提交给各自的线程池，不执行批处理器
+    private static final ScheduledThreadPoolExecutor LINGER_TIMER;
+
+    static {
+        LINGER_TIMER = new ScheduledThreadPoolExecutor(1, ThreadFactoryBuilder.builder().prefix("moirai-micro-batch-linger").daemon(true).build());
+        //攒够了数量的批次会取消自己的定时任务，取消的定时任务要马上从队列中移除，否则会一直占用内存直到等待时间结束
+        LINGER_TIMER.setRemoveOnCancelPolicy(true);
+    }
+
+    //批处理器
+    private final BatchHandler<T> batchHandler;
+
+    //每一批最多的数据数量
+    @Getter
+    private volatile int batchSize;
+
+    //每一批的第一条数据最多等待的时间，单位是毫秒
+    @Getter
+    private volatile long lingerMillis;
+
+    //每个批次key正在攒的批次，攒好的批次会从这里移除，空闲的批次key不占用内存
+    private final Map<Object, Batch<T>> batches = new ConcurrentHashMap<>();
+
+    //下面这些用来统计批次的填充率和等待时间
+    private final LongAdder dispatchedBatchCount = new LongAdder();
+
+    private final LongAdder dispatchedItemCount = new LongAdder();
+
+    //每个批次提交时的批次大小之和，批次大小会被动态修改，所以填充率要按照提交时的批次大小计算
+    private final LongAdder dispatchedCapacity = new LongAdder();
+
+    private final LongAdder lingerNanos = new LongAdder();
+
+    private long windowStart = System.currentTimeMillis();
+
+    private long windowBatchCount;
+
+    private long windowItemCount;
+
+    private long windowCapacity;
+
+    private long windowLingerNanos;
+
+    private volatile double batchFillRatio;
+
+    private volatile double averageLingerMillis;
+
+    //线程池是否已经开始关闭，开始关闭之后不再接收新的数据，在父类的关闭方法之前设置，保证关闭时提交的最后一批之后不会再有数据被攒起来
+    private volatile boolean closed;
+
+    public MicroBatchingThreadPoolExecutor(
+                                           int corePoolSize, int maximumPoolSize,
+                                           long keepAliveTime, TimeUnit unit,
+                                           long executeTimeOut, boolean waitForTasksToCompleteOnShutdown, long awaitTerminationMillis,
+                                           @NonNull BlockingQueue<Runnable> blockingQueue,
+                                           @NonNull String threadPoolId,
+                                           @NonNull ThreadFactory threadFactory,
+                                           @NonNull RejectedExecutionHandler rejectedExecutionHandler,
+                                           @NonNull BatchHandler<T> batchHandler,
+                                           int batchSize, long lingerMillis) {
+        super(
+                corePoolSize, maximumPoolSize, keepAliveTime, unit,
+                executeTimeOut, waitForTasksToCompleteOnShutdown, awaitTerminationMillis,
+                blockingQueue, threadPoolId, threadFactory, rejectedExecutionHandler);
+        if (batchSize <= 0 || lingerMillis <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.batchHandler = batchHandler;
+        this.batchSize = batchSize;
+        this.lingerMillis = lingerMillis;
+    }
+
+
+    /**
+     * @方法描述：提交一条数据，数据会和同一个批次key的其他数据一起交给批处理器。攒够一批的时候，提交数据的线程负责把这一批交给线程池，
+     * 所以线程池的拒绝策略抛出的异常会抛给这个线程。线程池关闭之后提交的数据直接抛出RejectedExecutionException
+     */
+    public void submit(@NonNull Object batchKey, @NonNull T item) {
+        Object[] holder = new Object[2];
+        batches.compute(batchKey, (key, batch) -> {
+            if (closed) {
+                throw new RejectedExecutionException("Micro batching thread pool is shut down, threadPoolId: " + getThreadPoolId());
+            }
+            if (batch == null) {
+                batch = new Batch<>(key);
+                holder[0] = batch;
+            }
+            batch.items.add(item);
+            if (batch.items.size() >= batchSize) {
+                holder[1] = batch;
+                return null;
+            }
+            return batch;
+        });
+        @SuppressWarnings("unchecked")
+        Batch<T> created = (Batch<T>) holder[0];
+        @SuppressWarnings("unchecked")
+        Batch<T> full = (Batch<T>) holder[1];
+        //新的批次在这里设置定时任务，批次如果已经攒够了数量，定时任务执行的时候会发现批次已经不在了，什么也不做
+        if (created != null && created != full) {
+            created.lingerFuture = LINGER_TIMER.schedule(() -> flushOnLinger(created), lingerMillis, TimeUnit.MILLISECONDS);
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        //线程池在数据放进批次的同时开始关闭的话，关闭时可能没有看到这个批次，这里由提交数据的线程自己把批次交给线程池
+        if (closed) {
+            Batch<T> pending = batches.get(batchKey);
+            if (pending != null && batches.remove(batchKey, pending)) {
+                dispatch(pending);
+            }
+        }
+    }
+
+
+    //设置每一批最多的数据数量，正在攒的批次在下一条数据到来时按照新的数量判断
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.batchSize = batchSize;
+    }
+
+
+    //设置每一批的第一条数据最多等待的时间，只对之后新开始的批次生效
+    public void setLingerMillis(long lingerMillis) {
+        if (lingerMillis <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.lingerMillis = lingerMillis;
+    }
+
+
+    //得到最近一个统计周期内交给批处理器的批次的平均填充率，也就是每批的数据数量除以批次大小
+    public double getBatchFillRatio() {
+        refreshStatistics();
+        return batchFillRatio;
+    }
+
+
+    //得到最近一个统计周期内每一批的第一条数据从提交到这一批交给线程池的平均等待时间，单位是毫秒
+    public double getAverageLingerMillis() {
+        refreshStatistics();
+        return averageLingerMillis;
+    }
+
+
+    //得到正在攒的批次数量
+    public int getPendingBatchCount() {
+        return batches.size();
+    }
+
+
+    public long getDispatchedBatchCount() {
+        return dispatchedBatchCount.sum();
+    }
+
+
+    public long getDispatchedItemCount() {
+        return dispatchedItemCount.sum();
+    }
+
+
+    @Override
+    public void shutdown() {
+        closed = true;
+        flushAll();
+        super.shutdown();
+    }
+
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        closed = true;
+        flushAll();
+        return super.shutdownNow();
+    }
+
+
+    //父类销毁线程池时直接调用的是父类的关闭方法，所以这里也要先提交还没有攒够的批次
+    @Override
+    public void destroy() {
+        closed = true;
+        flushAll();
+        super.destroy();
+    }
+
+
+    //等待时间到了，批次还在攒的话就把它提交给线程池
+    private void flushOnLinger(Batch<T> batch) {
+        if (!batches.remove(batch.key, batch)) {
+            return;
+        }
+        handOffOnTimer(batch);
+    }
+
+
+    //定时器线程是所有微批处理线程池共用的，这里不能执行拒绝策略，否则由调用方执行的拒绝策略会在定时器线程中执行批处理器，
+    //阻塞入队的拒绝策略会阻塞定时器，其他线程池的批次都会被耽误。所以只尝试把批次交给线程池，线程池暂时没有空间的话过一段时间再试，
+    //线程池已经关闭的话就不再重试了
+    private void handOffOnTimer(Batch<T> batch) {
+        cancelLinger(batch);
+        if (tryExecute(newBatchTask(batch))) {
+            recordDispatch(batch);
+            return;
+        }
+        if (isShutdown()) {
+            log.warn("Micro batch rejected on linger timeout, thread pool is shut down. threadPoolId: {}, batchKey: {}, size: {}", getThreadPoolId(), batch.key, batch.items.size());
+            return;
+        }
+        LINGER_TIMER.schedule(() -> handOffOnTimer(batch), lingerMillis, TimeUnit.MILLISECONDS);
+    }
+
+
+    //把所有正在攒的批次都提交给线程池
+    private void flushAll() {
+        for (Batch<T> batch : new ArrayList<>(batches.values())) {
+            if (batches.remove(batch.key, batch)) {
+                try {
+                    dispatch(batch);
+                } catch (RejectedExecutionException ex) {
+                    log.warn("Micro batch rejected on shutdown. threadPoolId: {}, batchKey: {}, size: {}", getThreadPoolId(), batch.key, batch.items.size(), ex);
+                }
+            }
+        }
+    }
+
+
+    //批次已经从正在攒的批次中移除了，只有移除它的线程会调用这个方法
+    private void dispatch(Batch<T> batch) {
+        cancelLinger(batch);
+        recordDispatch(batch);
+        execute(newBatchTask(batch));
+    }
+
+
+    private void cancelLinger(Batch<T> batch) {
+        ScheduledFuture<?> lingerFuture = batch.lingerFuture;
+        if (lingerFuture != null) {
+            lingerFuture.cancel(false);
+        }
+    }
+
+
+    private void recordDispatch(Batch<T> batch) {
+        dispatchedBatchCount.increment();
+        dispatchedItemCount.add(batch.items.size());
+        dispatchedCapacity.add(Math.max(batchSize, batch.items.size()));
+        lingerNanos.add(System.nanoTime() - batch.createNanos);
+    }
+
+
+    private Runnable newBatchTask(Batch<T> batch) {
+        return () -> batchHandler.handle(batch.key, batch.items);
+    }
+
+
+    //统计周期结束之后，用这个周期内提交的批次重新计算填充率和平均等待时间，这个周期内没有提交批次的话保留原来的结果
+    private synchronized void refreshStatistics() {
+        long now = System.currentTimeMillis();
+        if (now - windowStart < STATISTICS_WINDOW_MILLIS) {
+            return;
+        }
+        long currentBatchCount = dispatchedBatchCount.sum();
+        long currentItemCount = dispatchedItemCount.sum();
+        long currentCapacity = dispatchedCapacity.sum();
+        long currentLingerNanos = lingerNanos.sum();
+        long batchCount = currentBatchCount - windowBatchCount;
+        if (batchCount > 0) {
+            batchFillRatio = (double) (currentItemCount - windowItemCount) / (currentCapacity - windowCapacity);
+            averageLingerMillis = (currentLingerNanos - windowLingerNanos) / 1_000_000D / batchCount;
+        }
+        windowStart = now;
+        windowBatchCount = currentBatchCount;
+        windowItemCount = currentItemCount;
+        windowCapacity = currentCapacity;
+        windowLingerNanos = currentLingerNanos;
+    }
+
+
+    /**
+     * @方法描述：批处理器，一次处理同一个批次key攒起来的一批数据，在线程池的工作线程中执行
+     */
+    @FunctionalInterface
+    public interface BatchHandler<T> {
+
+        /**
+         * Handle a batch of items submitted under the same batch key.
+         *
+         * @param batchKey batch key
+         * @param items    items in submission order
+         */
+        void handle(Object batchKey, List<T> items);
+    }
+
+
+    /**
+     * @方法描述：一个正在攒的批次，数据只在ConcurrentHashMap的compute方法中添加，批次被移除之后就不会再修改了
+     */
+    private static final class Batch<T> {
+
+        private final Object key;
+
+        private final List<T> items = new ArrayList<>();
+
+        private final long createNanos = System.nanoTime();
+
+        private volatile ScheduledFuture<?> lingerFuture;
+
+        Batch(Object key) {
+            this.key = key;
+        }
+    }
+}
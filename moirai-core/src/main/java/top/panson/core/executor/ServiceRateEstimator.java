@@ -0,0 +1,95 @@
+package top.panson.core.executor;
+
+import top.panson.core.plugin.impl.ThreadPoolRunStateRecordPlugin;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * @方法描述：估算线程池处理任务的速度，用来预测新提交的任务要在队列中等待多久。这里不在任务执行前后做任何统计，
+ * 而是在提交有截止时间的任务时顺便采样：距离上一次采样超过了采样周期，就读取一次线程池执行完的任务数量，
+ * 用这段时间内执行完的任务数量计算处理速度，再和之前的速度做指数加权平均，同一时间只有一个线程采样，其他线程直接使用上一次的结果。
+ * 只有队列中有任务排队的时候，线程池才是满负荷工作的，这时候执行完任务的速度才是线程池真正的处理速度，所以队列为空的时候不更新处理速度
+ */
+class ServiceRateEstimator {
+
+    //采样周期
+    private static final long SAMPLE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100L);
+
+    //一个采样周期内没有执行完任何任务的话，继续延长采样的时间窗口，超过这个时间还没有执行完任何任务，才认为线程池的处理速度是0
+    private static final long MAX_SAMPLE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10L);
+
+    //指数加权平均时新的采样结果所占的比重
+    private static final double SMOOTHING_FACTOR = 0.3D;
+
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicBoolean sampling = new AtomicBoolean();
+
+    //采样时间窗口的起点，以及起点时线程池执行完的任务数量，小于0表示还没有开始采样
+    private volatile long windowStartNanos;
+
+    private volatile long windowStartCompletedTaskCount = -1L;
+
+    //每纳秒执行完的任务数量，小于0表示还没有估算出处理速度
+    private volatile double tasksPerNano = -1D;
+
+    ServiceRateEstimator(ThreadPoolExecutor executor) {
+        this.executor = executor;
+        //第一次预测的时候就开始采样
+        this.windowStartNanos = System.nanoTime() - SAMPLE_INTERVAL_NANOS;
+    }
+
+    /**
+     * @方法描述：预测新提交的任务要在队列中等待多久，还没有估算出处理速度的话返回0，也就是不做预测
+     */
+    long predictQueueWaitNanos(int queueSize) {
+        long now = System.nanoTime();
+        if (now - windowStartNanos >= SAMPLE_INTERVAL_NANOS && sampling.compareAndSet(false, true)) {
+            try {
+                sample(now, queueSize);
+            } finally {
+                sampling.set(false);
+            }
+        }
+        double rate = tasksPerNano;
+        if (queueSize == 0 || rate < 0D) {
+            return 0L;
+        }
+        return rate == 0D ? Long.MAX_VALUE : (long) Math.min(Long.MAX_VALUE, queueSize / rate);
+    }
+
+    //得到估算出的每秒执行完的任务数量，还没有估算出来的话返回-1
+    double getTasksPerSecond() {
+        double rate = tasksPerNano;
+        return rate < 0D ? -1D : rate * TimeUnit.SECONDS.toNanos(1L);
+    }
+
+    private void sample(long now, int queueSize) {
+        //注册了运行状态记录插件的话，读取执行完的任务数量不需要获取线程池的全局锁
+        long completedTaskCount = ThreadPoolRunStateRecordPlugin.completedTaskCountOf(executor);
+        long startCompletedTaskCount = windowStartCompletedTaskCount;
+        long elapsedNanos = now - windowStartNanos;
+        long completed = completedTaskCount - startCompletedTaskCount;
+        //第一次采样或者线程池没有满负荷工作，只是重新开始一个时间窗口
+        if (startCompletedTaskCount < 0L || queueSize == 0) {
+            restartWindow(now, completedTaskCount);
+            return;
+        }
+        //执行一个任务的时间可能比采样周期长，这时候继续延长时间窗口
+        if (completed <= 0L && elapsedNanos < MAX_SAMPLE_WINDOW_NANOS) {
+            return;
+        }
+        double rate = (double) Math.max(0L, completed) / elapsedNanos;
+        double previous = tasksPerNano;
+        tasksPerNano = previous < 0D ? rate : previous + SMOOTHING_FACTOR * (rate - previous);
+        restartWindow(now, completedTaskCount);
+    }
+
+    private void restartWindow(long now, long completedTaskCount) {
+        windowStartCompletedTaskCount = completedTaskCount;
+        windowStartNanos = now;
+    }
+}
@@ -0,0 +1,21 @@
+package top.panson.core.executor;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * @方法描述：有截止时间的任务在队列中等到了截止时间还没有开始执行，线程池不会再执行这个任务，而是让任务的Future以这个异常结束，
+ * 调用Future的get方法会得到以这个异常为原因的ExecutionException。任务积压的时候可能会有大量任务过期，所以这个异常不记录异常栈
+ */
+public class TaskDeadlineExceededException extends TimeoutException {
+
+    private static final long serialVersionUID = 1L;
+
+    public TaskDeadlineExceededException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
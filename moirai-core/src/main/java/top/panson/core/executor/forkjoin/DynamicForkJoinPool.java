@@ -0,0 +1,408 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package top.panson.core.executor.forkjoin;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+
+/**
+ * @方法描述：可以动态调整并行度的ForkJoinPool门面，适合并行流、CompletableFuture和分治计算这类CPU密集型任务。
+ * 程序中持有的始终是这个门面对象，真正执行任务的ForkJoinPool藏在门面后面：jdk19及以上版本直接修改ForkJoinPool的并行度，
+ * 低版本的jdk中，由门面自己创建的ForkJoinPool会按照新的并行度重新创建一个，新提交的任务交给新的ForkJoinPool执行，
+ * 旧的ForkJoinPool被平滑关闭，已经提交的任务和它们fork出来的子任务仍然在旧的ForkJoinPool中执行完毕。
+ * 并行流要在这个门面中执行才会使用对应的ForkJoinPool，比如pool.submit(() -> list.parallelStream().map(...).collect(...))。
+ * 这个门面会注册到线程池全局管理器中，运行状态采集和服务端动态刷新都可以使用，在服务端修改最大线程数就是在修改并行度
+ */
+@Slf4j
+public class DynamicForkJoinPool extends AbstractExecutorService {
+
+    //ForkJoinPool并行度的上限
+    public static final int MAX_PARALLELISM = 0x7fff;
+
+    //jdk19开始ForkJoinPool可以直接修改并行度，低版本的jdk中这个方法为null
+    private static final Method SET_PARALLELISM = findSetParallelism();
+
+    @Getter
+    private final String threadPoolId;
+
+    //ForkJoinPool是否是由门面自己创建的，只有自己创建的ForkJoinPool才能在调整并行度的时候重新创建
+    private final boolean owned;
+
+    private final boolean asyncMode;
+
+    private final Thread.UncaughtExceptionHandler uncaughtExceptionHandler;
+
+    //工作线程的编号，重新创建ForkJoinPool之后继续递增
+    private final AtomicInteger threadNumber = new AtomicInteger();
+
+    //当前接收新任务的ForkJoinPool
+    private volatile ForkJoinPool pool;
+
+    //重新创建之后被替换下来的ForkJoinPool，还在执行之前提交的任务，终止之后就会被移除
+    private final List<ForkJoinPool> retiredPools = new CopyOnWriteArrayList<>();
+
+    //已经终止的ForkJoinPool累计的任务窃取次数
+    private final AtomicLong terminatedStealCount = new AtomicLong();
+
+    public DynamicForkJoinPool(@NonNull String threadPoolId) {
+        this(threadPoolId, Runtime.getRuntime().availableProcessors());
+    }
+
+    public DynamicForkJoinPool(@NonNull String threadPoolId, int parallelism) {
+        this(threadPoolId, parallelism, false, null);
+    }
+
+    public DynamicForkJoinPool(@NonNull String threadPoolId, int parallelism, boolean asyncMode,
+                               Thread.UncaughtExceptionHandler uncaughtExceptionHandler) {
+        checkParallelism(parallelism);
+        this.threadPoolId = threadPoolId;
+        this.owned = true;
+        this.asyncMode = asyncMode;
+        this.uncaughtExceptionHandler = uncaughtExceptionHandler;
+        this.pool = createPool(parallelism);
+    }
+
+    /**
+     * 包装一个已经存在的ForkJoinPool，比如spring容器中的ForkJoinPool或者ForkJoinPool.commonPool()，
+     * 这种ForkJoinPool不是门面创建的，调用方也可能直接持有它，所以只能在jdk19及以上版本原地修改并行度
+     */
+    public DynamicForkJoinPool(@NonNull String threadPoolId, @NonNull ForkJoinPool pool) {
+        this.threadPoolId = threadPoolId;
+        this.owned = false;
+        this.asyncMode = pool.getAsyncMode();
+        this.uncaughtExceptionHandler = pool.getUncaughtExceptionHandler();
+        this.pool = pool;
+    }
+
+
+    private ForkJoinPool createPool(int parallelism) {
+        return new ForkJoinPool(parallelism, this::newWorkerThread, uncaughtExceptionHandler, asyncMode);
+    }
+
+
+    //使用线程池Id作为工作线程名称的前缀，方便排查问题
+    private ForkJoinWorkerThread newWorkerThread(ForkJoinPool forkJoinPool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+        thread.setName(threadPoolId + "-" + threadNumber.incrementAndGet());
+        return thread;
+    }
+
+
+    /**
+     * Get the fork/join pool currently accepting new tasks.
+     *
+     * @return fork/join pool
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+
+    /**
+     * Get the targeted parallelism level.
+     *
+     * @return parallelism
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+
+    /**
+     * Whether the parallelism can be changed, a fork/join pool created outside the facade can only be changed in place on jdk19 and above.
+     *
+     * @return true if {@link #setParallelism(int)} takes effect
+     */
+    public boolean isParallelismAdjustable() {
+        return owned || SET_PARALLELISM != null;
+    }
+
+
+    /**
+     * Set the targeted parallelism level, the running tasks are not interrupted.
+     *
+     * @param parallelism parallelism
+     */
+    public synchronized void setParallelism(int parallelism) {
+        checkParallelism(parallelism);
+        ForkJoinPool current = pool;
+        if (parallelism == current.getParallelism() || current.isShutdown()) {
+            return;
+        }
+        //jdk19及以上版本直接修改并行度，不需要重新创建ForkJoinPool
+        if (SET_PARALLELISM != null) {
+            try {
+                SET_PARALLELISM.invoke(current, parallelism);
+                return;
+            } catch (Exception ex) {
+                log.warn("Failed to change fork/join pool parallelism in place. threadPoolId: {}", threadPoolId, ex);
+            }
+        }
+        if (!owned) {
+            log.warn("The parallelism of fork/join pool created outside cannot be changed on this jdk. threadPoolId: {}", threadPoolId);
+            return;
+        }
+        //先把旧的ForkJoinPool放到退役列表中再发布新的ForkJoinPool，采集运行状态的时候不会漏掉任何一个
+        ForkJoinPool replacement = createPool(parallelism);
+        retiredPools.add(current);
+        pool = replacement;
+        //平滑关闭旧的ForkJoinPool，已经提交的任务会继续执行完毕，之后提交到旧ForkJoinPool的任务会被拒绝，然后交给新的ForkJoinPool
+        current.shutdown();
+    }
+
+
+    /**
+     * 把任务交给当前的ForkJoinPool，如果恰好在调整并行度的时候拿到了已经关闭的旧ForkJoinPool，就换成新的ForkJoinPool重新提交
+     */
+    private <T> T delegate(Function<ForkJoinPool, T> action) {
+        for (;;) {
+            ForkJoinPool current = pool;
+            try {
+                return action.apply(current);
+            } catch (RejectedExecutionException ex) {
+                if (current == pool) {
+                    throw ex;
+                }
+            }
+        }
+    }
+
+
+    @Override
+    public void execute(Runnable command) {
+        delegate(each -> {
+            each.execute(command);
+            return null;
+        });
+    }
+
+
+    public void execute(ForkJoinTask<?> task) {
+        delegate(each -> {
+            each.execute(task);
+            return null;
+        });
+    }
+
+
+    public <T> ForkJoinTask<T> submit(ForkJoinTask<T> task) {
+        return delegate(each -> each.submit(task));
+    }
+
+
+    public <T> T invoke(ForkJoinTask<T> task) {
+        return delegate(each -> each.submit(task)).join();
+    }
+
+
+    @Override
+    public <T> ForkJoinTask<T> submit(Callable<T> task) {
+        return delegate(each -> each.submit(task));
+    }
+
+
+    @Override
+    public <T> ForkJoinTask<T> submit(Runnable task, T result) {
+        return delegate(each -> each.submit(task, result));
+    }
+
+
+    @Override
+    public ForkJoinTask<?> submit(Runnable task) {
+        return delegate(each -> each.submit(task));
+    }
+
+
+    @Override
+    public synchronized void shutdown() {
+        pool.shutdown();
+    }
+
+
+    @Override
+    public synchronized List<Runnable> shutdownNow() {
+        for (ForkJoinPool each : livePools()) {
+            each.shutdownNow();
+        }
+        return Collections.emptyList();
+    }
+
+
+    @Override
+    public boolean isShutdown() {
+        return pool.isShutdown();
+    }
+
+
+    @Override
+    public boolean isTerminated() {
+        for (ForkJoinPool each : livePools()) {
+            if (!each.isTerminated()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (ForkJoinPool each : livePools()) {
+            if (!each.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Get the number of worker threads that have started but not yet terminated.
+     *
+     * @return pool size
+     */
+    public int getPoolSize() {
+        int poolSize = 0;
+        for (ForkJoinPool each : livePools()) {
+            poolSize += each.getPoolSize();
+        }
+        return poolSize;
+    }
+
+
+    /**
+     * Get the number of threads that are currently stealing or executing tasks.
+     *
+     * @return active thread count
+     */
+    public int getActiveThreadCount() {
+        int activeThreadCount = 0;
+        for (ForkJoinPool each : livePools()) {
+            activeThreadCount += each.getActiveThreadCount();
+        }
+        return activeThreadCount;
+    }
+
+
+    /**
+     * Get the number of worker threads that are not blocked waiting to join tasks or for other managed synchronization.
+     *
+     * @return running thread count
+     */
+    public int getRunningThreadCount() {
+        int runningThreadCount = 0;
+        for (ForkJoinPool each : livePools()) {
+            runningThreadCount += each.getRunningThreadCount();
+        }
+        return runningThreadCount;
+    }
+
+
+    /**
+     * Get the number of tasks submitted from outside the pool that have not yet begun executing.
+     *
+     * @return queued submission count
+     */
+    public int getQueuedSubmissionCount() {
+        int queuedSubmissionCount = 0;
+        for (ForkJoinPool each : livePools()) {
+            queuedSubmissionCount += each.getQueuedSubmissionCount();
+        }
+        return queuedSubmissionCount;
+    }
+
+
+    /**
+     * Get the number of tasks forked by worker threads that have not yet begun executing.
+     *
+     * @return queued task count
+     */
+    public long getQueuedTaskCount() {
+        long queuedTaskCount = 0L;
+        for (ForkJoinPool each : livePools()) {
+            queuedTaskCount += each.getQueuedTaskCount();
+        }
+        return queuedTaskCount;
+    }
+
+
+    /**
+     * Get the total number of tasks stolen from one worker thread's queue by another, including the replaced pools.
+     *
+     * @return steal count
+     */
+    public long getStealCount() {
+        long stealCount = terminatedStealCount.get();
+        for (ForkJoinPool each : livePools()) {
+            stealCount += each.getStealCount();
+        }
+        return stealCount;
+    }
+
+
+    //得到当前的ForkJoinPool和还没有终止的旧ForkJoinPool，顺便移除已经终止的旧ForkJoinPool，多个线程同时移除时只有一个线程能移除成功
+    private List<ForkJoinPool> livePools() {
+        List<ForkJoinPool> pools = new ArrayList<>(retiredPools.size() + 1);
+        for (ForkJoinPool each : retiredPools) {
+            if (each.isTerminated()) {
+                if (retiredPools.remove(each)) {
+                    terminatedStealCount.addAndGet(each.getStealCount());
+                }
+            } else {
+                pools.add(each);
+            }
+        }
+        pools.add(pool);
+        return pools;
+    }
+
+
+    private static void checkParallelism(int parallelism) {
+        if (parallelism <= 0 || parallelism > MAX_PARALLELISM) {
+            throw new IllegalArgumentException("Illegal parallelism: " + parallelism);
+        }
+    }
+
+
+    private static Method findSetParallelism() {
+        try {
+            return ForkJoinPool.class.getMethod("setParallelism", int.class);
+        } catch (NoSuchMethodException ex) {
+            return null;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import top.panson.common.config.ApplicationContextHolder;
 import top.panson.common.model.ThreadPoolParameter;
 import top.panson.common.model.register.DynamicThreadPoolRegisterWrapper;
 import top.panson.core.executor.DynamicThreadPoolWrapper;
+import top.panson.core.executor.forkjoin.DynamicForkJoinPool;
 import top.panson.core.executor.support.service.DynamicThreadPoolService;
 
 import java.util.ArrayList;
@@ -26,6 +27,9 @@ public class GlobalThreadPoolManage {
     //存放动态线程池包装对象的map，收集线程运行时信息的时候会用到
     private static final Map<String, DynamicThreadPoolWrapper> EXECUTOR_MAP = new ConcurrentHashMap();
 
+    //存放ForkJoinPool门面对象的map，ForkJoinPool不是ThreadPoolExecutor，所以和其他动态线程池分开存放
+    private static final Map<String, DynamicForkJoinPool> FORK_JOIN_POOL_MAP = new ConcurrentHashMap();
+
 
     //根据线程池Id得到对应的DynamicThreadPoolWrapper对象
     public static DynamicThreadPoolWrapper getExecutorService(String threadPoolId) {
@@ -38,6 +42,11 @@ public class GlobalThreadPoolManage {
         return Optional.ofNullable(EXECUTOR_MAP.get(threadPoolId)).map(each -> each.getExecutor()).orElse(null);
     }
 
+    //根据线程池Id得到ForkJoinPool门面对象的方法
+    public static DynamicForkJoinPool getForkJoinPool(String threadPoolId) {
+        return FORK_JOIN_POOL_MAP.get(threadPoolId);
+    }
+
     //根据线程池Id得到对用的线程池核心参数对象的方法
     public static ThreadPoolParameter getPoolParameter(String threadPoolId) {
         return POOL_PARAMETER.get(threadPoolId);
@@ -56,6 +65,13 @@ public class GlobalThreadPoolManage {
     }
 
 
+    //把线程池核心参数信息和ForkJoinPool门面对象交给线程池全局管理器管理的方法
+    public static void registerForkJoinPool(String threadPoolId, ThreadPoolParameter threadPoolParameter, DynamicForkJoinPool forkJoinPool) {
+        FORK_JOIN_POOL_MAP.put(threadPoolId, forkJoinPool);
+        registerPoolParameter(threadPoolId, threadPoolParameter);
+    }
+
+
     public static void registerPoolParameter(String threadPoolId, ThreadPoolParameter threadPoolParameter) {
         POOL_PARAMETER.put(threadPoolId, threadPoolParameter);
     }
@@ -78,7 +94,12 @@ public class GlobalThreadPoolManage {
     }
 
 
+    public static List<String> listForkJoinPoolId() {
+        return new ArrayList<>(FORK_JOIN_POOL_MAP.keySet());
+    }
+
+
     public static Integer getThreadPoolNum() {
-        return listThreadPoolId().size();
+        return listThreadPoolId().size() + FORK_JOIN_POOL_MAP.size();
     }
 }
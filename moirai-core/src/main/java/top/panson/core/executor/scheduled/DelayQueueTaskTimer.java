@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package top.panson.core.executor.scheduled;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+
+/**
+ * @方法描述：使用jdk的DelayQueue实现的计时器，和ScheduledThreadPoolExecutor一样底层是一个二叉堆，添加和取出定时任务的时间复杂度是O(log n)，
+ * 计时精度高，适合定时任务不多的场景，这是定时线程池默认使用的计时器
+ */
+class DelayQueueTaskTimer extends ScheduledTaskTimer {
+
+    private final DelayQueue<ScheduledFutureTask<?>> queue = new DelayQueue<>();
+
+    DelayQueueTaskTimer(DynamicScheduledThreadPoolExecutor executor) {
+        super(executor);
+    }
+
+    @Override
+    public void run() {
+        while (!stopped) {
+            ScheduledFutureTask<?> task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException ex) {
+                continue;
+            }
+            tickLagNanos = Math.max(0L, System.nanoTime() - task.getTime());
+            if (!task.isCancelled()) {
+                fire(task);
+            }
+        }
+    }
+
+    @Override
+    void schedule(ScheduledFutureTask<?> task) {
+        queue.offer(task);
+    }
+
+    @Override
+    void cancel(ScheduledFutureTask<?> task) {
+        queue.remove(task);
+    }
+
+    @Override
+    int size() {
+        return queue.size();
+    }
+
+    @Override
+    List<ScheduledFutureTask<?>> drain() {
+        List<ScheduledFutureTask<?>> tasks = new ArrayList<>(queue);
+        queue.clear();
+        tasks.removeIf(ScheduledFutureTask::isCancelled);
+        return tasks;
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package top.panson.core.executor.scheduled;
+
+import top.panson.common.design.builder.ThreadFactoryBuilder;
+import top.panson.common.executor.support.ResizableCapacityLinkedBlockingQueue;
+import top.panson.core.executor.DynamicThreadPoolExecutor;
+import top.panson.core.plugin.manager.ThreadPoolPluginSnapshot;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @方法描述：可以执行定时任务的动态线程池。jdk的ScheduledThreadPoolExecutor把定时任务放在一个二叉堆实现的延迟队列中，
+ * 工作线程直接从延迟队列中获取到期的任务，定时任务达到上百万个的时候添加和取消任务都会变慢。这里把计时和执行分开：
+ * 还没有到期的定时任务由计时器持有，计时器的守护线程在任务到期之后才把它提交给线程池的工作队列，工作线程和普通的动态线程池一样执行任务。
+ * 计时器默认使用和jdk一样的二叉堆，定时任务很多的时候可以使用哈希时间轮，添加和取消任务的时间复杂度都是O(1)，代价是计时精度变成了时间轮一格的时间间隔。
+ * 因为这个线程池仍然是一个DynamicThreadPoolExecutor，所以插件、拒绝策略、注册到GlobalThreadPoolManage、运行状态采集和服务端动态调整线程数都和普通的动态线程池一样。
+ * 和jdk不同的是，线程池关闭之后还没有到期的定时任务都会被取消，不会再执行
+ */
+@Slf4j
+public class DynamicScheduledThreadPoolExecutor extends DynamicThreadPoolExecutor implements ScheduledExecutorService {
+
+    //时间轮默认每一格的时间间隔，单位是毫秒
+    public static final long DEFAULT_TICK_MILLIS = 10L;
+
+    //时间轮默认的格子数量
+    public static final int DEFAULT_TICKS_PER_WHEEL = 512;
+
+    //空闲线程默认的存活时间
+    private static final long DEFAULT_KEEP_ALIVE_SECONDS = 60L;
+
+    //关闭线程池时默认等待任务执行完成的时间
+    private static final long DEFAULT_AWAIT_TERMINATION_MILLIS = 5000L;
+
+    private final ScheduledTaskTimer timer;
+
+    //是否使用时间轮作为计时器
+    @Getter
+    private final boolean timingWheel;
+
+    public DynamicScheduledThreadPoolExecutor(@NonNull String threadPoolId, int corePoolSize, boolean timingWheel) {
+        this(
+                corePoolSize, corePoolSize,
+                DEFAULT_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                0L, true, DEFAULT_AWAIT_TERMINATION_MILLIS,
+                new ResizableCapacityLinkedBlockingQueue<>(),
+                threadPoolId,
+                ThreadFactoryBuilder.builder().prefix(threadPoolId).build(),
+                new ThreadPoolExecutor.AbortPolicy(),
+                timingWheel ? DEFAULT_TICK_MILLIS : 0L, DEFAULT_TICKS_PER_WHEEL);
+    }
+
+    /**
+     * @方法描述：创建定时线程池，tickMillis大于0时使用时间轮作为计时器，tickMillis是时间轮每一格的时间间隔，ticksPerWheel是格子数量，
+     * 会向上取整到2的幂，tickMillis小于等于0时使用二叉堆作为计时器
+     */
+    public DynamicScheduledThreadPoolExecutor(
+                                              int corePoolSize, int maximumPoolSize,
+                                              long keepAliveTime, TimeUnit unit,
+                                              long executeTimeOut, boolean waitForTasksToCompleteOnShutdown, long awaitTerminationMillis,
+                                              @NonNull BlockingQueue<Runnable> blockingQueue,
+                                              @NonNull String threadPoolId,
+                                              @NonNull ThreadFactory threadFactory,
+                                              @NonNull RejectedExecutionHandler rejectedExecutionHandler,
+                                              long tickMillis, int ticksPerWheel) {
+        super(
+                corePoolSize, maximumPoolSize, keepAliveTime, unit,
+                executeTimeOut, waitForTasksToCompleteOnShutdown, awaitTerminationMillis,
+                blockingQueue, threadPoolId, threadFactory, rejectedExecutionHandler);
+        this.timingWheel = tickMillis > 0L;
+        this.timer = timingWheel ? new HashedWheelTaskTimer(this, tickMillis, ticksPerWheel) : new DelayQueueTaskTimer(this);
+        timer.start();
+    }
+
+
+    @Override
+    public ScheduledFuture<?> schedule(@NonNull Runnable command, long delay, @NonNull TimeUnit unit) {
+        return delayedExecute(new ScheduledFutureTask<>(this, callableOf(command), triggerTime(delay, unit), 0L));
+    }
+
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(@NonNull Callable<V> callable, long delay, @NonNull TimeUnit unit) {
+        return delayedExecute(new ScheduledFutureTask<>(this, callableOf(callable), triggerTime(delay, unit), 0L));
+    }
+
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(@NonNull Runnable command, long initialDelay, long period, @NonNull TimeUnit unit) {
+        if (period <= 0L) {
+            throw new IllegalArgumentException();
+        }
+        return delayedExecute(new ScheduledFutureTask<>(this, callableOf(command), triggerTime(initialDelay, unit), unit.toNanos(period)));
+    }
+
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(@NonNull Runnable command, long initialDelay, long delay, @NonNull TimeUnit unit) {
+        if (delay <= 0L) {
+            throw new IllegalArgumentException();
+        }
+        return delayedExecute(new ScheduledFutureTask<>(this, callableOf(command), triggerTime(initialDelay, unit), -unit.toNanos(delay)));
+    }
+
+
+    //得到还没有到期的定时任务数量
+    public int getPendingTimerCount() {
+        return timer.size();
+    }
+
+
+    //得到计时器最近一次处理到期任务时比预定的时间晚了多久，单位是毫秒
+    public long getTickLagMillis() {
+        return timer.getTickLagMillis();
+    }
+
+
+    //得到最近一个统计周期内每秒到期的定时任务数量
+    public double getTimerFireRate() {
+        return timer.getFireRate();
+    }
+
+
+    //得到已经到期并提交给线程池的定时任务数量
+    public long getFiredTimerCount() {
+        return timer.getFiredCount();
+    }
+
+
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        cancelPendingTimers();
+    }
+
+
+    //立即关闭线程池，返回的任务中也包括还没有到期的定时任务，这些定时任务都已经被取消了
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> tasks = new ArrayList<>(super.shutdownNow());
+        tasks.addAll(cancelPendingTimers());
+        return tasks;
+    }
+
+
+    //父类销毁线程池时直接调用的是父类的关闭方法，所以这里也要取消还没有到期的定时任务
+    @Override
+    public void destroy() {
+        super.destroy();
+        cancelPendingTimers();
+    }
+
+
+    //定时任务到期之后，计时线程调用这个方法把任务提交给线程池，提交任务时会经过TaskAwarePlugin插件，被拒绝时会经过拒绝策略插件和拒绝策略
+    void dispatch(ScheduledFutureTask<?> task) {
+        try {
+            execute(task);
+        } catch (RejectedExecutionException ex) {
+            //拒绝策略抛出了异常，取消这个定时任务，防止有调用方一直阻塞在任务的Future上
+            task.cancel(false);
+            log.warn("Scheduled task rejected after it became due. threadPoolId: {}", getThreadPoolId(), ex);
+        }
+    }
+
+
+    //周期任务执行完之后重新交给计时器，线程池已经关闭的话就不再执行了
+    void reschedule(ScheduledFutureTask<?> task) {
+        if (isShutdown()) {
+            task.cancel(false);
+            return;
+        }
+        timer.schedule(task);
+        //添加任务的同时线程池可能被关闭了，这时候计时器已经停止了，任务不会再到期
+        if (isShutdown()) {
+            task.cancel(false);
+        }
+    }
+
+
+    void onCancel(ScheduledFutureTask<?> task) {
+        timer.cancel(task);
+    }
+
+
+    private <V> ScheduledFuture<V> delayedExecute(ScheduledFutureTask<V> task) {
+        //线程池已经关闭了，交给线程池执行拒绝策略插件和拒绝策略
+        if (isShutdown()) {
+            execute(task);
+            return task;
+        }
+        reschedule(task);
+        return task;
+    }
+
+
+    //和提交普通任务一样，创建定时任务时先经过TaskAwarePlugin插件的包装
+    private Callable<Object> callableOf(Runnable command) {
+        ThreadPoolPluginSnapshot snapshot = getThreadPoolPluginManager().getPluginSnapshot();
+        Runnable runnable = snapshot.hasTaskAwarePlugins() ? snapshot.beforeTaskCreate(this, command, null) : command;
+        return Executors.callable(runnable);
+    }
+
+
+    private <V> Callable<V> callableOf(Callable<V> callable) {
+        ThreadPoolPluginSnapshot snapshot = getThreadPoolPluginManager().getPluginSnapshot();
+        return snapshot.hasTaskAwarePlugins() ? snapshot.beforeTaskCreate(this, callable) : callable;
+    }
+
+
+    private static long triggerTime(long delay, TimeUnit unit) {
+        //延迟时间太长的话限制在一个足够大的值，防止计算到期时间时溢出
+        long delayNanos = Math.min(unit.toNanos(Math.max(0L, delay)), Long.MAX_VALUE >> 1);
+        return System.nanoTime() + delayNanos;
+    }
+
+
+    private List<ScheduledFutureTask<?>> cancelPendingTimers() {
+        timer.stop();
+        List<ScheduledFutureTask<?>> tasks = timer.drain();
+        for (ScheduledFutureTask<?> task : tasks) {
+            task.cancel(false);
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package top.panson.core.executor.scheduled;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @方法描述：哈希时间轮实现的计时器，适合有大量定时任务的场景，比如几十万上百万个重试和超时任务。时间轮由固定数量的格子组成，
+ * 每个格子代表一个时间间隔，计时线程每过一个间隔就前进一格，把这一格中到期的任务提交给线程池，到期时间超过一圈的任务记录还要再转几圈。
+ * 添加和取消任务的线程只是把任务放到无锁队列中，由计时线程在每一格开始时统一处理，格子中的链表只有计时线程访问，所以添加和取消任务的时间复杂度都是O(1)，
+ * 也不需要任何锁。代价是计时精度就是一格的时间间隔，任务最多会晚一格执行，但是绝不会提前执行
+ */
+class HashedWheelTaskTimer extends ScheduledTaskTimer {
+
+    //每一格最多从待添加队列中转移的任务数量，防止大量任务同时添加时计时线程长时间无法前进
+    private static final int MAX_TRANSFER_PER_TICK = 100000;
+
+    private final long tickNanos;
+
+    private final Bucket[] wheel;
+
+    private final int mask;
+
+    //时间轮开始转动的时间，每一格的到期时间都从这个时间开始计算
+    private final long startNanos = System.nanoTime();
+
+    //时间轮已经走过的格数，只有计时线程访问
+    private long tick;
+
+    private final Queue<ScheduledFutureTask<?>> pendingAdds = new ConcurrentLinkedQueue<>();
+
+    private final Queue<ScheduledFutureTask<?>> pendingCancels = new ConcurrentLinkedQueue<>();
+
+    //已经添加但是还没有到期、也没有被移除的任务数量
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    HashedWheelTaskTimer(DynamicScheduledThreadPoolExecutor executor, long tickMillis, int ticksPerWheel) {
+        super(executor);
+        if (tickMillis <= 0 || ticksPerWheel <= 0 || ticksPerWheel > (1 << 30)) {
+            throw new IllegalArgumentException();
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        //格子数量向上取整到2的幂，这样用位运算就可以得到任务所在的格子
+        int size = Integer.highestOneBit(ticksPerWheel - 1) << 1;
+        size = Math.max(1, size);
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+    }
+
+    @Override
+    public void run() {
+        while (!stopped) {
+            long tickDeadline = startNanos + tickNanos * (tick + 1);
+            long sleepNanos;
+            while ((sleepNanos = tickDeadline - System.nanoTime()) > 0L && !stopped) {
+                LockSupport.parkNanos(this, sleepNanos);
+            }
+            if (stopped) {
+                break;
+            }
+            tickLagNanos = -sleepNanos;
+            processCancels();
+            transferPendingAdds();
+            expire(wheel[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    @Override
+    void schedule(ScheduledFutureTask<?> task) {
+        pendingCount.incrementAndGet();
+        pendingAdds.offer(task);
+    }
+
+    @Override
+    void cancel(ScheduledFutureTask<?> task) {
+        pendingCancels.offer(task);
+    }
+
+    @Override
+    int size() {
+        return pendingCount.get();
+    }
+
+    @Override
+    List<ScheduledFutureTask<?>> drain() {
+        List<ScheduledFutureTask<?>> tasks = new ArrayList<>();
+        for (Bucket bucket : wheel) {
+            for (ScheduledFutureTask<?> task = bucket.head; task != null; task = task.wheelNext) {
+                if (!task.isCancelled()) {
+                    tasks.add(task);
+                }
+            }
+            bucket.head = null;
+            bucket.tail = null;
+        }
+        ScheduledFutureTask<?> task;
+        while ((task = pendingAdds.poll()) != null) {
+            if (!task.isCancelled()) {
+                tasks.add(task);
+            }
+        }
+        pendingCancels.clear();
+        pendingCount.set(0);
+        return tasks;
+    }
+
+    //被取消的任务如果已经在格子中，就从格子中移除，还在待添加队列中的任务会在转移时被跳过
+    private void processCancels() {
+        ScheduledFutureTask<?> task;
+        while ((task = pendingCancels.poll()) != null) {
+            Bucket bucket = task.bucket;
+            if (bucket != null) {
+                bucket.remove(task);
+                pendingCount.decrementAndGet();
+            }
+        }
+    }
+
+    private void transferPendingAdds() {
+        for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++) {
+            ScheduledFutureTask<?> task = pendingAdds.poll();
+            if (task == null) {
+                return;
+            }
+            if (task.isCancelled()) {
+                pendingCount.decrementAndGet();
+                continue;
+            }
+            long calculated = Math.max(0L, task.getTime() - startNanos) / tickNanos;
+            task.remainingRounds = (calculated - tick) / wheel.length;
+            //已经过期的任务放到当前这一格，马上就会被提交给线程池
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(task);
+        }
+    }
+
+    private void expire(Bucket bucket) {
+        ScheduledFutureTask<?> task = bucket.head;
+        while (task != null) {
+            ScheduledFutureTask<?> next = task.wheelNext;
+            if (task.isCancelled()) {
+                bucket.remove(task);
+                pendingCount.decrementAndGet();
+            } else if (task.remainingRounds <= 0L) {
+                bucket.remove(task);
+                pendingCount.decrementAndGet();
+                fire(task);
+            } else {
+                task.remainingRounds--;
+            }
+            task = next;
+        }
+    }
+
+    /**
+     * @方法描述：时间轮的一个格子，是一个双向链表，只有计时线程访问
+     */
+    static final class Bucket {
+
+        private ScheduledFutureTask<?> head;
+
+        private ScheduledFutureTask<?> tail;
+
+        void add(ScheduledFutureTask<?> task) {
+            task.bucket = this;
+            if (head == null) {
+                head = task;
+                tail = task;
+            } else {
+                tail.wheelNext = task;
+                task.wheelPrev = tail;
+                tail = task;
+            }
+        }
+
+        void remove(ScheduledFutureTask<?> task) {
+            ScheduledFutureTask<?> next = task.wheelNext;
+            if (task.wheelPrev != null) {
+                task.wheelPrev.wheelNext = next;
+            }
+            if (next != null) {
+                next.wheelPrev = task.wheelPrev;
+            }
+            if (task == head) {
+                head = next;
+            }
+            if (task == tail) {
+                tail = task.wheelPrev;
+            }
+            task.wheelPrev = null;
+            task.wheelNext = null;
+            task.bucket = null;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package top.panson.core.executor.scheduled;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @方法描述：定时线程池中的定时任务，到期之前由计时器持有，到期之后作为一个普通的任务提交给线程池的工作队列。
+ * 周期任务每次执行完之后计算下一次的执行时间，再重新交给计时器
+ */
+class ScheduledFutureTask<V> extends FutureTask<V> implements RunnableScheduledFuture<V> {
+
+    //到期时间相同的任务按照添加的顺序执行
+    private static final AtomicLong SEQUENCER = new AtomicLong();
+
+    private final DynamicScheduledThreadPoolExecutor executor;
+
+    private final long sequenceNumber = SEQUENCER.getAndIncrement();
+
+    //到期时间，和System.nanoTime()的返回值比较，周期任务每次执行完之后更新
+    private volatile long time;
+
+    //大于0表示按照固定的频率执行，小于0表示按照固定的间隔执行，等于0表示只执行一次
+    private final long period;
+
+    //下面这些只有时间轮的计时线程访问
+    HashedWheelTaskTimer.Bucket bucket;
+
+    ScheduledFutureTask<?> wheelNext;
+
+    ScheduledFutureTask<?> wheelPrev;
+
+    long remainingRounds;
+
+    ScheduledFutureTask(DynamicScheduledThreadPoolExecutor executor, Callable<V> callable, long time, long period) {
+        super(callable);
+        this.executor = executor;
+        this.time = time;
+        this.period = period;
+    }
+
+    long getTime() {
+        return time;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(time - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+        if (other == this) {
+            return 0;
+        }
+        if (other instanceof ScheduledFutureTask) {
+            ScheduledFutureTask<?> task = (ScheduledFutureTask<?>) other;
+            long diff = time - task.time;
+            if (diff != 0L) {
+                return diff < 0L ? -1 : 1;
+            }
+            return sequenceNumber < task.sequenceNumber ? -1 : 1;
+        }
+        long diff = getDelay(TimeUnit.NANOSECONDS) - other.getDelay(TimeUnit.NANOSECONDS);
+        return diff < 0L ? -1 : (diff > 0L ? 1 : 0);
+    }
+
+    @Override
+    public boolean isPeriodic() {
+        return period != 0L;
+    }
+
+    @Override
+    public void run() {
+        if (!isPeriodic()) {
+            super.run();
+        } else if (runAndReset()) {
+            time = period > 0L ? time + period : System.nanoTime() - period;
+            executor.reschedule(this);
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+            executor.onCancel(this);
+        }
+        return cancelled;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package top.panson.core.executor.scheduled;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @方法描述：定时任务的计时器，每个定时线程池有一个计时器，计时器持有还没有到期的定时任务和一个守护线程，
+ * 定时任务到期之后由守护线程提交给线程池的工作队列执行，计时器本身不执行任务
+ */
+abstract class ScheduledTaskTimer implements Runnable {
+
+    //到期速率的统计周期
+    private static final long RATE_WINDOW_MILLIS = 1000L;
+
+    //等待计时线程退出的最长时间
+    private static final long STOP_TIMEOUT_MILLIS = 1000L;
+
+    final DynamicScheduledThreadPoolExecutor executor;
+
+    private final Thread thread;
+
+    volatile boolean stopped;
+
+    //已经到期并提交给线程池的定时任务数量
+    private final LongAdder firedCount = new LongAdder();
+
+    //计时器最近一次处理到期任务时比预定的时间晚了多久
+    volatile long tickLagNanos;
+
+    private long windowStart = System.currentTimeMillis();
+
+    private long windowFiredCount;
+
+    private volatile double fireRate;
+
+    ScheduledTaskTimer(DynamicScheduledThreadPoolExecutor executor) {
+        this.executor = executor;
+        this.thread = new Thread(this, executor.getThreadPoolId() + "-timer");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * @方法描述：停止计时线程并等待它退出，之后就可以安全地取出还没有到期的定时任务了
+     */
+    void stop() {
+        stopped = true;
+        thread.interrupt();
+        if (Thread.currentThread() == thread) {
+            return;
+        }
+        try {
+            thread.join(STOP_TIMEOUT_MILLIS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //添加一个定时任务，可以在任意线程中调用
+    abstract void schedule(ScheduledFutureTask<?> task);
+
+    //移除一个被取消的定时任务，可以在任意线程中调用
+    abstract void cancel(ScheduledFutureTask<?> task);
+
+    //得到还没有到期的定时任务数量
+    abstract int size();
+
+    //计时线程退出之后，取出所有还没有到期并且没有被取消的定时任务
+    abstract List<ScheduledFutureTask<?>> drain();
+
+    //把到期的定时任务提交给线程池
+    void fire(ScheduledFutureTask<?> task) {
+        firedCount.increment();
+        executor.dispatch(task);
+    }
+
+    long getFiredCount() {
+        return firedCount.sum();
+    }
+
+    //得到最近一个统计周期内每秒到期的定时任务数量
+    synchronized double getFireRate() {
+        long now = System.currentTimeMillis();
+        if (now - windowStart >= RATE_WINDOW_MILLIS) {
+            long currentFiredCount = firedCount.sum();
+            fireRate = (currentFiredCount - windowFiredCount) * 1000D / (now - windowStart);
+            windowStart = now;
+            windowFiredCount = currentFiredCount;
+        }
+        return fireRate;
+    }
+
+    long getTickLagMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(tickLagNanos);
+    }
+}
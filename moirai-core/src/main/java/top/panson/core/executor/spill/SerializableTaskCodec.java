@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package top.panson.core.executor.spill;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @方法描述：默认的任务编解码器，使用jdk的序列化机制，只支持实现了Serializable接口的任务。
+ * 注意通过submit方法提交的任务会被包装成FutureTask，这种任务不能序列化，溢出之后调用方也拿不到执行结果，所以不会被写入溢出文件。
+ * 反序列化任意的类是很危险的，溢出文件一旦被别人篡改，就可能在反序列化的时候执行恶意代码，所以这个编解码器只接受白名单中的类：
+ * 除了字符串、基本类型的包装类和基本类型的数组之外，任务类和任务的字段用到的类都要通过moirai.spill.serializable-classes系统属性声明，
+ * 多个类用逗号分隔，以.*结尾表示这个包下面的所有类，比如com.example.task.*。任务类不在白名单中的话不会被写入溢出文件，
+ * 读取时遇到白名单之外的类直接失败，这条记录会被丢弃
+ */
+public class SerializableTaskCodec implements TaskCodec {
+
+    public static final String CODEC_NAME = "serializable";
+
+    /**
+     * System property of class names allowed to be deserialized
+     */
+    public static final String ALLOWED_CLASSES_PROPERTY = "moirai.spill.serializable-classes";
+
+    //始终允许反序列化的类，这些类都不会在反序列化的时候执行任何代码
+    private static final Set<String> BUILT_IN_ALLOWED_CLASSES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            String.class.getName(), Boolean.class.getName(), Byte.class.getName(), Character.class.getName(), Short.class.getName(),
+            Integer.class.getName(), Long.class.getName(), Float.class.getName(), Double.class.getName(), Number.class.getName(),
+            Enum.class.getName())));
+
+    private final Set<String> allowedClasses = new HashSet<>();
+
+    private final List<String> allowedPackages = new ArrayList<>();
+
+    public SerializableTaskCodec() {
+        this(System.getProperty(ALLOWED_CLASSES_PROPERTY, ""));
+    }
+
+    public SerializableTaskCodec(String allowedClasses) {
+        for (String each : allowedClasses.split(",")) {
+            String pattern = each.trim();
+            if (pattern.endsWith(".*")) {
+                allowedPackages.add(pattern.substring(0, pattern.length() - 1));
+            } else if (!pattern.isEmpty()) {
+                this.allowedClasses.add(pattern);
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return CODEC_NAME;
+    }
+
+    @Override
+    public boolean supports(Runnable task) {
+        return task instanceof Serializable && isAllowed(task.getClass().getName());
+    }
+
+    @Override
+    public byte[] encode(Runnable task) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(task);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public Runnable decode(byte[] bytes) throws IOException {
+        try (ObjectInputStream input = new AllowListObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (Runnable) input.readObject();
+        } catch (ClassNotFoundException | ClassCastException ex) {
+            throw new IOException("Failed to decode spilled task.", ex);
+        }
+    }
+
+    /**
+     * 判断类是否在白名单中，数组判断的是数组元素的类型，基本类型的数组始终允许
+     */
+    boolean isAllowed(String className) {
+        String name = className;
+        if (name.startsWith("[")) {
+            while (name.startsWith("[")) {
+                name = name.substring(1);
+            }
+            if (name.length() == 1) {
+                return true;
+            }
+            name = name.substring(1, name.length() - 1);
+        }
+        if (BUILT_IN_ALLOWED_CLASSES.contains(name) || allowedClasses.contains(name)) {
+            return true;
+        }
+        for (String each : allowedPackages) {
+            if (name.startsWith(each)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 流中的每一个类在加载之前都要检查白名单，动态代理类一律不允许。
+     * 优先使用线程上下文类加载器加载任务类，在Spring Boot的可执行jar中，任务类不一定能被当前类的类加载器找到
+     */
+    private class AllowListObjectInputStream extends ObjectInputStream {
+
+        AllowListObjectInputStream(InputStream input) throws IOException {
+            super(input);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (!isAllowed(desc.getName())) {
+                throw new InvalidClassException(desc.getName(), "Class is not allowed to be deserialized from spill file, see " + ALLOWED_CLASSES_PROPERTY);
+            }
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            if (classLoader != null) {
+                try {
+                    return Class.forName(desc.getName(), false, classLoader);
+                } catch (ClassNotFoundException ignored) {
+                }
+            }
+            return super.resolveClass(desc);
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(String[] interfaces) throws IOException {
+            throw new InvalidClassException("Proxy class is not allowed to be deserialized from spill file: " + Arrays.toString(interfaces));
+        }
+    }
+}
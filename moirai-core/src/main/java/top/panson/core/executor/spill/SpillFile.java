@@ -0,0 +1,377 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package top.panson.core.executor.spill;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @方法描述：基于内存映射文件的溢出文件，由多个固定大小的分段文件组成，写满一个分段就创建下一个分段，读完一个分段就删除这个分段。
+ * 每条记录的格式是：记录长度、写入时间、记录内容，记录长度为正数表示还没有被读取，为负数表示已经被读取了，为0表示后面没有数据了。
+ * 写入时先写记录内容，最后才写记录长度，读取之后把记录长度改成负数，这样进程重启之后扫描一遍分段文件就能恢复没有被读取的记录。
+ * 写入的数据只是写到了操作系统的页缓存中，进程崩溃不会丢失，但是操作系统崩溃可能丢失最近写入的数据
+ */
+@Slf4j
+final class SpillFile implements Closeable {
+
+    private static final String SEGMENT_SUFFIX = ".spill";
+
+    //溢出目录的权限，只有当前用户可以读写
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+
+    //当前进程的用户，通过当前进程创建的临时文件的所有者得到，只获取一次
+    private static volatile UserPrincipal processOwner;
+
+    //记录头的长度，记录长度占4个字节，写入时间占8个字节
+    static final int HEADER_SIZE = 4 + 8;
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    //所有还没有删除的分段，第一个是正在读取的分段，最后一个是正在写入的分段
+    private final Deque<Segment> segments = new ArrayDeque<>();
+
+    private long nextSequence;
+
+    //还没有被读取的记录数量
+    private long pendingCount;
+
+    private boolean closed;
+
+    SpillFile(Path directory, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        createPrivateDirectory(directory);
+        recover();
+    }
+
+    /**
+     * @方法描述：创建只有当前用户可以访问的目录。目录已经存在的话，检查它是不是符号链接、是不是属于当前用户、是不是只有当前用户可以访问，
+     * 不满足的话不使用这个目录，因为其他用户可能提前创建好了目录，往里面放入伪造的溢出文件。不支持POSIX文件权限的文件系统只检查是不是符号链接
+     */
+    static void createPrivateDirectory(Path directory) throws IOException {
+        boolean posix = directory.getFileSystem().supportedFileAttributeViews().contains("posix");
+        if (!Files.exists(directory, LinkOption.NOFOLLOW_LINKS)) {
+            Path parent = directory.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try {
+                if (posix) {
+                    Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+                } else {
+                    Files.createDirectory(directory);
+                }
+            } catch (FileAlreadyExistsException ignored) {
+                //其他线程或者其他进程同时创建了这个目录，下面照样要检查
+            }
+        }
+        if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+            throw new IOException("Spill directory is not a directory or is a symbolic link: " + directory);
+        }
+        if (!posix) {
+            return;
+        }
+        UserPrincipal owner = Files.getOwner(directory, LinkOption.NOFOLLOW_LINKS);
+        if (!owner.equals(processOwner(directory))) {
+            throw new IOException("Spill directory " + directory + " is owned by " + owner.getName() + ", not the current user");
+        }
+        Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(directory, LinkOption.NOFOLLOW_LINKS);
+        if (!OWNER_ONLY.containsAll(permissions)) {
+            throw new IOException("Spill directory " + directory + " is accessible by other users, permissions: "
+                    + PosixFilePermissions.toString(permissions) + ", expected: rwx------");
+        }
+    }
+
+    //在目录中创建一个临时文件，临时文件的所有者就是当前进程的用户，这样在用户名无法解析的容器中也能得到正确的结果
+    private static UserPrincipal processOwner(Path directory) throws IOException {
+        UserPrincipal owner = processOwner;
+        if (owner == null) {
+            Path probe = Files.createTempFile(directory, "owner", ".probe");
+            try {
+                owner = Files.getOwner(probe, LinkOption.NOFOLLOW_LINKS);
+            } finally {
+                Files.deleteIfExists(probe);
+            }
+            processOwner = owner;
+        }
+        return owner;
+    }
+
+    /**
+     * @方法描述：追加一条记录，记录比一个分段还大的话返回false
+     */
+    synchronized boolean append(byte[] content, long spillMillis) throws IOException {
+        ensureOpen();
+        int length = HEADER_SIZE + content.length;
+        if (length > segmentSize) {
+            return false;
+        }
+        Segment tail = segments.peekLast();
+        if (tail == null || tail.writePosition + length > tail.capacity) {
+            tail = createSegment();
+        }
+        int position = tail.writePosition;
+        ByteBuffer buffer = tail.buffer.duplicate();
+        buffer.position(position + 4);
+        buffer.putLong(spillMillis);
+        buffer.put(content);
+        //最后才写记录长度，记录长度不为0就说明整条记录都已经写完了
+        tail.buffer.putInt(position, length);
+        tail.writePosition = position + length;
+        pendingCount++;
+        return true;
+    }
+
+    /**
+     * @方法描述：读取最早写入的一条记录，但是不把这条记录标记为已读取，没有记录的话返回null。
+     * 只有回放线程会读取记录，所以读取之后到调用remove方法之前，最早写入的记录不会变化
+     */
+    synchronized Record peek() throws IOException {
+        ensureOpen();
+        Segment head = advance();
+        if (head == null) {
+            return null;
+        }
+        int position = head.readPosition;
+        int length = head.buffer.getInt(position);
+        ByteBuffer buffer = head.buffer.duplicate();
+        buffer.position(position + 4);
+        long spillMillis = buffer.getLong();
+        byte[] content = new byte[length - HEADER_SIZE];
+        buffer.get(content);
+        return new Record(content, spillMillis);
+    }
+
+    /**
+     * @方法描述：把最早写入的一条记录标记为已读取，任务已经成功交给线程池或者被丢弃之后调用
+     */
+    synchronized void remove() throws IOException {
+        ensureOpen();
+        Segment head = advance();
+        if (head == null) {
+            return;
+        }
+        int position = head.readPosition;
+        int length = head.buffer.getInt(position);
+        head.buffer.putInt(position, -length);
+        head.readPosition = position + length;
+        pendingCount--;
+    }
+
+    /**
+     * @方法描述：得到最早写入的还没有被读取的记录的写入时间，没有记录的话返回-1
+     */
+    synchronized long oldestSpillMillis() {
+        if (closed) {
+            return -1L;
+        }
+        Segment head = advance();
+        return head == null ? -1L : head.buffer.getLong(head.readPosition + 4);
+    }
+
+    synchronized long getPendingCount() {
+        return pendingCount;
+    }
+
+    synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Segment segment : segments) {
+            segment.close();
+        }
+        segments.clear();
+    }
+
+    //让读取位置指向下一条没有被读取的记录，读完的分段如果已经不再写入就删除，返回这条记录所在的分段，没有记录的话返回null
+    private Segment advance() {
+        for (;;) {
+            Segment head = segments.peekFirst();
+            if (head == null) {
+                return null;
+            }
+            int position = head.readPosition;
+            //只读取写入位置之前的数据，恢复时丢弃的不完整记录不会被读到
+            int length = position < head.writePosition ? head.buffer.getInt(position) : 0;
+            if (length > 0) {
+                return head;
+            }
+            if (length < 0) {
+                head.readPosition = position - length;
+                continue;
+            }
+            //这个分段后面没有数据了，如果它还是正在写入的分段，那就是所有记录都读完了
+            if (head == segments.peekLast()) {
+                return null;
+            }
+            segments.pollFirst();
+            head.delete();
+        }
+    }
+
+    private Segment createSegment() throws IOException {
+        Path path = directory.resolve(String.format("%020d%s", nextSequence++, SEGMENT_SUFFIX));
+        Segment segment = new Segment(path, segmentSize);
+        segments.addLast(segment);
+        return segment;
+    }
+
+    //扫描目录中遗留的分段文件，恢复没有被读取的记录
+    private void recover() throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                paths.add(path);
+            }
+        }
+        paths.sort(null);
+        for (Path path : paths) {
+            String fileName = path.getFileName().toString();
+            try {
+                nextSequence = Math.max(nextSequence, Long.parseLong(fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length())) + 1);
+            } catch (NumberFormatException ex) {
+                continue;
+            }
+            Segment segment = new Segment(path, (int) Math.min(Files.size(path), Integer.MAX_VALUE));
+            segment.scan();
+            pendingCount += segment.pendingCount;
+            segments.addLast(segment);
+        }
+        if (pendingCount > 0) {
+            log.info("Recovered {} spilled tasks from {}", pendingCount, directory);
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Spill file is closed: " + directory);
+        }
+    }
+
+    /**
+     * 溢出文件中的一条记录
+     */
+    static final class Record {
+
+        final byte[] content;
+
+        final long spillMillis;
+
+        Record(byte[] content, long spillMillis) {
+            this.content = content;
+            this.spillMillis = spillMillis;
+        }
+    }
+
+    /**
+     * 一个分段文件，整个文件都映射到内存中
+     */
+    private static final class Segment {
+
+        private final Path path;
+
+        private final FileChannel channel;
+
+        private final MappedByteBuffer buffer;
+
+        private final int capacity;
+
+        private int readPosition;
+
+        private int writePosition;
+
+        private long pendingCount;
+
+        Segment(Path path, int capacity) throws IOException {
+            this.path = path;
+            this.capacity = capacity;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+
+        //恢复时扫描整个分段，找到第一条没有被读取的记录和写入的结束位置，长度不合法的记录说明写入时被中断了，之后的数据都不要
+        void scan() {
+            int position = 0;
+            boolean foundPending = false;
+            while (position + 4 <= capacity) {
+                int length = buffer.getInt(position);
+                int size = Math.abs(length);
+                if (length == 0 || size < HEADER_SIZE || size > capacity - position) {
+                    break;
+                }
+                if (length > 0) {
+                    if (!foundPending) {
+                        readPosition = position;
+                        foundPending = true;
+                    }
+                    pendingCount++;
+                }
+                position += size;
+            }
+            if (!foundPending) {
+                readPosition = position;
+            }
+            writePosition = position;
+        }
+
+        void close() {
+            try {
+                buffer.force();
+                channel.close();
+            } catch (IOException ex) {
+                log.warn("Failed to close spill segment {}", path, ex);
+            }
+        }
+
+        void delete() {
+            try {
+                channel.close();
+                Files.deleteIfExists(path);
+            } catch (IOException ex) {
+                log.warn("Failed to delete spill segment {}", path, ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package top.panson.core.executor.spill;
+
+import top.panson.common.executor.support.CustomRejectedExecutionHandler;
+import top.panson.common.executor.support.DelegatingTask;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Spill to disk rejected execution handler.
+ */
+public class SpillToDiskRejectedExecutionHandler implements CustomRejectedExecutionHandler {
+
+    public static final int TYPE = 7;
+
+    @Override
+    public Integer getType() {
+        return TYPE;
+    }
+
+    @Override
+    public String getName() {
+        return SpillToDiskPolicy.class.getSimpleName();
+    }
+
+    @Override
+    public RejectedExecutionHandler generateRejected() {
+        return new SpillToDiskPolicy();
+    }
+
+    /**
+     * @方法描述：溢出到磁盘的拒绝策略，任务被拒绝时把任务写入线程池的溢出文件，等线程池有空闲容量时再由回放线程重新提交，
+     * 提交任务的线程既不会被阻塞，也不用自己执行任务。线程池已经关闭、没有编解码器支持这个任务或者写入溢出文件失败时，
+     * 和AbortPolicy一样抛出RejectedExecutionException
+     */
+    public static class SpillToDiskPolicy implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Task " + r.toString() + " rejected from " + executor.toString());
+            }
+            boolean spilled;
+            try {
+                //拒绝策略拿到的是被插件包装之后的任务，包装任务的类一般不能序列化，回放时也会被再包装一次，所以溢出的是调用方提交的原始任务，
+                //插件的包装类都实现了DelegatingTask，可以直接拆出原始任务，用户自定义的TaskDecorator包装的任务拆不出来，只能交给编解码器判断能不能溢出
+                spilled = TaskSpillStore.of(executor).spill(DelegatingTask.unwrap(r));
+            } catch (RuntimeException ex) {
+                throw new RejectedExecutionException("Failed to open spill store of " + executor.toString(), ex);
+            }
+            if (!spilled) {
+                throw new RejectedExecutionException("Task " + r.toString() + " rejected from " + executor.toString() + ", it can not be spilled to disk");
+            }
+        }
+    }
+}
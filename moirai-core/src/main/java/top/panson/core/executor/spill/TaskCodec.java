@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package top.panson.core.executor.spill;
+
+import java.io.IOException;
+
+/**
+ * Task codec, used by spill-to-disk rejected policy to write overflow tasks to the spill file and read them back.
+ */
+public interface TaskCodec {
+
+    /**
+     * Get codec name, it is written into the spill file together with each task, so it should not be changed once tasks have been spilled.
+     *
+     * @return
+     */
+    String getName();
+
+    /**
+     * Whether the task can be encoded by this codec.
+     *
+     * @param task
+     * @return
+     */
+    boolean supports(Runnable task);
+
+    /**
+     * Encode task.
+     *
+     * @param task
+     * @return
+     * @throws IOException
+     */
+    byte[] encode(Runnable task) throws IOException;
+
+    /**
+     * Decode task.
+     *
+     * @param bytes
+     * @return
+     * @throws IOException
+     */
+    Runnable decode(byte[] bytes) throws IOException;
+}
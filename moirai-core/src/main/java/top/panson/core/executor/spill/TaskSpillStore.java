@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package top.panson.core.executor.spill;
+
+import top.panson.common.spi.DynamicThreadPoolServiceLoader;
+import top.panson.core.executor.ExtensibleThreadPoolExecutor;
+import top.panson.core.plugin.impl.ThreadPoolRunStateRecordPlugin;
+import top.panson.core.plugin.manager.ThreadPoolPluginSupport;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @方法描述：线程池的任务溢出存储，每个线程池对应一个溢出存储，溢出存储持有线程池的溢出文件和一个低优先级的回放线程。
+ * 线程池的队列满了之后，拒绝策略把任务编码之后写入溢出文件，回放线程发现线程池有空闲的容量时，再把任务读出来重新提交给线程池，
+ * 这样突发流量就变成了磁盘上的积压，而不是被拒绝或者阻塞提交任务的线程。溢出文件中保存的是调用方提交的原始任务，不是被插件包装之后的任务，
+ * 回放时任务会重新经过插件，所以插件对每个任务只会包装一次。溢出存储是按照线程池保存在全局的映射中的，
+ * 服务端刷新拒绝策略时会创建新的拒绝策略对象，但是溢出的任务不会因此丢失。线程池关闭之后回放线程停止回放，
+ * 还没有回放的任务留在溢出文件中，下次这个线程池第一次溢出时会被恢复并回放
+ */
+@Slf4j
+public class TaskSpillStore {
+
+    /**
+     * System property of spill directory
+     */
+    public static final String SPILL_DIR_PROPERTY = "moirai.spill.dir";
+
+    /**
+     * System property of spill segment size, bytes
+     */
+    public static final String SEGMENT_SIZE_PROPERTY = "moirai.spill.segment-size";
+
+    private static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    //没有溢出任务时回放线程等待的时间
+    private static final long IDLE_WAIT_MILLIS = 100L;
+
+    //线程池没有空闲容量时回放线程等待的时间
+    private static final long BACKOFF_MILLIS = 10L;
+
+    //回放线程每一轮最多回放的任务数量，每一轮都会重新检查线程池的空闲容量
+    private static final int MAX_REPLAY_BATCH = 256;
+
+    //溢出速率的统计周期
+    private static final long RATE_WINDOW_MILLIS = 1000L;
+
+    private static final Map<ThreadPoolExecutor, TaskSpillStore> STORES = new ConcurrentHashMap<>();
+
+    static {
+        DynamicThreadPoolServiceLoader.register(TaskCodec.class);
+    }
+
+    private final ThreadPoolExecutor executor;
+
+    private final String storeId;
+
+    private final SpillFile spillFile;
+
+    //用户通过SPI提供的编解码器排在前面，默认的编解码器排在最后
+    private final List<TaskCodec> codecs;
+
+    private final LongAdder spillCount = new LongAdder();
+
+    private final LongAdder replayCount = new LongAdder();
+
+    private final LongAdder dropCount = new LongAdder();
+
+    private final Object signal = new Object();
+
+    private volatile double spillRate;
+
+    private TaskSpillStore(ThreadPoolExecutor executor, String storeId, SpillFile spillFile) {
+        this.executor = executor;
+        this.storeId = storeId;
+        this.spillFile = spillFile;
+        List<TaskCodec> codecs = new ArrayList<>(DynamicThreadPoolServiceLoader.getSingletonServiceInstances(TaskCodec.class));
+        codecs.add(new SerializableTaskCodec());
+        this.codecs = codecs;
+    }
+
+    /**
+     * @方法描述：得到线程池的溢出存储，还没有创建的话就创建溢出存储并启动回放线程
+     */
+    public static TaskSpillStore of(ThreadPoolExecutor executor) {
+        return STORES.computeIfAbsent(executor, TaskSpillStore::open);
+    }
+
+    /**
+     * Find the spill store of the thread-pool.
+     *
+     * @param executor thread-pool
+     * @return spill store, empty if no task of the thread-pool has been spilled
+     */
+    public static Optional<TaskSpillStore> find(Executor executor) {
+        return Optional.ofNullable(executor instanceof ThreadPoolExecutor ? STORES.get(executor) : null);
+    }
+
+    private static TaskSpillStore open(ThreadPoolExecutor executor) {
+        String storeId = executor instanceof ThreadPoolPluginSupport
+                ? ((ThreadPoolPluginSupport) executor).getThreadPoolId()
+                : "executor-" + System.identityHashCode(executor);
+        storeId = storeId.replaceAll("[^A-Za-z0-9._-]", "_");
+        //默认的溢出目录按照用户区分，溢出目录和线程池的目录都只允许当前用户访问，其他用户提前创建的目录不会被使用
+        Path baseDirectory = Paths.get(System.getProperty(SPILL_DIR_PROPERTY,
+                Paths.get(System.getProperty("java.io.tmpdir"), "moirai-spill-" + System.getProperty("user.name", "").replaceAll("[^A-Za-z0-9._-]", "_")).toString()));
+        Path directory = baseDirectory.resolve(storeId);
+        int segmentSize = Integer.getInteger(SEGMENT_SIZE_PROPERTY, DEFAULT_SEGMENT_SIZE);
+        try {
+            SpillFile.createPrivateDirectory(baseDirectory);
+            TaskSpillStore store = new TaskSpillStore(executor, storeId, new SpillFile(directory, segmentSize));
+            Thread replayThread = new Thread(store::replayLoop, "moirai-spill-replay-" + storeId);
+            replayThread.setDaemon(true);
+            replayThread.setPriority(Thread.MIN_PRIORITY);
+            replayThread.start();
+            return store;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * @方法描述：把任务写入溢出文件，没有编解码器支持这个任务、任务太大或者写入失败的话返回false
+     */
+    public boolean spill(Runnable task) {
+        TaskCodec codec = null;
+        for (TaskCodec each : codecs) {
+            if (each.supports(task)) {
+                codec = each;
+                break;
+            }
+        }
+        if (codec == null) {
+            return false;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeUTF(codec.getName());
+            output.write(codec.encode(task));
+            if (!spillFile.append(bytes.toByteArray(), System.currentTimeMillis())) {
+                return false;
+            }
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Failed to spill task. threadPoolId: {}", storeId, ex);
+            return false;
+        }
+        spillCount.increment();
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of spilled tasks waiting to be replayed.
+     *
+     * @return spill depth
+     */
+    public long getSpillDepth() {
+        return spillFile.getPendingCount();
+    }
+
+    /**
+     * Get the number of tasks spilled per second in recent time window.
+     *
+     * @return spill rate
+     */
+    public double getSpillRate() {
+        return spillRate;
+    }
+
+    /**
+     * Get how long the oldest spilled task has been waiting, 0 if there is no spilled task.
+     *
+     * @return replay lag, milliseconds
+     */
+    public long getReplayLagMillis() {
+        long oldestSpillMillis = spillFile.oldestSpillMillis();
+        return oldestSpillMillis < 0 ? 0L : Math.max(0L, System.currentTimeMillis() - oldestSpillMillis);
+    }
+
+    public long getSpillCount() {
+        return spillCount.sum();
+    }
+
+    public long getReplayCount() {
+        return replayCount.sum();
+    }
+
+    public long getDropCount() {
+        return dropCount.sum();
+    }
+
+    //回放线程执行的方法，线程池关闭之后退出
+    private void replayLoop() {
+        long windowStart = System.currentTimeMillis();
+        long windowSpillCount = 0L;
+        try {
+            while (!executor.isShutdown()) {
+                long now = System.currentTimeMillis();
+                if (now - windowStart >= RATE_WINDOW_MILLIS) {
+                    long currentSpillCount = spillCount.sum();
+                    spillRate = (currentSpillCount - windowSpillCount) * 1000D / (now - windowStart);
+                    windowSpillCount = currentSpillCount;
+                    windowStart = now;
+                }
+                if (spillFile.getPendingCount() == 0) {
+                    synchronized (signal) {
+                        if (spillFile.getPendingCount() == 0) {
+                            signal.wait(IDLE_WAIT_MILLIS);
+                        }
+                    }
+                    continue;
+                }
+                int budget = Math.min(replayBudget(), MAX_REPLAY_BATCH);
+                int replayed = 0;
+                boolean accepted = true;
+                SpillFile.Record record;
+                while (replayed < budget && !executor.isShutdown() && (record = spillFile.peek()) != null) {
+                    //线程池没有接收这个任务的话，任务留在溢出文件的最前面，等一会儿再按照原来的顺序回放
+                    if (!(accepted = replay(record))) {
+                        break;
+                    }
+                    replayed++;
+                }
+                if (accepted && replayed < budget) {
+                    continue;
+                }
+                Thread.sleep(BACKOFF_MILLIS);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException ex) {
+            log.error("Spilled task replay stopped. threadPoolId: {}", storeId, ex);
+        } finally {
+            STORES.remove(executor, this);
+            spillFile.close();
+        }
+    }
+
+    //线程池的空闲容量，最多占用队列剩余容量的一半，给正常提交的任务留出空间，没有队列容量的话就看有没有空闲的线程
+    private int replayBudget() {
+        BlockingQueue<Runnable> queue = executor.getQueue();
+        int idleThreads = executor.getMaximumPoolSize() - ThreadPoolRunStateRecordPlugin.activeCountOf(executor) - queue.size();
+        return Math.max(queue.remainingCapacity() / 2, idleThreads);
+    }
+
+    /**
+     * @方法描述：把溢出的任务重新提交给线程池，解码失败的任务只能丢弃。重新提交时不会再经过拒绝策略，否则任务被拒绝之后又会被写到溢出文件的末尾，
+     * 打乱任务的顺序，还会重复触发拒绝告警，线程池没有接收这个任务的话返回false，任务仍然留在溢出文件中
+     */
+    private boolean replay(SpillFile.Record record) throws IOException {
+        Runnable task;
+        try {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(record.content));
+            String codecName = input.readUTF();
+            TaskCodec codec = codecs.stream().filter(each -> Objects.equals(each.getName(), codecName)).findFirst()
+                    .orElseThrow(() -> new IOException("No task codec named " + codecName));
+            task = codec.decode(Arrays.copyOfRange(record.content, record.content.length - input.available(), record.content.length));
+        } catch (IOException | RuntimeException ex) {
+            spillFile.remove();
+            dropCount.increment();
+            log.error("Failed to decode spilled task, the task is dropped. threadPoolId: {}", storeId, ex);
+            return true;
+        }
+        if (!tryExecute(task)) {
+            return false;
+        }
+        spillFile.remove();
+        replayCount.increment();
+        return true;
+    }
+
+    //动态线程池可以在不经过拒绝策略的情况下提交任务，普通的线程池没有这样的方法，只能直接把任务放到工作队列中
+    private boolean tryExecute(Runnable task) {
+        if (executor instanceof ExtensibleThreadPoolExecutor) {
+            return ((ExtensibleThreadPoolExecutor) executor).tryExecute(task);
+        }
+        if (executor.isShutdown() || !executor.getQueue().offer(task)) {
+            return false;
+        }
+        if (executor.getPoolSize() == 0) {
+            executor.prestartCoreThread();
+        }
+        return true;
+    }
+}
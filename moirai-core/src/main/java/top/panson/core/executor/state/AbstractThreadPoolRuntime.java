@@ -1,15 +1,28 @@
 package top.panson.core.executor.state;
 
+import top.panson.common.executor.support.WeightBoundedBlockingQueue;
+import top.panson.common.executor.support.WorkStealingBlockingQueue;
 import top.panson.common.model.ThreadPoolRunStateInfo;
 import top.panson.common.toolkit.CalculateUtil;
 import top.panson.core.executor.DynamicThreadPoolExecutor;
 import top.panson.core.executor.DynamicThreadPoolWrapper;
+import top.panson.core.executor.ExtensibleThreadPoolExecutor;
+import top.panson.core.executor.KeyedSerialExecutor;
+import top.panson.core.executor.MicroBatchingThreadPoolExecutor;
+import top.panson.core.executor.forkjoin.DynamicForkJoinPool;
 import top.panson.core.executor.manage.GlobalThreadPoolManage;
+import top.panson.core.executor.scheduled.DynamicScheduledThreadPoolExecutor;
+import top.panson.core.executor.spill.TaskSpillStore;
+import top.panson.core.plugin.impl.TaskQueueWaitTimeRecordPlugin;
+import top.panson.core.plugin.impl.ThreadPoolRunStateRecordPlugin;
+import top.panson.core.plugin.impl.TaskTimeRecordPlugin;
+import top.panson.core.plugin.manager.ThreadPoolPluginSupport;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ThreadPoolExecutor;
 
 
@@ -33,6 +46,10 @@ public abstract class AbstractThreadPoolRuntime {
     public ThreadPoolRunStateInfo getPoolRunState(String threadPoolId) {
         //从全局线程池管理器中得到被包装的线程池对象
         DynamicThreadPoolWrapper executorService = GlobalThreadPoolManage.getExecutorService(threadPoolId);
+        //ForkJoinPool和其他动态线程池分开存放，找不到包装对象的话再找一下ForkJoinPool
+        if (executorService == null) {
+            return getPoolRunState(threadPoolId, GlobalThreadPoolManage.getForkJoinPool(threadPoolId));
+        }
         //得到真正运行的线程池本身
         ThreadPoolExecutor pool = executorService.getExecutor();
         //收集线程池运行信息
@@ -45,16 +62,22 @@ public abstract class AbstractThreadPoolRuntime {
      * @方法描述：收集线程池运行信息的方法
      */
     public ThreadPoolRunStateInfo getPoolRunState(String threadPoolId, Executor executor) {
+        if (executor instanceof DynamicForkJoinPool) {
+            return getForkJoinPoolRunState(threadPoolId, (DynamicForkJoinPool) executor);
+        }
         //得到真正执行任务的线程池
         ThreadPoolExecutor actualExecutor = (ThreadPoolExecutor) executor;
-        //得到活跃线程数量
-        int activeCount = actualExecutor.getActiveCount();
+        //得到活跃线程数量，注册了运行状态记录插件的话直接从插件中读取，不需要获取线程池的全局锁
+        int activeCount = ThreadPoolRunStateRecordPlugin.activeCountOf(actualExecutor);
         //得到曾经创建的最大线程数量
-        int largestPoolSize = actualExecutor.getLargestPoolSize();
+        int largestPoolSize = ThreadPoolRunStateRecordPlugin.largestPoolSizeOf(actualExecutor);
         //得到任务队列
         BlockingQueue<Runnable> blockingQueue = actualExecutor.getQueue();
         //得到被线程池拒绝过的任务数量
         long rejectCount = actualExecutor instanceof DynamicThreadPoolExecutor ? ((DynamicThreadPoolExecutor) actualExecutor).getRejectCountNum() : -1L;
+        //得到因为超过截止时间被丢弃的任务数量，以及因为预测的排队时间超过截止时间被直接拒绝的任务数量
+        long expiredTaskCount = actualExecutor instanceof ExtensibleThreadPoolExecutor ? ((ExtensibleThreadPoolExecutor) actualExecutor).getExpiredTaskCount() : -1L;
+        long predictedRejectCount = actualExecutor instanceof ExtensibleThreadPoolExecutor ? ((ExtensibleThreadPoolExecutor) actualExecutor).getPredictedRejectCount() : -1L;
         //创建ThreadPoolRunStateInfo对象，封装线程池运行信息
         ThreadPoolRunStateInfo stateInfo = ThreadPoolRunStateInfo.builder()
                  //设置线程池Id
@@ -64,7 +87,7 @@ public abstract class AbstractThreadPoolRuntime {
                 //得到当前线程池中的线程数量
                 .poolSize(actualExecutor.getPoolSize())
                 //设置线程池已经执行完毕的任务数量
-                .completedTaskCount(actualExecutor.getCompletedTaskCount())
+                .completedTaskCount(ThreadPoolRunStateRecordPlugin.completedTaskCountOf(actualExecutor))
                 //设置线程池曾创建的最大线程数量
                 .largestPoolSize(largestPoolSize)
                 //计算线程池负载
@@ -79,6 +102,9 @@ public abstract class AbstractThreadPoolRuntime {
                 .queueRemainingCapacity(blockingQueue.remainingCapacity())
                 //设置被拒绝过的任务数量
                 .rejectCount(rejectCount)
+                //设置过期丢弃的任务数量和预测拒绝的任务数量
+                .expiredTaskCount(expiredTaskCount)
+                .predictedRejectCount(predictedRejectCount)
                 //设置当前时间戳
                 .timestamp(System.currentTimeMillis())
                 .build();
@@ -90,7 +116,104 @@ public abstract class AbstractThreadPoolRuntime {
         stateInfo.setQueueType(blockingQueue.getClass().getSimpleName());
         //设置任务队列总大小
         stateInfo.setQueueCapacity(blockingQueue.size() + blockingQueue.remainingCapacity());
+        //如果任务队列是按照权重限制容量的，设置队列当前的权重和最大权重
+        if (blockingQueue instanceof WeightBoundedBlockingQueue) {
+            WeightBoundedBlockingQueue<Runnable> weightBoundedQueue = (WeightBoundedBlockingQueue<Runnable>) blockingQueue;
+            stateInfo.setQueueWeight(weightBoundedQueue.getWeight());
+            stateInfo.setQueueMaxWeight(weightBoundedQueue.getMaxWeight());
+        }
+        //如果任务队列是工作窃取队列，设置队列的分片数量和工作线程从其他分片窃取任务的次数
+        if (blockingQueue instanceof WorkStealingBlockingQueue) {
+            WorkStealingBlockingQueue<Runnable> workStealingQueue = (WorkStealingBlockingQueue<Runnable>) blockingQueue;
+            stateInfo.setQueueShardCount(workStealingQueue.getShardCount());
+            stateInfo.setQueueStealCount(workStealingQueue.getStealCount());
+        }
+        //如果线程池注册了任务耗时记录插件，就设置最近一段时间窗口内的任务耗时分布
+        if (actualExecutor instanceof ThreadPoolPluginSupport) {
+            ((ThreadPoolPluginSupport) actualExecutor).getPluginOfType(TaskTimeRecordPlugin.PLUGIN_NAME, TaskTimeRecordPlugin.class)
+                    .map(TaskTimeRecordPlugin::summarizeWindow)
+                    .ifPresent(summary -> {
+                        stateInfo.setExecuteTimeP50(summary.toMillis(summary.getP50TaskTime()));
+                        stateInfo.setExecuteTimeP90(summary.toMillis(summary.getP90TaskTime()));
+                        stateInfo.setExecuteTimeP99(summary.toMillis(summary.getP99TaskTime()));
+                        stateInfo.setExecuteTimeP999(summary.toMillis(summary.getP999TaskTime()));
+                    });
+        }
+        //设置最近一段时间窗口内任务在队列中的等待时间分布
+        if (actualExecutor instanceof ThreadPoolPluginSupport) {
+            ((ThreadPoolPluginSupport) actualExecutor).getPluginOfType(TaskQueueWaitTimeRecordPlugin.PLUGIN_NAME, TaskQueueWaitTimeRecordPlugin.class)
+                    .map(TaskQueueWaitTimeRecordPlugin::summarizeWindow)
+                    .ifPresent(summary -> {
+                        stateInfo.setQueueWaitTimeP50(TaskQueueWaitTimeRecordPlugin.Summary.toMillis(summary.getP50WaitTimeMicros()));
+                        stateInfo.setQueueWaitTimeP90(TaskQueueWaitTimeRecordPlugin.Summary.toMillis(summary.getP90WaitTimeMicros()));
+                        stateInfo.setQueueWaitTimeP99(TaskQueueWaitTimeRecordPlugin.Summary.toMillis(summary.getP99WaitTimeMicros()));
+                        stateInfo.setQueueWaitTimeP999(TaskQueueWaitTimeRecordPlugin.Summary.toMillis(summary.getP999WaitTimeMicros()));
+                    });
+        }
+        //如果线程池的任务溢出到了磁盘，设置溢出任务的积压数量、溢出速率和最早溢出的任务已经等待的时间
+        TaskSpillStore.find(actualExecutor).ifPresent(spillStore -> {
+            stateInfo.setSpillDepth(spillStore.getSpillDepth());
+            stateInfo.setSpillRate(spillStore.getSpillRate());
+            stateInfo.setSpillReplayLag(spillStore.getReplayLagMillis());
+        });
+        //如果线程池被用来按key串行执行任务，设置有待执行任务的key的数量和积压任务最多的key积压的任务数量
+        KeyedSerialExecutor.find(actualExecutor).ifPresent(keyedExecutor -> {
+            stateInfo.setActiveKeyCount(keyedExecutor.getActiveKeyCount());
+            stateInfo.setMaxKeyBacklog(keyedExecutor.getMaxKeyBacklog());
+        });
+        //如果是微批处理线程池，设置最近一段时间窗口内批次的平均填充率和平均等待时间
+        if (actualExecutor instanceof MicroBatchingThreadPoolExecutor) {
+            MicroBatchingThreadPoolExecutor<?> microBatchingExecutor = (MicroBatchingThreadPoolExecutor<?>) actualExecutor;
+            stateInfo.setMicroBatchFillRatio(microBatchingExecutor.getBatchFillRatio());
+            stateInfo.setMicroBatchLinger(microBatchingExecutor.getAverageLingerMillis());
+        }
+        //如果是定时线程池，设置还没有到期的定时任务数量、计时器的延迟和定时任务的到期速率
+        if (actualExecutor instanceof DynamicScheduledThreadPoolExecutor) {
+            DynamicScheduledThreadPoolExecutor scheduledExecutor = (DynamicScheduledThreadPoolExecutor) actualExecutor;
+            stateInfo.setPendingTimerCount(scheduledExecutor.getPendingTimerCount());
+            stateInfo.setTimerTickLag(scheduledExecutor.getTickLagMillis());
+            stateInfo.setTimerFireRate(scheduledExecutor.getTimerFireRate());
+        }
         //在这里掉用supplement方法，得到额外的线程池信息
         return supplement(stateInfo);
     }
+
+
+    /**
+     * @方法描述：收集ForkJoinPool运行信息的方法，ForkJoinPool没有核心线程数、最大线程数和任务队列容量的概念，
+     * 核心线程数和最大线程数都设置为并行度，队列中的任务数量是外部提交和工作线程fork出来的还没有开始执行的任务数量之和
+     */
+    protected ThreadPoolRunStateInfo getForkJoinPoolRunState(String threadPoolId, DynamicForkJoinPool forkJoinPool) {
+        int parallelism = forkJoinPool.getParallelism();
+        int activeCount = forkJoinPool.getActiveThreadCount();
+        int poolSize = forkJoinPool.getPoolSize();
+        int queuedSubmissionCount = forkJoinPool.getQueuedSubmissionCount();
+        long queuedTaskCount = forkJoinPool.getQueuedTaskCount();
+        ThreadPoolRunStateInfo stateInfo = ThreadPoolRunStateInfo.builder()
+                .tpId(threadPoolId)
+                .activeSize(activeCount)
+                .poolSize(poolSize)
+                //ForkJoinPool不统计执行完的任务数量，这里设置为0，服务端统计历史运行数据的时候不会遇到空值
+                .completedTaskCount(0L)
+                .largestPoolSize(poolSize)
+                .currentLoad(CalculateUtil.divide(activeCount, parallelism) + "")
+                .peakLoad(CalculateUtil.divide(poolSize, parallelism) + "")
+                .clientLastRefreshTime(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")))
+                .queueSize((int) Math.min(Integer.MAX_VALUE, queuedSubmissionCount + queuedTaskCount))
+                .queueRemainingCapacity(Integer.MAX_VALUE)
+                .rejectCount(-1L)
+                //设置并行度、没有阻塞在等待子任务上的线程数量、排队中的任务数量和任务窃取次数
+                .parallelism(parallelism)
+                .runningThreadCount(forkJoinPool.getRunningThreadCount())
+                .queuedSubmissionCount(queuedSubmissionCount)
+                .queuedTaskCount(queuedTaskCount)
+                .forkJoinStealCount(forkJoinPool.getStealCount())
+                .timestamp(System.currentTimeMillis())
+                .build();
+        stateInfo.setCoreSize(parallelism);
+        stateInfo.setMaximumSize(parallelism);
+        stateInfo.setQueueType(ForkJoinPool.class.getSimpleName());
+        stateInfo.setQueueCapacity(Integer.MAX_VALUE);
+        return supplement(stateInfo);
+    }
 }
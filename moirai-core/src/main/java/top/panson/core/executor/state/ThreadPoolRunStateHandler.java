@@ -7,6 +7,7 @@ import top.panson.common.toolkit.ByteConvertUtil;
 import top.panson.common.toolkit.MemoryUtil;
 import top.panson.common.toolkit.StringUtil;
 import top.panson.core.executor.DynamicThreadPoolWrapper;
+import top.panson.core.executor.forkjoin.DynamicForkJoinPool;
 import top.panson.core.executor.manage.GlobalThreadPoolManage;
 import top.panson.core.toolkit.inet.InetUtils;
 import lombok.AllArgsConstructor;
@@ -62,11 +63,13 @@ public class ThreadPoolRunStateHandler extends AbstractThreadPoolRuntime {
         String threadPoolId = poolRunStateInfo.getTpId();
         //从全局线程池管理器中得到线程池包装对象
         DynamicThreadPoolWrapper executorService = GlobalThreadPoolManage.getExecutorService(threadPoolId);
+        //ForkJoinPool没有包装对象，它在关闭之后直接抛出RejectedExecutionException，相当于AbortPolicy
+        DynamicForkJoinPool forkJoinPool = executorService == null ? GlobalThreadPoolManage.getForkJoinPool(threadPoolId) : null;
         //得到真正执行人物的线程池
-        ThreadPoolExecutor pool = executorService.getExecutor();
+        ThreadPoolExecutor pool = executorService == null ? null : executorService.getExecutor();
         //得到阻塞策略名称
         String rejectedName;
-        rejectedName = pool.getRejectedExecutionHandler().getClass().getSimpleName();
+        rejectedName = pool == null ? ThreadPoolExecutor.AbortPolicy.class.getSimpleName() : pool.getRejectedExecutionHandler().getClass().getSimpleName();
         //设置阻塞策略名称
         poolRunStateInfo.setRejectedName(rejectedName);
         //将ThreadPoolRunStateInfo对象转换为ManyThreadPoolRunStateInfo对象
@@ -77,7 +80,7 @@ public class ThreadPoolRunStateHandler extends AbstractThreadPoolRuntime {
         String active = environment.getProperty("spring.profiles.active", "UNKNOWN");
         manyThreadPoolRunStateInfo.setActive(active.toUpperCase());
         //得到并设置线程池状态描述信息
-        String threadPoolState = ThreadPoolStatusHandler.getThreadPoolState(pool);
+        String threadPoolState = pool == null ? ThreadPoolStatusHandler.getThreadPoolState(forkJoinPool) : ThreadPoolStatusHandler.getThreadPoolState(pool);
         manyThreadPoolRunStateInfo.setState(threadPoolState);
         return manyThreadPoolRunStateInfo;
     }
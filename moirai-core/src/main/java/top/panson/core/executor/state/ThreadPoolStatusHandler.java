@@ -4,6 +4,7 @@ import top.panson.common.toolkit.ReflectUtil;
 import lombok.extern.slf4j.Slf4j;
 
 import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -80,4 +81,18 @@ public class ThreadPoolStatusHandler {
         }
         return "UNKNOWN";
     }
+
+
+    /**
+     * @方法描述：获得不是ThreadPoolExecutor的线程池状态的方法，比如ForkJoinPool，直接通过ExecutorService的方法判断就可以了
+     */
+    public static String getThreadPoolState(ExecutorService executor) {
+        if (executor == null) {
+            return "UNKNOWN";
+        }
+        if (executor.isTerminated()) {
+            return TERMINATED;
+        }
+        return executor.isShutdown() ? SHUTTING_DOWN : RUNNING;
+    }
 }
@@ -1,7 +1,9 @@
 package top.panson.core.executor.support;
 
 import top.panson.common.design.builder.ThreadFactoryBuilder;
+import top.panson.core.executor.BatchingDynamicThreadPoolExecutor;
 import top.panson.core.executor.DynamicThreadPoolExecutor;
+import top.panson.core.plugin.impl.TaskAdmissionControlPlugin;
 import lombok.Data;
 import lombok.experimental.Accessors;
 import lombok.extern.slf4j.Slf4j;
@@ -95,23 +97,46 @@ public class AbstractBuildThreadPoolTemplate {
         Assert.notNull(initParam);
         DynamicThreadPoolExecutor dynamicThreadPoolExecutor;
         try {
-            dynamicThreadPoolExecutor = new DynamicThreadPoolExecutor(
-                    initParam.getCorePoolNum(),
-                    initParam.getMaxPoolNum(),
-                    initParam.getKeepAliveTime(),
-                    initParam.getTimeUnit(),
-                    initParam.getExecuteTimeOut(),
-                    initParam.getWaitForTasksToCompleteOnShutdown(),
-                    initParam.getAwaitTerminationMillis(),
-                    initParam.getWorkQueue(),
-                    initParam.getThreadPoolId(),
-                    initParam.getThreadFactory(),
-                    initParam.getRejectedExecutionHandler());
+            //工作线程每次从队列中获取多个任务的话，创建批量获取任务的动态线程池
+            if (initParam.getDequeueBatchSize() > 1) {
+                dynamicThreadPoolExecutor = new BatchingDynamicThreadPoolExecutor(
+                        initParam.getCorePoolNum(),
+                        initParam.getMaxPoolNum(),
+                        initParam.getKeepAliveTime(),
+                        initParam.getTimeUnit(),
+                        initParam.getExecuteTimeOut(),
+                        initParam.getWaitForTasksToCompleteOnShutdown(),
+                        initParam.getAwaitTerminationMillis(),
+                        initParam.getWorkQueue(),
+                        initParam.getThreadPoolId(),
+                        initParam.getThreadFactory(),
+                        initParam.getRejectedExecutionHandler(),
+                        initParam.getDequeueBatchSize());
+            } else {
+                dynamicThreadPoolExecutor = new DynamicThreadPoolExecutor(
+                        initParam.getCorePoolNum(),
+                        initParam.getMaxPoolNum(),
+                        initParam.getKeepAliveTime(),
+                        initParam.getTimeUnit(),
+                        initParam.getExecuteTimeOut(),
+                        initParam.getWaitForTasksToCompleteOnShutdown(),
+                        initParam.getAwaitTerminationMillis(),
+                        initParam.getWorkQueue(),
+                        initParam.getThreadPoolId(),
+                        initParam.getThreadFactory(),
+                        initParam.getRejectedExecutionHandler());
+            }
         } catch (IllegalArgumentException ex) {
             throw new IllegalArgumentException(String.format("Error creating thread pool parameter. threadPool id: %s", initParam.getThreadPoolId()), ex);
         }//在这里设置了任务装饰器
         dynamicThreadPoolExecutor.setTaskDecorator(initParam.getTaskDecorator());
         dynamicThreadPoolExecutor.allowCoreThreadTimeOut(initParam.allowCoreThreadTimeOut);
+        dynamicThreadPoolExecutor.setEagerGrowth(initParam.eagerGrowth);
+        //设置了准入限流参数的话，交给默认注册的准入控制插件
+        if (initParam.admissionRate != null) {
+            TaskAdmissionControlPlugin.find(dynamicThreadPoolExecutor)
+                    .ifPresent(plugin -> plugin.setLimit(initParam.admissionRate, initParam.admissionBurst));
+        }
         return dynamicThreadPoolExecutor;
     }
 
@@ -152,6 +177,14 @@ public class AbstractBuildThreadPoolTemplate {
 
         private Boolean allowCoreThreadTimeOut = false;
 
+        private Boolean eagerGrowth = false;
+
+        private Integer dequeueBatchSize = 1;
+
+        private Integer admissionRate;
+
+        private Integer admissionBurst;
+
         public ThreadPoolInitParam(String threadNamePrefix, boolean isDaemon) {
             this.threadFactory = ThreadFactoryBuilder.builder()
                     .prefix(threadNamePrefix)
@@ -93,6 +93,17 @@ public class ThreadPoolBuilder implements Builder<ThreadPoolExecutor> {
     //是否允许超过存活时间的核心线程终止工作
     private Boolean allowCoreThreadTimeOut = false;
 
+    //动态线程池是否开启快速扩容模式，开启之后会先把线程数量扩充到最大线程数，然后才让任务排队
+    private boolean eagerGrowth = false;
+
+    //动态线程池的工作线程每次从队列中获取的最大任务数量，大于1的时候会创建批量获取任务的动态线程池
+    private int dequeueBatchSize = 1;
+
+    //动态线程池每个调用方每秒最多可以提交的任务数量和一次最多可以提交的任务数量，为空表示不限流
+    private Integer admissionRate;
+
+    private Integer admissionBurst;
+
 
     //得到线程池核心线程数量的方法
     private Integer calculateCoreNum() {
@@ -390,6 +401,43 @@ public class ThreadPoolBuilder implements Builder<ThreadPoolExecutor> {
         return this;
     }
 
+    /**
+     * Eager growth of dynamic pool, threads grow to maximum pool size before tasks are queued.
+     *
+     * @param eagerGrowth eager growth
+     * @return thread-pool builder
+     */
+    public ThreadPoolBuilder eagerGrowth(boolean eagerGrowth) {
+        this.eagerGrowth = eagerGrowth;
+        return this;
+    }
+
+
+    /**
+     * Dequeue batch size of dynamic pool, a value greater than 1 builds a batching dynamic thread-pool.
+     *
+     * @param dequeueBatchSize max tasks taken from the work queue at a time
+     * @return thread-pool builder
+     */
+    public ThreadPoolBuilder dequeueBatchSize(int dequeueBatchSize) {
+        this.dequeueBatchSize = dequeueBatchSize;
+        return this;
+    }
+
+
+    /**
+     * Admission limit of dynamic pool, tasks tagged with the same caller are rejected when submitted faster than the limit.
+     *
+     * @param admissionRate  tasks each caller can submit per second
+     * @param admissionBurst tasks each caller can submit at once
+     * @return thread-pool builder
+     */
+    public ThreadPoolBuilder admissionLimit(int admissionRate, int admissionBurst) {
+        this.admissionRate = admissionRate;
+        this.admissionBurst = admissionBurst;
+        return this;
+    }
+
 
     //得到线程池构建器的方法
     public static ThreadPoolBuilder builder() {
@@ -465,9 +513,16 @@ public class ThreadPoolBuilder implements Builder<ThreadPoolExecutor> {
             initParam.setWaitForTasksToCompleteOnShutdown(builder.waitForTasksToCompleteOnShutdown);
             //设置线程池关闭时，等待剩余任务执行的最大时间
             initParam.setAwaitTerminationMillis(builder.awaitTerminationMillis);
+            //动态线程池不再单独创建快速线程池，而是开启快速扩容模式，这样也能使用插件和动态刷新
+            initParam.setEagerGrowth(builder.eagerGrowth || builder.isFastPool);
+            //设置工作线程每次从队列中获取的最大任务数量
+            initParam.setDequeueBatchSize(builder.dequeueBatchSize);
+            //设置每个调用方的准入限流参数
+            initParam.setAdmissionRate(builder.admissionRate);
+            initParam.setAdmissionBurst(builder.admissionBurst);
         }
-        //如果创建的不是快速线程池，那就意味着是普通线程池
-        if (!builder.isFastPool) {
+        //如果创建的不是快速线程池，那就意味着是普通线程池，动态线程池即使要求快速扩容也使用普通的工作队列
+        if (!builder.isFastPool || builder.isDynamicPool) {
             //判断任务队列是否为空
             if (builder.workQueue == null) {
                 //设置任务队列，使用的是LinkedBlockingQueue
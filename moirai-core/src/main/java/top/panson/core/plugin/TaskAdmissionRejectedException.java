@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package top.panson.core.plugin;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * @方法描述：TaskAwarePlugin插件在提交任务时拒绝任务抛出的异常，线程池捕获到这个异常之后不会把任务放到工作队列中，
+ * 而是直接执行拒绝策略插件和拒绝策略。这个异常只在线程池内部使用，不会抛给提交任务的线程，所以使用一个没有异常栈的共享实例，拒绝任务的开销很小
+ */
+public class TaskAdmissionRejectedException extends RejectedExecutionException {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final TaskAdmissionRejectedException INSTANCE = new TaskAdmissionRejectedException();
+
+    private TaskAdmissionRejectedException() {
+        super("Task rejected by admission control");
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
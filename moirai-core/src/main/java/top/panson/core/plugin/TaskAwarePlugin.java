@@ -56,6 +56,7 @@ public interface TaskAwarePlugin extends ThreadPoolPlugin {
      *
      * @param runnable runnable
      * @return tasks to be execute
+     * @throws TaskAdmissionRejectedException if the task should be rejected before it is queued
      * @see ExtensibleThreadPoolExecutor#execute
      */
     default Runnable beforeTaskExecute(Runnable runnable) {
@@ -15,61 +15,81 @@
  * limitations under the License.
  */
 
+
 package top.panson.core.plugin.impl;
 
 import top.panson.core.plugin.ExecuteAwarePlugin;
-import top.panson.core.toolkit.SystemClock;
+import lombok.Getter;
+import lombok.NonNull;
 
-import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 
 /**
  *
  * @方法描述：计算任务执行是否超时的插件
+ * 任务的开始时间使用System.nanoTime()获取，并且保存在工作线程自己的long数组中，数组在线程第一次执行任务时创建，之后记录时间的时候不会装箱，
+ * 开始时间和结束时间一定在同一个工作线程中读写，所以不会出现写入和读取的不是同一个位置的情况，
+ * 计算出来的任务耗时会按照子类选择的时间单位交给processTaskTime方法处理
  */
 public abstract class AbstractTaskTimerPlugin implements ExecuteAwarePlugin {
 
+    /**
+     * Time unit of task execute time passed to {@link #processTaskTime}
+     */
+    @Getter
+    private final TimeUnit timeUnit;
+
+    /**
+     * Value of start time holder without start time
+     */
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    //存放每个工作线程正在执行的任务的开始时间，每个线程只有一个长度为1的数组，避免每次记录时间都创建Long对象
+    private final ThreadLocal<long[]> startTimes = ThreadLocal.withInitial(() -> new long[]{EMPTY});
 
-    private final ThreadLocal<Long> startTimes = new ThreadLocal<>();
+    protected AbstractTaskTimerPlugin() {
+        this(TimeUnit.MILLISECONDS);
+    }
 
+    protected AbstractTaskTimerPlugin(@NonNull TimeUnit timeUnit) {
+        this.timeUnit = timeUnit;
+    }
 
-    //任务开始执行之前会执行这个方法，在这个方法中把任务开始执行时间放到线程本地map中
+    //任务开始执行之前会执行这个方法，在这个方法中把任务开始执行时间记录到当前工作线程中
     @Override
     public final void beforeExecute(Thread thread, Runnable runnable) {
-        startTimes.set(currentTime());
+        startTimes.get()[0] = currentTime();
     }
 
-
     //该方法会在任务执行之后被调用
     @Override
     public final void afterExecute(Runnable runnable, Throwable throwable) {
-        try {
-            //从线程本地map中得到任务的开始时间
-            Optional.ofNullable(startTimes.get())
-                    //计算出耗时时间
-                    .map(startTime -> currentTime() - startTime)
-                    //交给processTaskTime方法处理，这里就会来到具体的子类的中
-                    //也就是TaskTimeoutNotifyAlarmPlugin类中
-                    .ifPresent(this::processTaskTime);
-        } finally {
-            //清除线程本地map
-            startTimes.remove();
+        //从当前工作线程中得到任务的开始时间，同时清空开始时间
+        long[] holder = startTimes.get();
+        long startTime = holder[0];
+        holder[0] = EMPTY;
+        if (startTime == EMPTY) {
+            return;
         }
+        //计算出耗时时间，交给processTaskTime方法处理，这里就会来到具体的子类的中
+        long taskExecuteNanos = Math.max(0L, currentTime() - startTime);
+        processTaskTime(timeUnit.convert(taskExecuteNanos, TimeUnit.NANOSECONDS));
     }
 
     /**
-     * Get the current time.
+     * Get the current time in nanoseconds.
      *
      * @return current time
      */
     protected long currentTime() {
-        return SystemClock.now();
+        return System.nanoTime();
     }
 
     /**
      * Processing the execution time of the task.
      *
-     * @param taskExecuteTime execute time of task
+     * @param taskExecuteTime execute time of task, unit is {@link #getTimeUnit()}
      */
     protected abstract void processTaskTime(long taskExecuteTime);
 }
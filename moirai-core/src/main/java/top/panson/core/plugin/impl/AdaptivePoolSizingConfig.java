@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package top.panson.core.plugin.impl;
+
+import lombok.Data;
+
+
+/**
+ *
+ * @方法描述：自适应调整线程池大小的插件使用的配置信息，核心线程数、最大线程数和线程存活时间的上下限由运维人员指定，
+ * 插件只会在这个范围内调整线程池，其他参数都有默认值，用来控制调整的灵敏度和频率
+ */
+@Data
+public class AdaptivePoolSizingConfig {
+
+    /**
+     * Lower bound of core pool size
+     */
+    private Integer minCoreSize = 1;
+
+    /**
+     * Upper bound of core pool size
+     */
+    private Integer maxCoreSize;
+
+    /**
+     * Upper bound of maximum pool size, defaults to max core size
+     */
+    private Integer maxPoolSize;
+
+    /**
+     * Ratio of maximum pool size to core pool size
+     */
+    private Double maxPoolSizeRatio = 1.5D;
+
+    /**
+     * Lower bound of keep alive time in seconds, used after scaling down
+     */
+    private Long minKeepAliveTime;
+
+    /**
+     * Upper bound of keep alive time in seconds, used after scaling up
+     */
+    private Long maxKeepAliveTime;
+
+    /**
+     * Target utilization of threads
+     */
+    private Double targetUtilization = 0.75D;
+
+    /**
+     * Acceptable average queue wait time in milliseconds
+     */
+    private Long maxQueueWaitMillis = 100L;
+
+    /**
+     * Sampling period in milliseconds
+     */
+    private Long samplePeriodMillis = 10000L;
+
+    /**
+     * Weight of latest sample in exponential moving average
+     */
+    private Double smoothingFactor = 0.5D;
+
+    /**
+     * Relative dead band of core pool size, changes smaller than this are ignored
+     */
+    private Double hysteresis = 0.2D;
+
+    /**
+     * Maximum threads added or removed in one decision
+     */
+    private Integer maxStep = 4;
+
+    /**
+     * Consecutive samples required before scaling up
+     */
+    private Integer scaleUpRounds = 1;
+
+    /**
+     * Consecutive samples required before scaling down
+     */
+    private Integer scaleDownRounds = 3;
+
+    /**
+     * Minimum interval in milliseconds between last decision and scaling up
+     */
+    private Long scaleUpCooldownMillis = 10000L;
+
+    /**
+     * Minimum interval in milliseconds between last decision and scaling down
+     */
+    private Long scaleDownCooldownMillis = 60000L;
+}
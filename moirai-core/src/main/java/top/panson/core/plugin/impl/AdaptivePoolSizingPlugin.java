@@ -0,0 +1,342 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package top.panson.core.plugin.impl;
+
+import top.panson.common.design.builder.ThreadFactoryBuilder;
+import top.panson.common.toolkit.Assert;
+import top.panson.core.plugin.ExecuteAwarePlugin;
+import top.panson.core.plugin.PluginRuntime;
+import top.panson.core.plugin.TaskAwarePlugin;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+
+/**
+ *
+ * @方法描述：自适应调整线程池大小的插件，这个插件需要用户主动注册，默认不会启用
+ * 插件会统计任务的到达速率和平均执行时间，然后按照固定的周期采样，根据利特尔法则计算出线程池需要的线程数量，也就是到达速率乘以平均执行时间再除以目标利用率，
+ * 如果任务的排队时间超过了阈值，还会额外加上在一个采样周期内消化掉积压任务所需的线程数，最后在用户指定的上下限内调整核心线程数、最大线程数和线程存活时间。
+ * 为了防止线程池大小来回震荡，只有计算出的线程数和当前核心线程数的差距超过了一定比例才会调整，并且必须连续多个采样周期都需要调整，
+ * 两次调整之间还有冷却时间，每次调整的线程数量也有上限，扩容比缩容更积极。每次调整之后都会通知决策监听器，监听器会把调整的原因作为配置变更通知发送出去
+ */
+@Slf4j
+public class AdaptivePoolSizingPlugin implements TaskAwarePlugin, ExecuteAwarePlugin {
+
+    public static final String PLUGIN_NAME = "adaptive-pool-sizing-plugin";
+
+    /**
+     * Shared sampler of all adaptive thread-pools
+     */
+    private static final ScheduledThreadPoolExecutor SAMPLER = createSampler();
+
+    /**
+     * Thread-pool id
+     */
+    @Getter
+    private final String threadPoolId;
+
+    /**
+     * Thread-pool executor
+     */
+    private final ThreadPoolExecutor threadPoolExecutor;
+
+    /**
+     * Sizing config
+     */
+    @Getter
+    private final AdaptivePoolSizingConfig config;
+
+    /**
+     * Count of submitted tasks in current sampling period
+     */
+    private final LongAdder arrivalCount = new LongAdder();
+
+    /**
+     * Count of completed tasks in current sampling period
+     */
+    private final LongAdder completedCount = new LongAdder();
+
+    /**
+     * Total execution nano time of completed tasks in current sampling period
+     */
+    private final LongAdder busyNanos = new LongAdder();
+
+    /**
+     * Start time of task executing in current thread
+     */
+    private final ThreadLocal<Long> startNanos = new ThreadLocal<>();
+
+    /**
+     * Listener of sizing decisions
+     */
+    @Setter
+    private volatile Consumer<PoolSizingDecision> decisionListener;
+
+    /**
+     * Last sizing decision
+     */
+    @Getter
+    private volatile PoolSizingDecision lastDecision;
+
+    //下面这几个是平滑之后的采样结果，-1表示还没有采样到数据
+    private volatile double arrivalRate = -1D;
+
+    private volatile double serviceTimeMillis = -1D;
+
+    private volatile double utilization = -1D;
+
+    private volatile double queueWaitMillis;
+
+    private volatile double requiredThreads;
+
+    //下面这几个成员变量只会被采样线程访问
+    private ScheduledFuture<?> sampleFuture;
+
+    private long lastSampleNanos;
+
+    private long lastDecisionNanos;
+
+    private int upRounds;
+
+    private int downRounds;
+
+    public AdaptivePoolSizingPlugin(@NonNull String threadPoolId, @NonNull ThreadPoolExecutor threadPoolExecutor, @NonNull AdaptivePoolSizingConfig config) {
+        Assert.isTrue(config.getMaxCoreSize() != null, "The max core size of adaptive sizing cannot be null.");
+        Assert.isTrue(config.getMinCoreSize() > 0 && config.getMinCoreSize() <= config.getMaxCoreSize(),
+                "The min core size of adaptive sizing must be positive and not greater than max core size.");
+        Assert.isTrue(config.getMaxPoolSize() == null || config.getMaxPoolSize() >= config.getMaxCoreSize(),
+                "The max pool size of adaptive sizing cannot be less than max core size.");
+        Assert.isTrue(config.getTargetUtilization() > 0D && config.getTargetUtilization() <= 1D,
+                "The target utilization of adaptive sizing must be in (0, 1].");
+        Assert.isTrue(config.getSamplePeriodMillis() > 0L, "The sample period of adaptive sizing must be positive.");
+        this.threadPoolId = threadPoolId;
+        this.threadPoolExecutor = threadPoolExecutor;
+        this.config = config;
+    }
+
+    /**
+     * Get id.
+     *
+     * @return id
+     */
+    @Override
+    public String getId() {
+        return PLUGIN_NAME;
+    }
+
+    //插件注册之后开始周期性采样
+    @Override
+    public synchronized void start() {
+        if (sampleFuture != null) {
+            return;
+        }
+        lastSampleNanos = lastDecisionNanos = System.nanoTime();
+        long period = config.getSamplePeriodMillis();
+        sampleFuture = SAMPLER.scheduleAtFixedRate(this::sample, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (sampleFuture != null) {
+            sampleFuture.cancel(false);
+            sampleFuture = null;
+        }
+    }
+
+    //任务提交时统计到达的任务数量，被拒绝的任务也算在内，这样计算出来的才是真实的负载
+    @Override
+    public Runnable beforeTaskExecute(Runnable runnable) {
+        arrivalCount.increment();
+        return runnable;
+    }
+
+    @Override
+    public void beforeExecute(Thread thread, Runnable runnable) {
+        startNanos.set(System.nanoTime());
+    }
+
+    @Override
+    public void afterExecute(Runnable runnable, Throwable throwable) {
+        Long start = startNanos.get();
+        if (start == null) {
+            return;
+        }
+        startNanos.remove();
+        busyNanos.add(System.nanoTime() - start);
+        completedCount.increment();
+    }
+
+    /**
+     * Get plugin runtime info.
+     *
+     * @return plugin runtime info
+     */
+    @Override
+    public PluginRuntime getPluginRuntime() {
+        PoolSizingDecision decision = lastDecision;
+        return new PluginRuntime(getId())
+                .addInfo("arrivalRate", String.format("%.2f/s", arrivalRate))
+                .addInfo("serviceTime", String.format("%.2fms", serviceTimeMillis))
+                .addInfo("queueWaitTime", String.format("%.2fms", queueWaitMillis))
+                .addInfo("utilization", String.format("%.2f", utilization))
+                .addInfo("requiredThreads", String.format("%.2f", requiredThreads))
+                .addInfo("lastDecision", decision == null ? "-" : decision.getReason());
+    }
+
+    //采样线程调用的方法，异常不能抛出去，否则周期任务就不会再执行了
+    private void sample() {
+        try {
+            if (threadPoolExecutor.isShutdown()) {
+                stop();
+                return;
+            }
+            long now = System.nanoTime();
+            long elapsed = now - lastSampleNanos;
+            if (elapsed <= 0L) {
+                return;
+            }
+            lastSampleNanos = now;
+            long arrivals = arrivalCount.sumThenReset();
+            long completed = completedCount.sumThenReset();
+            long busy = busyNanos.sumThenReset();
+            double alpha = config.getSmoothingFactor();
+            arrivalRate = smooth(arrivalRate, arrivals * 1E9D / elapsed, alpha);
+            if (completed > 0L) {
+                serviceTimeMillis = smooth(serviceTimeMillis, busy / 1E6D / completed, alpha);
+            }
+            int poolSize = Math.max(1, threadPoolExecutor.getPoolSize());
+            utilization = smooth(utilization, Math.min(1D, (double) busy / elapsed / poolSize), alpha);
+            //还没有任务执行完，不知道任务的执行时间，就先不做调整
+            if (serviceTimeMillis < 0D) {
+                return;
+            }
+            int queueSize = threadPoolExecutor.getQueue().size();
+            //利特尔法则，排队的任务数量等于到达速率乘以排队时间，没有任务到达的时候就按照当前线程数消化积压任务的时间估算
+            queueWaitMillis = arrivalRate > 0D
+                    ? queueSize * 1000D / arrivalRate
+                    : queueSize * serviceTimeMillis / poolSize;
+            decide(now, queueSize);
+        } catch (Throwable ex) {
+            log.warn("Failed to adjust thread pool size adaptively. threadPoolId: {}", threadPoolId, ex);
+        }
+    }
+
+    //根据采样结果决定是否调整线程池的大小
+    private void decide(long now, int queueSize) {
+        int corePoolSize = threadPoolExecutor.getCorePoolSize();
+        int maximumPoolSize = threadPoolExecutor.getMaximumPoolSize();
+        long keepAliveTime = threadPoolExecutor.getKeepAliveTime(TimeUnit.SECONDS);
+        double required = arrivalRate * serviceTimeMillis / 1000D / config.getTargetUtilization();
+        boolean queueOverloaded = queueWaitMillis > config.getMaxQueueWaitMillis();
+        if (queueOverloaded) {
+            required += queueSize * serviceTimeMillis / config.getSamplePeriodMillis();
+        }
+        requiredThreads = required;
+        int desired = clamp((int) Math.ceil(required), config.getMinCoreSize(), config.getMaxCoreSize());
+        //计算出的线程数和当前核心线程数的差距在死区之内就不做调整，排队超时的时候只要需要更多的线程就扩容，排队超时的时候不缩容
+        int deadBand = Math.max(1, (int) Math.ceil(corePoolSize * config.getHysteresis()));
+        if (desired > corePoolSize && (desired - corePoolSize >= deadBand || queueOverloaded)) {
+            upRounds++;
+            downRounds = 0;
+        } else if (desired < corePoolSize && corePoolSize - desired >= deadBand && !queueOverloaded) {
+            downRounds++;
+            upRounds = 0;
+        } else {
+            upRounds = downRounds = 0;
+            return;
+        }
+        long sinceLastDecision = TimeUnit.NANOSECONDS.toMillis(now - lastDecisionNanos);
+        boolean scaleUp;
+        int nowCorePoolSize;
+        if (upRounds >= config.getScaleUpRounds() && sinceLastDecision >= config.getScaleUpCooldownMillis()) {
+            scaleUp = true;
+            nowCorePoolSize = Math.min(desired, corePoolSize + config.getMaxStep());
+        } else if (downRounds >= config.getScaleDownRounds() && sinceLastDecision >= config.getScaleDownCooldownMillis()) {
+            scaleUp = false;
+            nowCorePoolSize = Math.max(desired, corePoolSize - config.getMaxStep());
+        } else {
+            return;
+        }
+        int maxPoolSizeLimit = Math.max(nowCorePoolSize, config.getMaxPoolSize() != null ? config.getMaxPoolSize() : config.getMaxCoreSize());
+        int nowMaximumPoolSize = clamp((int) Math.ceil(nowCorePoolSize * config.getMaxPoolSizeRatio()), nowCorePoolSize, maxPoolSizeLimit);
+        //扩容之后让线程存活得久一些，避免负载波动时反复创建线程，缩容之后让多余的线程尽快退出
+        Long targetKeepAliveTime = scaleUp ? config.getMaxKeepAliveTime() : config.getMinKeepAliveTime();
+        long nowKeepAliveTime = targetKeepAliveTime != null && targetKeepAliveTime > 0L ? targetKeepAliveTime : keepAliveTime;
+        upRounds = downRounds = 0;
+        lastDecisionNanos = now;
+        if (nowCorePoolSize == corePoolSize && nowMaximumPoolSize == maximumPoolSize && nowKeepAliveTime == keepAliveTime) {
+            return;
+        }
+        //和服务端动态刷新线程池时一样，先调整会变小的参数，防止最大线程数小于核心线程数
+        if (nowMaximumPoolSize < maximumPoolSize) {
+            threadPoolExecutor.setCorePoolSize(nowCorePoolSize);
+            threadPoolExecutor.setMaximumPoolSize(nowMaximumPoolSize);
+        } else {
+            threadPoolExecutor.setMaximumPoolSize(nowMaximumPoolSize);
+            threadPoolExecutor.setCorePoolSize(nowCorePoolSize);
+        }
+        if (nowKeepAliveTime != keepAliveTime) {
+            threadPoolExecutor.setKeepAliveTime(nowKeepAliveTime, TimeUnit.SECONDS);
+        }
+        String reason = String.format("Adaptive sizing %s: arrivalRate=%.2f/s, serviceTime=%.2fms, queueWaitTime=%.2fms, utilization=%.2f, requiredThreads=%.2f",
+                scaleUp ? "scale up" : "scale down", arrivalRate, serviceTimeMillis, queueWaitMillis, utilization, required);
+        PoolSizingDecision decision = PoolSizingDecision.builder()
+                .threadPoolId(threadPoolId)
+                .beforeCorePoolSize(corePoolSize)
+                .nowCorePoolSize(nowCorePoolSize)
+                .beforeMaximumPoolSize(maximumPoolSize)
+                .nowMaximumPoolSize(nowMaximumPoolSize)
+                .beforeKeepAliveTime(keepAliveTime)
+                .nowKeepAliveTime(nowKeepAliveTime)
+                .reason(reason)
+                .build();
+        lastDecision = decision;
+        log.info("[{}] {}, corePoolSize: {} => {}, maximumPoolSize: {} => {}, keepAliveTime: {} => {}",
+                threadPoolId, reason, corePoolSize, nowCorePoolSize, maximumPoolSize, nowMaximumPoolSize, keepAliveTime, nowKeepAliveTime);
+        Consumer<PoolSizingDecision> listener = decisionListener;
+        if (listener != null) {
+            listener.accept(decision);
+        }
+    }
+
+    private static double smooth(double previous, double sample, double alpha) {
+        return previous < 0D ? sample : alpha * sample + (1D - alpha) * previous;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static ScheduledThreadPoolExecutor createSampler() {
+        ScheduledThreadPoolExecutor sampler = new ScheduledThreadPoolExecutor(1, ThreadFactoryBuilder.builder()
+                .prefix("moirai-adaptive-sizing")
+                .daemon(true)
+                .build());
+        sampler.setRemoveOnCancelPolicy(true);
+        return sampler;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package top.panson.core.plugin.impl;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+
+/**
+ *
+ * @方法描述：自适应调整线程池大小的插件做出的一次调整决策，包含调整前后的参数以及调整的原因
+ */
+@Getter
+@Builder
+@ToString
+public class PoolSizingDecision {
+
+    private final String threadPoolId;
+
+    private final int beforeCorePoolSize;
+
+    private final int nowCorePoolSize;
+
+    private final int beforeMaximumPoolSize;
+
+    private final int nowMaximumPoolSize;
+
+    private final long beforeKeepAliveTime;
+
+    private final long nowKeepAliveTime;
+
+    private final String reason;
+}
@@ -0,0 +1,242 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package top.panson.core.plugin.impl;
+
+import top.panson.common.executor.support.TaskCallerTag;
+import top.panson.core.plugin.PluginRuntime;
+import top.panson.core.plugin.TaskAdmissionRejectedException;
+import top.panson.core.plugin.TaskAwarePlugin;
+import top.panson.core.plugin.manager.ThreadPoolPluginSupport;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ *
+ * @方法描述：按照调用方限流的准入控制插件，提交任务时按照任务携带的调用方标签给每个调用方分配一个令牌桶，
+ * 调用方提交任务的速率超过了限制，任务就会在进入工作队列之前被拒绝，交给线程池的拒绝策略插件和拒绝策略处理，
+ * 这样一个调用方的突发流量就不会占满共享线程池的队列，影响其他调用方。令牌桶使用的是GCRA算法，每个令牌桶只有一个原子变量，
+ * 记录的是下一个令牌理论上可以获取的时间，获取令牌只需要一次CAS操作，不需要加锁，也不需要后台线程补充令牌。
+ * 这个插件默认注册到每个动态线程池中，但是没有设置速率之前不会限流，没有实现TaskCallerTag接口或者标签为null的任务也不会限流。
+ * 注意这个插件要先于其他TaskAwarePlugin插件注册，否则任务可能已经被其他插件包装过了，拿不到调用方标签
+ */
+public class TaskAdmissionControlPlugin implements TaskAwarePlugin {
+
+    public static final String PLUGIN_NAME = "task-admission-control-plugin";
+
+    //调用方数量超过这个值之后，创建新的令牌桶时会清理已经装满的令牌桶，装满的令牌桶和新创建的令牌桶没有区别
+    private static final int SWEEP_THRESHOLD = 1024;
+
+    /**
+     * Token bucket of each caller
+     */
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Current limit, null if admission control is disabled
+     */
+    private volatile Limit limit;
+
+    /**
+     * Count of admitted tagged tasks
+     */
+    private final LongAdder admittedCount = new LongAdder();
+
+    /**
+     * Count of rejected tasks
+     */
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * Get id.
+     *
+     * @return id
+     */
+    @Override
+    public String getId() {
+        return PLUGIN_NAME;
+    }
+
+    /**
+     * Get plugin runtime info.
+     *
+     * @return plugin runtime info
+     */
+    @Override
+    public PluginRuntime getPluginRuntime() {
+        return new PluginRuntime(getId())
+                .addInfo("permitsPerSecond", getPermitsPerSecond())
+                .addInfo("burst", getBurst())
+                .addInfo("callerCount", buckets.size())
+                .addInfo("admittedCount", getAdmittedCount())
+                .addInfo("rejectedCount", getRejectedCount());
+    }
+
+    /**
+     * Set the rate limit of each caller, the new limit takes effect on the next submitted task.
+     *
+     * @param permitsPerSecond tasks each caller can submit per second, null or non-positive to disable admission control
+     * @param burst            tasks each caller can submit at once, null or non-positive to use permits per second
+     */
+    public void setLimit(Integer permitsPerSecond, Integer burst) {
+        if (permitsPerSecond == null || permitsPerSecond <= 0) {
+            limit = null;
+            buckets.clear();
+            return;
+        }
+        limit = new Limit(permitsPerSecond, burst == null || burst <= 0 ? permitsPerSecond : burst);
+    }
+
+    /**
+     * Get tasks each caller can submit per second.
+     *
+     * @return permits per second, null if admission control is disabled
+     */
+    public Integer getPermitsPerSecond() {
+        Limit current = limit;
+        return current == null ? null : current.permitsPerSecond;
+    }
+
+    /**
+     * Get tasks each caller can submit at once.
+     *
+     * @return burst, null if admission control is disabled
+     */
+    public Integer getBurst() {
+        Limit current = limit;
+        return current == null ? null : current.burst;
+    }
+
+    public long getAdmittedCount() {
+        return admittedCount.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * Acquire a token from the bucket of the caller.
+     *
+     * @param runnable runnable
+     * @return runnable
+     * @throws TaskAdmissionRejectedException if the caller submits tasks too fast
+     */
+    @Override
+    public Runnable beforeTaskExecute(Runnable runnable) {
+        Limit current = limit;
+        if (current == null || !(runnable instanceof TaskCallerTag)) {
+            return runnable;
+        }
+        String callerTag = ((TaskCallerTag) runnable).getCallerTag();
+        if (callerTag == null) {
+            return runnable;
+        }
+        long now = System.nanoTime();
+        if (bucketOf(callerTag, now).tryAcquire(current, now)) {
+            admittedCount.increment();
+            return runnable;
+        }
+        rejectedCount.increment();
+        throw TaskAdmissionRejectedException.INSTANCE;
+    }
+
+    //得到调用方的令牌桶，绝大多数情况下令牌桶已经存在了，这里只是一次无锁的读取
+    private TokenBucket bucketOf(String callerTag, long now) {
+        TokenBucket bucket = buckets.get(callerTag);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= SWEEP_THRESHOLD) {
+            buckets.entrySet().removeIf(entry -> entry.getValue().isFull(now));
+        }
+        return buckets.computeIfAbsent(callerTag, key -> new TokenBucket(now));
+    }
+
+    /**
+     * Find the plugin registered in the thread-pool.
+     *
+     * @param executor thread-pool
+     * @return plugin, empty if the thread-pool does not support plugins or the plugin is not registered
+     */
+    public static Optional<TaskAdmissionControlPlugin> find(Executor executor) {
+        if (!(executor instanceof ThreadPoolPluginSupport)) {
+            return Optional.empty();
+        }
+        return ((ThreadPoolPluginSupport) executor).getPluginOfType(PLUGIN_NAME, TaskAdmissionControlPlugin.class);
+    }
+
+    /**
+     * @方法描述：限流的参数，速率和突发数量一起替换，保证获取令牌时看到的是同一组参数
+     */
+    private static final class Limit {
+
+        private final int permitsPerSecond;
+
+        private final int burst;
+
+        //两个令牌之间的时间间隔
+        private final long intervalNanos;
+
+        //下一个令牌的时间最多可以比当前时间提前多久，也就是令牌桶装满时可以连续获取的令牌数量减一再乘以时间间隔
+        private final long toleranceNanos;
+
+        Limit(int permitsPerSecond, int burst) {
+            this.permitsPerSecond = permitsPerSecond;
+            this.burst = burst;
+            this.intervalNanos = Math.max(1L, TimeUnit.SECONDS.toNanos(1L) / permitsPerSecond);
+            this.toleranceNanos = intervalNanos * (burst - 1L);
+        }
+    }
+
+    /**
+     * @方法描述：GCRA算法实现的令牌桶
+     */
+    private static final class TokenBucket {
+
+        //下一个令牌理论上可以获取的时间，小于等于当前时间说明令牌桶已经装满了
+        private final AtomicLong nextTokenNanos;
+
+        TokenBucket(long now) {
+            this.nextTokenNanos = new AtomicLong(now);
+        }
+
+        boolean tryAcquire(Limit limit, long now) {
+            for (;;) {
+                long next = nextTokenNanos.get();
+                long base = next - now > 0 ? next : now;
+                if (base - now > limit.toleranceNanos) {
+                    return false;
+                }
+                if (nextTokenNanos.compareAndSet(next, base + limit.intervalNanos)) {
+                    return true;
+                }
+            }
+        }
+
+        boolean isFull(long now) {
+            return nextTokenNanos.get() - now <= 0;
+        }
+    }
+}
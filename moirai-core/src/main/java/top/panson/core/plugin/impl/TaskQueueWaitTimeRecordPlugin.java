@@ -0,0 +1,341 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package top.panson.core.plugin.impl;
+
+import top.panson.common.executor.support.DelegatingTask;
+import top.panson.common.executor.support.QueueWaitTimeAware;
+import top.panson.common.executor.support.QueueWaitTimeListener;
+import top.panson.core.plugin.ExecuteAwarePlugin;
+import top.panson.core.plugin.PluginRuntime;
+import top.panson.core.plugin.TaskAwarePlugin;
+import top.panson.core.toolkit.LogLinearHistogram;
+import top.panson.core.toolkit.SlidingWindowHistogram;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ *
+ * @方法描述：记录任务在队列中的排队时间，也就是任务从提交到被工作线程取走之间等待的时间，这个时间和任务的执行时间是分开统计的
+ * 如果线程池使用的是moirai自己实现的队列，那么队列本身会在任务入队时记录时间戳，任务出队时直接把等待时间通知给这个插件，不需要额外创建对象；
+ * 如果使用的是其他队列，就在任务提交时把任务包装成带有时间戳的任务，在工作线程执行任务之前计算等待时间，
+ * 注意在这种情况下，这个插件应该是最后一个包装任务的TaskAwarePlugin。包装之后的任务实现了{@link DelegatingTask}，
+ * 原始任务是Future的话，包装之后的任务也是Future，取消、判断是否取消都交给原始任务，所以线程池的purge方法、
+ * 关闭线程池时取消剩余任务、按照原始任务从队列中移除任务都不受影响
+ */
+public class TaskQueueWaitTimeRecordPlugin implements TaskAwarePlugin, ExecuteAwarePlugin, QueueWaitTimeListener {
+
+    public static final String PLUGIN_NAME = "task-queue-wait-time-record-plugin";
+
+    /**
+     * Slot count of time window
+     */
+    private static final int WINDOW_SLOT_COUNT = 6;
+
+    /**
+     * Thread-pool executor
+     */
+    private final ThreadPoolExecutor threadPoolExecutor;
+
+    /**
+     * Count of tasks taken from queue
+     */
+    private final LongAdder taskCount = new LongAdder();
+
+    /**
+     * Total wait micro time of all tasks
+     */
+    private final LongAdder totalWaitTimeMicros = new LongAdder();
+
+    /**
+     * Maximum wait micro time
+     */
+    private final LongAccumulator maxWaitTimeMicros = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    /**
+     * Distribution of wait micro time since plugin created
+     */
+    private final LogLinearHistogram histogram = new LogLinearHistogram();
+
+    /**
+     * Distribution of wait micro time in recent time window
+     */
+    private final SlidingWindowHistogram windowHistogram;
+
+    //线程池的队列是否能够自己记录排队时间
+    private volatile boolean queueStamping;
+
+    public TaskQueueWaitTimeRecordPlugin(@NonNull ThreadPoolExecutor threadPoolExecutor) {
+        this(threadPoolExecutor, TaskTimeRecordPlugin.DEFAULT_WINDOW_SECONDS);
+    }
+
+    public TaskQueueWaitTimeRecordPlugin(@NonNull ThreadPoolExecutor threadPoolExecutor, int windowSeconds) {
+        this.threadPoolExecutor = threadPoolExecutor;
+        this.windowHistogram = new SlidingWindowHistogram(windowSeconds, WINDOW_SLOT_COUNT);
+    }
+
+    /**
+     * Get id.
+     *
+     * @return id
+     */
+    @Override
+    public String getId() {
+        return PLUGIN_NAME;
+    }
+
+    //插件注册的时候判断线程池的队列能不能自己记录排队时间，如果可以就把当前插件设置为队列的监听器
+    @Override
+    public void start() {
+        BlockingQueue<Runnable> queue = threadPoolExecutor.getQueue();
+        if (queue instanceof QueueWaitTimeAware) {
+            ((QueueWaitTimeAware) queue).setQueueWaitTimeListener(this);
+            queueStamping = true;
+        }
+    }
+
+    @Override
+    public void stop() {
+        BlockingQueue<Runnable> queue = threadPoolExecutor.getQueue();
+        if (queue instanceof QueueWaitTimeAware && ((QueueWaitTimeAware) queue).getQueueWaitTimeListener() == this) {
+            ((QueueWaitTimeAware) queue).setQueueWaitTimeListener(null);
+        }
+        queueStamping = false;
+    }
+
+    //队列不能自己记录排队时间的时候，才需要把任务包装成带有时间戳的任务，
+    //可以比较大小的任务不做包装，否则优先级队列就没办法比较任务的优先级了
+    @Override
+    public Runnable beforeTaskExecute(Runnable runnable) {
+        if (queueStamping || runnable instanceof Comparable) {
+            return runnable;
+        }
+        long submitNanos = System.nanoTime();
+        return runnable instanceof RunnableFuture
+                ? new TimestampedFutureTask<>((RunnableFuture<?>) runnable, submitNanos)
+                : new TimestampedRunnable(runnable, submitNanos);
+    }
+
+    @Override
+    public void beforeExecute(Thread thread, Runnable runnable) {
+        if (runnable instanceof TimestampedRunnable) {
+            onDequeue(System.nanoTime() - ((TimestampedRunnable) runnable).getSubmitNanos());
+        }
+    }
+
+    //记录任务的排队时间，这个方法由队列或者beforeExecute方法调用
+    @Override
+    public void onDequeue(long waitNanos) {
+        long waitMicros = TimeUnit.NANOSECONDS.toMicros(Math.max(0L, waitNanos));
+        taskCount.increment();
+        totalWaitTimeMicros.add(waitMicros);
+        maxWaitTimeMicros.accumulate(waitMicros);
+        histogram.record(waitMicros);
+        windowHistogram.record(waitMicros);
+    }
+
+    /**
+     * Get plugin runtime info.
+     *
+     * @return plugin runtime info
+     */
+    @Override
+    public PluginRuntime getPluginRuntime() {
+        Summary summary = summarize();
+        Summary windowSummary = summarizeWindow();
+        String window = "last" + windowHistogram.getWindowSeconds() + "s";
+        return new PluginRuntime(getId())
+                .addInfo("queueStamping", queueStamping)
+                .addInfo("taskCount", summary.getTaskCount())
+                .addInfo("maxWaitTime", summary.getMaxWaitTimeMicros() + "us")
+                .addInfo("avgWaitTime", summary.getAvgWaitTimeMicros() + "us")
+                .addInfo("p50WaitTime", summary.getP50WaitTimeMicros() + "us")
+                .addInfo("p90WaitTime", summary.getP90WaitTimeMicros() + "us")
+                .addInfo("p99WaitTime", summary.getP99WaitTimeMicros() + "us")
+                .addInfo("p999WaitTime", summary.getP999WaitTimeMicros() + "us")
+                .addInfo(window + "TaskCount", windowSummary.getTaskCount())
+                .addInfo(window + "P50WaitTime", windowSummary.getP50WaitTimeMicros() + "us")
+                .addInfo(window + "P90WaitTime", windowSummary.getP90WaitTimeMicros() + "us")
+                .addInfo(window + "P99WaitTime", windowSummary.getP99WaitTimeMicros() + "us")
+                .addInfo(window + "P999WaitTime", windowSummary.getP999WaitTimeMicros() + "us");
+    }
+
+    /**
+     * Get the summary statistics of all tasks taken from queue.
+     *
+     * @return data snapshot
+     */
+    public Summary summarize() {
+        long count = taskCount.sum();
+        LogLinearHistogram.Snapshot snapshot = histogram.snapshot();
+        return new Summary(
+                count,
+                totalWaitTimeMicros.sum(),
+                count > 0L ? maxWaitTimeMicros.get() : -1L,
+                snapshot.getValueAtPercentile(0.5D),
+                snapshot.getValueAtPercentile(0.9D),
+                snapshot.getValueAtPercentile(0.99D),
+                snapshot.getValueAtPercentile(0.999D));
+    }
+
+    /**
+     * Get the summary statistics of tasks taken from queue in recent time window,
+     * total and maximum time are estimated from histogram.
+     *
+     * @return data snapshot
+     */
+    public Summary summarizeWindow() {
+        LogLinearHistogram.Snapshot snapshot = windowHistogram.snapshot();
+        return new Summary(
+                snapshot.getCount(),
+                snapshot.getTotal(),
+                snapshot.getMax(),
+                snapshot.getValueAtPercentile(0.5D),
+                snapshot.getValueAtPercentile(0.9D),
+                snapshot.getValueAtPercentile(0.99D),
+                snapshot.getValueAtPercentile(0.999D));
+    }
+
+    /**
+     * Task with submit time.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    private static class TimestampedRunnable implements Runnable, DelegatingTask {
+
+        private final Runnable delegate;
+
+        private final long submitNanos;
+
+        @Override
+        public void run() {
+            delegate.run();
+        }
+    }
+
+    /**
+     * Future task with submit time, cancellation and result are delegated to the original future.
+     */
+    private static class TimestampedFutureTask<V> extends TimestampedRunnable implements RunnableFuture<V> {
+
+        private final RunnableFuture<V> future;
+
+        TimestampedFutureTask(RunnableFuture<V> future, long submitNanos) {
+            super(future, submitNanos);
+            this.future = future;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return future.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return future.isCancelled();
+        }
+
+        @Override
+        public boolean isDone() {
+            return future.isDone();
+        }
+
+        @Override
+        public V get() throws InterruptedException, ExecutionException {
+            return future.get();
+        }
+
+        @Override
+        public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            return future.get(timeout, unit);
+        }
+    }
+
+    /**
+     * Summary statistics of queue wait time at a certain time.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class Summary {
+
+        /**
+         * Count of tasks taken from queue
+         */
+        private final long taskCount;
+
+        /**
+         * Total wait micro time of all tasks
+         */
+        private final long totalWaitTimeMicros;
+
+        /**
+         * Maximum wait micro time
+         */
+        private final long maxWaitTimeMicros;
+
+        /**
+         * Median of wait micro time
+         */
+        private final long p50WaitTimeMicros;
+
+        /**
+         * 90th percentile of wait micro time
+         */
+        private final long p90WaitTimeMicros;
+
+        /**
+         * 99th percentile of wait micro time
+         */
+        private final long p99WaitTimeMicros;
+
+        /**
+         * 99.9th percentile of wait micro time
+         */
+        private final long p999WaitTimeMicros;
+
+        /**
+         * Get the avg wait time in microseconds
+         *
+         * @return avg wait time
+         */
+        public long getAvgWaitTimeMicros() {
+            return taskCount > 0L ? totalWaitTimeMicros / taskCount : -1L;
+        }
+
+        /**
+         * Convert micro time to milliseconds, -1 if no value
+         *
+         * @param micros micro time
+         * @return milliseconds
+         */
+        public static double toMillis(long micros) {
+            return micros < 0L ? -1D : micros / 1000D;
+        }
+    }
+}
@@ -15,50 +15,83 @@
  * limitations under the License.
  */
 
+
 package top.panson.core.plugin.impl;
 
 import top.panson.core.plugin.PluginRuntime;
+import top.panson.core.toolkit.LogLinearHistogram;
+import top.panson.core.toolkit.SlidingWindowHistogram;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 
 /**
  *
  * @方法描述：记录当前线程执行的任务的总的耗时
+ * 任务数量和总耗时使用分段累加的LongAdder记录，最大最小耗时使用LongAccumulator记录，耗时分布使用对数线性直方图记录，
+ * 工作线程记录耗时的时候不会加锁，汇总数据的时候也不会阻塞工作线程，除了累计的耗时分布之外，还会记录最近一段时间窗口内的耗时分布
+ * 耗时默认以微秒为单位记录，这样执行时间不足1毫秒的任务也能得到准确的统计，也可以通过构造方法指定其他的时间单位
  */
-@RequiredArgsConstructor
 public class TaskTimeRecordPlugin extends AbstractTaskTimerPlugin {
 
     public static final String PLUGIN_NAME = "task-time-record-plugin";
 
     /**
-     * Lock instance
+     * Default length of time window in seconds
+     */
+    public static final int DEFAULT_WINDOW_SECONDS = 60;
+
+    /**
+     * Slot count of time window
      */
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private static final int WINDOW_SLOT_COUNT = 6;
 
     /**
-     * Total execution milli time of all tasks
+     * Total execution time of all tasks
      */
-    private long totalTaskTimeMillis = 0L;
+    private final LongAdder totalTaskTime = new LongAdder();
 
     /**
-     * Maximum task milli execution time, default -1
+     * Maximum task execution time
      */
-    private long maxTaskTimeMillis = -1L;
+    private final LongAccumulator maxTaskTime = new LongAccumulator(Math::max, Long.MIN_VALUE);
 
     /**
-     * Minimal task milli execution time, default -1
+     * Minimal task execution time
      */
-    private long minTaskTimeMillis = -1L;
+    private final LongAccumulator minTaskTime = new LongAccumulator(Math::min, Long.MAX_VALUE);
 
     /**
      * Count of completed task
      */
-    private long taskCount = 0L;
+    private final LongAdder taskCount = new LongAdder();
+
+    /**
+     * Distribution of task execution time since plugin created
+     */
+    private final LogLinearHistogram histogram = new LogLinearHistogram();
+
+    /**
+     * Distribution of task execution time in recent time window
+     */
+    private final SlidingWindowHistogram windowHistogram;
+
+    public TaskTimeRecordPlugin() {
+        this(TimeUnit.MICROSECONDS, DEFAULT_WINDOW_SECONDS);
+    }
+
+    public TaskTimeRecordPlugin(TimeUnit timeUnit) {
+        this(timeUnit, DEFAULT_WINDOW_SECONDS);
+    }
+
+    public TaskTimeRecordPlugin(TimeUnit timeUnit, int windowSeconds) {
+        super(timeUnit);
+        this.windowHistogram = new SlidingWindowHistogram(windowSeconds, WINDOW_SLOT_COUNT);
+    }
 
     /**
      * Get id.
@@ -78,33 +111,35 @@ public class TaskTimeRecordPlugin extends AbstractTaskTimerPlugin {
     @Override
     public PluginRuntime getPluginRuntime() {
         Summary summary = summarize();
+        Summary windowSummary = summarizeWindow();
+        String window = "last" + windowHistogram.getWindowSeconds() + "s";
+        String unit = unitSymbol(getTimeUnit());
         return new PluginRuntime(getId())
                 .addInfo("taskCount", summary.getTaskCount())
-                .addInfo("minTaskTime", summary.getMinTaskTimeMillis() + "ms")
-                .addInfo("maxTaskTime", summary.getMaxTaskTimeMillis() + "ms")
-                .addInfo("totalTaskTime", summary.getTotalTaskTimeMillis() + "ms")
-                .addInfo("avgTaskTime", summary.getAvgTaskTimeMillis() + "ms");
+                .addInfo("minTaskTime", summary.getMinTaskTime() + unit)
+                .addInfo("maxTaskTime", summary.getMaxTaskTime() + unit)
+                .addInfo("totalTaskTime", summary.getTotalTaskTime() + unit)
+                .addInfo("avgTaskTime", summary.getAvgTaskTime() + unit)
+                .addInfo("p50TaskTime", summary.getP50TaskTime() + unit)
+                .addInfo("p90TaskTime", summary.getP90TaskTime() + unit)
+                .addInfo("p99TaskTime", summary.getP99TaskTime() + unit)
+                .addInfo("p999TaskTime", summary.getP999TaskTime() + unit)
+                .addInfo(window + "TaskCount", windowSummary.getTaskCount())
+                .addInfo(window + "P50TaskTime", windowSummary.getP50TaskTime() + unit)
+                .addInfo(window + "P90TaskTime", windowSummary.getP90TaskTime() + unit)
+                .addInfo(window + "P99TaskTime", windowSummary.getP99TaskTime() + unit)
+                .addInfo(window + "P999TaskTime", windowSummary.getP999TaskTime() + unit);
     }
 
-
-    //在这个方法中得到了执行过的任务的总的耗时
+    //在这个方法中记录了任务的耗时，整个过程都是无锁的
     @Override
     protected void processTaskTime(long taskExecuteTime) {
-        Lock writeLock = lock.writeLock();
-        writeLock.lock();
-        try {
-            if (taskCount == 0) {
-                maxTaskTimeMillis = taskExecuteTime;
-                minTaskTimeMillis = taskExecuteTime;
-            } else {
-                maxTaskTimeMillis = Math.max(taskExecuteTime, maxTaskTimeMillis);
-                minTaskTimeMillis = Math.min(taskExecuteTime, minTaskTimeMillis);
-            }
-            taskCount = taskCount + 1;
-            totalTaskTimeMillis += taskExecuteTime;
-        } finally {
-            writeLock.unlock();
-        }
+        taskCount.increment();
+        totalTaskTime.add(taskExecuteTime);
+        maxTaskTime.accumulate(taskExecuteTime);
+        minTaskTime.accumulate(taskExecuteTime);
+        histogram.record(taskExecuteTime);
+        windowHistogram.record(taskExecuteTime);
     }
 
     /**
@@ -113,19 +148,66 @@ public class TaskTimeRecordPlugin extends AbstractTaskTimerPlugin {
      * @return data snapshot
      */
     public Summary summarize() {
-        Lock readLock = lock.readLock();
-        Summary statistics;
-        readLock.lock();
-        try {
-            statistics = new Summary(
-                    this.totalTaskTimeMillis,
-                    this.maxTaskTimeMillis,
-                    this.minTaskTimeMillis,
-                    this.taskCount);
-        } finally {
-            readLock.unlock();
+        long count = taskCount.sum();
+        LogLinearHistogram.Snapshot snapshot = histogram.snapshot();
+        return new Summary(
+                getTimeUnit(),
+                totalTaskTime.sum(),
+                count > 0L ? maxTaskTime.get() : -1L,
+                count > 0L ? minTaskTime.get() : -1L,
+                count,
+                snapshot.getValueAtPercentile(0.5D),
+                snapshot.getValueAtPercentile(0.9D),
+                snapshot.getValueAtPercentile(0.99D),
+                snapshot.getValueAtPercentile(0.999D));
+    }
+
+    /**
+     * Get the summary statistics of tasks completed in recent time window,
+     * total, maximum and minimal time are estimated from histogram.
+     *
+     * @return data snapshot
+     */
+    public Summary summarizeWindow() {
+        LogLinearHistogram.Snapshot snapshot = windowHistogram.snapshot();
+        return new Summary(
+                getTimeUnit(),
+                snapshot.getTotal(),
+                snapshot.getMax(),
+                snapshot.getMin(),
+                snapshot.getCount(),
+                snapshot.getValueAtPercentile(0.5D),
+                snapshot.getValueAtPercentile(0.9D),
+                snapshot.getValueAtPercentile(0.99D),
+                snapshot.getValueAtPercentile(0.999D));
+    }
+
+    /**
+     * Get length of time window in seconds.
+     *
+     * @return window seconds
+     */
+    public long getWindowSeconds() {
+        return windowHistogram.getWindowSeconds();
+    }
+
+    private static String unitSymbol(TimeUnit timeUnit) {
+        switch (timeUnit) {
+            case NANOSECONDS:
+                return "ns";
+            case MICROSECONDS:
+                return "us";
+            case MILLISECONDS:
+                return "ms";
+            case SECONDS:
+                return "s";
+            case MINUTES:
+                return "min";
+            case HOURS:
+                return "h";
+            default:
+                return "d";
         }
-        return statistics;
     }
 
     /**
@@ -136,19 +218,24 @@ public class TaskTimeRecordPlugin extends AbstractTaskTimerPlugin {
     public static class Summary {
 
         /**
-         * Total execution nano time of all tasks
+         * Time unit of all time values
          */
-        private final long totalTaskTimeMillis;
+        private final TimeUnit timeUnit;
 
         /**
-         * Maximum task nano execution time
+         * Total execution time of all tasks
          */
-        private final long maxTaskTimeMillis;
+        private final long totalTaskTime;
 
         /**
-         * Minimal task nano execution time
+         * Maximum task execution time
          */
-        private final long minTaskTimeMillis;
+        private final long maxTaskTime;
+
+        /**
+         * Minimal task execution time
+         */
+        private final long minTaskTime;
 
         /**
          * Count of completed task
@@ -156,13 +243,43 @@ public class TaskTimeRecordPlugin extends AbstractTaskTimerPlugin {
         private final long taskCount;
 
         /**
-         * Get the avg task time in milliseconds
+         * Median of task execution time
+         */
+        private final long p50TaskTime;
+
+        /**
+         * 90th percentile of task execution time
+         */
+        private final long p90TaskTime;
+
+        /**
+         * 99th percentile of task execution time
+         */
+        private final long p99TaskTime;
+
+        /**
+         * 99.9th percentile of task execution time
+         */
+        private final long p999TaskTime;
+
+        /**
+         * Get the avg task time
          *
          * @return avg task time
          */
-        public long getAvgTaskTimeMillis() {
+        public long getAvgTaskTime() {
             long totalTaskCount = getTaskCount();
-            return totalTaskCount > 0L ? getTotalTaskTimeMillis() / totalTaskCount : -1;
+            return totalTaskCount > 0L ? getTotalTaskTime() / totalTaskCount : -1;
+        }
+
+        /**
+         * Convert time value of this summary to milliseconds, -1 if no value
+         *
+         * @param time time value in {@link #getTimeUnit()}
+         * @return milliseconds
+         */
+        public double toMillis(long time) {
+            return time < 0L ? -1D : time * (timeUnit.toNanos(1L) / 1_000_000D);
         }
     }
 }
@@ -19,20 +19,19 @@ package top.panson.core.plugin.impl;
 
 import top.panson.common.api.ThreadPoolCheckAlarm;
 import top.panson.common.config.ApplicationContextHolder;
-import lombok.AllArgsConstructor;
 import lombok.Getter;
-import lombok.Setter;
 
 import java.util.Optional;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 
 
 /**
  *
  * @方法描述：这个插件就是用来判断线程中的任务执行是否超时了，如果超时了就调用processTaskTime方法执行告警操作
+ * 任务耗时以纳秒为单位和超时时间比较，超时时间仍然以毫秒为单位配置
  */
-@AllArgsConstructor
 public class TaskTimeoutNotifyAlarmPlugin extends AbstractTaskTimerPlugin {
 
     public static final String PLUGIN_NAME = "task-timeout-notify-alarm-plugin";
@@ -46,14 +45,33 @@ public class TaskTimeoutNotifyAlarmPlugin extends AbstractTaskTimerPlugin {
      * Execute time-out
      */
     @Getter
-    @Setter
-    private Long executeTimeOut;
+    private volatile Long executeTimeOut;
+
+    //转换成纳秒的超时时间，避免每个任务执行完毕都要做一次拆箱和单位换算
+    private volatile long executeTimeOutNanos;
 
     /**
      * Thread-pool executor
      */
     private final ThreadPoolExecutor threadPoolExecutor;
 
+    public TaskTimeoutNotifyAlarmPlugin(String threadPoolId, Long executeTimeOut, ThreadPoolExecutor threadPoolExecutor) {
+        super(TimeUnit.NANOSECONDS);
+        this.threadPoolId = threadPoolId;
+        this.threadPoolExecutor = threadPoolExecutor;
+        setExecuteTimeOut(executeTimeOut);
+    }
+
+    /**
+     * Set execute time-out in milliseconds.
+     *
+     * @param executeTimeOut execute time-out
+     */
+    public void setExecuteTimeOut(Long executeTimeOut) {
+        this.executeTimeOut = executeTimeOut;
+        this.executeTimeOutNanos = executeTimeOut == null ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(executeTimeOut);
+    }
+
     /**
      * Get id.
      *
@@ -69,12 +87,14 @@ public class TaskTimeoutNotifyAlarmPlugin extends AbstractTaskTimerPlugin {
      */
     @Override
     protected void processTaskTime(long taskExecuteTime) {
-        if (taskExecuteTime <= executeTimeOut) {
+        if (taskExecuteTime <= executeTimeOutNanos) {
             return;
         }
+        //告警信息中的耗时还是以毫秒为单位
+        long taskExecuteTimeMillis = TimeUnit.NANOSECONDS.toMillis(taskExecuteTime);
         Optional.ofNullable(ApplicationContextHolder.getInstance())
                 .map(context -> context.getBean(ThreadPoolCheckAlarm.class))
                 .ifPresent(handler -> handler.asyncSendExecuteTimeOutAlarm(
-                        threadPoolId, taskExecuteTime, executeTimeOut, threadPoolExecutor));
+                        threadPoolId, taskExecuteTimeMillis, executeTimeOut, threadPoolExecutor));
     }
 }
@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package top.panson.core.plugin.impl;
+
+import top.panson.core.plugin.ExecuteAwarePlugin;
+import top.panson.core.plugin.PluginRuntime;
+import top.panson.core.plugin.manager.ThreadPoolPluginSupport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ *
+ * @方法描述：记录线程池运行状态的插件，jdk线程池的getActiveCount、getCompletedTaskCount和getLargestPoolSize方法都要获取线程池的全局锁，
+ * 有的还要遍历所有的工作线程，采集运行状态和检查告警的时候会和提交任务的线程竞争这把锁。这个插件给每个工作线程分配一个计数器，
+ * 计数器只会被它所属的工作线程修改，读取运行状态的时候遍历这些计数器就可以了，不需要获取任何锁。
+ * 注意插件只能统计注册之后执行的任务，工作线程执行过任务之后才会被插件记录下来
+ */
+public class ThreadPoolRunStateRecordPlugin implements ExecuteAwarePlugin {
+
+    public static final String PLUGIN_NAME = "thread-pool-run-state-record-plugin";
+
+    /**
+     * Counter of each worker thread
+     */
+    private final Map<Thread, WorkerCounter> workerCounters = new ConcurrentHashMap<>();
+
+    /**
+     * Completed task count of exited worker threads
+     */
+    private final AtomicLong exitedCompletedTaskCount = new AtomicLong();
+
+    /**
+     * Largest number of worker threads
+     */
+    private final AtomicInteger largestPoolSize = new AtomicInteger();
+
+    /**
+     * Get id.
+     *
+     * @return id
+     */
+    @Override
+    public String getId() {
+        return PLUGIN_NAME;
+    }
+
+    /**
+     * Get plugin runtime info.
+     *
+     * @return plugin runtime info
+     */
+    @Override
+    public PluginRuntime getPluginRuntime() {
+        return new PluginRuntime(getId())
+                .addInfo("activeCount", getActiveCount())
+                .addInfo("completedTaskCount", getCompletedTaskCount())
+                .addInfo("largestPoolSize", getLargestPoolSize())
+                .addInfo("workerCount", getWorkerThreads().size());
+    }
+
+    /**
+     * Mark the worker thread as active.
+     *
+     * @param thread   thread of executing task
+     * @param runnable task
+     */
+    @Override
+    public void beforeExecute(Thread thread, Runnable runnable) {
+        //绝大多数情况下工作线程的计数器已经存在了，这里只是一次无锁的读取
+        WorkerCounter counter = workerCounters.get(thread);
+        if (counter == null) {
+            counter = registerWorker(thread);
+        }
+        counter.active = true;
+    }
+
+    /**
+     * Mark the worker thread as idle and count the completed task.
+     *
+     * @param runnable  runnable
+     * @param throwable exception thrown during execution
+     */
+    @Override
+    public void afterExecute(Runnable runnable, Throwable throwable) {
+        WorkerCounter counter = workerCounters.get(Thread.currentThread());
+        //插件注册之前就开始执行的任务没有计数器，这些任务不统计
+        if (counter == null || !counter.active) {
+            return;
+        }
+        counter.active = false;
+        //计数器只会被它所属的工作线程修改，所以这里不需要原子操作
+        counter.completedTaskCount++;
+    }
+
+    /**
+     * Get the number of worker threads executing tasks.
+     *
+     * @return active count
+     */
+    public int getActiveCount() {
+        int activeCount = 0;
+        for (WorkerCounter counter : workerCounters.values()) {
+            if (counter.active) {
+                activeCount++;
+            }
+        }
+        return activeCount;
+    }
+
+    /**
+     * Get the number of completed tasks.
+     *
+     * @return completed task count
+     */
+    public long getCompletedTaskCount() {
+        removeExitedWorkers();
+        long completedTaskCount = exitedCompletedTaskCount.get();
+        for (WorkerCounter counter : workerCounters.values()) {
+            completedTaskCount += counter.completedTaskCount;
+        }
+        return completedTaskCount;
+    }
+
+    /**
+     * Get the largest number of alive worker threads that have executed tasks.
+     *
+     * @return largest pool size
+     */
+    public int getLargestPoolSize() {
+        return largestPoolSize.get();
+    }
+
+    /**
+     * Get alive worker threads that have executed tasks.
+     *
+     * @return worker threads
+     */
+    public List<Thread> getWorkerThreads() {
+        removeExitedWorkers();
+        return new ArrayList<>(workerCounters.keySet());
+    }
+
+    //工作线程第一次执行任务的时候给它创建计数器，同时更新线程数量的最大值
+    private WorkerCounter registerWorker(Thread thread) {
+        WorkerCounter counter = new WorkerCounter();
+        workerCounters.put(thread, counter);
+        removeExitedWorkers();
+        int poolSize = workerCounters.size();
+        int largest;
+        while (poolSize > (largest = largestPoolSize.get())) {
+            if (largestPoolSize.compareAndSet(largest, poolSize)) {
+                break;
+            }
+        }
+        return counter;
+    }
+
+    //移除已经退出的工作线程的计数器，把它们执行完的任务数量累加起来，多个线程同时移除时只有一个线程能移除成功
+    private void removeExitedWorkers() {
+        for (Map.Entry<Thread, WorkerCounter> entry : workerCounters.entrySet()) {
+            if (!entry.getKey().isAlive() && workerCounters.remove(entry.getKey(), entry.getValue())) {
+                exitedCompletedTaskCount.addAndGet(entry.getValue().completedTaskCount);
+            }
+        }
+    }
+
+    /**
+     * Find the plugin registered in the thread-pool.
+     *
+     * @param executor thread-pool
+     * @return plugin, empty if the thread-pool does not support plugins or the plugin is not registered
+     */
+    public static Optional<ThreadPoolRunStateRecordPlugin> find(Executor executor) {
+        if (!(executor instanceof ThreadPoolPluginSupport)) {
+            return Optional.empty();
+        }
+        return ((ThreadPoolPluginSupport) executor).getPluginOfType(PLUGIN_NAME, ThreadPoolRunStateRecordPlugin.class);
+    }
+
+    /**
+     * Get active count from the plugin if registered, otherwise from the thread-pool.
+     *
+     * @param executor thread-pool
+     * @return active count
+     */
+    public static int activeCountOf(ThreadPoolExecutor executor) {
+        return find(executor).map(ThreadPoolRunStateRecordPlugin::getActiveCount).orElseGet(executor::getActiveCount);
+    }
+
+    /**
+     * Get completed task count from the plugin if registered, otherwise from the thread-pool.
+     *
+     * @param executor thread-pool
+     * @return completed task count
+     */
+    public static long completedTaskCountOf(ThreadPoolExecutor executor) {
+        return find(executor).map(ThreadPoolRunStateRecordPlugin::getCompletedTaskCount).orElseGet(executor::getCompletedTaskCount);
+    }
+
+    /**
+     * Get largest pool size from the plugin if registered, otherwise from the thread-pool.
+     *
+     * @param executor thread-pool
+     * @return largest pool size
+     */
+    public static int largestPoolSizeOf(ThreadPoolExecutor executor) {
+        return find(executor).map(ThreadPoolRunStateRecordPlugin::getLargestPoolSize).orElseGet(executor::getLargestPoolSize);
+    }
+
+    /**
+     * @方法描述：工作线程的计数器，只会被它所属的工作线程修改，其他线程只读取
+     */
+    private static class WorkerCounter {
+
+        //工作线程是否正在执行任务
+        private volatile boolean active;
+
+        //工作线程执行完的任务数量
+        private volatile long completedTaskCount;
+    }
+}
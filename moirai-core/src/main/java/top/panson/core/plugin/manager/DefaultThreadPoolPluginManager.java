@@ -22,11 +22,9 @@ import lombok.NonNull;
 import top.panson.core.plugin.*;
 
 import java.util.Collection;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -51,24 +49,10 @@ public class DefaultThreadPoolPluginManager implements ThreadPoolPluginManager {
     private final Map<String, ThreadPoolPlugin> registeredPlugins = new ConcurrentHashMap<>(16);
 
     /**
-     * Registered {@link TaskAwarePlugin}
+     * Snapshot of registered plugins grouped by aware type, rebuilt on every modification
      */
-    private final List<TaskAwarePlugin> taskAwarePluginList = new CopyOnWriteArrayList<>();
-
-    /**
-     * Registered {@link ExecuteAwarePlugin}
-     */
-    private final List<ExecuteAwarePlugin> executeAwarePluginList = new CopyOnWriteArrayList<>();
-
-    /**
-     * Registered {@link RejectedAwarePlugin}
-     */
-    private final List<RejectedAwarePlugin> rejectedAwarePluginList = new CopyOnWriteArrayList<>();
-
-    /**
-     * Registered {@link ShutdownAwarePlugin}
-     */
-    private final List<ShutdownAwarePlugin> shutdownAwarePluginList = new CopyOnWriteArrayList<>();
+    //线程池执行任务时只会读取这个快照，不需要再获取读锁
+    private volatile ThreadPoolPluginSnapshot pluginSnapshot = ThreadPoolPluginSnapshot.EMPTY;
 
     /**
      * Clear all.
@@ -80,10 +64,7 @@ public class DefaultThreadPoolPluginManager implements ThreadPoolPluginManager {
         try {
             Collection<ThreadPoolPlugin> plugins = registeredPlugins.values();
             registeredPlugins.clear();
-            taskAwarePluginList.clear();
-            executeAwarePluginList.clear();
-            rejectedAwarePluginList.clear();
-            shutdownAwarePluginList.clear();
+            pluginSnapshot = ThreadPoolPluginSnapshot.EMPTY;
             plugins.forEach(ThreadPoolPlugin::stop);
         } finally {
             writeLock.unlock();
@@ -105,18 +86,7 @@ public class DefaultThreadPoolPluginManager implements ThreadPoolPluginManager {
             String id = plugin.getId();
             Assert.isTrue(!isRegistered(id), "The plugin with id [" + id + "] has been registered");
             registeredPlugins.put(id, plugin);
-            if (plugin instanceof TaskAwarePlugin) {
-                taskAwarePluginList.add((TaskAwarePlugin) plugin);
-            }
-            if (plugin instanceof ExecuteAwarePlugin) {
-                executeAwarePluginList.add((ExecuteAwarePlugin) plugin);
-            }
-            if (plugin instanceof RejectedAwarePlugin) {
-                rejectedAwarePluginList.add((RejectedAwarePlugin) plugin);
-            }
-            if (plugin instanceof ShutdownAwarePlugin) {
-                shutdownAwarePluginList.add((ShutdownAwarePlugin) plugin);
-            }
+            pluginSnapshot = pluginSnapshot.with(plugin);
             plugin.start();
         } finally {
             writeLock.unlock();
@@ -157,18 +127,7 @@ public class DefaultThreadPoolPluginManager implements ThreadPoolPluginManager {
             Optional.ofNullable(pluginId)
                     .map(registeredPlugins::remove)
                     .ifPresent(plugin -> {
-                        if (plugin instanceof TaskAwarePlugin) {
-                            taskAwarePluginList.remove(plugin);
-                        }
-                        if (plugin instanceof ExecuteAwarePlugin) {
-                            executeAwarePluginList.remove(plugin);
-                        }
-                        if (plugin instanceof RejectedAwarePlugin) {
-                            rejectedAwarePluginList.remove(plugin);
-                        }
-                        if (plugin instanceof ShutdownAwarePlugin) {
-                            shutdownAwarePluginList.remove(plugin);
-                        }
+                        pluginSnapshot = pluginSnapshot.without(plugin);
                         plugin.stop();
                     });
         } finally {
@@ -237,13 +196,7 @@ public class DefaultThreadPoolPluginManager implements ThreadPoolPluginManager {
      */
     @Override
     public Collection<ExecuteAwarePlugin> getExecuteAwarePluginList() {
-        Lock readLock = instanceLock.readLock();
-        readLock.lock();
-        try {
-            return executeAwarePluginList;
-        } finally {
-            readLock.unlock();
-        }
+        return pluginSnapshot.getExecuteAwarePluginList();
     }
 
     /**
@@ -255,13 +208,7 @@ public class DefaultThreadPoolPluginManager implements ThreadPoolPluginManager {
      */
     @Override
     public Collection<RejectedAwarePlugin> getRejectedAwarePluginList() {
-        Lock readLock = instanceLock.readLock();
-        readLock.lock();
-        try {
-            return rejectedAwarePluginList;
-        } finally {
-            readLock.unlock();
-        }
+        return pluginSnapshot.getRejectedAwarePluginList();
     }
 
     /**
@@ -273,13 +220,7 @@ public class DefaultThreadPoolPluginManager implements ThreadPoolPluginManager {
      */
     @Override
     public Collection<ShutdownAwarePlugin> getShutdownAwarePluginList() {
-        Lock readLock = instanceLock.readLock();
-        readLock.lock();
-        try {
-            return shutdownAwarePluginList;
-        } finally {
-            readLock.unlock();
-        }
+        return pluginSnapshot.getShutdownAwarePluginList();
     }
 
     /**
@@ -291,12 +232,16 @@ public class DefaultThreadPoolPluginManager implements ThreadPoolPluginManager {
      */
     @Override
     public Collection<TaskAwarePlugin> getTaskAwarePluginList() {
-        Lock readLock = instanceLock.readLock();
-        readLock.lock();
-        try {
-            return taskAwarePluginList;
-        } finally {
-            readLock.unlock();
-        }
+        return pluginSnapshot.getTaskAwarePluginList();
+    }
+
+    /**
+     * Get snapshot of registered plugins.
+     *
+     * @return {@link ThreadPoolPluginSnapshot}
+     */
+    @Override
+    public ThreadPoolPluginSnapshot getPluginSnapshot() {
+        return pluginSnapshot;
     }
 }
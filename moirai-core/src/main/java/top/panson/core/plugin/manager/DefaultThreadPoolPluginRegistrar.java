@@ -31,10 +31,14 @@ public class DefaultThreadPoolPluginRegistrar implements ThreadPoolPluginRegistr
      */
     @Override
     public void doRegister(ThreadPoolPluginSupport support) {
+        //准入控制插件要最先注册，这样它拿到的是还没有被其他插件包装过的任务
+        support.register(new TaskAdmissionControlPlugin());
         support.register(new TaskDecoratorPlugin());
         support.register(new TaskTimeoutNotifyAlarmPlugin(support.getThreadPoolId(), executeTimeOut, support.getThreadPoolExecutor()));
+        support.register(new TaskQueueWaitTimeRecordPlugin(support.getThreadPoolExecutor()));
         support.register(new TaskRejectCountRecordPlugin());
         support.register(new TaskRejectNotifyAlarmPlugin());
         support.register(new ThreadPoolExecutorShutdownPlugin(awaitTerminationMillis));
+        support.register(new ThreadPoolRunStateRecordPlugin());
     }
 }
\ No newline at end of file
@@ -148,4 +148,14 @@ public class EmptyThreadPoolPluginManager implements ThreadPoolPluginManager {
     public Collection<TaskAwarePlugin> getTaskAwarePluginList() {
         return Collections.emptyList();
     }
+
+    /**
+     * Get snapshot of registered plugins.
+     *
+     * @return {@link ThreadPoolPluginSnapshot#EMPTY}
+     */
+    @Override
+    public ThreadPoolPluginSnapshot getPluginSnapshot() {
+        return ThreadPoolPluginSnapshot.EMPTY;
+    }
 }
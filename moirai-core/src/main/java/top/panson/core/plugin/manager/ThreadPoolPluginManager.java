@@ -124,6 +124,17 @@ public interface ThreadPoolPluginManager {
 
     // ==================== default methods ====================
 
+    /**
+     * Get snapshot of registered plugins, used by executor to dispatch callbacks on the task path.
+     *
+     * @return {@link ThreadPoolPluginSnapshot}
+     */
+    default ThreadPoolPluginSnapshot getPluginSnapshot() {
+        return ThreadPoolPluginSnapshot.of(
+                getTaskAwarePluginList(), getExecuteAwarePluginList(),
+                getRejectedAwarePluginList(), getShutdownAwarePluginList());
+    }
+
     /**
      * Get plugin of type.
      *
@@ -0,0 +1,428 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package top.panson.core.plugin.manager;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import top.panson.core.executor.ExtensibleThreadPoolExecutor;
+import top.panson.core.plugin.ExecuteAwarePlugin;
+import top.panson.core.plugin.RejectedAwarePlugin;
+import top.panson.core.plugin.ShutdownAwarePlugin;
+import top.panson.core.plugin.TaskAwarePlugin;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * @方法描述：插件流水线编译器，插件管理器每次创建插件快照的时候，都会使用这个编译器为每一类回调生成一个专门的分发器，
+ * 分发器根据插件数量分为几种形态：没有插件时是空实现，线程池可以直接跳过这一类回调；只有一个插件时直接持有这个插件，
+ * 调用点是单态的，JIT可以直接内联插件的方法；两个插件时把插件保存在两个final字段中，展开成两次直接调用；插件更多时才使用数组遍历
+ * 这里没有使用MethodHandle或者运行时生成字节码，按照插件数量固定下来的几个final类已经能让JIT完成去虚化，也不需要引入额外的依赖
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class ThreadPoolPluginPipelineCompiler {
+
+    /**
+     * Compile {@link TaskAwarePlugin} dispatcher.
+     *
+     * @param plugins plugins in registration order
+     * @return dispatcher
+     */
+    public static TaskAwareDispatcher compileTaskAware(TaskAwarePlugin[] plugins) {
+        switch (plugins.length) {
+            case 0:
+                return NoneTaskAwareDispatcher.INSTANCE;
+            case 1:
+                return new SingleTaskAwareDispatcher(plugins[0]);
+            case 2:
+                return new PairTaskAwareDispatcher(plugins[0], plugins[1]);
+            default:
+                return new GenericTaskAwareDispatcher(plugins);
+        }
+    }
+
+    /**
+     * Compile {@link ExecuteAwarePlugin} dispatcher.
+     *
+     * @param plugins plugins in registration order
+     * @return dispatcher
+     */
+    public static ExecuteAwareDispatcher compileExecuteAware(ExecuteAwarePlugin[] plugins) {
+        switch (plugins.length) {
+            case 0:
+                return NoneExecuteAwareDispatcher.INSTANCE;
+            case 1:
+                return new SingleExecuteAwareDispatcher(plugins[0]);
+            case 2:
+                return new PairExecuteAwareDispatcher(plugins[0], plugins[1]);
+            default:
+                return new GenericExecuteAwareDispatcher(plugins);
+        }
+    }
+
+    /**
+     * Compile {@link RejectedAwarePlugin} dispatcher.
+     *
+     * @param plugins plugins in registration order
+     * @return dispatcher
+     */
+    public static RejectedAwareDispatcher compileRejectedAware(RejectedAwarePlugin[] plugins) {
+        switch (plugins.length) {
+            case 0:
+                return NoneRejectedAwareDispatcher.INSTANCE;
+            case 1:
+                return new SingleRejectedAwareDispatcher(plugins[0]);
+            default:
+                return new GenericRejectedAwareDispatcher(plugins);
+        }
+    }
+
+    /**
+     * Compile {@link ShutdownAwarePlugin} dispatcher.
+     *
+     * @param plugins plugins in registration order
+     * @return dispatcher
+     */
+    //关闭线程池的回调只会执行一次，所以这里只区分有没有插件
+    public static ShutdownAwareDispatcher compileShutdownAware(ShutdownAwarePlugin[] plugins) {
+        return plugins.length == 0 ? NoneShutdownAwareDispatcher.INSTANCE : new GenericShutdownAwareDispatcher(plugins);
+    }
+
+    // ==================== dispatchers ====================
+
+    /**
+     * Dispatcher of {@link TaskAwarePlugin}.
+     */
+    public interface TaskAwareDispatcher {
+
+        <V> Runnable beforeTaskCreate(ThreadPoolExecutor executor, Runnable runnable, V value);
+
+        <V> Callable<V> beforeTaskCreate(ThreadPoolExecutor executor, Callable<V> future);
+
+        Runnable beforeTaskExecute(Runnable runnable);
+    }
+
+    /**
+     * Dispatcher of {@link ExecuteAwarePlugin}.
+     */
+    public interface ExecuteAwareDispatcher {
+
+        void beforeExecute(Thread thread, Runnable runnable);
+
+        void afterExecute(Runnable runnable, Throwable throwable);
+    }
+
+    /**
+     * Dispatcher of {@link RejectedAwarePlugin}.
+     */
+    public interface RejectedAwareDispatcher {
+
+        void beforeRejectedExecution(Runnable runnable, ThreadPoolExecutor executor);
+    }
+
+    /**
+     * Dispatcher of {@link ShutdownAwarePlugin}.
+     */
+    public interface ShutdownAwareDispatcher {
+
+        void beforeShutdown(ThreadPoolExecutor executor);
+
+        void afterShutdown(ThreadPoolExecutor executor, List<Runnable> remainingTasks);
+
+        void afterTerminated(ExtensibleThreadPoolExecutor executor);
+    }
+
+    // ==================== task aware ====================
+
+    private static final class NoneTaskAwareDispatcher implements TaskAwareDispatcher {
+
+        private static final NoneTaskAwareDispatcher INSTANCE = new NoneTaskAwareDispatcher();
+
+        @Override
+        public <V> Runnable beforeTaskCreate(ThreadPoolExecutor executor, Runnable runnable, V value) {
+            return runnable;
+        }
+
+        @Override
+        public <V> Callable<V> beforeTaskCreate(ThreadPoolExecutor executor, Callable<V> future) {
+            return future;
+        }
+
+        @Override
+        public Runnable beforeTaskExecute(Runnable runnable) {
+            return runnable;
+        }
+    }
+
+    private static final class SingleTaskAwareDispatcher implements TaskAwareDispatcher {
+
+        private final TaskAwarePlugin plugin;
+
+        private SingleTaskAwareDispatcher(TaskAwarePlugin plugin) {
+            this.plugin = plugin;
+        }
+
+        @Override
+        public <V> Runnable beforeTaskCreate(ThreadPoolExecutor executor, Runnable runnable, V value) {
+            return plugin.beforeTaskCreate(executor, runnable, value);
+        }
+
+        @Override
+        public <V> Callable<V> beforeTaskCreate(ThreadPoolExecutor executor, Callable<V> future) {
+            return plugin.beforeTaskCreate(executor, future);
+        }
+
+        @Override
+        public Runnable beforeTaskExecute(Runnable runnable) {
+            return plugin.beforeTaskExecute(runnable);
+        }
+    }
+
+    private static final class PairTaskAwareDispatcher implements TaskAwareDispatcher {
+
+        private final TaskAwarePlugin first;
+
+        private final TaskAwarePlugin second;
+
+        private PairTaskAwareDispatcher(TaskAwarePlugin first, TaskAwarePlugin second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public <V> Runnable beforeTaskCreate(ThreadPoolExecutor executor, Runnable runnable, V value) {
+            return second.beforeTaskCreate(executor, first.beforeTaskCreate(executor, runnable, value), value);
+        }
+
+        @Override
+        public <V> Callable<V> beforeTaskCreate(ThreadPoolExecutor executor, Callable<V> future) {
+            return second.beforeTaskCreate(executor, first.beforeTaskCreate(executor, future));
+        }
+
+        @Override
+        public Runnable beforeTaskExecute(Runnable runnable) {
+            return second.beforeTaskExecute(first.beforeTaskExecute(runnable));
+        }
+    }
+
+    private static final class GenericTaskAwareDispatcher implements TaskAwareDispatcher {
+
+        private final TaskAwarePlugin[] plugins;
+
+        private GenericTaskAwareDispatcher(TaskAwarePlugin[] plugins) {
+            this.plugins = plugins;
+        }
+
+        @Override
+        public <V> Runnable beforeTaskCreate(ThreadPoolExecutor executor, Runnable runnable, V value) {
+            for (int i = 0; i < plugins.length; i++) {
+                runnable = plugins[i].beforeTaskCreate(executor, runnable, value);
+            }
+            return runnable;
+        }
+
+        @Override
+        public <V> Callable<V> beforeTaskCreate(ThreadPoolExecutor executor, Callable<V> future) {
+            for (int i = 0; i < plugins.length; i++) {
+                future = plugins[i].beforeTaskCreate(executor, future);
+            }
+            return future;
+        }
+
+        @Override
+        public Runnable beforeTaskExecute(Runnable runnable) {
+            for (int i = 0; i < plugins.length; i++) {
+                runnable = plugins[i].beforeTaskExecute(runnable);
+            }
+            return runnable;
+        }
+    }
+
+    // ==================== execute aware ====================
+
+    private static final class NoneExecuteAwareDispatcher implements ExecuteAwareDispatcher {
+
+        private static final NoneExecuteAwareDispatcher INSTANCE = new NoneExecuteAwareDispatcher();
+
+        @Override
+        public void beforeExecute(Thread thread, Runnable runnable) {
+        }
+
+        @Override
+        public void afterExecute(Runnable runnable, Throwable throwable) {
+        }
+    }
+
+    private static final class SingleExecuteAwareDispatcher implements ExecuteAwareDispatcher {
+
+        private final ExecuteAwarePlugin plugin;
+
+        private SingleExecuteAwareDispatcher(ExecuteAwarePlugin plugin) {
+            this.plugin = plugin;
+        }
+
+        @Override
+        public void beforeExecute(Thread thread, Runnable runnable) {
+            plugin.beforeExecute(thread, runnable);
+        }
+
+        @Override
+        public void afterExecute(Runnable runnable, Throwable throwable) {
+            plugin.afterExecute(runnable, throwable);
+        }
+    }
+
+    private static final class PairExecuteAwareDispatcher implements ExecuteAwareDispatcher {
+
+        private final ExecuteAwarePlugin first;
+
+        private final ExecuteAwarePlugin second;
+
+        private PairExecuteAwareDispatcher(ExecuteAwarePlugin first, ExecuteAwarePlugin second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void beforeExecute(Thread thread, Runnable runnable) {
+            first.beforeExecute(thread, runnable);
+            second.beforeExecute(thread, runnable);
+        }
+
+        @Override
+        public void afterExecute(Runnable runnable, Throwable throwable) {
+            first.afterExecute(runnable, throwable);
+            second.afterExecute(runnable, throwable);
+        }
+    }
+
+    private static final class GenericExecuteAwareDispatcher implements ExecuteAwareDispatcher {
+
+        private final ExecuteAwarePlugin[] plugins;
+
+        private GenericExecuteAwareDispatcher(ExecuteAwarePlugin[] plugins) {
+            this.plugins = plugins;
+        }
+
+        @Override
+        public void beforeExecute(Thread thread, Runnable runnable) {
+            for (int i = 0; i < plugins.length; i++) {
+                plugins[i].beforeExecute(thread, runnable);
+            }
+        }
+
+        @Override
+        public void afterExecute(Runnable runnable, Throwable throwable) {
+            for (int i = 0; i < plugins.length; i++) {
+                plugins[i].afterExecute(runnable, throwable);
+            }
+        }
+    }
+
+    // ==================== rejected aware ====================
+
+    private static final class NoneRejectedAwareDispatcher implements RejectedAwareDispatcher {
+
+        private static final NoneRejectedAwareDispatcher INSTANCE = new NoneRejectedAwareDispatcher();
+
+        @Override
+        public void beforeRejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+        }
+    }
+
+    private static final class SingleRejectedAwareDispatcher implements RejectedAwareDispatcher {
+
+        private final RejectedAwarePlugin plugin;
+
+        private SingleRejectedAwareDispatcher(RejectedAwarePlugin plugin) {
+            this.plugin = plugin;
+        }
+
+        @Override
+        public void beforeRejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+            plugin.beforeRejectedExecution(runnable, executor);
+        }
+    }
+
+    private static final class GenericRejectedAwareDispatcher implements RejectedAwareDispatcher {
+
+        private final RejectedAwarePlugin[] plugins;
+
+        private GenericRejectedAwareDispatcher(RejectedAwarePlugin[] plugins) {
+            this.plugins = plugins;
+        }
+
+        @Override
+        public void beforeRejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+            for (int i = 0; i < plugins.length; i++) {
+                plugins[i].beforeRejectedExecution(runnable, executor);
+            }
+        }
+    }
+
+    // ==================== shutdown aware ====================
+
+    private static final class NoneShutdownAwareDispatcher implements ShutdownAwareDispatcher {
+
+        private static final NoneShutdownAwareDispatcher INSTANCE = new NoneShutdownAwareDispatcher();
+
+        @Override
+        public void beforeShutdown(ThreadPoolExecutor executor) {
+        }
+
+        @Override
+        public void afterShutdown(ThreadPoolExecutor executor, List<Runnable> remainingTasks) {
+        }
+
+        @Override
+        public void afterTerminated(ExtensibleThreadPoolExecutor executor) {
+        }
+    }
+
+    private static final class GenericShutdownAwareDispatcher implements ShutdownAwareDispatcher {
+
+        private final ShutdownAwarePlugin[] plugins;
+
+        private GenericShutdownAwareDispatcher(ShutdownAwarePlugin[] plugins) {
+            this.plugins = plugins;
+        }
+
+        @Override
+        public void beforeShutdown(ThreadPoolExecutor executor) {
+            for (int i = 0; i < plugins.length; i++) {
+                plugins[i].beforeShutdown(executor);
+            }
+        }
+
+        @Override
+        public void afterShutdown(ThreadPoolExecutor executor, List<Runnable> remainingTasks) {
+            for (int i = 0; i < plugins.length; i++) {
+                plugins[i].afterShutdown(executor, remainingTasks);
+            }
+        }
+
+        @Override
+        public void afterTerminated(ExtensibleThreadPoolExecutor executor) {
+            for (int i = 0; i < plugins.length; i++) {
+                plugins[i].afterTerminated(executor);
+            }
+        }
+    }
+}
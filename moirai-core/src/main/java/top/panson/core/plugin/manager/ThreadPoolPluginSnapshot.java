@@ -0,0 +1,263 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package top.panson.core.plugin.manager;
+
+import top.panson.core.executor.ExtensibleThreadPoolExecutor;
+import top.panson.core.plugin.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * @方法描述：插件的不可变快照，快照中按照注册顺序把四种类型的插件分别存放在数组中，
+ * 插件管理器在注册、注销和清空插件的时候会重新创建一个快照对象，然后通过volatile变量发布出去，
+ * 线程池在执行任务的热路径上只需要读取一次volatile变量，然后通过快照回调插件，既不需要加锁，也不会在每次调用时创建迭代器或者lambda对象
+ * 创建快照的时候还会通过{@link ThreadPoolPluginPipelineCompiler}为每一类回调编译出专门的分发器，线程池可以根据hasXXXPlugins方法直接跳过没有插件的回调
+ */
+public final class ThreadPoolPluginSnapshot {
+
+    /**
+     * Snapshot without any plugin
+     */
+    public static final ThreadPoolPluginSnapshot EMPTY = new ThreadPoolPluginSnapshot(
+            new TaskAwarePlugin[0], new ExecuteAwarePlugin[0], new RejectedAwarePlugin[0], new ShutdownAwarePlugin[0]);
+
+    private final TaskAwarePlugin[] taskAwarePlugins;
+
+    private final ExecuteAwarePlugin[] executeAwarePlugins;
+
+    private final RejectedAwarePlugin[] rejectedAwarePlugins;
+
+    private final ShutdownAwarePlugin[] shutdownAwarePlugins;
+
+    //下面四个集合是数组的只读视图，在创建快照的时候就创建好了，提供给插件管理器的getXXXPluginList方法使用
+    private final List<TaskAwarePlugin> taskAwarePluginList;
+
+    private final List<ExecuteAwarePlugin> executeAwarePluginList;
+
+    private final List<RejectedAwarePlugin> rejectedAwarePluginList;
+
+    private final List<ShutdownAwarePlugin> shutdownAwarePluginList;
+
+    //下面四个是根据插件数量编译出来的分发器
+    private final ThreadPoolPluginPipelineCompiler.TaskAwareDispatcher taskAwareDispatcher;
+
+    private final ThreadPoolPluginPipelineCompiler.ExecuteAwareDispatcher executeAwareDispatcher;
+
+    private final ThreadPoolPluginPipelineCompiler.RejectedAwareDispatcher rejectedAwareDispatcher;
+
+    private final ThreadPoolPluginPipelineCompiler.ShutdownAwareDispatcher shutdownAwareDispatcher;
+
+    private ThreadPoolPluginSnapshot(TaskAwarePlugin[] taskAwarePlugins, ExecuteAwarePlugin[] executeAwarePlugins,
+                                     RejectedAwarePlugin[] rejectedAwarePlugins, ShutdownAwarePlugin[] shutdownAwarePlugins) {
+        this.taskAwarePlugins = taskAwarePlugins;
+        this.executeAwarePlugins = executeAwarePlugins;
+        this.rejectedAwarePlugins = rejectedAwarePlugins;
+        this.shutdownAwarePlugins = shutdownAwarePlugins;
+        this.taskAwarePluginList = Collections.unmodifiableList(Arrays.asList(taskAwarePlugins));
+        this.executeAwarePluginList = Collections.unmodifiableList(Arrays.asList(executeAwarePlugins));
+        this.rejectedAwarePluginList = Collections.unmodifiableList(Arrays.asList(rejectedAwarePlugins));
+        this.shutdownAwarePluginList = Collections.unmodifiableList(Arrays.asList(shutdownAwarePlugins));
+        this.taskAwareDispatcher = ThreadPoolPluginPipelineCompiler.compileTaskAware(taskAwarePlugins);
+        this.executeAwareDispatcher = ThreadPoolPluginPipelineCompiler.compileExecuteAware(executeAwarePlugins);
+        this.rejectedAwareDispatcher = ThreadPoolPluginPipelineCompiler.compileRejectedAware(rejectedAwarePlugins);
+        this.shutdownAwareDispatcher = ThreadPoolPluginPipelineCompiler.compileShutdownAware(shutdownAwarePlugins);
+    }
+
+    /**
+     * Create snapshot from plugin lists, the order of each list is kept.
+     *
+     * @param taskAwarePlugins     task aware plugins
+     * @param executeAwarePlugins  execute aware plugins
+     * @param rejectedAwarePlugins rejected aware plugins
+     * @param shutdownAwarePlugins shutdown aware plugins
+     * @return snapshot
+     */
+    public static ThreadPoolPluginSnapshot of(Collection<TaskAwarePlugin> taskAwarePlugins,
+                                              Collection<ExecuteAwarePlugin> executeAwarePlugins,
+                                              Collection<RejectedAwarePlugin> rejectedAwarePlugins,
+                                              Collection<ShutdownAwarePlugin> shutdownAwarePlugins) {
+        if (taskAwarePlugins.isEmpty() && executeAwarePlugins.isEmpty()
+                && rejectedAwarePlugins.isEmpty() && shutdownAwarePlugins.isEmpty()) {
+            return EMPTY;
+        }
+        return new ThreadPoolPluginSnapshot(
+                taskAwarePlugins.toArray(new TaskAwarePlugin[0]),
+                executeAwarePlugins.toArray(new ExecuteAwarePlugin[0]),
+                rejectedAwarePlugins.toArray(new RejectedAwarePlugin[0]),
+                shutdownAwarePlugins.toArray(new ShutdownAwarePlugin[0]));
+    }
+
+    /**
+     * Create a new snapshot with the plugin appended to the end of each category it belongs to.
+     *
+     * @param plugin plugin
+     * @return new snapshot
+     */
+    public ThreadPoolPluginSnapshot with(ThreadPoolPlugin plugin) {
+        return new ThreadPoolPluginSnapshot(
+                plugin instanceof TaskAwarePlugin ? append(taskAwarePlugins, (TaskAwarePlugin) plugin) : taskAwarePlugins,
+                plugin instanceof ExecuteAwarePlugin ? append(executeAwarePlugins, (ExecuteAwarePlugin) plugin) : executeAwarePlugins,
+                plugin instanceof RejectedAwarePlugin ? append(rejectedAwarePlugins, (RejectedAwarePlugin) plugin) : rejectedAwarePlugins,
+                plugin instanceof ShutdownAwarePlugin ? append(shutdownAwarePlugins, (ShutdownAwarePlugin) plugin) : shutdownAwarePlugins);
+    }
+
+    /**
+     * Create a new snapshot without the plugin.
+     *
+     * @param plugin plugin
+     * @return new snapshot
+     */
+    public ThreadPoolPluginSnapshot without(ThreadPoolPlugin plugin) {
+        ThreadPoolPluginSnapshot snapshot = new ThreadPoolPluginSnapshot(
+                remove(taskAwarePlugins, plugin),
+                remove(executeAwarePlugins, plugin),
+                remove(rejectedAwarePlugins, plugin),
+                remove(shutdownAwarePlugins, plugin));
+        return snapshot.isEmpty() ? EMPTY : snapshot;
+    }
+
+    /**
+     * Whether the snapshot contains no plugin.
+     *
+     * @return true if no plugin
+     */
+    public boolean isEmpty() {
+        return taskAwarePlugins.length == 0 && executeAwarePlugins.length == 0
+                && rejectedAwarePlugins.length == 0 && shutdownAwarePlugins.length == 0;
+    }
+
+    public boolean hasTaskAwarePlugins() {
+        return taskAwarePlugins.length > 0;
+    }
+
+    public boolean hasExecuteAwarePlugins() {
+        return executeAwarePlugins.length > 0;
+    }
+
+    public boolean hasRejectedAwarePlugins() {
+        return rejectedAwarePlugins.length > 0;
+    }
+
+    public boolean hasShutdownAwarePlugins() {
+        return shutdownAwarePlugins.length > 0;
+    }
+
+    public List<TaskAwarePlugin> getTaskAwarePluginList() {
+        return taskAwarePluginList;
+    }
+
+    public List<ExecuteAwarePlugin> getExecuteAwarePluginList() {
+        return executeAwarePluginList;
+    }
+
+    public List<RejectedAwarePlugin> getRejectedAwarePluginList() {
+        return rejectedAwarePluginList;
+    }
+
+    public List<ShutdownAwarePlugin> getShutdownAwarePluginList() {
+        return shutdownAwarePluginList;
+    }
+
+    // ==================== dispatch methods ====================
+
+    /**
+     * @see TaskAwarePlugin#beforeTaskCreate(ThreadPoolExecutor, Runnable, Object)
+     */
+    public <V> Runnable beforeTaskCreate(ThreadPoolExecutor executor, Runnable runnable, V value) {
+        return taskAwareDispatcher.beforeTaskCreate(executor, runnable, value);
+    }
+
+    /**
+     * @see TaskAwarePlugin#beforeTaskCreate(ThreadPoolExecutor, Callable)
+     */
+    public <V> Callable<V> beforeTaskCreate(ThreadPoolExecutor executor, Callable<V> future) {
+        return taskAwareDispatcher.beforeTaskCreate(executor, future);
+    }
+
+    /**
+     * @see TaskAwarePlugin#beforeTaskExecute(Runnable)
+     */
+    public Runnable beforeTaskExecute(Runnable runnable) {
+        return taskAwareDispatcher.beforeTaskExecute(runnable);
+    }
+
+    /**
+     * @see ExecuteAwarePlugin#beforeExecute(Thread, Runnable)
+     */
+    public void beforeExecute(Thread thread, Runnable runnable) {
+        executeAwareDispatcher.beforeExecute(thread, runnable);
+    }
+
+    /**
+     * @see ExecuteAwarePlugin#afterExecute(Runnable, Throwable)
+     */
+    public void afterExecute(Runnable runnable, Throwable throwable) {
+        executeAwareDispatcher.afterExecute(runnable, throwable);
+    }
+
+    /**
+     * @see RejectedAwarePlugin#beforeRejectedExecution(Runnable, ThreadPoolExecutor)
+     */
+    public void beforeRejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+        rejectedAwareDispatcher.beforeRejectedExecution(runnable, executor);
+    }
+
+    /**
+     * @see ShutdownAwarePlugin#beforeShutdown(ThreadPoolExecutor)
+     */
+    public void beforeShutdown(ThreadPoolExecutor executor) {
+        shutdownAwareDispatcher.beforeShutdown(executor);
+    }
+
+    /**
+     * @see ShutdownAwarePlugin#afterShutdown(ThreadPoolExecutor, List)
+     */
+    public void afterShutdown(ThreadPoolExecutor executor, List<Runnable> remainingTasks) {
+        shutdownAwareDispatcher.afterShutdown(executor, remainingTasks);
+    }
+
+    /**
+     * @see ShutdownAwarePlugin#afterTerminated(ExtensibleThreadPoolExecutor)
+     */
+    public void afterTerminated(ExtensibleThreadPoolExecutor executor) {
+        shutdownAwareDispatcher.afterTerminated(executor);
+    }
+
+    private static <T> T[] append(T[] source, T element) {
+        T[] target = Arrays.copyOf(source, source.length + 1);
+        target[source.length] = element;
+        return target;
+    }
+
+    private static <T> T[] remove(T[] source, Object element) {
+        List<T> retained = new ArrayList<>(source.length);
+        for (T each : source) {
+            if (each != element) {
+                retained.add(each);
+            }
+        }
+        return retained.size() == source.length ? source : retained.toArray(Arrays.copyOf(source, 0));
+    }
+}
@@ -165,4 +165,14 @@ public interface ThreadPoolPluginSupport extends ThreadPoolPluginManager {
     default Collection<TaskAwarePlugin> getTaskAwarePluginList() {
         return getThreadPoolPluginManager().getTaskAwarePluginList();
     }
+
+    /**
+     * Get snapshot of registered plugins.
+     *
+     * @return {@link ThreadPoolPluginSnapshot}
+     */
+    @Override
+    default ThreadPoolPluginSnapshot getPluginSnapshot() {
+        return getThreadPoolPluginManager().getPluginSnapshot();
+    }
 }
@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package top.panson.core.toolkit;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @方法描述：固定内存的对数线性直方图，用来统计任务耗时这类跨度很大的数据分布
+ * 每一个2的幂次区间被均匀地切分成8个子桶，所以不管数值多大，相对误差都不会超过12.5%，每一组桶只需要488个long，
+ * 记录数据的时候只需要计算桶下标然后对桶做一次原子自增，不需要加锁，读取数据的时候也不会阻塞正在记录数据的线程。
+ * 和LongAdder一样，桶数组是分段的，一开始只有一段，记录数据的线程之间发生竞争时才把段的数量翻倍，最多不超过CPU核数，也不超过4段，
+ * 每一段都有488个long，段太多的话一个直方图就要占用几十KB的内存，而任务耗时的统计只需要把竞争降下来，并不需要每个核一段，
+ * 每个线程按照线程Id选择一段，读取数据时把所有段合并起来
+ */
+public class LogLinearHistogram {
+
+    /**
+     * Bits of sub bucket, each power of two range is divided into 2^SUB_BUCKET_BITS buckets
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+
+    /**
+     * Bucket count, enough to hold {@link Long#MAX_VALUE}
+     */
+    public static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    /**
+     * Upper bound of stripe count, limits memory of a histogram to 4 * 488 longs
+     */
+    private static final int STRIPE_COUNT_LIMIT = 4;
+
+    /**
+     * Max stripe count, the smallest power of two not less than available processors, and not more than {@link #STRIPE_COUNT_LIMIT}
+     */
+    private static final int MAX_STRIPE_COUNT = maxStripeCount();
+
+    //分段的桶数组，数组的长度总是2的幂次，扩容时只会替换成更长的数组，已有的段不会变化
+    private volatile AtomicLongArray[] stripes;
+
+    public LogLinearHistogram() {
+        this.stripes = new AtomicLongArray[]{new AtomicLongArray(BUCKET_COUNT)};
+    }
+
+    /**
+     * Record a value, negative value will be recorded as zero.
+     *
+     * @param value value
+     */
+    public void record(long value) {
+        int bucket = bucketIndex(value);
+        AtomicLongArray[] current = stripes;
+        AtomicLongArray counts = current[(int) Thread.currentThread().getId() & (current.length - 1)];
+        long count = counts.get(bucket);
+        //先尝试一次CAS，失败说明有其他线程在同一段上记录数据，这次仍然要记录成功，然后扩充段的数量
+        if (!counts.compareAndSet(bucket, count, count + 1)) {
+            counts.incrementAndGet(bucket);
+            if (current.length < MAX_STRIPE_COUNT) {
+                grow(current);
+            }
+        }
+    }
+
+    //把段的数量翻倍，多个线程同时发现竞争的话只有一个线程会扩容
+    private synchronized void grow(AtomicLongArray[] expected) {
+        if (stripes != expected || expected.length >= MAX_STRIPE_COUNT) {
+            return;
+        }
+        AtomicLongArray[] grown = Arrays.copyOf(expected, expected.length << 1);
+        for (int i = expected.length; i < grown.length; i++) {
+            grown[i] = new AtomicLongArray(BUCKET_COUNT);
+        }
+        stripes = grown;
+    }
+
+    /**
+     * Reset all buckets, values recorded concurrently may be lost.
+     */
+    public void reset() {
+        for (AtomicLongArray counts : stripes) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts.set(i, 0L);
+            }
+        }
+    }
+
+    /**
+     * Add counts of this histogram to target.
+     *
+     * @param target target counts, length must be {@link #BUCKET_COUNT}
+     */
+    public void addTo(long[] target) {
+        for (AtomicLongArray counts : stripes) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                target[i] += counts.get(i);
+            }
+        }
+    }
+
+    /**
+     * Get snapshot of current histogram.
+     *
+     * @return snapshot
+     */
+    public Snapshot snapshot() {
+        long[] target = new long[BUCKET_COUNT];
+        addTo(target);
+        return new Snapshot(target);
+    }
+
+    private static int maxStripeCount() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        return processors <= 1 ? 1 : Math.min(STRIPE_COUNT_LIMIT, Integer.highestOneBit(processors - 1) << 1);
+    }
+
+    /**
+     * Get index of the bucket which the value belongs to.
+     *
+     * @param value value
+     * @return bucket index
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return value <= 0L ? 0 : (int) value;
+        }
+        //数值最高位所在的位置，也就是数值落在哪一个2的幂次区间
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int group = exponent - SUB_BUCKET_BITS + 1;
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & SUB_BUCKET_MASK;
+        return (group << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    /**
+     * Get the smallest value of bucket.
+     *
+     * @param index bucket index
+     * @return lower bound
+     */
+    static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int group = index >>> SUB_BUCKET_BITS;
+        long subBucket = index & SUB_BUCKET_MASK;
+        return (SUB_BUCKET_COUNT + subBucket) << (group - 1);
+    }
+
+    /**
+     * Get the width of bucket.
+     *
+     * @param index bucket index
+     * @return width
+     */
+    static long bucketWidth(int index) {
+        return index < SUB_BUCKET_COUNT ? 1L : 1L << ((index >>> SUB_BUCKET_BITS) - 1);
+    }
+
+    /**
+     * Get the representative value of bucket, which is the middle of the bucket.
+     *
+     * @param index bucket index
+     * @return representative value
+     */
+    static long bucketValue(int index) {
+        return bucketLowerBound(index) + (bucketWidth(index) - 1) / 2;
+    }
+
+    /**
+     * @方法描述：直方图在某一时刻的快照，所有的百分位数都是基于这个快照计算的，计算过程不会影响正在记录数据的直方图
+     */
+    public static class Snapshot {
+
+        private final long[] counts;
+
+        private final long count;
+
+        public Snapshot(long[] counts) {
+            this.counts = counts;
+            long total = 0L;
+            for (long each : counts) {
+                total += each;
+            }
+            this.count = total;
+        }
+
+        /**
+         * Get count of recorded values.
+         *
+         * @return count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Get the value at percentile, -1 if empty.
+         *
+         * @param percentile percentile, between 0 and 1
+         * @return value at percentile
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0L) {
+                return -1L;
+            }
+            long rank = Math.max(1L, (long) Math.ceil(Math.min(1D, Math.max(0D, percentile)) * count));
+            long seen = 0L;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return bucketValue(i);
+                }
+            }
+            return getMax();
+        }
+
+        /**
+         * Get approximate minimum value, -1 if empty.
+         *
+         * @return minimum value
+         */
+        public long getMin() {
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0L) {
+                    return bucketLowerBound(i);
+                }
+            }
+            return -1L;
+        }
+
+        /**
+         * Get approximate maximum value, -1 if empty.
+         *
+         * @return maximum value
+         */
+        public long getMax() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] > 0L) {
+                    return bucketLowerBound(i) + bucketWidth(i) - 1;
+                }
+            }
+            return -1L;
+        }
+
+        /**
+         * Get approximate total of recorded values.
+         *
+         * @return total
+         */
+        public long getTotal() {
+            long total = 0L;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0L) {
+                    total += counts[i] * bucketValue(i);
+                }
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package top.panson.core.toolkit;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @方法描述：滑动时间窗口直方图，用来统计最近一段时间内的数据分布
+ * 整个窗口被切分成固定数量的时间片，每个时间片都是一个{@link LogLinearHistogram}，数据只会记录到当前时间片中，
+ * 时间片的直方图在创建窗口时就分配好了，循环复用的时候原地清空，不会每次轮转都重新分配一个直方图，扩充过的段数量也会一直保留。
+ * 第一个发现时间片过期的线程先把时间编号改成正在清空的标记，清空完成之后再发布新的时间编号，其他线程看到标记就等待清空结束，
+ * 所以记录到当前时间片的数据不会被清空，读取窗口数据时只会合并还在窗口内的时间片
+ */
+public class SlidingWindowHistogram {
+
+    /**
+     * Epoch of slot which is being reset
+     */
+    private static final long RESETTING = -2L;
+
+    private final long slotMillis;
+
+    //每一个时间片当前对应的时间编号
+    private final AtomicLongArray epochs;
+
+    //每一个时间片的直方图，和时间编号按照下标对应
+    private final LogLinearHistogram[] histograms;
+
+    /**
+     * Create histogram.
+     *
+     * @param windowSeconds window length in seconds
+     * @param slotCount     slot count of window
+     */
+    public SlidingWindowHistogram(int windowSeconds, int slotCount) {
+        if (windowSeconds <= 0 || slotCount <= 0) {
+            throw new IllegalArgumentException("Window seconds and slot count must be positive.");
+        }
+        this.slotMillis = Math.max(1L, windowSeconds * 1000L / slotCount);
+        this.epochs = new AtomicLongArray(slotCount);
+        this.histograms = new LogLinearHistogram[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            epochs.set(i, -1L);
+            histograms[i] = new LogLinearHistogram();
+        }
+    }
+
+    /**
+     * Record a value into current slot.
+     *
+     * @param value value
+     */
+    public void record(long value) {
+        long epoch = SystemClock.now() / slotMillis;
+        int index = (int) (epoch % histograms.length);
+        long current = epochs.get(index);
+        while (current != epoch) {
+            if (current == RESETTING) {
+                //其他线程正在清空这个时间片，清空的时间很短，让出CPU等它发布新的时间编号
+                Thread.yield();
+            } else if (current > epoch) {
+                //时间片已经被更晚的时间编号占用了，说明当前线程在获取时间之后被挂起了很久，这条数据已经不在窗口内了
+                return;
+            } else if (epochs.compareAndSet(index, current, RESETTING)) {
+                histograms[index].reset();
+                epochs.set(index, epoch);
+                break;
+            }
+            current = epochs.get(index);
+        }
+        histograms[index].record(value);
+    }
+
+    /**
+     * Get snapshot of values recorded in the window.
+     *
+     * @return snapshot
+     */
+    public LogLinearHistogram.Snapshot snapshot() {
+        long epoch = SystemClock.now() / slotMillis;
+        long[] counts = new long[LogLinearHistogram.BUCKET_COUNT];
+        int slotCount = histograms.length;
+        for (int i = 0; i < slotCount; i++) {
+            long slotEpoch = epochs.get(i);
+            if (slotEpoch > epoch - slotCount && slotEpoch <= epoch) {
+                histograms[i].addTo(counts);
+            }
+        }
+        return new LogLinearHistogram.Snapshot(counts);
+    }
+
+    /**
+     * Get window length in seconds.
+     *
+     * @return window seconds
+     */
+    public long getWindowSeconds() {
+        return slotMillis * histograms.length / 1000L;
+    }
+}
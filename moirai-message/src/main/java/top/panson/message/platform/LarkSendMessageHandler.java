@@ -34,6 +34,7 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 import static top.panson.message.platform.constant.LarkAlarmConstants.*;
@@ -119,6 +120,7 @@ public class LarkSendMessageHandler implements SendMessageHandler<AlarmNotifyReq
                 changeParameterNotifyRequest.getBeforeExecuteTimeOut() + "  ➲  " + changeParameterNotifyRequest.getNowExecuteTimeOut(),
                 changeParameterNotifyRequest.getBeforeRejectedName(),
                 changeParameterNotifyRequest.getNowRejectedName(),
+                Optional.ofNullable(changeParameterNotifyRequest.getChangeReason()).orElse("-"),
                 afterReceives,
                 LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
         execute(notifyConfig.getSecretKey(), text);
@@ -28,6 +28,7 @@ import top.panson.message.service.SendMessageHandler;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Objects;
+import java.util.Optional;
 
 /**
  *
@@ -124,6 +125,7 @@ public abstract class AbstractRobotSendMessageHandler implements SendMessageHand
                 changeParameterNotifyRequest.getBeforeQueueCapacity() + changeSeparator + changeParameterNotifyRequest.getNowQueueCapacity(),
                 changeParameterNotifyRequest.getBeforeRejectedName(),
                 changeParameterNotifyRequest.getNowRejectedName(),
+                Optional.ofNullable(changeParameterNotifyRequest.getChangeReason()).orElse("-"),
                 Joiner.on(robotMessageActualContent.getReceiveSeparator()).join(notifyConfig.getReceives().split(",")),
                 LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
         execute(RobotMessageExecuteDTO.builder().text(text).notifyConfig(notifyConfig).build());
@@ -24,6 +24,7 @@ import top.panson.core.executor.DynamicThreadPoolExecutor;
 import top.panson.core.executor.DynamicThreadPoolWrapper;
 import top.panson.core.executor.manage.GlobalThreadPoolManage;
 import top.panson.core.executor.support.ThreadPoolBuilder;
+import top.panson.core.plugin.impl.ThreadPoolRunStateRecordPlugin;
 import top.panson.core.toolkit.ExecutorTraceContextUtil;
 import top.panson.core.toolkit.IdentifyUtil;
 import top.panson.message.enums.NotifyTypeEnum;
@@ -143,8 +144,8 @@ public class DefaultThreadPoolCheckAlarmHandler implements Runnable, ThreadPoolC
         ThreadPoolNotifyAlarm alarmConfig = GlobalNotifyAlarmManage.get(threadPoolId);
         if (Objects.isNull(alarmConfig) || !alarmConfig.getAlarm() || alarmConfig.getActiveAlarm() <= 0) {
             return;
-        }//得到线程池当前活跃线程
-        int activeCount = threadPoolExecutor.getActiveCount();
+        }//得到线程池当前活跃线程，注册了运行状态记录插件的话直接从插件中读取，不需要获取线程池的全局锁
+        int activeCount = ThreadPoolRunStateRecordPlugin.activeCountOf(threadPoolExecutor);
         //得到最大线程
         int maximumPoolSize = threadPoolExecutor.getMaximumPoolSize();
         //得到线程池负载率
@@ -230,9 +231,9 @@ public class DefaultThreadPoolCheckAlarmHandler implements Runnable, ThreadPoolC
                 .corePoolSize(threadPoolExecutor.getCorePoolSize())
                 .maximumPoolSize(threadPoolExecutor.getMaximumPoolSize())
                 .poolSize(threadPoolExecutor.getPoolSize())
-                .activeCount(threadPoolExecutor.getActiveCount())
-                .largestPoolSize(threadPoolExecutor.getLargestPoolSize())
-                .completedTaskCount(threadPoolExecutor.getCompletedTaskCount())
+                .activeCount(ThreadPoolRunStateRecordPlugin.activeCountOf(threadPoolExecutor))
+                .largestPoolSize(ThreadPoolRunStateRecordPlugin.largestPoolSizeOf(threadPoolExecutor))
+                .completedTaskCount(ThreadPoolRunStateRecordPlugin.completedTaskCountOf(threadPoolExecutor))
                 .queueName(blockingQueue.getClass().getSimpleName())
                 .capacity(blockingQueue.size() + blockingQueue.remainingCapacity())
                 .queueSize(blockingQueue.size())
@@ -37,6 +37,16 @@ CREATE TABLE IF NOT EXISTS `config` (
     `keep_alive_time`            int(11) DEFAULT NULL COMMENT '线程存活时间（秒）',
     `execute_time_out`            int(11) DEFAULT NULL COMMENT '执行超时时间（毫秒）',
     `allow_core_thread_time_out` tinyint(1) DEFAULT NULL COMMENT '允许核心线程超时',
+    `queue_target_delay` bigint(20) DEFAULT NULL COMMENT '队列目标排队延迟（毫秒）',
+    `queue_delay_interval` bigint(20) DEFAULT NULL COMMENT '队列排队延迟观察周期（毫秒）',
+    `queue_max_weight` bigint(20) DEFAULT NULL COMMENT '队列最大权重（字节）',
+    `queue_evict_lowest_priority` tinyint(1) DEFAULT NULL COMMENT '队列满时淘汰最低优先级任务',
+    `queue_shard_count` int(11) DEFAULT NULL COMMENT '工作窃取队列分片数量',
+    `admission_rate` int(11) DEFAULT NULL COMMENT '每个调用方每秒允许提交的任务数',
+    `admission_burst` int(11) DEFAULT NULL COMMENT '每个调用方允许突发提交的任务数',
+    `micro_batch_size` int(11) DEFAULT NULL COMMENT '微批处理每批的最大数据量',
+    `micro_batch_linger` int(11) DEFAULT NULL COMMENT '微批处理每批的最长等待时间，单位毫秒',
+    `eager_growth` tinyint(1) DEFAULT NULL COMMENT '是否先扩充线程再排队',
     `content`                    longtext COMMENT '线程池内容',
     `md5`                        varchar(32) NOT NULL COMMENT 'MD5',
     `is_alarm`                   tinyint(1) DEFAULT NULL COMMENT '是否报警',
@@ -76,6 +86,12 @@ CREATE TABLE IF NOT EXISTS `his_run_data` (
     `queue_remaining_capacity` bigint(20) DEFAULT NULL COMMENT '队列剩余容量',
     `completed_task_count`     bigint(20) DEFAULT NULL COMMENT '已完成任务计数',
     `reject_count`             bigint(20) DEFAULT NULL COMMENT '拒绝次数',
+    `queue_wait_time_p50`      double       DEFAULT NULL COMMENT '队列等待时间P50',
+    `queue_wait_time_p90`      double       DEFAULT NULL COMMENT '队列等待时间P90',
+    `queue_wait_time_p99`      double       DEFAULT NULL COMMENT '队列等待时间P99',
+    `queue_wait_time_p999`     double       DEFAULT NULL COMMENT '队列等待时间P999',
+    `queue_weight`             bigint(20) DEFAULT NULL COMMENT '队列权重',
+    `queue_max_weight`         bigint(20) DEFAULT NULL COMMENT '队列最大权重',
     `timestamp`                bigint(20) DEFAULT NULL COMMENT '时间戳',
     `gmt_create`               datetime     DEFAULT NULL COMMENT '创建时间',
     `gmt_modified`             datetime     DEFAULT NULL COMMENT '修改时间',
@@ -162,6 +178,24 @@ CREATE TABLE IF NOT EXISTS `his_config_verify` (
     PRIMARY KEY (`id`)
 );
 
+-- 升级已有的数据库，新增的列只在不存在时添加
+ALTER TABLE `config` ADD COLUMN IF NOT EXISTS `queue_target_delay` bigint(20) DEFAULT NULL COMMENT '队列目标排队延迟（毫秒）';
+ALTER TABLE `config` ADD COLUMN IF NOT EXISTS `queue_delay_interval` bigint(20) DEFAULT NULL COMMENT '队列排队延迟观察周期（毫秒）';
+ALTER TABLE `config` ADD COLUMN IF NOT EXISTS `queue_max_weight` bigint(20) DEFAULT NULL COMMENT '队列最大权重（字节）';
+ALTER TABLE `config` ADD COLUMN IF NOT EXISTS `queue_evict_lowest_priority` tinyint(1) DEFAULT NULL COMMENT '队列满时淘汰最低优先级任务';
+ALTER TABLE `config` ADD COLUMN IF NOT EXISTS `queue_shard_count` int(11) DEFAULT NULL COMMENT '工作窃取队列分片数量';
+ALTER TABLE `config` ADD COLUMN IF NOT EXISTS `admission_rate` int(11) DEFAULT NULL COMMENT '每个调用方每秒允许提交的任务数';
+ALTER TABLE `config` ADD COLUMN IF NOT EXISTS `admission_burst` int(11) DEFAULT NULL COMMENT '每个调用方允许突发提交的任务数';
+ALTER TABLE `config` ADD COLUMN IF NOT EXISTS `micro_batch_size` int(11) DEFAULT NULL COMMENT '微批处理每批的最大数据量';
+ALTER TABLE `config` ADD COLUMN IF NOT EXISTS `micro_batch_linger` int(11) DEFAULT NULL COMMENT '微批处理每批的最长等待时间，单位毫秒';
+ALTER TABLE `config` ADD COLUMN IF NOT EXISTS `eager_growth` tinyint(1) DEFAULT NULL COMMENT '是否先扩充线程再排队';
+ALTER TABLE `his_run_data` ADD COLUMN IF NOT EXISTS `queue_wait_time_p50` double DEFAULT NULL COMMENT '队列等待时间P50';
+ALTER TABLE `his_run_data` ADD COLUMN IF NOT EXISTS `queue_wait_time_p90` double DEFAULT NULL COMMENT '队列等待时间P90';
+ALTER TABLE `his_run_data` ADD COLUMN IF NOT EXISTS `queue_wait_time_p99` double DEFAULT NULL COMMENT '队列等待时间P99';
+ALTER TABLE `his_run_data` ADD COLUMN IF NOT EXISTS `queue_wait_time_p999` double DEFAULT NULL COMMENT '队列等待时间P999';
+ALTER TABLE `his_run_data` ADD COLUMN IF NOT EXISTS `queue_weight` bigint(20) DEFAULT NULL COMMENT '队列权重';
+ALTER TABLE `his_run_data` ADD COLUMN IF NOT EXISTS `queue_max_weight` bigint(20) DEFAULT NULL COMMENT '队列最大权重';
+
 INSERT IGNORE INTO `tenant` (`id`, `tenant_id`, `tenant_name`, `tenant_desc`, `owner`, `gmt_create`, `gmt_modified`, `del_flag`) VALUES ('1', 'prescription', '处方组', '负责维护处方服务, 包括不限于电子处方等业务', '谢良辰', '2021-10-24 13:42:11', '2021-10-24 13:42:11', '0');
 
 INSERT IGNORE INTO `item` (`id`, `tenant_id`, `item_id`, `item_name`, `item_desc`, `owner`, `gmt_create`, `gmt_modified`, `del_flag`) VALUES ('1', 'prescription', 'dynamic-threadpool-example', '动态线程池示例项目', '动态线程池示例项目，对应 Hippo 项目的 example 模块', '马称', '2021-10-24 16:11:00', '2021-10-24 16:11:00', '0');
@@ -55,6 +55,16 @@ CREATE TABLE IF NOT EXISTS `config` (
   `keep_alive_time` int(11) DEFAULT NULL COMMENT '线程存活时间（秒）',
   `execute_time_out` int(11) DEFAULT NULL COMMENT '执行超时时间（毫秒）',
   `allow_core_thread_time_out` tinyint(1) DEFAULT NULL COMMENT '允许核心线程超时',
+  `queue_target_delay` bigint(20) DEFAULT NULL COMMENT '队列目标排队延迟（毫秒）',
+  `queue_delay_interval` bigint(20) DEFAULT NULL COMMENT '队列排队延迟观察周期（毫秒）',
+  `queue_max_weight` bigint(20) DEFAULT NULL COMMENT '队列最大权重（字节）',
+  `queue_evict_lowest_priority` tinyint(1) DEFAULT NULL COMMENT '队列满时淘汰最低优先级任务',
+  `queue_shard_count` int(11) DEFAULT NULL COMMENT '工作窃取队列分片数量',
+  `admission_rate` int(11) DEFAULT NULL COMMENT '每个调用方每秒允许提交的任务数',
+  `admission_burst` int(11) DEFAULT NULL COMMENT '每个调用方允许突发提交的任务数',
+  `micro_batch_size` int(11) DEFAULT NULL COMMENT '微批处理每批的最大数据量',
+  `micro_batch_linger` int(11) DEFAULT NULL COMMENT '微批处理每批的最长等待时间，单位毫秒',
+  `eager_growth` tinyint(1) DEFAULT NULL COMMENT '是否先扩充线程再排队',
   `content` longtext COMMENT '线程池内容',
   `md5` varchar(32) NOT NULL COMMENT 'MD5',
   `is_alarm` tinyint(1) DEFAULT NULL COMMENT '是否报警',
@@ -106,6 +116,12 @@ CREATE TABLE IF NOT EXISTS `his_run_data` (
   `queue_remaining_capacity` bigint(20) DEFAULT NULL COMMENT '队列剩余容量',
   `completed_task_count` bigint(20) DEFAULT NULL COMMENT '已完成任务计数',
   `reject_count` bigint(20) DEFAULT NULL COMMENT '拒绝次数',
+  `queue_wait_time_p50` double DEFAULT NULL COMMENT '队列等待时间P50',
+  `queue_wait_time_p90` double DEFAULT NULL COMMENT '队列等待时间P90',
+  `queue_wait_time_p99` double DEFAULT NULL COMMENT '队列等待时间P99',
+  `queue_wait_time_p999` double DEFAULT NULL COMMENT '队列等待时间P999',
+  `queue_weight` bigint(20) DEFAULT NULL COMMENT '队列权重',
+  `queue_max_weight` bigint(20) DEFAULT NULL COMMENT '队列最大权重',
   `timestamp` bigint(20) DEFAULT NULL COMMENT '时间戳',
   `gmt_create` datetime DEFAULT NULL COMMENT '创建时间',
   `gmt_modified` datetime DEFAULT NULL COMMENT '修改时间',
@@ -219,6 +235,89 @@ CREATE TABLE IF NOT EXISTS `his_config_verify`  (
     PRIMARY KEY (`id`) USING BTREE
 ) ENGINE=InnoDB AUTO_INCREMENT=1 DEFAULT CHARSET=utf8mb4 COMMENT='参数变更审核记录表';
 
+/******************************************/
+/*   升级已有的数据库，新增的列只在不存在时添加   */
+/******************************************/
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'config' AND COLUMN_NAME = 'queue_target_delay') = 0, 'ALTER TABLE `config` ADD COLUMN `queue_target_delay` bigint(20) DEFAULT NULL COMMENT ''队列目标排队延迟（毫秒）''', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'config' AND COLUMN_NAME = 'queue_delay_interval') = 0, 'ALTER TABLE `config` ADD COLUMN `queue_delay_interval` bigint(20) DEFAULT NULL COMMENT ''队列排队延迟观察周期（毫秒）''', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'config' AND COLUMN_NAME = 'queue_max_weight') = 0, 'ALTER TABLE `config` ADD COLUMN `queue_max_weight` bigint(20) DEFAULT NULL COMMENT ''队列最大权重（字节）''', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'config' AND COLUMN_NAME = 'queue_evict_lowest_priority') = 0, 'ALTER TABLE `config` ADD COLUMN `queue_evict_lowest_priority` tinyint(1) DEFAULT NULL COMMENT ''队列满时淘汰最低优先级任务''', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'config' AND COLUMN_NAME = 'queue_shard_count') = 0, 'ALTER TABLE `config` ADD COLUMN `queue_shard_count` int(11) DEFAULT NULL COMMENT ''工作窃取队列分片数量''', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'config' AND COLUMN_NAME = 'admission_rate') = 0, 'ALTER TABLE `config` ADD COLUMN `admission_rate` int(11) DEFAULT NULL COMMENT ''每个调用方每秒允许提交的任务数''', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'config' AND COLUMN_NAME = 'admission_burst') = 0, 'ALTER TABLE `config` ADD COLUMN `admission_burst` int(11) DEFAULT NULL COMMENT ''每个调用方允许突发提交的任务数''', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'config' AND COLUMN_NAME = 'micro_batch_size') = 0, 'ALTER TABLE `config` ADD COLUMN `micro_batch_size` int(11) DEFAULT NULL COMMENT ''微批处理每批的最大数据量''', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'config' AND COLUMN_NAME = 'micro_batch_linger') = 0, 'ALTER TABLE `config` ADD COLUMN `micro_batch_linger` int(11) DEFAULT NULL COMMENT ''微批处理每批的最长等待时间，单位毫秒''', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'config' AND COLUMN_NAME = 'eager_growth') = 0, 'ALTER TABLE `config` ADD COLUMN `eager_growth` tinyint(1) DEFAULT NULL COMMENT ''是否先扩充线程再排队''', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'his_run_data' AND COLUMN_NAME = 'queue_wait_time_p50') = 0, 'ALTER TABLE `his_run_data` ADD COLUMN `queue_wait_time_p50` double DEFAULT NULL COMMENT ''队列等待时间P50''', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'his_run_data' AND COLUMN_NAME = 'queue_wait_time_p90') = 0, 'ALTER TABLE `his_run_data` ADD COLUMN `queue_wait_time_p90` double DEFAULT NULL COMMENT ''队列等待时间P90''', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'his_run_data' AND COLUMN_NAME = 'queue_wait_time_p99') = 0, 'ALTER TABLE `his_run_data` ADD COLUMN `queue_wait_time_p99` double DEFAULT NULL COMMENT ''队列等待时间P99''', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'his_run_data' AND COLUMN_NAME = 'queue_wait_time_p999') = 0, 'ALTER TABLE `his_run_data` ADD COLUMN `queue_wait_time_p999` double DEFAULT NULL COMMENT ''队列等待时间P999''', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'his_run_data' AND COLUMN_NAME = 'queue_weight') = 0, 'ALTER TABLE `his_run_data` ADD COLUMN `queue_weight` bigint(20) DEFAULT NULL COMMENT ''队列权重''', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'his_run_data' AND COLUMN_NAME = 'queue_max_weight') = 0, 'ALTER TABLE `his_run_data` ADD COLUMN `queue_max_weight` bigint(20) DEFAULT NULL COMMENT ''队列最大权重''', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
 /* Init SQL */
 INSERT IGNORE INTO `tenant` (`id`, `tenant_id`, `tenant_name`, `tenant_desc`, `owner`, `gmt_create`, `gmt_modified`, `del_flag`) VALUES ('1', 'prescription', '处方组', '负责维护处方服务, 包括不限于电子处方等业务', '谢良辰', '2021-10-24 13:42:11', '2021-10-24 13:42:11', '0');
 
@@ -114,6 +114,56 @@ public class ConfigInfoBase implements Serializable {
      */
     private Integer allowCoreThreadTimeOut;
 
+    /**
+     * queueTargetDelay
+     */
+    private Long queueTargetDelay;
+
+    /**
+     * queueDelayInterval
+     */
+    private Long queueDelayInterval;
+
+    /**
+     * queueMaxWeight
+     */
+    private Long queueMaxWeight;
+
+    /**
+     * queueEvictLowestPriority
+     */
+    private Integer queueEvictLowestPriority;
+
+    /**
+     * queueShardCount
+     */
+    private Integer queueShardCount;
+
+    /**
+     * admissionRate
+     */
+    private Integer admissionRate;
+
+    /**
+     * admissionBurst
+     */
+    private Integer admissionBurst;
+
+    /**
+     * microBatchSize
+     */
+    private Integer microBatchSize;
+
+    /**
+     * microBatchLinger
+     */
+    private Integer microBatchLinger;
+
+    /**
+     * eagerGrowth
+     */
+    private Integer eagerGrowth;
+
     /**
      * MD5
      */
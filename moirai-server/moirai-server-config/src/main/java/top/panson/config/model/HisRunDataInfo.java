@@ -100,6 +100,36 @@ public class HisRunDataInfo {
      */
     private Long rejectCount;
 
+    /**
+     * 队列等待时间P50，单位毫秒
+     */
+    private Double queueWaitTimeP50;
+
+    /**
+     * 队列等待时间P90，单位毫秒
+     */
+    private Double queueWaitTimeP90;
+
+    /**
+     * 队列等待时间P99，单位毫秒
+     */
+    private Double queueWaitTimeP99;
+
+    /**
+     * 队列等待时间P999，单位毫秒
+     */
+    private Double queueWaitTimeP999;
+
+    /**
+     * 队列中任务的权重之和
+     */
+    private Long queueWeight;
+
+    /**
+     * 队列最大权重
+     */
+    private Long queueMaxWeight;
+
     /**
      * 时间戳
      */
@@ -89,4 +89,34 @@ public class MonitorRespDTO {
      * Reject count
      */
     private String rejectCount;
+
+    /**
+     * Queue wait time p50
+     */
+    private String queueWaitTimeP50;
+
+    /**
+     * Queue wait time p90
+     */
+    private String queueWaitTimeP90;
+
+    /**
+     * Queue wait time p99
+     */
+    private String queueWaitTimeP99;
+
+    /**
+     * Queue wait time p999
+     */
+    private String queueWaitTimeP999;
+
+    /**
+     * Queue weight
+     */
+    private String queueWeight;
+
+    /**
+     * Queue max weight
+     */
+    private String queueMaxWeight;
 }
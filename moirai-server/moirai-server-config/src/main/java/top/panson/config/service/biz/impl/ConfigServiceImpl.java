@@ -307,7 +307,7 @@ public class ConfigServiceImpl implements ConfigService {
                 queueCapacity = config.getCapacity();
                 break;
         }
-        List<Integer> queueTypes = Stream.of(1, 2, 3, 6, 9).collect(Collectors.toList());
+        List<Integer> queueTypes = Stream.of(1, 2, 3, 6, 9, 10, 11, 12, 13, 14).collect(Collectors.toList());
         boolean setDefaultFlag = queueTypes.contains(config.getQueueType()) && (config.getCapacity() == null || Objects.equals(config.getCapacity(), 0));
         if (setDefaultFlag) {
             queueCapacity = 1024;
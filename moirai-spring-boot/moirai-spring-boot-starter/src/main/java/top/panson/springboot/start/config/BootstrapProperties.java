@@ -1,11 +1,14 @@
 package top.panson.springboot.start.config;
 
 import top.panson.core.config.BootstrapPropertiesInterface;
+import top.panson.core.plugin.impl.AdaptivePoolSizingConfig;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.Map;
+
 
 /**
  * @方法描述：这个类封装的就是配置文件中的一些信息
@@ -51,6 +54,9 @@ public class BootstrapProperties implements BootstrapPropertiesInterface {
     //监控配置信息对象
     private MonitorProperties monitor;
 
+    //自适应调整线程池大小的配置信息，key是线程池Id，只有配置了的线程池才会启用自适应调整
+    private Map<String, AdaptivePoolSizingConfig> adaptiveSizing;
+
 
     //下面几个成员变量放到了MonitorProperties类中
     @Deprecated
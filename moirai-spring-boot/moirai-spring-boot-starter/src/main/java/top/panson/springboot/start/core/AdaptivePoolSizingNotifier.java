@@ -0,0 +1,58 @@
+package top.panson.springboot.start.core;
+
+import top.panson.common.api.ThreadPoolConfigChange;
+import top.panson.common.config.ApplicationContextHolder;
+import top.panson.core.executor.DynamicThreadPoolExecutor;
+import top.panson.core.plugin.impl.PoolSizingDecision;
+import top.panson.message.request.ChangeParameterNotifyRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Consumer;
+
+
+/**
+ * @方法描述：自适应调整线程池大小的插件的决策监听器，插件每次调整线程池之后，这个监听器都会把调整前后的参数和调整的原因
+ * 封装成ChangeParameterNotifyRequest对象，和服务端动态刷新线程池时一样，交给ThreadPoolConfigChange发送配置变更通知
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class AdaptivePoolSizingNotifier implements Consumer<PoolSizingDecision> {
+
+    private final ThreadPoolExecutor executor;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void accept(PoolSizingDecision decision) {
+        try {
+            //这里是在采样线程中执行的，那时候容器早就刷新完了，所以直接从容器中获取配置变更通知的发送器
+            ThreadPoolConfigChange<ChangeParameterNotifyRequest> threadPoolConfigChange = ApplicationContextHolder.getBean(ThreadPoolConfigChange.class);
+            String rejectedName = executor.getRejectedExecutionHandler().getClass().getSimpleName();
+            Long executeTimeOut = executor instanceof DynamicThreadPoolExecutor ? ((DynamicThreadPoolExecutor) executor).getExecuteTimeOut() : null;
+            int queueCapacity = executor.getQueue().remainingCapacity() + executor.getQueue().size();
+            ChangeParameterNotifyRequest changeNotifyRequest = ChangeParameterNotifyRequest.builder()
+                    .beforeCorePoolSize(decision.getBeforeCorePoolSize())
+                    .beforeMaximumPoolSize(decision.getBeforeMaximumPoolSize())
+                    .beforeAllowsCoreThreadTimeOut(executor.allowsCoreThreadTimeOut())
+                    .beforeKeepAliveTime(decision.getBeforeKeepAliveTime())
+                    .blockingQueueName(executor.getQueue().getClass().getSimpleName())
+                    .beforeQueueCapacity(queueCapacity)
+                    .beforeRejectedName(rejectedName)
+                    .beforeExecuteTimeOut(executeTimeOut)
+                    .nowCorePoolSize(decision.getNowCorePoolSize())
+                    .nowMaximumPoolSize(decision.getNowMaximumPoolSize())
+                    .nowAllowsCoreThreadTimeOut(executor.allowsCoreThreadTimeOut())
+                    .nowKeepAliveTime(decision.getNowKeepAliveTime())
+                    .nowQueueCapacity(queueCapacity)
+                    .nowRejectedName(rejectedName)
+                    .nowExecuteTimeOut(executeTimeOut)
+                    .changeReason(decision.getReason())
+                    .build();
+            changeNotifyRequest.setThreadPoolId(decision.getThreadPoolId());
+            threadPoolConfigChange.sendPoolConfigChange(changeNotifyRequest);
+        } catch (Exception ex) {
+            log.warn("Failed to send adaptive sizing notification. threadPoolId: {}", decision.getThreadPoolId(), ex);
+        }
+    }
+}
@@ -6,11 +6,13 @@ import top.panson.common.toolkit.CollectionUtil;
 import top.panson.common.toolkit.ReflectUtil;
 import top.panson.core.executor.DynamicThreadPoolWrapper;
 import top.panson.core.executor.manage.GlobalThreadPoolManage;
+import top.panson.core.plugin.impl.ThreadPoolRunStateRecordPlugin;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ThreadPoolExecutor;
 
 /**
@@ -48,6 +50,14 @@ public class BaseThreadDetailStateHandler implements ThreadDetailState {
     @Override
     public List<ThreadDetailStateInfo> getThreadDetailStateInfo(ThreadPoolExecutor threadPoolExecutor) {
         List<ThreadDetailStateInfo> resultThreadStates = new ArrayList();
+        //注册了运行状态记录插件的话，直接使用插件记录的工作线程，不需要反射读取没有加锁保护的workers集合
+        Optional<ThreadPoolRunStateRecordPlugin> runStateRecordPlugin = ThreadPoolRunStateRecordPlugin.find(threadPoolExecutor);
+        if (runStateRecordPlugin.isPresent()) {
+            for (Thread thread : runStateRecordPlugin.get().getWorkerThreads()) {
+                resultThreadStates.add(buildThreadDetailStateInfo(thread));
+            }
+            return resultThreadStates;
+        }
         try {
             //反射得到线程池中的workers集合
             HashSet<Object> workers = (HashSet<Object>) ReflectUtil.getFieldValue(threadPoolExecutor, WORKERS);
@@ -70,31 +80,38 @@ public class BaseThreadDetailStateHandler implements ThreadDetailState {
                     log.error("Reflection get worker thread exception. Worker: {}", worker, ex);
                     continue;
                 }
-                //得到线程Id
-                long threadId = thread.getId();
-                //得到线程名称
-                String threadName = thread.getName();
-                //得到线程状态
-                String threadStatus = thread.getState().name();
-                //得到线程栈
-                StackTraceElement[] stackTrace = thread.getStackTrace();
-                List<String> threadStack = new ArrayList(stackTrace.length);
-                //存放栈中的方法信息
-                for (int i = 0; i < stackTrace.length; i++) {
-                    threadStack.add(stackTrace[i].toString());
-                }
-                //创建ThreadDetailStateInfo对象封装线程信息
-                ThreadDetailStateInfo threadState = ThreadDetailStateInfo.builder()
-                        .threadId(threadId)
-                        .threadName(threadName)
-                        .threadStatus(threadStatus)
-                        .threadStack(threadStack)
-                        .build();
-                resultThreadStates.add(threadState);
+                resultThreadStates.add(buildThreadDetailStateInfo(thread));
             }
         } catch (Exception ex) {
             log.error("Failed to get thread status.", ex);
         }
         return resultThreadStates;
     }
+
+
+
+    //得到线程的方法栈等详细信息
+    private ThreadDetailStateInfo buildThreadDetailStateInfo(Thread thread) {
+        //得到线程Id
+        long threadId = thread.getId();
+        //得到线程名称
+        String threadName = thread.getName();
+        //得到线程状态
+        String threadStatus = thread.getState().name();
+        //得到线程栈
+        StackTraceElement[] stackTrace = thread.getStackTrace();
+        List<String> threadStack = new ArrayList(stackTrace.length);
+        //存放栈中的方法信息
+        for (int i = 0; i < stackTrace.length; i++) {
+            threadStack.add(stackTrace[i].toString());
+        }
+        //创建ThreadDetailStateInfo对象封装线程信息
+        ThreadDetailStateInfo threadState = ThreadDetailStateInfo.builder()
+                .threadId(threadId)
+                .threadName(threadName)
+                .threadStatus(threadStatus)
+                .threadStack(threadStack)
+                .build();
+        return threadState;
+    }
 }
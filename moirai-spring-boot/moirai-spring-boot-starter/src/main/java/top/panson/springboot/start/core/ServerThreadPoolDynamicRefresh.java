@@ -4,24 +4,34 @@ import top.panson.common.api.ThreadPoolConfigChange;
 import top.panson.common.api.ThreadPoolDynamicRefresh;
 import top.panson.common.enums.EnableEnum;
 import top.panson.common.executor.support.BlockingQueueTypeEnum;
+import top.panson.common.executor.support.BoundedPriorityBlockingQueue;
+import top.panson.common.executor.support.CoDelBlockingQueue;
 import top.panson.common.executor.support.RejectedPolicyTypeEnum;
-import top.panson.common.executor.support.ResizableCapacityLinkedBlockingQueue;
+import top.panson.common.executor.support.ResizableCapacityQueue;
+import top.panson.common.executor.support.WeightBoundedBlockingQueue;
+import top.panson.common.executor.support.WorkStealingBlockingQueue;
 import top.panson.common.model.ThreadPoolParameter;
 import top.panson.common.model.ThreadPoolParameterInfo;
 import top.panson.common.toolkit.JSONUtil;
 import top.panson.core.executor.DynamicThreadPoolExecutor;
+import top.panson.core.executor.ExtensibleThreadPoolExecutor;
+import top.panson.core.executor.MicroBatchingThreadPoolExecutor;
+import top.panson.core.executor.forkjoin.DynamicForkJoinPool;
 import top.panson.core.executor.manage.GlobalThreadPoolManage;
+import top.panson.core.plugin.impl.TaskAdmissionControlPlugin;
 import top.panson.message.request.ChangeParameterNotifyRequest;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import static top.panson.common.constant.ChangeThreadPoolConstants.CHANGE_DELIMITER;
+import static top.panson.common.constant.ChangeThreadPoolConstants.CHANGE_FORK_JOIN_POOL_TEXT;
 import static top.panson.common.constant.ChangeThreadPoolConstants.CHANGE_THREAD_POOL_TEXT;
 
 /**
@@ -42,6 +52,19 @@ public class ServerThreadPoolDynamicRefresh implements ThreadPoolDynamicRefresh
         ThreadPoolParameterInfo parameter = JSONUtil.parseObject(content, ThreadPoolParameterInfo.class);
         //得到线程池Id
         String threadPoolId = parameter.getTpId();
+        //ForkJoinPool和其他动态线程池分开存放，只需要刷新并行度
+        DynamicForkJoinPool forkJoinPool = GlobalThreadPoolManage.getForkJoinPool(threadPoolId);
+        if (forkJoinPool != null) {
+            //只用于监控的ForkJoinPool没有订阅配置信息，这里再检查一次，不能修改并行度的话不记录修改成功的日志
+            if (!forkJoinPool.isParallelismAdjustable()) {
+                log.warn("The parallelism of fork/join pool cannot be changed on this jdk, the change is ignored. threadPoolId: {}", threadPoolId);
+                return;
+            }
+            int originalParallelism = forkJoinPool.getParallelism();
+            changeForkJoinParameter(forkJoinPool, parameter);
+            log.info(CHANGE_FORK_JOIN_POOL_TEXT, threadPoolId, String.format(CHANGE_DELIMITER, originalParallelism, forkJoinPool.getParallelism()));
+            return;
+        }
         //从全局线程池管理器中得到对应的线程池，这个线程池就是程序中正在运行的线程池
         ThreadPoolExecutor executor = GlobalThreadPoolManage.getExecutorService(threadPoolId).getExecutor();
         //刷新线程池的信息
@@ -133,16 +156,18 @@ public class ServerThreadPoolDynamicRefresh implements ThreadPoolDynamicRefresh
             if (parameter.getCoreSize() != null) {
                 executor.setCorePoolSize(parameter.getCoreSize());
             }
-        }//判断队列容量做非空判断，同时判断队列类型是否为ResizableCapacityLinkedBlockingQueue类型
-        if (parameter.getCapacity() != null
-                && Objects.equals(BlockingQueueTypeEnum.RESIZABLE_LINKED_BLOCKING_QUEUE.getType(), parameter.getQueueType())) {
-            if (executor.getQueue() instanceof ResizableCapacityLinkedBlockingQueue) {
-                ResizableCapacityLinkedBlockingQueue queue = (ResizableCapacityLinkedBlockingQueue) executor.getQueue();
+        }//判断队列容量做非空判断，只要当前队列支持动态调整容量，就直接更新队列容量
+        if (parameter.getCapacity() != null) {
+            if (executor.getQueue() instanceof ResizableCapacityQueue) {
+                ResizableCapacityQueue queue = (ResizableCapacityQueue) executor.getQueue();
                 queue.setCapacity(parameter.getCapacity());
-            } else {
+            } else if (Objects.equals(BlockingQueueTypeEnum.RESIZABLE_LINKED_BLOCKING_QUEUE.getType(), parameter.getQueueType())
+                    || Objects.equals(BlockingQueueTypeEnum.RESIZABLE_ARRAY_BLOCKING_QUEUE.getType(), parameter.getQueueType())) {
                 log.warn("The queue length cannot be modified. Queue type mismatch. Current queue type: {}", executor.getQueue().getClass().getSimpleName());
             }
-        }//更新线程存活时间
+        }//更新队列特有的参数
+        changeQueueParameter(executor.getQueue(), parameter);
+        //更新线程存活时间
         if (parameter.getKeepAliveTime() != null) {
             executor.setKeepAliveTime(parameter.getKeepAliveTime(), TimeUnit.SECONDS);
         }//更新任务执行超时时间
@@ -156,6 +181,84 @@ public class ServerThreadPoolDynamicRefresh implements ThreadPoolDynamicRefresh
         }//更新是否允许超过存活时间的核心线程终止工作
         if (parameter.getAllowCoreThreadTimeOut() != null) {
             executor.allowCoreThreadTimeOut(EnableEnum.getBool(parameter.getAllowCoreThreadTimeOut()));
+        }//更新每个调用方的准入限流参数
+        changeAdmissionParameter(executor, parameter);
+        //更新微批处理线程池的批次大小和最长等待时间
+        changeMicroBatchParameter(executor, parameter);
+        //更新是否开启快速扩容模式
+        if (parameter.getEagerGrowth() != null && executor instanceof ExtensibleThreadPoolExecutor) {
+            ((ExtensibleThreadPoolExecutor) executor).setEagerGrowth(EnableEnum.getBool(parameter.getEagerGrowth()));
+        }
+    }
+
+
+    /**
+     * @方法描述：刷新队列特有的参数，比如CoDel队列的目标排队延迟和观察周期，按照权重限制容量的队列的最大权重，
+     * 有界优先级队列满了之后是否淘汰优先级最低的任务，工作窃取队列的分片数量，参数不合法时保留原来的配置
+     */
+    public static void changeQueueParameter(BlockingQueue<?> workQueue, ThreadPoolParameter parameter) {
+        if (workQueue instanceof CoDelBlockingQueue) {
+            CoDelBlockingQueue<?> queue = (CoDelBlockingQueue<?>) workQueue;
+            Long queueTargetDelay = parameter.getQueueTargetDelay();
+            if (queueTargetDelay != null && queueTargetDelay > 0) {
+                queue.setTargetDelay(queueTargetDelay, TimeUnit.MILLISECONDS);
+            }
+            Long queueDelayInterval = parameter.getQueueDelayInterval();
+            if (queueDelayInterval != null && queueDelayInterval > 0) {
+                queue.setInterval(queueDelayInterval, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (workQueue instanceof WeightBoundedBlockingQueue) {
+            Long queueMaxWeight = parameter.getQueueMaxWeight();
+            if (queueMaxWeight != null && queueMaxWeight > 0) {
+                ((WeightBoundedBlockingQueue<?>) workQueue).setMaxWeight(queueMaxWeight);
+            }
+        }
+        if (workQueue instanceof BoundedPriorityBlockingQueue && parameter.getQueueEvictLowestPriority() != null) {
+            ((BoundedPriorityBlockingQueue<?>) workQueue).setEvictLowestPriority(EnableEnum.getBool(parameter.getQueueEvictLowestPriority()));
+        }
+        if (workQueue instanceof WorkStealingBlockingQueue) {
+            Integer queueShardCount = parameter.getQueueShardCount();
+            if (queueShardCount != null && queueShardCount > 0 && queueShardCount <= WorkStealingBlockingQueue.MAX_SHARD_COUNT) {
+                ((WorkStealingBlockingQueue<?>) workQueue).setShardCount(queueShardCount);
+            }
+        }
+    }
+
+
+    /**
+     * @方法描述：刷新准入控制插件的限流参数，速率为空或者不大于0表示关闭限流
+     */
+    public static void changeAdmissionParameter(ThreadPoolExecutor executor, ThreadPoolParameter parameter) {
+        TaskAdmissionControlPlugin.find(executor)
+                .ifPresent(plugin -> plugin.setLimit(parameter.getAdmissionRate(), parameter.getAdmissionBurst()));
+    }
+
+
+    /**
+     * @方法描述：刷新微批处理线程池的批次大小和最长等待时间，参数为空或者不大于0时保留原来的配置
+     */
+    public static void changeMicroBatchParameter(ThreadPoolExecutor executor, ThreadPoolParameter parameter) {
+        if (!(executor instanceof MicroBatchingThreadPoolExecutor)) {
+            return;
+        }
+        MicroBatchingThreadPoolExecutor<?> microBatchingExecutor = (MicroBatchingThreadPoolExecutor<?>) executor;
+        if (parameter.getMicroBatchSize() != null && parameter.getMicroBatchSize() > 0) {
+            microBatchingExecutor.setBatchSize(parameter.getMicroBatchSize());
+        }
+        if (parameter.getMicroBatchLinger() != null && parameter.getMicroBatchLinger() > 0) {
+            microBatchingExecutor.setLingerMillis(parameter.getMicroBatchLinger());
+        }
+    }
+
+
+    /**
+     * @方法描述：刷新ForkJoinPool的并行度，并行度取最大线程数，没有设置最大线程数的话取核心线程数，参数不合法时保留原来的配置
+     */
+    public static void changeForkJoinParameter(DynamicForkJoinPool forkJoinPool, ThreadPoolParameter parameter) {
+        Integer parallelism = Optional.ofNullable(parameter.getMaxSize()).orElse(parameter.getCoreSize());
+        if (parallelism != null && parallelism > 0 && parallelism <= DynamicForkJoinPool.MAX_PARALLELISM) {
+            forkJoinPool.setParallelism(parallelism);
         }
     }
 }
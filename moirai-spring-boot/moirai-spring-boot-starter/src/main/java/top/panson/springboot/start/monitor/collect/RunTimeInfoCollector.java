@@ -51,6 +51,8 @@ public class RunTimeInfoCollector extends AbstractThreadPoolRuntime implements C
         List<Message> runtimeMessages = new ArrayList<>();
         //得到所有的动态线程池的Id
         List<String> listThreadPoolId = GlobalThreadPoolManage.listThreadPoolId();
+        //ForkJoinPool和其他动态线程池分开存放，这里也要收集它们的运行信息
+        listThreadPoolId.addAll(GlobalThreadPoolManage.listForkJoinPoolId());
         //遍历线程池Id
         for (String each : listThreadPoolId) {
             //得到每个线程池的运行信息
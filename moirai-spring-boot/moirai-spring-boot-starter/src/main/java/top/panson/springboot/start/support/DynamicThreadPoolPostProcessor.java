@@ -15,13 +15,20 @@ import top.panson.common.web.base.Result;
 import top.panson.core.executor.DynamicThreadPool;
 import top.panson.core.executor.DynamicThreadPoolExecutor;
 import top.panson.core.executor.DynamicThreadPoolWrapper;
+import top.panson.core.executor.ExtensibleThreadPoolExecutor;
+import top.panson.core.executor.forkjoin.DynamicForkJoinPool;
 import top.panson.core.executor.manage.GlobalThreadPoolManage;
 import top.panson.core.executor.support.adpter.DynamicThreadPoolAdapterChoose;
+import top.panson.core.plugin.impl.AdaptivePoolSizingConfig;
+import top.panson.core.plugin.impl.AdaptivePoolSizingPlugin;
+import top.panson.core.plugin.manager.ThreadPoolPluginSupport;
 import top.panson.core.toolkit.DynamicThreadPoolAnnotationUtil;
 import top.panson.message.service.GlobalNotifyAlarmManage;
 import top.panson.message.service.ThreadPoolNotifyAlarm;
 import top.panson.springboot.start.config.BootstrapProperties;
+import top.panson.springboot.start.core.AdaptivePoolSizingNotifier;
 import top.panson.springboot.start.core.DynamicThreadPoolSubscribeConfig;
+import top.panson.springboot.start.core.ServerThreadPoolDynamicRefresh;
 import top.panson.springboot.start.remote.HttpAgent;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -33,6 +40,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -52,6 +60,9 @@ import static top.panson.common.constant.Constants.*;
 @AllArgsConstructor
 public final class DynamicThreadPoolPostProcessor implements BeanPostProcessor {
 
+    //ForkJoinPool空闲工作线程的存活时间，注册到服务端时使用
+    private static final long FORK_JOIN_KEEP_ALIVE_MILLIS = 60000L;
+
     //配置信息对象
     private final BootstrapProperties properties;
 
@@ -82,21 +93,8 @@ public final class DynamicThreadPoolPostProcessor implements BeanPostProcessor {
         //之后的逻辑就和处理真正的DynamicThreadPoolExecutor对象一样了，无非就是把线程池信息注册到服务端，然后把线程池保存在线程池全局管理器中
         //DynamicThreadPoolAdapterChoose.match(bean)就是判断bean的类型是否为ThreadPoolTaskExecutor、ExecutorTtlWrapper、ExecutorServiceTtlWrapper中的一个，这些都是第三方的线程池
         if (bean instanceof DynamicThreadPoolExecutor || DynamicThreadPoolAdapterChoose.match(bean)) {
-            DynamicThreadPool dynamicThreadPool;
-            try {//判断该线程池对象上是否存在DynamicThreadPool注解
-                dynamicThreadPool = ApplicationContextHolder.findAnnotationOnBean(beanName, DynamicThreadPool.class);
-                //如果找不到该注解，就进入下面这个分支
-                if (Objects.isNull(dynamicThreadPool)) {
-                    //Adapt to lower versions of SpringBoot.
-                    //这里就是为了适配SpringBoot低版本，使用DynamicThreadPoolAnnotationUtil工具再次查找注解
-                    dynamicThreadPool = DynamicThreadPoolAnnotationUtil.findAnnotationOnBean(beanName, DynamicThreadPool.class);
-                    if (Objects.isNull(dynamicThreadPool)) {
-                        //还是找不到则直接返回bean即可
-                        return bean;
-                    }
-                }
-            } catch (Exception ex) {
-                log.error("Failed to create dynamic thread pool in annotation mode.", ex);
+            //判断该线程池对象上是否存在DynamicThreadPool注解，找不到则直接返回bean即可
+            if (!isDynamicThreadPool(beanName)) {
                 return bean;
             }//走到这里意味着当前的bean上有DynamicThreadPool，也就意味着是一个动态线程池，下面就要收集动态线程池信息了
             DynamicThreadPoolExecutor dynamicThreadPoolExecutor;
@@ -114,9 +112,19 @@ public final class DynamicThreadPoolPostProcessor implements BeanPostProcessor {
             //因服务端也许也配置了动态线程池的信息，一切都已服务端为准，所以从fillPoolAndRegister方法返回的就是以服务端为准的动态线程池
             //这时候把它替换到第三方线程池中即可，这样程序中的线程池就会以最新的配置参数来运行了
             DynamicThreadPoolAdapterChoose.replace(bean, remoteThreadPoolExecutor);
+            //如果用户为这个线程池配置了自适应调整的参数，就注册自适应调整线程池大小的插件
+            registerAdaptiveSizing(dynamicThreadPoolWrapper);
             //这里还有一个操作，就是订阅服务端线程池的信息，订阅之后，服务端线程池信息一旦更新，就会通知客户端动态更新线程池信息
             subscribeConfig(dynamicThreadPoolWrapper);
             return DynamicThreadPoolAdapterChoose.match(bean) ? bean : remoteThreadPoolExecutor;
+        }//ForkJoinPool门面对象本身就是动态的，直接注册到服务端即可
+        if (bean instanceof DynamicForkJoinPool) {
+            registerForkJoinPool((DynamicForkJoinPool) bean);
+            return bean;
+        }//带有DynamicThreadPool注解的普通ForkJoinPool会被包装成门面对象注册，容器中仍然是原来的ForkJoinPool，调用方继续直接使用它
+        if (bean instanceof ForkJoinPool && isDynamicThreadPool(beanName)) {
+            registerForkJoinPool(new DynamicForkJoinPool(beanName, (ForkJoinPool) bean));
+            return bean;
         }//这里就是判断一下，如果在配置类中创建动态线程池时就被包装成DynamicThreadPoolWrapper对象交给spring容器了，这里就直接注册信息到服务端即可
         if (bean instanceof DynamicThreadPoolWrapper) {
             DynamicThreadPoolWrapper dynamicThreadPoolWrapper = (DynamicThreadPoolWrapper) bean;
@@ -126,13 +134,55 @@ public final class DynamicThreadPoolPostProcessor implements BeanPostProcessor {
     }
 
 
+    //判断bean上是否存在DynamicThreadPool注解的方法
+    private boolean isDynamicThreadPool(String beanName) {
+        try {
+            DynamicThreadPool dynamicThreadPool = ApplicationContextHolder.findAnnotationOnBean(beanName, DynamicThreadPool.class);
+            //如果找不到该注解，就进入下面这个分支
+            if (Objects.isNull(dynamicThreadPool)) {
+                //Adapt to lower versions of SpringBoot.
+                //这里就是为了适配SpringBoot低版本，使用DynamicThreadPoolAnnotationUtil工具再次查找注解
+                dynamicThreadPool = DynamicThreadPoolAnnotationUtil.findAnnotationOnBean(beanName, DynamicThreadPool.class);
+            }
+            return Objects.nonNull(dynamicThreadPool);
+        } catch (Exception ex) {
+            log.error("Failed to create dynamic thread pool in annotation mode.", ex);
+            return false;
+        }
+    }
+
+
     //注册线程池信息到服务端的方法，这个方法也会订阅服务端的线程池信息，但这里我把订阅的功能省略了
     protected void registerAndSubscribe(DynamicThreadPoolWrapper dynamicThreadPoolWrapper) {
         fillPoolAndRegister(dynamicThreadPoolWrapper);
+        registerAdaptiveSizing(dynamicThreadPoolWrapper);
         subscribeConfig(dynamicThreadPoolWrapper);
     }
 
 
+    //为配置了自适应调整参数的线程池注册自适应调整线程池大小的插件，插件的决策会作为配置变更通知发送出去
+    protected void registerAdaptiveSizing(DynamicThreadPoolWrapper dynamicThreadPoolWrapper) {
+        String threadPoolId = dynamicThreadPoolWrapper.getThreadPoolId();
+        Map<String, AdaptivePoolSizingConfig> adaptiveSizing = properties.getAdaptiveSizing();
+        AdaptivePoolSizingConfig config = adaptiveSizing == null ? null : adaptiveSizing.get(threadPoolId);
+        ThreadPoolExecutor executor = dynamicThreadPoolWrapper.getExecutor();
+        if (config == null) {
+            return;
+        }
+        if (!(executor instanceof ThreadPoolPluginSupport)) {
+            log.warn("Adaptive sizing is only supported by thread pool with plugin support. threadPoolId: {}", threadPoolId);
+            return;
+        }
+        try {
+            AdaptivePoolSizingPlugin plugin = new AdaptivePoolSizingPlugin(threadPoolId, executor, config);
+            plugin.setDecisionListener(new AdaptivePoolSizingNotifier(executor));
+            ((ThreadPoolPluginSupport) executor).tryRegister(plugin);
+        } catch (Exception ex) {
+            log.error("Failed to register adaptive sizing plugin. threadPoolId: {}", threadPoolId, ex);
+        }
+    }
+
+
 
 
     /**
@@ -196,6 +246,8 @@ public final class DynamicThreadPoolPostProcessor implements BeanPostProcessor {
                         .capacityAlarm(80)
                         //拒绝策略类型
                         .rejectedPolicyType(RejectedPolicyTypeEnum.getRejectedPolicyTypeEnumByName(executor.getRejectedExecutionHandler().getClass().getSimpleName()))
+                        //是否开启了快速扩容模式
+                        .eagerGrowth(executor instanceof ExtensibleThreadPoolExecutor && ((ExtensibleThreadPoolExecutor) executor).isEagerGrowth())
                         //构建DynamicThreadPoolRegisterParameter对象，其实这里面其实还有几个成员变量没有赋值，比如线程名称前缀，线程池执行任务的超时时间
                         .build();
                 //在这里使用parameterInfo创建了DynamicThreadPoolRegisterWrapper对象，这个对象要发送给服务端进行注册
@@ -218,17 +270,93 @@ public final class DynamicThreadPoolPostProcessor implements BeanPostProcessor {
     }
 
 
+    /**
+     *
+     * @方法描述：注册ForkJoinPool信息到服务端的方法，和fillPoolAndRegister方法一样以服务端的配置为准，
+     * ForkJoinPool只有并行度可以调整，注册的时候核心线程数和最大线程数都是并行度，注册之后同样订阅服务端的配置信息。
+     * 容器中的普通ForkJoinPool在jdk19以下的版本无法修改并行度，这种ForkJoinPool只注册用于监控，按照实际的并行度注册，也不订阅服务端的配置信息，
+     * 否则服务端修改了并行度之后控制台会显示修改成功，但是ForkJoinPool实际上没有任何变化
+     */
+    protected void registerForkJoinPool(DynamicForkJoinPool forkJoinPool) {
+        String threadPoolId = forkJoinPool.getThreadPoolId();
+        boolean adjustable = forkJoinPool.isParallelismAdjustable();
+        if (!adjustable) {
+            log.warn("The parallelism of fork/join pool cannot be changed on this jdk, the pool is registered for monitoring only. "
+                    + "Declare a DynamicForkJoinPool bean to make it adjustable. threadPoolId: {}", threadPoolId);
+        }
+        Map<String, String> queryStrMap = new HashMap(3);
+        queryStrMap.put(TP_ID, threadPoolId);
+        queryStrMap.put(ITEM_ID, properties.getItemId());
+        queryStrMap.put(NAMESPACE, properties.getNamespace());
+        ThreadPoolParameterInfo threadPoolParameterInfo;
+        try {
+            Result result = httpAgent.httpGetByConfig(Constants.CONFIG_CONTROLLER_PATH, null, queryStrMap, 5000L);
+            if (result.isSuccess() && result.getData() != null) {
+                String resultJsonStr = JSONUtil.toJSONString(result.getData());
+                if ((threadPoolParameterInfo = JSONUtil.parseObject(resultJsonStr, ThreadPoolParameterInfo.class)) != null) {
+                    //服务端已经有配置信息了，以服务端的并行度为准，并行度不能修改的话就以实际的并行度为准
+                    if (adjustable) {
+                        ServerThreadPoolDynamicRefresh.changeForkJoinParameter(forkJoinPool, threadPoolParameterInfo);
+                    } else {
+                        int parallelism = forkJoinPool.getParallelism();
+                        threadPoolParameterInfo.setCorePoolSize(parallelism).setMaximumPoolSize(parallelism).setCoreSize(parallelism).setMaxSize(parallelism);
+                    }
+                    GlobalThreadPoolManage.registerForkJoinPool(threadPoolId, threadPoolParameterInfo, forkJoinPool);
+                }
+            } else {
+                int parallelism = forkJoinPool.getParallelism();
+                //ForkJoinPool外部提交的任务队列是无界的，关闭之后提交任务直接抛出异常，所以按照无界队列和AbortPolicy注册
+                DynamicThreadPoolRegisterParameter parameterInfo = DynamicThreadPoolRegisterParameter.builder()
+                        .threadPoolId(threadPoolId)
+                        .corePoolSize(parallelism)
+                        .maximumPoolSize(parallelism)
+                        .blockingQueueType(BlockingQueueTypeEnum.LINKED_BLOCKING_QUEUE)
+                        .capacity(Integer.MAX_VALUE)
+                        .allowCoreThreadTimeOut(true)
+                        .keepAliveTime(FORK_JOIN_KEEP_ALIVE_MILLIS)
+                        .isAlarm(false)
+                        .activeAlarm(80)
+                        .capacityAlarm(80)
+                        .rejectedPolicyType(RejectedPolicyTypeEnum.ABORT_POLICY)
+                        .eagerGrowth(false)
+                        .build();
+                DynamicThreadPoolRegisterWrapper registerWrapper = DynamicThreadPoolRegisterWrapper.builder()
+                        .parameter(parameterInfo)
+                        .build();
+                GlobalThreadPoolManage.dynamicRegister(registerWrapper);
+                ThreadPoolParameterInfo parameter = JSONUtil.parseObject(JSONUtil.toJSONString(parameterInfo), ThreadPoolParameterInfo.class);
+                GlobalThreadPoolManage.registerForkJoinPool(threadPoolId, parameter, forkJoinPool);
+            }
+        } catch (Exception ex) {
+            log.error("Failed to initialize fork/join pool configuration. error message: {}", ex.getMessage());
+        }
+        if (adjustable) {
+            dynamicThreadPoolSubscribeConfig.subscribeConfig(threadPoolId);
+        }
+    }
+
+
     //使用服务端传回来的动态线程池的配置信息刷新本地线程池信息
     private void threadPoolParamReplace(ThreadPoolExecutor executor, ThreadPoolParameterInfo threadPoolParameterInfo) {
         BlockingQueue workQueue = BlockingQueueTypeEnum.createBlockingQueue(threadPoolParameterInfo.getQueueType(), threadPoolParameterInfo.getCapacity());
+        ServerThreadPoolDynamicRefresh.changeQueueParameter(workQueue, threadPoolParameterInfo);
         //利用反射设置队列
         ReflectUtil.setFieldValue(executor, "workQueue", workQueue);
+        //队列被替换了，要把线程池的回调重新绑定到新的队列上
+        if (executor instanceof ExtensibleThreadPoolExecutor) {
+            ((ExtensibleThreadPoolExecutor) executor).bindWorkQueue();
+        }
         //下面的逻辑很简单，就不添加注释了
         executor.setCorePoolSize(threadPoolParameterInfo.corePoolSizeAdapt());
         executor.setMaximumPoolSize(threadPoolParameterInfo.maximumPoolSizeAdapt());
         executor.setKeepAliveTime(threadPoolParameterInfo.getKeepAliveTime(), TimeUnit.SECONDS);
         executor.allowCoreThreadTimeOut(EnableEnum.getBool(threadPoolParameterInfo.getAllowCoreThreadTimeOut()));
         executor.setRejectedExecutionHandler(RejectedPolicyTypeEnum.createPolicy(threadPoolParameterInfo.getRejectedType()));
+        if (executor instanceof ExtensibleThreadPoolExecutor && threadPoolParameterInfo.getEagerGrowth() != null) {
+            ((ExtensibleThreadPoolExecutor) executor).setEagerGrowth(EnableEnum.getBool(threadPoolParameterInfo.getEagerGrowth()));
+        }
+        ServerThreadPoolDynamicRefresh.changeAdmissionParameter(executor, threadPoolParameterInfo);
+        ServerThreadPoolDynamicRefresh.changeMicroBatchParameter(executor, threadPoolParameterInfo);
         if (executor instanceof DynamicThreadPoolExecutor) {
             Optional.ofNullable(threadPoolParameterInfo.getExecuteTimeOut())
                     .ifPresent(executeTimeOut -> ((DynamicThreadPoolExecutor) executor).setExecuteTimeOut(executeTimeOut));
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package top.panson.virtual.executor;
+
+import top.panson.common.executor.support.ResizableCapacityLinkedBlockingQueue;
+import top.panson.core.executor.DynamicThreadPoolExecutor;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * @方法描述：使用虚拟线程执行任务的动态线程池，适合大部分时间都阻塞在远程调用、数据库访问上的IO密集型任务。
+ * 虚拟线程的创建和阻塞代价都很低，所以这个线程池限制的不是线程数量，而是同时执行的任务数量：最大线程数就是并发上限，
+ * 核心线程数始终和最大线程数保持一致，每个任务都可以马上得到一个虚拟线程执行，正在执行的任务达到并发上限之后，
+ * 新提交的任务进入队列排队，队列满了之后走拒绝策略。空闲的虚拟线程超过存活时间就会退出，不会一直占用内存。
+ * 因为这个线程池仍然是一个DynamicThreadPoolExecutor，所以插件、拒绝策略、运行状态采集和服务端动态刷新都和普通的动态线程池一样，
+ * 在服务端修改最大线程数就是在修改并发上限
+ */
+@Slf4j
+public class VirtualThreadPoolExecutor extends DynamicThreadPoolExecutor {
+
+    //空闲的虚拟线程默认的存活时间
+    private static final long DEFAULT_KEEP_ALIVE_SECONDS = 10L;
+
+    //关闭线程池时默认等待任务执行完成的时间
+    private static final long DEFAULT_AWAIT_TERMINATION_MILLIS = 5000L;
+
+    public VirtualThreadPoolExecutor(@NonNull String threadPoolId, int concurrencyLimit, int queueCapacity) {
+        this(threadPoolId, concurrencyLimit, queueCapacity, 0L, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public VirtualThreadPoolExecutor(@NonNull String threadPoolId, int concurrencyLimit, int queueCapacity,
+                                     long executeTimeOut, @NonNull RejectedExecutionHandler rejectedExecutionHandler) {
+        super(
+                concurrencyLimit, concurrencyLimit,
+                DEFAULT_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                executeTimeOut, true, DEFAULT_AWAIT_TERMINATION_MILLIS,
+                new ResizableCapacityLinkedBlockingQueue<>(queueCapacity),
+                threadPoolId,
+                Thread.ofVirtual().name(threadPoolId + "-", 0).factory(),
+                rejectedExecutionHandler);
+        super.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Get the max number of tasks executing at the same time.
+     *
+     * @return concurrency limit
+     */
+    public int getConcurrencyLimit() {
+        return getMaximumPoolSize();
+    }
+
+    /**
+     * Set the max number of tasks executing at the same time.
+     *
+     * @param concurrencyLimit concurrency limit
+     */
+    public void setConcurrencyLimit(int concurrencyLimit) {
+        setMaximumPoolSize(concurrencyLimit);
+    }
+
+    /**
+     * 并发上限由最大线程数决定，修改最大线程数的时候同时修改核心线程数，调整的顺序保证任何时候核心线程数都不会大于最大线程数
+     */
+    @Override
+    public void setMaximumPoolSize(int maximumPoolSize) {
+        if (maximumPoolSize >= getMaximumPoolSize()) {
+            super.setMaximumPoolSize(maximumPoolSize);
+            super.setCorePoolSize(maximumPoolSize);
+        } else {
+            super.setCorePoolSize(maximumPoolSize);
+            super.setMaximumPoolSize(maximumPoolSize);
+        }
+    }
+
+    /**
+     * 核心线程数始终和最大线程数保持一致，单独修改核心线程数是没有意义的，这里直接忽略，
+     * 服务端动态刷新时会先后修改核心线程数和最大线程数，最终生效的是最大线程数
+     */
+    @Override
+    public void setCorePoolSize(int corePoolSize) {
+        if (corePoolSize != getCorePoolSize()) {
+            log.debug("Virtual thread pool ignores core pool size, concurrency limit follows maximum pool size. threadPoolId: {}", getThreadPoolId());
+        }
+    }
+
+    /**
+     * 空闲的虚拟线程没有必要保留，始终允许核心线程超时退出
+     */
+    @Override
+    public void allowCoreThreadTimeOut(boolean value) {
+        super.allowCoreThreadTimeOut(true);
+    }
+}